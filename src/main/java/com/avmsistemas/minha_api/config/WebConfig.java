@@ -13,6 +13,7 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedOrigins("http://localhost:4200", "http://your-frontend-domain.com") // Endereço do seu frontend
                 .allowedMethods("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS")
                 .allowedHeaders("*")
+                .exposedHeaders("ETag") // Permite ao frontend ler o ETag das respostas (GET condicional)
                 .allowCredentials(true); // Se você usar cookies ou autenticação baseada em sessão
     }
 }
\ No newline at end of file
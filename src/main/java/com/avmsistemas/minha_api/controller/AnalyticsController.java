@@ -0,0 +1,91 @@
+package com.avmsistemas.minha_api.controller;
+
+import com.avmsistemas.minha_api.dto.SalesRollupDTO;
+import com.avmsistemas.minha_api.dto.SalesRollupRebuildDTO;
+import com.avmsistemas.minha_api.service.SalesRollups;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/analytics")
+@Tag(name = "Análises", description = "Agregados de vendas mantidos em memória (não consultam os pedidos)")
+public class AnalyticsController {
+
+    private static final int MAX_DAYS_PER_RANGE = 366;
+
+    @Autowired
+    private SalesRollups salesRollups;
+
+    @Operation(summary = "Vendas totais", description = "Pedidos, unidades e receita de todos os pedidos não cancelados.")
+    @GetMapping("/sales")
+    public SalesRollupDTO getTotalSales() {
+        return salesRollups.total();
+    }
+
+    @Operation(summary = "Vendas de um dia", description = "Pedidos feitos no dia (pela data do pedido) que não foram cancelados; zeros se não houver.")
+    @GetMapping("/sales/days/{date}")
+    public SalesRollupDTO getDailySales(
+            @Parameter(description = "Data (AAAA-MM-DD)", example = "2025-07-01") @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return salesRollups.byDay(date);
+    }
+
+    @Operation(summary = "Vendas dia a dia em um período", description = "Um agregado por dia, de 'from' a 'to' (inclusive), com no máximo "
+            + MAX_DAYS_PER_RANGE + " dias.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Agregados por dia, em ordem de data"),
+            @ApiResponse(responseCode = "400", description = "Período invertido ou maior que " + MAX_DAYS_PER_RANGE + " dias")
+    })
+    @GetMapping("/sales/days")
+    public List<SalesRollupDTO> getDailySalesRange(
+            @Parameter(description = "Primeiro dia", example = "2025-07-01") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Último dia", example = "2025-07-31") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        if (to.isBefore(from) || ChronoUnit.DAYS.between(from, to) >= MAX_DAYS_PER_RANGE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Informe um período de 1 a " + MAX_DAYS_PER_RANGE + " dias.");
+        }
+        return from.datesUntil(to.plusDays(1)).map(salesRollups::byDay).toList();
+    }
+
+    @Operation(summary = "Vendas de um produto", description = "Pedidos com o produto, unidades vendidas e receita dos seus itens; zeros se não houver.")
+    @GetMapping("/sales/products/{productId}")
+    public SalesRollupDTO getProductSales(@Parameter(description = "ID do produto", example = "1") @PathVariable Long productId) {
+        return salesRollups.byProduct(productId);
+    }
+
+    @Operation(summary = "Vendas de uma categoria", description = "Soma dos itens de produtos da categoria; zeros se não houver.")
+    @GetMapping("/sales/categories/{categoryId}")
+    public SalesRollupDTO getCategorySales(@Parameter(description = "ID da categoria", example = "1") @PathVariable Long categoryId) {
+        return salesRollups.byCategory(categoryId);
+    }
+
+    @Operation(summary = "Reconstrói os agregados de vendas",
+            description = "Relê os itens dos pedidos em faixas de IDs processadas em paralelo e substitui os agregados em memória. "
+                    + "As vendas que acontecem durante a reconstrução não se perdem.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Agregados reconstruídos",
+                    content = @Content(schema = @Schema(implementation = SalesRollupRebuildDTO.class))),
+            @ApiResponse(responseCode = "409", description = "Outra reconstrução já está em andamento")
+    })
+    @PostMapping("/sales/rebuild")
+    public SalesRollupRebuildDTO rebuildSales() {
+        return salesRollups.rebuild();
+    }
+}
@@ -1,9 +1,17 @@
 package com.avmsistemas.minha_api.controller;
 
+import com.avmsistemas.minha_api.dto.CartDeltaDTO;
+import com.avmsistemas.minha_api.dto.CartOperationDTO;
+import com.avmsistemas.minha_api.dto.CheckoutStatusDTO;
+import com.avmsistemas.minha_api.dto.GuestCartDTO;
 import com.avmsistemas.minha_api.model.Cart;
 import com.avmsistemas.minha_api.model.Order; // Importe
 import com.avmsistemas.minha_api.repository.ProductRepository;
+import com.avmsistemas.minha_api.service.AsyncCheckoutService;
+import com.avmsistemas.minha_api.service.CartConflictRetrier;
 import com.avmsistemas.minha_api.service.CartService;
+import com.avmsistemas.minha_api.service.GuestCartService;
+import com.avmsistemas.minha_api.service.IdempotencyService;
 import com.avmsistemas.minha_api.service.OrderService; // Importe o OrderService
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -17,7 +25,12 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/users/{userId}/cart")
@@ -30,35 +43,83 @@ public class CartController {
     private OrderService orderService; // Injeta o OrderService
     @Autowired
     private ProductRepository productRepository;
+    @Autowired
+    private CartConflictRetrier retrier; // Conflitos de versão: repete as operações idempotentes, as demais viram 409
+    @Autowired
+    private GuestCartService guestCartService;
+    @Autowired
+    private AsyncCheckoutService asyncCheckoutService; // Finalização enfileirada (?async=true ou Prefer: respond-async)
+    @Autowired
+    private IdempotencyService idempotencyService; // Repetições com a mesma Idempotency-Key recebem a resposta guardada
 
     @Operation(summary = "Adiciona um item ao carrinho", description = "Adiciona ou atualiza a quantidade de um produto no carrinho de um usuário.")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Item adicionado/atualizado com sucesso", content = @Content(schema = @Schema(implementation = Cart.class))),
+            @ApiResponse(responseCode = "200", description = "Item adicionado/atualizado com sucesso (CartDeltaDTO no modo compacto)", content = @Content(schema = @Schema(implementation = Cart.class))),
             @ApiResponse(responseCode = "404", description = "Usuário ou produto não encontrado"),
-            @ApiResponse(responseCode = "400", description = "Quantidade inválida")
+            @ApiResponse(responseCode = "400", description = "Quantidade inválida"),
+            @ApiResponse(responseCode = "409", description = "O carrinho foi alterado por outra requisição ao mesmo tempo"),
+            @ApiResponse(responseCode = "422", description = "Idempotency-Key já usada em outra requisição")
     })
     @PostMapping("/items")
-    public ResponseEntity<Cart> addItemToCart(
+    public ResponseEntity<?> addItemToCart(
             @Parameter(description = "ID do usuário") @PathVariable Long userId,
             @Parameter(description = "ID do produto") @RequestParam Long productId,
-            @Parameter(description = "Quantidade a ser adicionada/atualizada") @RequestParam Integer quantity) {
-        Cart updatedCart = cartService.addItemToCart(userId, productId, quantity);
-        return ResponseEntity.ok(updatedCart);
+            @Parameter(description = "Quantidade a ser adicionada/atualizada") @RequestParam Integer quantity,
+            @Parameter(description = "Chave única da operação; a repetição com a mesma chave não soma de novo")
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @Parameter(description = "'delta' para receber só a linha alterada, o total e a versão") @RequestParam(required = false) String view,
+            @Parameter(description = "'return=minimal' equivale a view=delta") @RequestHeader(value = "Prefer", required = false) String prefer) {
+        boolean delta = deltaRequested(view, prefer);
+        String fingerprint = "add product=" + productId + " quantity=" + quantity + " delta=" + delta;
+        return idempotencyService.execute(idempotencyKey, "user:" + userId, fingerprint, () -> {
+            // Somar quantidade não é idempotente: em caso de conflito o cliente decide se repete
+            Cart updatedCart = retrier.execute("add", userId, false, () -> cartService.addItemToCart(userId, productId, quantity));
+            return cartResponse(updatedCart, List.of(productId), delta);
+        });
     }
 
     @Operation(summary = "Atualiza a quantidade de um item no carrinho", description = "Atualiza a quantidade de um produto específico no carrinho de um usuário. Se a quantidade for 0, o item é removido.")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Quantidade do item atualizada com sucesso", content = @Content(schema = @Schema(implementation = Cart.class))),
+            @ApiResponse(responseCode = "200", description = "Quantidade do item atualizada com sucesso (CartDeltaDTO no modo compacto)", content = @Content(schema = @Schema(implementation = Cart.class))),
             @ApiResponse(responseCode = "404", description = "Usuário, carrinho ou item não encontrado"),
             @ApiResponse(responseCode = "400", description = "Quantidade inválida")
     })
     @PutMapping("/items/{productId}")
-    public ResponseEntity<Cart> updateCartItemQuantity(
+    public ResponseEntity<?> updateCartItemQuantity(
             @Parameter(description = "ID do usuário") @PathVariable Long userId,
             @Parameter(description = "ID do produto no carrinho") @PathVariable Long productId,
-            @Parameter(description = "Nova quantidade do produto") @RequestParam Integer newQuantity) {
-        Cart updatedCart = cartService.updateCartItemQuantity(userId, productId, newQuantity);
-        return ResponseEntity.ok(updatedCart);
+            @Parameter(description = "Nova quantidade do produto") @RequestParam Integer newQuantity,
+            @Parameter(description = "'delta' para receber só a linha alterada, o total e a versão") @RequestParam(required = false) String view,
+            @Parameter(description = "'return=minimal' equivale a view=delta") @RequestHeader(value = "Prefer", required = false) String prefer) {
+        Cart updatedCart = retrier.execute("set", userId, true, () -> cartService.updateCartItemQuantity(userId, productId, newQuantity));
+        return cartResponse(updatedCart, List.of(productId), deltaRequested(view, prefer));
+    }
+
+    @Operation(summary = "Aplica várias operações ao carrinho de uma vez",
+            description = "Recebe uma lista de operações ADD (soma quantidade), SET (define quantidade; 0 remove) e REMOVE, "
+                    + "aplicadas em ordem e em uma única transação, e retorna o carrinho final. Se uma operação for inválida, nenhuma é aplicada.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Operações aplicadas com sucesso (CartDeltaDTO no modo compacto)", content = @Content(schema = @Schema(implementation = Cart.class))),
+            @ApiResponse(responseCode = "400", description = "Lote vazio, grande demais ou com operação inválida"),
+            @ApiResponse(responseCode = "404", description = "Usuário ou produto não encontrado"),
+            @ApiResponse(responseCode = "409", description = "O carrinho foi alterado por outra requisição ao mesmo tempo")
+    })
+    @PatchMapping
+    public ResponseEntity<?> applyOperations(
+            @Parameter(description = "ID do usuário") @PathVariable Long userId,
+            @RequestBody List<CartOperationDTO> operations,
+            @Parameter(description = "'delta' para receber só as linhas alteradas, o total e a versão") @RequestParam(required = false) String view,
+            @Parameter(description = "'return=minimal' equivale a view=delta") @RequestHeader(value = "Prefer", required = false) String prefer) {
+        // O lote só é repetido automaticamente se não tiver ADD (SET e REMOVE são idempotentes)
+        boolean idempotent = operations == null || operations.stream()
+                .noneMatch(operation -> operation != null && operation.getOp() == CartOperationDTO.Type.ADD);
+        Cart updatedCart = retrier.execute("batch", userId, idempotent, () -> cartService.applyOperations(userId, operations));
+        if (!deltaRequested(view, prefer)) {
+            return ResponseEntity.ok(updatedCart);
+        }
+        Set<Long> productIds = new LinkedHashSet<>(); // Validado pelo serviço: todas as operações têm productId
+        operations.forEach(operation -> productIds.add(operation.getProductId()));
+        return cartResponse(updatedCart, productIds, true);
     }
 
     @Operation(summary = "Remove um item do carrinho", description = "Remove um produto específico do carrinho de um usuário.")
@@ -71,7 +132,7 @@ public class CartController {
     public ResponseEntity<Void> removeCartItem(
             @Parameter(description = "ID do usuário") @PathVariable Long userId,
             @Parameter(description = "ID do produto a ser removido") @PathVariable Long productId) {
-        cartService.removeCartItem(userId, productId);
+        retrier.run("remove", userId, true, () -> cartService.removeCartItem(userId, productId));
         return ResponseEntity.noContent().build();
     }
 
@@ -84,7 +145,7 @@ public class CartController {
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public ResponseEntity<Void> clearCart(
             @Parameter(description = "ID do usuário") @PathVariable Long userId) {
-        cartService.clearCart(userId);
+        retrier.run("clear", userId, true, () -> cartService.clearCart(userId));
         return ResponseEntity.noContent().build();
     }
 
@@ -103,25 +164,67 @@ public class CartController {
     }
 
     // --- NOVO ENDPOINT: Finalizar Carrinho e Criar Pedido ---
-    @Operation(summary = "Finaliza o carrinho e cria um novo pedido", description = "Converte o carrinho atual de um usuário em um pedido fechado, copiando os dados do endereço de entrega e dos itens.")
+    @Operation(summary = "Finaliza o carrinho e cria um novo pedido", description = "Converte o carrinho atual de um usuário em um pedido fechado, copiando os dados do endereço de entrega e dos itens. "
+            + "Com ?async=true ou Prefer: respond-async, a finalização é enfileirada e a resposta 202 traz o acompanhamento, consultado em GET /api/checkouts/{trackingId}.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Pedido criado com sucesso", content = @Content(schema = @Schema(implementation = Order.class))),
+            @ApiResponse(responseCode = "202", description = "Finalização enfileirada (modo assíncrono)", content = @Content(schema = @Schema(implementation = CheckoutStatusDTO.class))),
             @ApiResponse(responseCode = "400", description = "Carrinho vazio ou endereço/usuário inválido"),
-            @ApiResponse(responseCode = "404", description = "Usuário, carrinho ou endereço de entrega não encontrado")
+            @ApiResponse(responseCode = "404", description = "Usuário, carrinho ou endereço de entrega não encontrado"),
+            @ApiResponse(responseCode = "409", description = "O carrinho foi alterado por outra requisição ao mesmo tempo"),
+            @ApiResponse(responseCode = "422", description = "Idempotency-Key já usada em outra requisição"),
+            @ApiResponse(responseCode = "503", description = "Fila de finalizações cheia (modo assíncrono)")
     })
     @PostMapping("/{cartId}/checkout") // Rota para finalizar um carrinho específico
     @ResponseStatus(HttpStatus.CREATED)
-    public ResponseEntity<Order> checkoutCart(
+    public ResponseEntity<?> checkoutCart(
             @Parameter(description = "ID do usuário") @PathVariable Long userId,
             @Parameter(description = "ID do carrinho a ser finalizado") @PathVariable Long cartId,
-            @Parameter(description = "ID do endereço de entrega selecionado") @RequestParam Long deliveryAddressId) {
-        Order newOrder = orderService.createOrderFromCart(userId, cartId, deliveryAddressId);
-        return ResponseEntity.ok(newOrder); // Retorna 200 OK, embora 201 Created também seja aceitável
+            @Parameter(description = "ID do endereço de entrega selecionado") @RequestParam Long deliveryAddressId,
+            @Parameter(description = "Chave única da finalização; a repetição com a mesma chave devolve o mesmo pedido")
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @Parameter(description = "true para enfileirar a finalização e receber 202") @RequestParam(defaultValue = "false") boolean async,
+            @Parameter(description = "'respond-async' equivale a async=true") @RequestHeader(value = "Prefer", required = false) String prefer) {
+        if (async || (prefer != null && prefer.toLowerCase().contains("respond-async"))) {
+            String fingerprint = "checkout-async cart=" + cartId + " address=" + deliveryAddressId;
+            return idempotencyService.execute(idempotencyKey, "user:" + userId, fingerprint, () -> {
+                CheckoutStatusDTO status = asyncCheckoutService.submit(userId, cartId, deliveryAddressId);
+                return ResponseEntity.accepted()
+                        .location(URI.create("/api/checkouts/" + status.getTrackingId()))
+                        .header("Preference-Applied", "respond-async")
+                        .body(status);
+            });
+        }
+        String fingerprint = "checkout cart=" + cartId + " address=" + deliveryAddressId;
+        return idempotencyService.execute(idempotencyKey, "user:" + userId, fingerprint, () -> {
+            Order newOrder = retrier.execute("checkout", userId, false, () -> orderService.createOrderFromCart(userId, cartId, deliveryAddressId));
+            return ResponseEntity.ok(newOrder); // Retorna 200 OK, embora 201 Created também seja aceitável
+        });
     }
    
+    @Operation(summary = "Cria um carrinho sem usuário", description = "Mantido por compatibilidade: cria um carrinho de visitante, como POST /api/guest-carts.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Carrinho de visitante criado com sucesso", content = @Content(schema = @Schema(implementation = GuestCartDTO.class))),
+            @ApiResponse(responseCode = "503", description = "Limite de carrinhos de visitante atingido")
+    })
     @PostMapping
-    public ResponseEntity<Cart> createCart() {
-      Cart newCart = cartService.createEmptyCart(); // Seu serviço cria um carrinho e salva
+    public ResponseEntity<GuestCartDTO> createCart() {
+      GuestCartDTO newCart = guestCartService.createCart(); // Fica fora do banco até ser associado a um usuário
       return ResponseEntity.status(HttpStatus.CREATED).body(newCart);
     }
-}
\ No newline at end of file
+
+    // Modo compacto (?view=delta ou Prefer: return=minimal): só as linhas tocadas, o total e a versão, sem o
+    // carrinho inteiro e os produtos de cada item
+    private static boolean deltaRequested(String view, String prefer) {
+        return "delta".equalsIgnoreCase(view) || (prefer != null && prefer.toLowerCase().contains("return=minimal"));
+    }
+
+    private static ResponseEntity<?> cartResponse(Cart cart, Collection<Long> productIds, boolean delta) {
+        if (!delta) {
+            return ResponseEntity.ok(cart);
+        }
+        return ResponseEntity.ok()
+                .header("Preference-Applied", "return=minimal")
+                .body(CartDeltaDTO.fromCart(cart, productIds));
+    }
+}
@@ -0,0 +1,37 @@
+package com.avmsistemas.minha_api.controller;
+
+import com.avmsistemas.minha_api.dto.CacheStatsDTO;
+import com.avmsistemas.minha_api.dto.CartContentionStatsDTO;
+import com.avmsistemas.minha_api.service.CartConflictRetrier;
+import com.avmsistemas.minha_api.service.IdempotencyService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/carts")
+@Tag(name = "Carrinhos", description = "Operações para gerenciamento do carrinho de compras do usuário")
+public class CartStatsController {
+
+    @Autowired
+    private CartConflictRetrier retrier;
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Operation(summary = "Estatísticas de concorrência dos carrinhos",
+            description = "Conflitos de versão, novas tentativas e respostas 409 por operação, e os carrinhos com mais conflitos.")
+    @GetMapping("/contention/stats")
+    public CartContentionStatsDTO getContentionStats() {
+        return retrier.stats();
+    }
+
+    @Operation(summary = "Estatísticas das respostas guardadas por Idempotency-Key",
+            description = "Tamanho, acertos (repetições respondidas sem executar a operação) e remoções do cache de respostas.")
+    @GetMapping("/idempotency/stats")
+    public CacheStatsDTO getIdempotencyStats() {
+        return idempotencyService.stats();
+    }
+}
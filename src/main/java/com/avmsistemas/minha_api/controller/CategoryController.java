@@ -1,7 +1,10 @@
 package com.avmsistemas.minha_api.controller;
 
+import com.avmsistemas.minha_api.dto.CategoryStatsDTO;
 import com.avmsistemas.minha_api.model.Category;
+import com.avmsistemas.minha_api.service.CatalogVersion;
 import com.avmsistemas.minha_api.service.CategoryService;
+import com.avmsistemas.minha_api.service.CategoryStatsIndex;
 
 import io.swagger.v3.oas.annotations.tags.Tag;
 
@@ -9,6 +12,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -19,24 +23,50 @@ import java.util.List;
 public class CategoryController {
 
     private final CategoryService categoryService;
+    private final CatalogVersion catalogVersion;
+    private final CategoryStatsIndex categoryStatsIndex;
 
     @Autowired
-    public CategoryController(CategoryService categoryService) {
+    public CategoryController(CategoryService categoryService, CatalogVersion catalogVersion, CategoryStatsIndex categoryStatsIndex) {
         this.categoryService = categoryService;
+        this.catalogVersion = catalogVersion;
+        this.categoryStatsIndex = categoryStatsIndex;
     }
 
+    // As categorias são serializadas com seus produtos, então o ETag é a versão do catálogo inteiro
     @GetMapping
-    public List<Category> getAllCategories() {
+    public List<Category> getAllCategories(WebRequest request) {
+        if (request.checkNotModified(catalogVersion.etag())) {
+            return null; // 304 Not Modified
+        }
         return categoryService.getAllCategories();
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Category> getCategoryById(@PathVariable Long id) {
+    public ResponseEntity<Category> getCategoryById(@PathVariable Long id, WebRequest request) {
+        if (request.checkNotModified(catalogVersion.etag())) {
+            return null; // 304 Not Modified
+        }
         return categoryService.getCategoryById(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    // Agregados mantidos em memória (quantidade de produtos, preço mínimo/máximo/médio): não consulta o banco
+    @GetMapping("/stats")
+    public List<CategoryStatsDTO> getAllCategoryStats(WebRequest request) {
+        if (request.checkNotModified(catalogVersion.etag())) {
+            return null; // 304 Not Modified
+        }
+        return categoryStatsIndex.getAll();
+    }
+
+    @GetMapping("/{id}/stats")
+    public ResponseEntity<CategoryStatsDTO> getCategoryStats(@PathVariable Long id) {
+        CategoryStatsDTO stats = categoryStatsIndex.get(id);
+        return stats != null ? ResponseEntity.ok(stats) : ResponseEntity.notFound().build();
+    }
+
     @PostMapping
     public ResponseEntity<Category> createCategory(@RequestBody Category category) {
         Category createdCategory = categoryService.createCategory(category);
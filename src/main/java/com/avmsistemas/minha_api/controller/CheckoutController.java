@@ -0,0 +1,40 @@
+package com.avmsistemas.minha_api.controller;
+
+import com.avmsistemas.minha_api.dto.CheckoutStatusDTO;
+import com.avmsistemas.minha_api.service.AsyncCheckoutService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/checkouts")
+@Tag(name = "Carrinhos", description = "Operações para gerenciamento do carrinho de compras do usuário")
+public class CheckoutController {
+
+    @Autowired
+    private AsyncCheckoutService asyncCheckoutService;
+
+    @Operation(summary = "Consulta uma finalização assíncrona",
+            description = "Retorna a situação de uma finalização enfileirada (QUEUED, PROCESSING, COMPLETED com o ID do pedido ou FAILED com o motivo).")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Situação retornada com sucesso", content = @Content(schema = @Schema(implementation = CheckoutStatusDTO.class))),
+            @ApiResponse(responseCode = "404", description = "Acompanhamento não encontrado ou expirado")
+    })
+    @GetMapping("/{trackingId}")
+    public ResponseEntity<CheckoutStatusDTO> getStatus(
+            @Parameter(description = "Identificador de acompanhamento recebido na finalização") @PathVariable String trackingId) {
+        return asyncCheckoutService.getStatus(trackingId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
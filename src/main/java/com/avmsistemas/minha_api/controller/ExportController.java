@@ -0,0 +1,56 @@
+package com.avmsistemas.minha_api.controller;
+
+import com.avmsistemas.minha_api.service.ExportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequestMapping("/api/export")
+@Tag(name = "Exportação", description = "Exportação em stream (NDJSON) para extrações de analytics")
+public class ExportController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    @Autowired
+    private ExportService exportService;
+
+    @Operation(summary = "Exporta todos os produtos", description = "Um produto por linha (NDJSON), em ordem de ID, sem o histórico de preços.")
+    @ApiResponse(responseCode = "200", description = "Exportação transmitida com sucesso")
+    @GetMapping(value = "/products", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        return ndjson(exportService::exportProducts);
+    }
+
+    @Operation(summary = "Exporta todos os usuários", description = "Um usuário por linha (NDJSON), em ordem de ID, sem senha e sem contatos.")
+    @ApiResponse(responseCode = "200", description = "Exportação transmitida com sucesso")
+    @GetMapping(value = "/users", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        return ndjson(exportService::exportUsers);
+    }
+
+    @Operation(summary = "Exporta os pedidos", description = "Um pedido por linha (NDJSON), com seus itens, em ordem de ID. Pode ser filtrado por usuário. "
+            + "Inclui os pedidos arquivados (marcados com archived=true), a menos que includeArchived=false.")
+    @ApiResponse(responseCode = "200", description = "Exportação transmitida com sucesso")
+    @GetMapping(value = "/orders", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @Parameter(description = "ID do usuário (opcional) para exportar apenas os pedidos dele")
+            @RequestParam(required = false) Long userId,
+            @Parameter(description = "false para exportar só os pedidos ainda não arquivados")
+            @RequestParam(defaultValue = "true") boolean includeArchived) {
+        return ndjson(out -> exportService.exportOrders(userId, includeArchived, out));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> ndjson(StreamingResponseBody body) {
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+}
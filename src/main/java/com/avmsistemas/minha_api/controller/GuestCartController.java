@@ -0,0 +1,136 @@
+package com.avmsistemas.minha_api.controller;
+
+import com.avmsistemas.minha_api.dto.GuestCartDTO;
+import com.avmsistemas.minha_api.model.Cart;
+import com.avmsistemas.minha_api.model.Order;
+import com.avmsistemas.minha_api.service.CartConflictRetrier;
+import com.avmsistemas.minha_api.service.GuestCartService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/guest-carts")
+@Tag(name = "Carrinhos de visitante", description = "Carrinhos sem usuário, mantidos fora do banco até serem associados a um usuário ou finalizados")
+public class GuestCartController {
+
+    @Autowired
+    private GuestCartService guestCartService;
+    @Autowired
+    private CartConflictRetrier retrier;
+
+    @Operation(summary = "Cria um carrinho de visitante", description = "Cria um carrinho vazio e retorna o token usado nas demais operações. O carrinho expira se ficar sem uso.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Carrinho criado com sucesso", content = @Content(schema = @Schema(implementation = GuestCartDTO.class))),
+            @ApiResponse(responseCode = "503", description = "Limite de carrinhos de visitante atingido")
+    })
+    @PostMapping
+    public ResponseEntity<GuestCartDTO> createCart() {
+        return ResponseEntity.status(HttpStatus.CREATED).body(guestCartService.createCart());
+    }
+
+    @Operation(summary = "Obtém um carrinho de visitante")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Carrinho retornado com sucesso", content = @Content(schema = @Schema(implementation = GuestCartDTO.class))),
+            @ApiResponse(responseCode = "404", description = "Carrinho não encontrado ou expirado")
+    })
+    @GetMapping("/{token}")
+    public ResponseEntity<GuestCartDTO> getCart(
+            @Parameter(description = "Token do carrinho de visitante") @PathVariable String token) {
+        return ResponseEntity.ok(guestCartService.getCart(token));
+    }
+
+    @Operation(summary = "Adiciona um item ao carrinho de visitante", description = "Adiciona um produto ou soma a quantidade se ele já estiver no carrinho.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Item adicionado/atualizado com sucesso", content = @Content(schema = @Schema(implementation = GuestCartDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Quantidade inválida ou carrinho cheio"),
+            @ApiResponse(responseCode = "404", description = "Carrinho ou produto não encontrado")
+    })
+    @PostMapping("/{token}/items")
+    public ResponseEntity<GuestCartDTO> addItem(
+            @Parameter(description = "Token do carrinho de visitante") @PathVariable String token,
+            @Parameter(description = "ID do produto") @RequestParam Long productId,
+            @Parameter(description = "Quantidade a ser adicionada") @RequestParam Integer quantity) {
+        return ResponseEntity.ok(guestCartService.addItem(token, productId, quantity));
+    }
+
+    @Operation(summary = "Atualiza a quantidade de um item do carrinho de visitante", description = "Se a quantidade for 0, o item é removido.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Quantidade atualizada com sucesso", content = @Content(schema = @Schema(implementation = GuestCartDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Quantidade inválida"),
+            @ApiResponse(responseCode = "404", description = "Carrinho ou item não encontrado")
+    })
+    @PutMapping("/{token}/items/{productId}")
+    public ResponseEntity<GuestCartDTO> updateItemQuantity(
+            @Parameter(description = "Token do carrinho de visitante") @PathVariable String token,
+            @Parameter(description = "ID do produto no carrinho") @PathVariable Long productId,
+            @Parameter(description = "Nova quantidade do produto") @RequestParam Integer newQuantity) {
+        return ResponseEntity.ok(guestCartService.updateItemQuantity(token, productId, newQuantity));
+    }
+
+    @Operation(summary = "Remove um item do carrinho de visitante")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Item removido com sucesso", content = @Content(schema = @Schema(implementation = GuestCartDTO.class))),
+            @ApiResponse(responseCode = "404", description = "Carrinho ou item não encontrado")
+    })
+    @DeleteMapping("/{token}/items/{productId}")
+    public ResponseEntity<GuestCartDTO> removeItem(
+            @Parameter(description = "Token do carrinho de visitante") @PathVariable String token,
+            @Parameter(description = "ID do produto a ser removido") @PathVariable Long productId) {
+        return ResponseEntity.ok(guestCartService.removeItem(token, productId));
+    }
+
+    @Operation(summary = "Descarta um carrinho de visitante")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Carrinho descartado com sucesso"),
+            @ApiResponse(responseCode = "404", description = "Carrinho não encontrado ou expirado")
+    })
+    @DeleteMapping("/{token}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public ResponseEntity<Void> deleteCart(
+            @Parameter(description = "Token do carrinho de visitante") @PathVariable String token) {
+        guestCartService.deleteCart(token);
+        return ResponseEntity.noContent().build();
+    }
+
+    @Operation(summary = "Associa o carrinho de visitante a um usuário",
+            description = "Soma os itens ao carrinho do usuário (criado se não existir), com os preços atuais, e descarta o carrinho de visitante.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Itens transferidos com sucesso", content = @Content(schema = @Schema(implementation = Cart.class))),
+            @ApiResponse(responseCode = "404", description = "Carrinho, usuário ou produto não encontrado"),
+            @ApiResponse(responseCode = "409", description = "O carrinho já está sendo associado ou foi alterado ao mesmo tempo")
+    })
+    @PostMapping("/{token}/promote")
+    public ResponseEntity<Cart> promote(
+            @Parameter(description = "Token do carrinho de visitante") @PathVariable String token,
+            @Parameter(description = "ID do usuário que assume o carrinho") @RequestParam Long userId) {
+        Cart cart = retrier.execute("promote", userId, false, () -> guestCartService.promote(token, userId));
+        return ResponseEntity.ok(cart);
+    }
+
+    @Operation(summary = "Finaliza o carrinho de visitante",
+            description = "Associa o carrinho ao usuário e cria o pedido na mesma transação, como no checkout do carrinho do usuário. "
+                    + "O pedido tem só os itens do visitante: se o carrinho do usuário já tiver itens, responde 409.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Pedido criado com sucesso", content = @Content(schema = @Schema(implementation = Order.class))),
+            @ApiResponse(responseCode = "400", description = "Carrinho vazio ou endereço inválido"),
+            @ApiResponse(responseCode = "404", description = "Carrinho, usuário ou endereço não encontrado"),
+            @ApiResponse(responseCode = "409", description = "O carrinho do usuário já tem itens, ou o carrinho já está sendo associado ou foi alterado ao mesmo tempo")
+    })
+    @PostMapping("/{token}/checkout")
+    public ResponseEntity<Order> checkout(
+            @Parameter(description = "Token do carrinho de visitante") @PathVariable String token,
+            @Parameter(description = "ID do usuário comprador") @RequestParam Long userId,
+            @Parameter(description = "ID do endereço de entrega selecionado") @RequestParam Long deliveryAddressId) {
+        Order order = retrier.execute("checkout", userId, false, () -> guestCartService.checkout(token, userId, deliveryAddressId));
+        return ResponseEntity.ok(order);
+    }
+}
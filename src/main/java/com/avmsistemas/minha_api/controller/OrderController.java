@@ -1,7 +1,9 @@
 package com.avmsistemas.minha_api.controller;
 
+import com.avmsistemas.minha_api.dto.OrderPageDTO;
 import com.avmsistemas.minha_api.model.Order;
 import com.avmsistemas.minha_api.model.OrderStatus;
+import com.avmsistemas.minha_api.repository.OrderListView;
 import com.avmsistemas.minha_api.service.OrderService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -27,14 +29,31 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
 
-    @Operation(summary = "Lista todos os pedidos de um usuário", description = "Retorna uma lista de todos os pedidos realizados por um usuário específico.")
+    @Operation(summary = "Lista todos os pedidos de um usuário", description = "Retorna um resumo de todos os pedidos realizados por um usuário específico, "
+            + "do mais recente para o mais antigo, com a quantidade de itens (os itens estão no detalhe do pedido).")
     @ApiResponse(responseCode = "200", description = "Lista de pedidos retornada com sucesso")
     @GetMapping
-    public List<Order> getUserOrders(
+    public List<OrderListView> getUserOrders(
             @Parameter(description = "ID do usuário") @PathVariable Long userId) {
         return orderService.getOrdersByUserId(userId);
     }
 
+    @Operation(summary = "Lista o histórico de pedidos com paginação por cursor",
+            description = "Retorna uma página de pedidos do usuário, do mais recente para o mais antigo, já com os itens. "
+                    + "Para a próxima página, envie o nextCursor recebido como 'after'.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Página de pedidos retornada com sucesso",
+                    content = @Content(schema = @Schema(implementation = OrderPageDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Cursor ou limite inválidos")
+    })
+    @GetMapping(params = "limit")
+    public OrderPageDTO getUserOrdersPage(
+            @Parameter(description = "ID do usuário") @PathVariable Long userId,
+            @Parameter(description = "Cursor recebido na página anterior (nextCursor)") @RequestParam(required = false) String after,
+            @Parameter(description = "Quantidade máxima de pedidos na página", example = "20") @RequestParam(defaultValue = "" + OrderService.DEFAULT_PAGE_SIZE) int limit) {
+        return orderService.getOrderHistoryPage(userId, after, limit);
+    }
+
     @Operation(summary = "Busca um pedido por ID", description = "Retorna os detalhes de um pedido específico pelo seu ID e ID do usuário.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Pedido encontrado", content = @Content(schema = @Schema(implementation = Order.class))),
@@ -57,19 +76,17 @@ public class OrderController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Status do pedido atualizado com sucesso", content = @Content(schema = @Schema(implementation = Order.class))),
             @ApiResponse(responseCode = "404", description = "Pedido não encontrado"),
-            @ApiResponse(responseCode = "400", description = "Status inválido")
+            @ApiResponse(responseCode = "400", description = "Status inválido"),
+            @ApiResponse(responseCode = "403", description = "O pedido não pertence ao usuário"),
+            @ApiResponse(responseCode = "409", description = "Transição não permitida a partir do status atual, ou status alterado por outra requisição ao mesmo tempo")
     })
     @PatchMapping("/{orderId}/status")
     public ResponseEntity<Order> updateOrderStatus(
             @Parameter(description = "ID do usuário") @PathVariable Long userId, // Manter o userId na rota para consistência
             @Parameter(description = "ID do pedido a ser atualizado", required = true) @PathVariable Long orderId,
             @Parameter(description = "Novo status do pedido", required = true) @RequestParam OrderStatus newStatus) {
-        // Opcional: Adicionar validação se o pedido realmente pertence ao userId antes de atualizar
-        Optional<Order> orderCheck = orderService.getOrderById(orderId);
-        if (orderCheck.isPresent() && !orderCheck.get().getUser().getId().equals(userId)) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Acesso negado: Pedido não pertence a este usuário.");
-        }
-        Order updatedOrder = orderService.updateOrderStatus(orderId, newStatus);
+        // A verificação de dono e a validação da transição são feitas pelo serviço na mesma leitura do pedido
+        Order updatedOrder = orderService.updateOrderStatus(orderId, userId, newStatus);
         return ResponseEntity.ok(updatedOrder);
     }
 
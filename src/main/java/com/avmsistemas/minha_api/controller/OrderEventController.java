@@ -0,0 +1,63 @@
+package com.avmsistemas.minha_api.controller;
+
+import com.avmsistemas.minha_api.dto.OrderEventDTO;
+import com.avmsistemas.minha_api.dto.OrderEventPageDTO;
+import com.avmsistemas.minha_api.service.OrderEventJournal;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/orders")
+@Tag(name = "Pedidos", description = "Operações para gerenciamento de pedidos (orders)")
+public class OrderEventController {
+
+    private static final int MAX_EVENTS_PER_PAGE = 1000;
+
+    @Autowired
+    private OrderEventJournal orderEventJournal;
+
+    @Operation(summary = "Lê o diário de eventos de pedidos",
+            description = "Devolve, em ordem de gravação, os eventos (criação, mudança de status, exclusão) a partir do offset informado. "
+                    + "Para acompanhar o diário, repita a chamada com o nextOffset da resposta.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Trecho do diário",
+                    content = @Content(schema = @Schema(implementation = OrderEventPageDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Offset negativo ou limite fora do intervalo")
+    })
+    @GetMapping("/events")
+    public OrderEventPageDTO readEvents(
+            @Parameter(description = "Offset do primeiro evento", example = "0") @RequestParam(defaultValue = "0") long from,
+            @Parameter(description = "Máximo de eventos (1 a " + MAX_EVENTS_PER_PAGE + ")", example = "100") @RequestParam(defaultValue = "100") int limit) {
+        if (from < 0 || limit <= 0 || limit > MAX_EVENTS_PER_PAGE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Use from >= 0 e limit entre 1 e " + MAX_EVENTS_PER_PAGE + ".");
+        }
+        List<OrderEventDTO> events = orderEventJournal.read(from, limit);
+        long next = events.isEmpty() ? from : events.get(events.size() - 1).getOffset() + 1;
+        return new OrderEventPageDTO(events, next, next < orderEventJournal.nextOffset());
+    }
+
+    @Operation(summary = "Histórico de eventos de um pedido",
+            description = "Todos os eventos do pedido, em ordem, lidos do diário pelo índice por pedido (inclusive de pedidos já excluídos).")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Eventos do pedido (lista vazia se não houver)")
+    })
+    @GetMapping("/{orderId}/events")
+    public List<OrderEventDTO> getOrderEvents(@Parameter(description = "ID do pedido", example = "1") @PathVariable Long orderId) {
+        return orderEventJournal.eventsForOrder(orderId);
+    }
+}
@@ -0,0 +1,39 @@
+package com.avmsistemas.minha_api.controller;
+
+import com.avmsistemas.minha_api.dto.OrderStatusTransitionRequestDTO;
+import com.avmsistemas.minha_api.dto.OrderStatusTransitionResultDTO;
+import com.avmsistemas.minha_api.service.OrderStatusTransitioner;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/orders")
+@Tag(name = "Pedidos", description = "Operações para gerenciamento de pedidos (orders)")
+public class OrderStatusController {
+
+    @Autowired
+    private OrderStatusTransitioner orderStatusTransitioner;
+
+    @Operation(summary = "Altera o status de vários pedidos",
+            description = "Aplica o mesmo status a uma lista de pedidos (ex.: SHIPPED para um lote da expedição). Só são alterados os pedidos "
+                    + "cuja transição é permitida (PENDING -> PROCESSING/CANCELED, PROCESSING -> SHIPPED/CANCELED, SHIPPED -> DELIVERED/RETURNED, "
+                    + "DELIVERED -> RETURNED); a resposta traz o desfecho de cada pedido.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Lote processado (veja o desfecho de cada pedido)",
+                    content = @Content(schema = @Schema(implementation = OrderStatusTransitionResultDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Lista vazia, grande demais ou status de destino ausente")
+    })
+    @PostMapping("/status-transitions")
+    public OrderStatusTransitionResultDTO transition(@RequestBody OrderStatusTransitionRequestDTO request) {
+        return orderStatusTransitioner.transition(request.getOrderIds(), request.getTargetStatus());
+    }
+}
@@ -0,0 +1,75 @@
+package com.avmsistemas.minha_api.controller;
+
+import com.avmsistemas.minha_api.dto.PriceAsOfDTO;
+import com.avmsistemas.minha_api.dto.PriceAsOfRequestDTO;
+import com.avmsistemas.minha_api.dto.PriceSeriesDTO;
+import com.avmsistemas.minha_api.service.PriceHistoryService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/products")
+@Tag(name = "Histórico de Preços", description = "Consultas ao histórico de preços dos produtos")
+public class PriceHistoryController {
+
+    @Autowired
+    private PriceHistoryService priceHistoryService;
+
+    @Operation(summary = "Consulta o histórico de preços de um produto",
+            description = "Retorna as alterações de preço no intervalo [from, to]. Se 'bucket' for informado (ex.: 1h, 1d), "
+                    + "retorna um agregado com preço mínimo, máximo e último de cada período, próprio para gráficos.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Histórico retornado com sucesso",
+                    content = @Content(schema = @Schema(implementation = PriceSeriesDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Intervalo ou período de agregação inválido"),
+            @ApiResponse(responseCode = "404", description = "Produto não encontrado")
+    })
+    @GetMapping("/{productId}/prices")
+    public PriceSeriesDTO getPriceHistory(
+            @Parameter(description = "ID do produto") @PathVariable Long productId,
+            @Parameter(description = "Início do intervalo (ISO-8601)", example = "2025-01-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Fim do intervalo (ISO-8601)", example = "2025-12-31T23:59:59")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Período de agregação (ex.: 15m, 1h, 1d)", example = "1d")
+            @RequestParam(required = false) String bucket) {
+        return priceHistoryService.getPriceSeries(productId, from, to, bucket);
+    }
+
+    @Operation(summary = "Consulta o preço vigente de um produto em um instante",
+            description = "Retorna o preço que estava em vigor no instante 'at' (a última alteração até esse momento).")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Consulta realizada (status NO_PRICE se ainda não havia preço)",
+                    content = @Content(schema = @Schema(implementation = PriceAsOfDTO.class))),
+            @ApiResponse(responseCode = "404", description = "Produto não encontrado")
+    })
+    @GetMapping("/{productId}/prices/as-of")
+    public PriceAsOfDTO getPriceAt(
+            @Parameter(description = "ID do produto") @PathVariable Long productId,
+            @Parameter(description = "Instante da consulta (ISO-8601)", example = "2025-06-01T10:15:30", required = true)
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        return priceHistoryService.getPriceAt(productId, at);
+    }
+
+    @Operation(summary = "Consulta preços vigentes em lote",
+            description = "Resolve vários pares (productId, at) em uma única chamada. Os resultados seguem a ordem da requisição.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Consultas realizadas"),
+            @ApiResponse(responseCode = "400", description = "Lote com campos obrigatórios ausentes ou grande demais")
+    })
+    @PostMapping("/prices/as-of")
+    public List<PriceAsOfDTO> getPricesAt(@RequestBody List<PriceAsOfRequestDTO> requests) {
+        return priceHistoryService.getPricesAt(requests);
+    }
+}
@@ -1,6 +1,14 @@
 package com.avmsistemas.minha_api.controller;
 
+import com.avmsistemas.minha_api.dto.CacheStatsDTO;
+import com.avmsistemas.minha_api.dto.ProductImportReportDTO;
+import com.avmsistemas.minha_api.dto.ProductPageDTO;
+import com.avmsistemas.minha_api.dto.ProductSummaryDTO;
 import com.avmsistemas.minha_api.model.Product;
+import com.avmsistemas.minha_api.service.CatalogVersion;
+import com.avmsistemas.minha_api.service.ProductCache;
+import com.avmsistemas.minha_api.service.ProductImportService;
+import com.avmsistemas.minha_api.service.ProductSearchIndex;
 import com.avmsistemas.minha_api.service.ProductService; // Importe o serviço
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -11,11 +19,15 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException; // Pode ser necessário
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 
@@ -24,30 +36,95 @@ import java.util.Optional;
 @Tag(name = "Produtos", description = "Operações para gerenciamento de produtos")
 public class ProductController {
 
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
     @Autowired
     private ProductService productService; // Injeta o serviço
+    @Autowired
+    private ProductCache productCache;
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+    @Autowired
+    private ProductImportService productImportService;
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    // As listagens usam a versão do catálogo como ETag: com If-None-Match igual, responde 304 sem consultar o banco.
+    // Retornar null depois de checkNotModified encerra a requisição com o 304 já preparado.
 
-    @Operation(summary = "Lista todos os produtos", description = "Retorna uma lista de todos os produtos cadastrados.")
-    @ApiResponse(responseCode = "200", description = "Lista de produtos retornada com sucesso")
+    @Operation(summary = "Lista todos os produtos", description = "Retorna o resumo de todos os produtos cadastrados (opcionalmente de uma categoria). "
+            + "O histórico de preços só é incluído quando includePriceHistory=true. Suporta GET condicional (ETag / If-None-Match).")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Lista de produtos retornada com sucesso"),
+            @ApiResponse(responseCode = "304", description = "O catálogo não mudou desde o ETag informado")
+    })
     @GetMapping
-    public List<Product> getAllProducts(@RequestParam(required = false) Long categoryId) {
-        if (categoryId != null) {
-            return productService.getProductsByCategoryId(categoryId);
+    public List<ProductSummaryDTO> getAllProducts(
+            @Parameter(description = "ID da categoria para filtrar") @RequestParam(required = false) Long categoryId,
+            @Parameter(description = "Inclui o histórico de preços de cada produto") @RequestParam(defaultValue = "false") boolean includePriceHistory,
+            WebRequest request) {
+        if (request.checkNotModified(catalogVersion.etag())) {
+            return null;
+        }
+        return productService.getProductSummaries(categoryId, includePriceHistory);
+    }
+
+    @Operation(summary = "Lista produtos com paginação por cursor",
+            description = "Retorna uma página do catálogo a partir do cursor 'after' (o nextCursor da página anterior, com a mesma ordenação). "
+                    + "Produtos sem nome ou preço aparecem no fim das ordenações por name e price. "
+                    + "O histórico de preços só é incluído quando includePriceHistory=true.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Página de produtos retornada com sucesso",
+                    content = @Content(schema = @Schema(implementation = ProductPageDTO.class))),
+            @ApiResponse(responseCode = "304", description = "O catálogo não mudou desde o ETag informado"),
+            @ApiResponse(responseCode = "400", description = "Cursor, limite ou ordenação inválidos")
+    })
+    @GetMapping(params = "limit")
+    public ProductPageDTO getProductsPage(
+            @Parameter(description = "Cursor opaco da página anterior (nextCursor)") @RequestParam(required = false) String after,
+            @Parameter(description = "Quantidade máxima de produtos na página", example = "20") @RequestParam(defaultValue = "" + ProductService.DEFAULT_PAGE_SIZE) int limit,
+            @Parameter(description = "Chave de ordenação: id, name ou price", example = "id") @RequestParam(defaultValue = "id") String sort,
+            @Parameter(description = "Inclui o histórico de preços de cada produto") @RequestParam(defaultValue = "false") boolean includePriceHistory,
+            WebRequest request) {
+        if (request.checkNotModified(catalogVersion.etag())) {
+            return null;
+        }
+        return productService.getProductsPage(after, limit, sort, includePriceHistory);
+    }
+
+    @Operation(summary = "Pesquisa produtos por texto",
+            description = "Pesquisa no nome e na descrição dos produtos usando um índice invertido em memória. "
+                    + "Aceita prefixos e pequenos erros de digitação; os resultados vêm ordenados por relevância.")
+    @ApiResponse(responseCode = "200", description = "Produtos encontrados, do mais para o menos relevante")
+    @GetMapping("/search")
+    public List<ProductSummaryDTO> searchProducts(
+            @Parameter(description = "Texto a ser pesquisado", example = "notebook gamer") @RequestParam String q,
+            @Parameter(description = "Quantidade máxima de resultados", example = "10") @RequestParam(defaultValue = "10") int limit,
+            WebRequest request) {
+        if (limit <= 0 || limit > ProductService.MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "O limite deve estar entre 1 e " + ProductService.MAX_PAGE_SIZE + ".");
+        }
+        if (request.checkNotModified(catalogVersion.etag())) {
+            return null;
         }
-        List<Product> products = productService.getAllProducts(); // Delega para o serviço
-        // Force lazy loading of priceHistory if they are to be included in the JSON response
-        products.forEach(p -> p.getPriceHistory().size());
-        return products;
+        return productSearchIndex.search(q, limit);
     }
 
-    @Operation(summary = "Busca um produto por ID", description = "Retorna os detalhes de um produto específico pelo seu ID, incluindo o histórico de preços.")
+    @Operation(summary = "Busca um produto por ID", description = "Retorna os detalhes de um produto específico pelo seu ID, incluindo o histórico de preços. "
+            + "O ETag vem da versão do produto; com If-None-Match igual, responde 304 sem carregar o produto.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Produto encontrado",
                     content = @Content(schema = @Schema(implementation = Product.class))),
+            @ApiResponse(responseCode = "304", description = "O produto não mudou desde o ETag informado"),
             @ApiResponse(responseCode = "404", description = "Produto não encontrado")
     })
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@Parameter(description = "ID do produto a ser buscado", required = true) @PathVariable Long id) {
+    public ResponseEntity<Product> getProductById(@Parameter(description = "ID do produto a ser buscado", required = true) @PathVariable Long id,
+                                                  WebRequest request) {
+        Optional<Long> version = productService.getProductVersion(id);
+        if (version.isPresent() && request.checkNotModified(CatalogVersion.productEtag(id, version.get()))) {
+            return null;
+        }
         Optional<Product> product = productService.getProductById(id); // Delega para o serviço
         return product.map(ResponseEntity::ok)
                       .orElse(ResponseEntity.notFound().build());
@@ -65,6 +142,24 @@ public class ProductController {
         return productService.createProduct(product); // Delega para o serviço
     }
 
+    @Operation(summary = "Importa produtos em massa",
+            description = "Lê o corpo como NDJSON (um produto por linha) ou CSV com cabeçalho (id,name,description,price,imageUrl,categoryId) "
+                    + "de forma incremental e grava em lotes. Linhas com 'id' atualizam o produto existente; sem 'id', incluem um novo. "
+                    + "Linhas inválidas são rejeitadas sem interromper a importação.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Importação concluída; o relatório traz contagens, vazão e linhas rejeitadas",
+                    content = @Content(schema = @Schema(implementation = ProductImportReportDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Cabeçalho CSV inválido"),
+            @ApiResponse(responseCode = "415", description = "Formato não suportado (use application/x-ndjson ou text/csv)")
+    })
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "text/csv"})
+    public ProductImportReportDTO importProducts(HttpServletRequest request) throws IOException {
+        ProductImportService.Format format = MediaType.parseMediaType(request.getContentType()).isCompatibleWith(TEXT_CSV)
+                ? ProductImportService.Format.CSV
+                : ProductImportService.Format.NDJSON;
+        return productImportService.importProducts(request.getInputStream(), format);
+    }
+
     @Operation(summary = "Atualiza um produto existente", description = "Atualiza os detalhes de um produto existente pelo seu ID e registra a alteração de preço, se houver.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Produto atualizado com sucesso",
@@ -100,4 +195,11 @@ public class ProductController {
             throw e;
         }
     }
+
+    @Operation(summary = "Estatísticas do cache de produtos", description = "Retorna tamanho, acertos, falhas e remoções do cache de leitura de produtos por ID.")
+    @ApiResponse(responseCode = "200", description = "Estatísticas retornadas com sucesso")
+    @GetMapping("/cache/stats")
+    public CacheStatsDTO getCacheStats() {
+        return productCache.stats();
+    }
 }
\ No newline at end of file
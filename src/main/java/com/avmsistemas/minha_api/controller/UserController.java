@@ -1,6 +1,7 @@
 package com.avmsistemas.minha_api.controller;
 
 import com.avmsistemas.minha_api.model.User;
+import com.avmsistemas.minha_api.repository.UserListView;
 import com.avmsistemas.minha_api.service.UserService;
 import com.avmsistemas.minha_api.service.PhoneService; // Importe
 import com.avmsistemas.minha_api.service.EmailService; // Importe
@@ -66,22 +67,14 @@ public class UserController {
         return userService.createUser(user);
     }
 
-    @Operation(summary = "Lista todos os usuários", description = "Retorna uma lista de todos os usuários cadastrados.")
+    @Operation(summary = "Lista todos os usuários", description = "Retorna um resumo de todos os usuários cadastrados (sem senha e sem contatos; use GET /api/users/{id} para o detalhe).")
     @ApiResponse(responseCode = "200", description = "Lista de usuários retornada com sucesso")
     @GetMapping
-    public List<User> getAllUsers() {
-        List<User> users = userService.getAllUsers();
-        // Força carregamento lazy para a serialização JSON
-        users.forEach(u -> {
-            u.getCarts().size();
-            u.getPhones().size();
-            u.getAdditionalEmails().size();
-            u.getAddresses().size();
-        });
-        return users;
+    public List<UserListView> getAllUsers() {
+        return userService.getAllUsers();
     }
 
-    @Operation(summary = "Busca um usuário por ID", description = "Retorna os detalhes de um usuário específico pelo seu ID, incluindo seus contatos e carrinhos.")
+    @Operation(summary = "Busca um usuário por ID", description = "Retorna os detalhes de um usuário específico pelo seu ID, incluindo seus contatos e carrinhos (cada carrinho sem o usuário, que já é o objeto da resposta).")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Usuário encontrado", content = @Content(schema = @Schema(implementation = User.class))),
             @ApiResponse(responseCode = "404", description = "Usuário não encontrado")
@@ -0,0 +1,31 @@
+package com.avmsistemas.minha_api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Estatísticas de uso de um cache em memória")
+public class CacheStatsDTO {
+
+    @Schema(description = "Quantidade de entradas atualmente no cache", example = "120")
+    private int size;
+
+    @Schema(description = "Capacidade máxima do cache", example = "10000")
+    private int maxSize;
+
+    @Schema(description = "Leituras atendidas pelo cache", example = "950")
+    private long hits;
+
+    @Schema(description = "Leituras que precisaram ir ao banco", example = "50")
+    private long misses;
+
+    @Schema(description = "Entradas removidas por capacidade ou expiração", example = "3")
+    private long evictions;
+
+    @Schema(description = "Taxa de acerto (hits / (hits + misses))", example = "0.95")
+    private double hitRate;
+}
@@ -0,0 +1,57 @@
+package com.avmsistemas.minha_api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Contadores de conflitos de concorrência nas alterações de carrinho")
+public class CartContentionStatsDTO {
+
+    @Schema(description = "Conflitos de versão detectados (todas as operações)", example = "12")
+    private long conflicts;
+
+    @Schema(description = "Novas tentativas automáticas feitas após um conflito", example = "10")
+    private long retries;
+
+    @Schema(description = "Requisições que terminaram em 409 (operação não idempotente ou tentativas esgotadas)", example = "2")
+    private long rejected;
+
+    @Schema(description = "Contadores por operação")
+    private Map<String, OperationStats> operations;
+
+    @Schema(description = "Carrinhos (por usuário) com mais conflitos")
+    private List<HotCart> hotCarts;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "Contadores de uma operação de carrinho")
+    public static class OperationStats {
+        @Schema(description = "Chamadas recebidas", example = "500")
+        private long calls;
+        @Schema(description = "Conflitos de versão", example = "6")
+        private long conflicts;
+        @Schema(description = "Novas tentativas", example = "5")
+        private long retries;
+        @Schema(description = "Respostas 409", example = "1")
+        private long rejected;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "Carrinho com conflitos frequentes")
+    public static class HotCart {
+        @Schema(description = "ID do usuário dono do carrinho", example = "1")
+        private Long userId;
+        @Schema(description = "Conflitos registrados", example = "4")
+        private long conflicts;
+    }
+}
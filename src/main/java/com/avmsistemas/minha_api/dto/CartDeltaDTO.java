@@ -0,0 +1,66 @@
+package com.avmsistemas.minha_api.dto;
+
+import com.avmsistemas.minha_api.model.Cart;
+import com.avmsistemas.minha_api.model.CartItem;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Resposta compacta de uma alteração no carrinho: só as linhas alteradas, o novo total e a versão do carrinho")
+public class CartDeltaDTO {
+
+    @Schema(description = "ID do carrinho", example = "1")
+    private Long cartId;
+
+    @Schema(description = "Versão do carrinho após a alteração. Cresce a cada alteração (não necessariamente de 1 em 1): um delta com versão menor ou igual à que o cliente já tem está atrasado e deve ser ignorado", example = "7")
+    private Long version;
+
+    @Schema(description = "Novo valor total do carrinho", example = "250.00")
+    private BigDecimal totalAmount;
+
+    @Schema(description = "Quantidade de linhas no carrinho", example = "3")
+    private int itemCount;
+
+    @Schema(description = "Linhas alteradas; quantidade 0 indica linha removida")
+    private List<Line> changes;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "Estado atual de uma linha alterada do carrinho")
+    public static class Line {
+
+        @Schema(description = "ID do produto", example = "1")
+        private Long productId;
+
+        @Schema(description = "Quantidade atual (0 = removida)", example = "2")
+        private int quantity;
+
+        @Schema(description = "Preço unitário (ausente se a linha foi removida)", example = "100.00")
+        private BigDecimal price;
+
+        @Schema(description = "Preço unitário x quantidade", example = "200.00")
+        private BigDecimal subtotal;
+    }
+
+    // Método estático para montar o delta a partir do carrinho já alterado e dos produtos tocados pela operação
+    public static CartDeltaDTO fromCart(Cart cart, Collection<Long> productIds) {
+        List<Line> changes = new ArrayList<>(productIds.size());
+        for (Long productId : productIds) {
+            CartItem item = cart.findItem(productId);
+            changes.add(item != null
+                    ? new Line(productId, item.getQuantity(), item.getPrice(), item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
+                    : new Line(productId, 0, null, BigDecimal.ZERO));
+        }
+        return new CartDeltaDTO(cart.getId(), cart.getVersion(), cart.getTotalAmount(), cart.getItems().size(), changes);
+    }
+}
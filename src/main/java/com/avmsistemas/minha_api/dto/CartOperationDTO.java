@@ -0,0 +1,28 @@
+package com.avmsistemas.minha_api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Operação sobre uma linha do carrinho, aplicada em lote")
+public class CartOperationDTO {
+
+    public enum Type {
+        ADD,    // Soma a quantidade à linha (cria a linha se não existir)
+        SET,    // Define a quantidade da linha (0 remove); o preço passa a ser o atual do produto
+        REMOVE  // Remove a linha, se existir
+    }
+
+    @Schema(description = "Tipo da operação", example = "SET", required = true)
+    private Type op;
+
+    @Schema(description = "ID do produto", example = "1", required = true)
+    private Long productId;
+
+    @Schema(description = "Quantidade (obrigatória para ADD e SET)", example = "2")
+    private Integer quantity;
+}
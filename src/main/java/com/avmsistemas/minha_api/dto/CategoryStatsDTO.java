@@ -0,0 +1,33 @@
+package com.avmsistemas.minha_api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Agregados de uma categoria: quantidade de produtos e faixa de preços")
+public class CategoryStatsDTO {
+
+    @Schema(description = "ID da categoria", example = "1")
+    private Long categoryId;
+
+    @Schema(description = "Nome da categoria", example = "Eletrônicos")
+    private String name;
+
+    @Schema(description = "Quantidade de produtos na categoria", example = "42")
+    private long productCount;
+
+    @Schema(description = "Menor preço entre os produtos (nulo se a categoria está vazia)", example = "19.90")
+    private BigDecimal minPrice;
+
+    @Schema(description = "Maior preço entre os produtos (nulo se a categoria está vazia)", example = "5000.00")
+    private BigDecimal maxPrice;
+
+    @Schema(description = "Preço médio dos produtos (nulo se a categoria está vazia)", example = "812.35")
+    private BigDecimal avgPrice;
+}
@@ -0,0 +1,44 @@
+package com.avmsistemas.minha_api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Acompanhamento de uma finalização de carrinho processada de forma assíncrona")
+public class CheckoutStatusDTO {
+
+    public enum Status { QUEUED, PROCESSING, COMPLETED, FAILED }
+
+    @Schema(description = "Identificador de acompanhamento", example = "3f2b8c1e-6a0d-4c57-9a51-2d7e0f8b9c10")
+    private String trackingId;
+
+    @Schema(description = "Situação da finalização", example = "COMPLETED")
+    private Status status;
+
+    @Schema(description = "ID do usuário", example = "1")
+    private Long userId;
+
+    @Schema(description = "ID do carrinho finalizado", example = "1")
+    private Long cartId;
+
+    @Schema(description = "ID do pedido criado (quando COMPLETED)", example = "42")
+    private Long orderId;
+
+    @Schema(description = "Código HTTP que a finalização síncrona teria respondido em caso de falha", example = "400")
+    private Integer errorStatus;
+
+    @Schema(description = "Motivo da falha (quando FAILED)", example = "Carrinho vazio. Não é possível finalizar um pedido sem itens.")
+    private String errorMessage;
+
+    @Schema(description = "Momento em que a finalização foi recebida")
+    private LocalDateTime submittedAt;
+
+    @Schema(description = "Momento em que a finalização terminou")
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,48 @@
+package com.avmsistemas.minha_api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Carrinho de visitante (sem usuário), mantido fora do banco até ser associado a um usuário ou finalizado")
+public class GuestCartDTO {
+
+    @Schema(description = "Identificador opaco do carrinho de visitante", example = "0000002a5f1c9e7b3d4a6c81")
+    private String token;
+
+    @Schema(description = "Itens do carrinho")
+    private List<Item> items;
+
+    @Schema(description = "Valor total do carrinho", example = "250.00")
+    private BigDecimal totalAmount;
+
+    @Schema(description = "Momento em que o carrinho expira se não for mais usado", example = "2025-07-01T12:00:00")
+    private LocalDateTime expiresAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "Item de um carrinho de visitante")
+    public static class Item {
+
+        @Schema(description = "ID do produto", example = "1")
+        private Long productId;
+
+        @Schema(description = "Quantidade", example = "2")
+        private int quantity;
+
+        @Schema(description = "Preço unitário no momento em que o item foi adicionado", example = "100.00")
+        private BigDecimal price;
+
+        @Schema(description = "Preço unitário x quantidade", example = "200.00")
+        private BigDecimal subtotal;
+    }
+}
@@ -0,0 +1,19 @@
+package com.avmsistemas.minha_api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Linha rejeitada durante uma importação")
+public class ImportRejectionDTO {
+
+    @Schema(description = "Número da linha no arquivo (começando em 1)", example = "42")
+    private long lineNumber;
+
+    @Schema(description = "Motivo da rejeição", example = "Preço ausente ou negativo")
+    private String reason;
+}
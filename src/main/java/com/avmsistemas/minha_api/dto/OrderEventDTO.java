@@ -0,0 +1,46 @@
+package com.avmsistemas.minha_api.dto;
+
+import com.avmsistemas.minha_api.model.OrderStatus;
+import com.avmsistemas.minha_api.model.PaymentStatus;
+import com.avmsistemas.minha_api.service.OrderEvent;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Evento de um pedido lido do diário de eventos")
+public class OrderEventDTO {
+
+    @Schema(description = "Posição do evento no diário (crescente, a partir de 0)", example = "1042")
+    private long offset;
+
+    @Schema(description = "Momento do evento (horário do servidor, precisão de milissegundos)", example = "2025-07-01T12:00:00.123")
+    private LocalDateTime occurredAt;
+
+    @Schema(description = "Tipo do evento", example = "STATUS_CHANGED")
+    private OrderEvent.Type type;
+
+    @Schema(description = "ID do pedido", example = "42")
+    private Long orderId;
+
+    @Schema(description = "ID do dono do pedido", example = "1")
+    private Long userId;
+
+    @Schema(description = "Status anterior; nulo na criação", example = "PROCESSING")
+    private OrderStatus previousStatus;
+
+    @Schema(description = "Status após o evento (na exclusão, o último status do pedido)", example = "SHIPPED")
+    private OrderStatus status;
+
+    @Schema(description = "Situação do pagamento no momento do evento", example = "PENDING")
+    private PaymentStatus paymentStatus;
+
+    @Schema(description = "Valor total do pedido", example = "3000.00")
+    private BigDecimal totalAmount;
+}
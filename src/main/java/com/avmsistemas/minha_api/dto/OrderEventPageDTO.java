@@ -0,0 +1,24 @@
+package com.avmsistemas.minha_api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Trecho do diário de eventos de pedidos, em ordem de gravação")
+public class OrderEventPageDTO {
+
+    @Schema(description = "Eventos do trecho")
+    private List<OrderEventDTO> events;
+
+    @Schema(description = "Offset para continuar a leitura (use como 'from')", example = "1142")
+    private long nextOffset;
+
+    @Schema(description = "Indica se já existem eventos gravados a partir de nextOffset", example = "true")
+    private boolean hasMore;
+}
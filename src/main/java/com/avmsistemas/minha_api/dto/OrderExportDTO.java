@@ -0,0 +1,70 @@
+package com.avmsistemas.minha_api.dto;
+
+import com.avmsistemas.minha_api.model.OrderStatus;
+import com.avmsistemas.minha_api.model.PaymentMethod;
+import com.avmsistemas.minha_api.model.PaymentStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Linha da exportação de pedidos: um pedido com seus itens")
+public class OrderExportDTO {
+
+    @Schema(description = "ID do pedido", example = "1")
+    private Long id;
+
+    @Schema(description = "ID do usuário dono do pedido", example = "1")
+    private Long userId;
+
+    @Schema(description = "Data e hora em que o pedido foi finalizado")
+    private LocalDateTime orderDate;
+
+    @Schema(description = "Status do pedido", example = "PENDING")
+    private OrderStatus status;
+
+    @Schema(description = "Valor total do pedido", example = "1299.90")
+    private BigDecimal totalAmount;
+
+    @Schema(description = "Método de pagamento", example = "PIX")
+    private PaymentMethod paymentMethod;
+
+    @Schema(description = "Status do pagamento", example = "PENDING")
+    private PaymentStatus paymentStatus;
+
+    @Schema(description = "true se o pedido foi arquivado (order_archive); pedidos arquivados não podem mais ser alterados", example = "false")
+    private boolean archived;
+
+    @Schema(description = "Itens do pedido")
+    private List<Item> items = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "Item de um pedido exportado")
+    public static class Item {
+
+        @Schema(description = "ID original do produto", example = "1")
+        private Long productId;
+
+        @Schema(description = "Nome do produto no momento da compra", example = "Smartphone X")
+        private String productName;
+
+        @Schema(description = "Preço unitário pago", example = "799.99")
+        private BigDecimal purchasedPrice;
+
+        @Schema(description = "Quantidade", example = "2")
+        private Integer quantity;
+
+        @Schema(description = "Subtotal do item", example = "1599.98")
+        private BigDecimal subtotal;
+    }
+}
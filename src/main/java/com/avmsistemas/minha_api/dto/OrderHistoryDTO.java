@@ -0,0 +1,49 @@
+package com.avmsistemas.minha_api.dto;
+
+import com.avmsistemas.minha_api.model.Order;
+import com.avmsistemas.minha_api.model.OrderItem;
+import com.avmsistemas.minha_api.model.OrderStatus;
+import com.avmsistemas.minha_api.model.PaymentMethod;
+import com.avmsistemas.minha_api.model.PaymentStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Pedido do histórico de um usuário, com seus itens e sem os dados do usuário")
+public class OrderHistoryDTO {
+
+    @Schema(description = "ID do pedido", example = "42")
+    private Long id;
+
+    @Schema(description = "Data e hora do pedido", example = "2025-07-01T12:00:00")
+    private LocalDateTime orderDate;
+
+    @Schema(description = "Status do pedido", example = "PENDING")
+    private OrderStatus status;
+
+    @Schema(description = "Valor total do pedido", example = "250.00")
+    private BigDecimal totalAmount;
+
+    @Schema(description = "Método de pagamento", example = "OTHER")
+    private PaymentMethod paymentMethod;
+
+    @Schema(description = "Status do pagamento", example = "PENDING")
+    private PaymentStatus paymentStatus;
+
+    @Schema(description = "Itens do pedido")
+    private List<OrderItem> items;
+
+    // Método estático para converter Entidade para DTO (os itens já devem estar carregados)
+    public static OrderHistoryDTO fromEntity(Order order) {
+        return new OrderHistoryDTO(order.getId(), order.getOrderDate(), order.getStatus(), order.getTotalAmount(),
+                order.getPaymentMethod(), order.getPaymentStatus(), order.getItems());
+    }
+}
@@ -0,0 +1,25 @@
+package com.avmsistemas.minha_api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Página do histórico de pedidos obtida por paginação por cursor (keyset), do mais recente para o mais antigo")
+public class OrderPageDTO {
+
+    @Schema(description = "Pedidos da página, com os itens")
+    private List<OrderHistoryDTO> items;
+
+    @Schema(description = "Cursor opaco para a próxima página (use como 'after'); nulo quando não há mais pedidos",
+            example = "MjAyNS0wNy0wMVQxMjowMHw0Mg")
+    private String nextCursor;
+
+    @Schema(description = "Indica se existem pedidos mais antigos após esta página", example = "true")
+    private boolean hasMore;
+}
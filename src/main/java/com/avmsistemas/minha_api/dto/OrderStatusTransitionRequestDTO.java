@@ -0,0 +1,22 @@
+package com.avmsistemas.minha_api.dto;
+
+import com.avmsistemas.minha_api.model.OrderStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Transição de status aplicada a vários pedidos de uma vez")
+public class OrderStatusTransitionRequestDTO {
+
+    @Schema(description = "IDs dos pedidos", example = "[101, 102, 103]")
+    private List<Long> orderIds;
+
+    @Schema(description = "Novo status dos pedidos", example = "SHIPPED")
+    private OrderStatus targetStatus;
+}
@@ -0,0 +1,49 @@
+package com.avmsistemas.minha_api.dto;
+
+import com.avmsistemas.minha_api.model.OrderStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Resultado de uma transição de status em lote, com o desfecho de cada pedido")
+public class OrderStatusTransitionResultDTO {
+
+    public enum Result { UPDATED, UNCHANGED, INVALID_TRANSITION, NOT_FOUND, CONFLICT }
+
+    @Schema(description = "Status de destino", example = "SHIPPED")
+    private OrderStatus targetStatus;
+
+    @Schema(description = "Pedidos alterados", example = "998")
+    private int updated;
+
+    @Schema(description = "Pedidos que já estavam no status de destino", example = "1")
+    private int unchanged;
+
+    @Schema(description = "Pedidos não alterados (transição inválida, inexistentes ou alterados ao mesmo tempo)", example = "1")
+    private int rejected;
+
+    @Schema(description = "Desfecho de cada pedido, na ordem recebida")
+    private List<Outcome> outcomes;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "Desfecho da transição para um pedido")
+    public static class Outcome {
+
+        @Schema(description = "ID do pedido", example = "101")
+        private Long orderId;
+
+        @Schema(description = "Status antes da operação (nulo se o pedido não existe)", example = "PROCESSING")
+        private OrderStatus previousStatus;
+
+        @Schema(description = "Desfecho", example = "UPDATED")
+        private Result result;
+    }
+}
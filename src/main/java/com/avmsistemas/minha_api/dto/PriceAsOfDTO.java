@@ -0,0 +1,37 @@
+package com.avmsistemas.minha_api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Preço vigente de um produto em um instante")
+public class PriceAsOfDTO {
+
+    public enum Status {
+        OK,                 // Preço encontrado
+        NO_PRICE,           // O produto ainda não tinha preço registrado no instante
+        PRODUCT_NOT_FOUND   // Produto inexistente (apenas na consulta em lote)
+    }
+
+    @Schema(description = "ID do produto", example = "1")
+    private Long productId;
+
+    @Schema(description = "Instante consultado", example = "2025-06-01T10:15:30")
+    private LocalDateTime at;
+
+    @Schema(description = "Preço vigente no instante (nulo se não houver)", example = "799.99")
+    private BigDecimal price;
+
+    @Schema(description = "Data da alteração que definiu esse preço", example = "2025-05-20T08:00:00")
+    private LocalDateTime effectiveSince;
+
+    @Schema(description = "Resultado da consulta", example = "OK")
+    private Status status;
+}
@@ -0,0 +1,21 @@
+package com.avmsistemas.minha_api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Par (produto, instante) para consulta do preço vigente")
+public class PriceAsOfRequestDTO {
+
+    @Schema(description = "ID do produto", example = "1", required = true)
+    private Long productId;
+
+    @Schema(description = "Instante da consulta (ISO-8601)", example = "2025-06-01T10:15:30", required = true)
+    private LocalDateTime at;
+}
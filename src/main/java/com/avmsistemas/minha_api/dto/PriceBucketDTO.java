@@ -0,0 +1,31 @@
+package com.avmsistemas.minha_api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Agregado de preços de um intervalo de tempo (para gráficos)")
+public class PriceBucketDTO {
+
+    @Schema(description = "Início do intervalo (inclusivo)", example = "2025-06-01T00:00:00")
+    private LocalDateTime start;
+
+    @Schema(description = "Menor preço no intervalo", example = "749.90")
+    private BigDecimal min;
+
+    @Schema(description = "Maior preço no intervalo", example = "799.99")
+    private BigDecimal max;
+
+    @Schema(description = "Último preço no intervalo", example = "759.90")
+    private BigDecimal last;
+
+    @Schema(description = "Quantidade de alterações no intervalo", example = "4")
+    private int count;
+}
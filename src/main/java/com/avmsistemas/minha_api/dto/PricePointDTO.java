@@ -0,0 +1,22 @@
+package com.avmsistemas.minha_api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Um ponto do histórico de preços")
+public class PricePointDTO {
+
+    @Schema(description = "Data e hora da alteração do preço", example = "2025-06-01T10:15:30")
+    private LocalDateTime changeDate;
+
+    @Schema(description = "Preço a partir desta data", example = "799.99")
+    private BigDecimal price;
+}
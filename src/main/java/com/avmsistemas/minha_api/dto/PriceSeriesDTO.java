@@ -0,0 +1,36 @@
+package com.avmsistemas.minha_api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Histórico de preços de um produto em um intervalo, bruto ou agregado por período")
+public class PriceSeriesDTO {
+
+    @Schema(description = "ID do produto", example = "1")
+    private Long productId;
+
+    @Schema(description = "Início do intervalo consultado (inclusivo)")
+    private LocalDateTime from;
+
+    @Schema(description = "Fim do intervalo consultado (inclusivo)")
+    private LocalDateTime to;
+
+    @Schema(description = "Tamanho de cada agregado, quando solicitado", example = "1d")
+    private String bucket;
+
+    @Schema(description = "Pontos do intervalo (quando não há agregação)")
+    private List<PricePointDTO> points;
+
+    @Schema(description = "Agregados mínimo/máximo/último por período (quando há agregação)")
+    private List<PriceBucketDTO> buckets;
+}
@@ -0,0 +1,33 @@
+package com.avmsistemas.minha_api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Uma linha da importação em massa de produtos (NDJSON ou CSV)")
+public class ProductImportLineDTO {
+
+    @Schema(description = "ID de um produto existente a ser atualizado; ausente para incluir um novo", example = "1")
+    private Long id;
+
+    @Schema(description = "Nome do produto", example = "Smartphone X", required = true)
+    private String name;
+
+    @Schema(description = "Descrição do produto", example = "Smartphone de última geração.")
+    private String description;
+
+    @Schema(description = "Preço atual do produto", example = "799.99", required = true)
+    private BigDecimal price;
+
+    @Schema(description = "URL da imagem do produto", example = "http://localhost/assets/image.jpg")
+    private String imageUrl;
+
+    @Schema(description = "ID da categoria", example = "1")
+    private Long categoryId;
+}
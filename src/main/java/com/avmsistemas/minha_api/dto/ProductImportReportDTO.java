@@ -0,0 +1,38 @@
+package com.avmsistemas.minha_api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@Schema(description = "Resultado de uma importação em massa de produtos")
+public class ProductImportReportDTO {
+
+    @Schema(description = "Linhas de dados lidas (sem contar cabeçalho e linhas em branco)", example = "500000")
+    private long linesRead;
+
+    @Schema(description = "Produtos incluídos", example = "480000")
+    private long inserted;
+
+    @Schema(description = "Produtos atualizados", example = "19990")
+    private long updated;
+
+    @Schema(description = "Linhas rejeitadas", example = "10")
+    private long rejected;
+
+    @Schema(description = "Quantidade de lotes gravados (um commit por lote)", example = "500")
+    private long batches;
+
+    @Schema(description = "Primeiras linhas rejeitadas, com o motivo")
+    private List<ImportRejectionDTO> rejections = new ArrayList<>();
+
+    @Schema(description = "Duração total da importação em milissegundos", example = "42000")
+    private long elapsedMillis;
+
+    @Schema(description = "Vazão: linhas gravadas por segundo", example = "11904.7")
+    private double rowsPerSecond;
+}
@@ -0,0 +1,25 @@
+package com.avmsistemas.minha_api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Página de produtos obtida por paginação por cursor (keyset)")
+public class ProductPageDTO {
+
+    @Schema(description = "Produtos da página")
+    private List<ProductSummaryDTO> items;
+
+    @Schema(description = "Cursor opaco para a próxima página (use como 'after' com a mesma ordenação); nulo quando não há mais itens",
+            example = "bmFtZXw0Mnw9Q2Fibw")
+    private String nextCursor;
+
+    @Schema(description = "Indica se existem mais produtos após esta página", example = "true")
+    private boolean hasMore;
+}
@@ -0,0 +1,58 @@
+package com.avmsistemas.minha_api.dto;
+
+import com.avmsistemas.minha_api.model.PriceHistory;
+import com.avmsistemas.minha_api.model.Product;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Resumo de um produto para listagens (sem o histórico de preços, a menos que solicitado)")
+public class ProductSummaryDTO {
+
+    @Schema(description = "ID único do produto", example = "1")
+    private Long id;
+
+    @Schema(description = "Nome do produto", example = "Smartphone X")
+    private String name;
+
+    @Schema(description = "Descrição detalhada do produto", example = "Smartphone de última geração com câmera de alta resolução.")
+    private String description;
+
+    @Schema(description = "Preço atual do produto", example = "799.99")
+    private BigDecimal price;
+
+    @Schema(description = "URL da Imagem do Produto", example = "http://localhost/assets/image.jpg")
+    private String imageUrl;
+
+    @Schema(description = "ID da categoria do produto", example = "1")
+    private Long categoryId;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL) // Só aparece no JSON quando includePriceHistory=true
+    @Schema(description = "Histórico de preços (apenas quando solicitado)")
+    private List<PriceHistory> priceHistory;
+
+    // Usado em consultas JPQL "SELECT new ..." que não trazem o histórico
+    public ProductSummaryDTO(Long id, String name, String description, BigDecimal price, String imageUrl, Long categoryId) {
+        this(id, name, description, price, imageUrl, categoryId, null);
+    }
+
+    public static ProductSummaryDTO fromEntity(Product product) {
+        return new ProductSummaryDTO(
+                product.getId(),
+                product.getName(),
+                product.getDescription(),
+                product.getPrice(),
+                product.getImageUrl(),
+                product.getCategory() != null ? product.getCategory().getId() : null, // getId() no proxy não dispara o lazy loading
+                null
+        );
+    }
+}
@@ -0,0 +1,37 @@
+package com.avmsistemas.minha_api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Vendas acumuladas de um dia, produto, categoria ou do total (pedidos cancelados não contam)")
+public class SalesRollupDTO {
+
+    @Schema(description = "Dimensão do agregado", example = "PRODUCT")
+    private Dimension dimension;
+
+    @Schema(description = "Chave na dimensão: data (AAAA-MM-DD), ID do produto ou da categoria; nula no total", example = "42")
+    private String key;
+
+    @Schema(description = "Pedidos com vendas nesta chave", example = "128")
+    private long orders;
+
+    @Schema(description = "Unidades vendidas", example = "311")
+    private long units;
+
+    @Schema(description = "Receita (soma dos subtotais dos itens)", example = "15230.90")
+    private BigDecimal revenue;
+
+    public enum Dimension {
+        TOTAL,
+        DAY,
+        PRODUCT,
+        CATEGORY
+    }
+}
@@ -0,0 +1,22 @@
+package com.avmsistemas.minha_api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Resultado da reconstrução dos agregados de vendas a partir dos pedidos")
+public class SalesRollupRebuildDTO {
+
+    @Schema(description = "Pedidos contados (não cancelados)", example = "120000")
+    private long orders;
+
+    @Schema(description = "Faixas de IDs de pedido processadas em paralelo", example = "12")
+    private int ranges;
+
+    @Schema(description = "Duração da reconstrução em milissegundos", example = "850")
+    private long durationMs;
+}
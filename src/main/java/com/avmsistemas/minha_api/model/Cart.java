@@ -1,19 +1,25 @@
 package com.avmsistemas.minha_api.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import lombok.ToString;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Entity
-@Table(name = "carts")
+@Table(name = "carts", indexes = @Index(name = "idx_carts_status_updated_at", columnList = "status, updated_at, id")) // Varredura de carrinhos abandonados
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -25,6 +31,7 @@ public class Cart {
 
     @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false, unique = true)
+    @JsonIgnoreProperties("carts") // Na resposta do carrinho, o usuário sai sem a lista de carrinhos
     private User user;
 
     @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
@@ -45,10 +52,24 @@ public class Cart {
     @Column(nullable = false)
     private CartStatus status; 
 
+    // Controle de concorrência otimista: as alterações carregam o carrinho com OPTIMISTIC_FORCE_INCREMENT,
+    // então duas requisições sobre a mesma versão não gravam ambas (a segunda falha no commit)
+    @Version
+    private Long version;
+
     // NOVO: Adiciona um link para o Order gerado a partir deste carrinho (opcional)
     @OneToOne(mappedBy = "cart", cascade = CascadeType.ALL, fetch = FetchType.LAZY) // Mapeado por "cart" no Order
+    @JsonIgnore // Evita o ciclo carrinho -> pedido -> carrinho na serialização
     private Order order; // Opcional, será setado quando o carrinho for finalizado
 
+    // Índice productId -> item, montado sob demanda a partir de 'items' (que o Hibernate carrega sem passar
+    // pelos métodos auxiliares) e mantido pelos métodos abaixo. Não é persistido nem serializado.
+    @Transient
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private Map<Long, CartItem> itemIndex;
+
     // Construtor
     public Cart(User user) {
         this.user = user;
@@ -57,17 +78,78 @@ public class Cart {
     }
 
     // Métodos auxiliares
+    // Todos mantêm o índice por produto e ajustam totalAmount apenas pela diferença da linha alterada.
+    // Alterações em 'items' feitas por fora desses métodos exigem calculateTotal() e invalidam o índice.
+
+    public void setItems(List<CartItem> items) {
+        this.items = items;
+        this.itemIndex = null; // O índice é remontado a partir da nova lista
+    }
+
+    /** Item do carrinho para o produto, ou {@code null}; O(1) depois que o índice foi montado. */
+    public CartItem findItem(Long productId) {
+        return itemIndex().get(productId);
+    }
+
     public void addCartItem(CartItem item) {
         this.items.add(item);
         item.setCart(this);
+        itemIndex().put(item.getProduct().getId(), item);
+        addToTotal(lineTotal(item));
     }
 
     public void removeCartItem(CartItem item) {
-        this.items.remove(item);
+        // Remoção por identidade: evita o equals gerado pelo Lombok, que compara o produto campo a campo
+        this.items.removeIf(existing -> existing == item);
         item.setCart(null);
+        if (itemIndex != null) {
+            itemIndex.remove(item.getProduct().getId());
+        }
+        addToTotal(lineTotal(item).negate());
+    }
+
+    /** Altera quantidade e preço unitário de um item do carrinho, ajustando o total pela diferença da linha. */
+    public void updateCartItem(CartItem item, Integer quantity, BigDecimal price) {
+        BigDecimal before = lineTotal(item);
+        item.setQuantity(quantity);
+        item.setPrice(price);
+        addToTotal(lineTotal(item).subtract(before));
+    }
+
+    /** Remove todos os itens (a coleção é esvaziada, não substituída, por causa do orphanRemoval). */
+    public void clearItems() {
+        items.forEach(item -> item.setCart(null));
+        items.clear();
+        if (itemIndex != null) {
+            itemIndex.clear();
+        }
+        this.totalAmount = BigDecimal.ZERO;
+    }
+
+    private Map<Long, CartItem> itemIndex() {
+        if (itemIndex == null) {
+            itemIndex = new HashMap<>(Math.max(16, items.size() * 2));
+            for (CartItem item : items) {
+                itemIndex.put(item.getProduct().getId(), item);
+            }
+        }
+        return itemIndex;
+    }
+
+    private void addToTotal(BigDecimal delta) {
+        this.totalAmount = (totalAmount != null ? totalAmount : BigDecimal.ZERO).add(delta);
+    }
+
+    private static BigDecimal lineTotal(CartItem item) {
+        if (item.getPrice() == null || item.getQuantity() == null) {
+            return BigDecimal.ZERO;
+        }
+        return item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
     }
 
+    // Recalcula o total percorrendo todos os itens; usado só quando 'items' foi alterada por fora dos métodos acima
     public void calculateTotal() {
+        this.itemIndex = null;
         this.totalAmount = items.stream()
                 .map(item -> item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
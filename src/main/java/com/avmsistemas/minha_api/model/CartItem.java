@@ -13,6 +13,7 @@ import java.math.BigDecimal;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@Table(indexes = @Index(name = "idx_cart_item_product", columnList = "product_id")) // Itens de carrinho por produto (reprecificação)
 @Schema(description = "Representa um item dentro de um carrinho de compras")
 public class CartItem {
 
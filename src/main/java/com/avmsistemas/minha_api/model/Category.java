@@ -15,6 +15,9 @@ public class Category {
     private Long id;
     private String name;
 
+    @Version // Incrementada a cada alteração (controle otimista)
+    private Long version;
+
     // Relacionamento um-para-muitos com Product (uma categoria pode ter muitos produtos)
     // MappedBy indica que o campo "category" na entidade Product é o dono da relação
     @OneToMany(mappedBy = "category", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
@@ -0,0 +1,33 @@
+package com.avmsistemas.minha_api.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Identidade do banco de dados: uma linha criada na primeira inicialização sobre um esquema novo.
+ *
+ * Dados guardados fora do banco (ex.: o diário de pedidos) anotam o {@code runId} do banco a que se referem; com um
+ * banco recriado (H2 em memória, esquema apagado), os IDs voltam a 1 e o {@code runId} muda. Se mais de uma linha
+ * for criada ao mesmo tempo, vale a de menor ID.
+ */
+@Entity
+@Table(name = "database_instance")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DatabaseInstance {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 36)
+    private String runId;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
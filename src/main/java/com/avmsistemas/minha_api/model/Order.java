@@ -1,5 +1,7 @@
 package com.avmsistemas.minha_api.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -11,7 +13,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_user_date", columnList = "user_id, order_date, id"), // Histórico paginado por usuário
+        @Index(name = "idx_orders_status_date", columnList = "status, order_date") // Seleção de pedidos para arquivamento
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -23,6 +28,7 @@ public class Order {
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
+    @JsonIgnoreProperties("carts") // Na resposta do pedido, o usuário sai sem a lista de carrinhos
     private User user;
 
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
@@ -40,6 +46,7 @@ public class Order {
 
     @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "cart_id", unique = true, nullable = true) // 'nullable = true' se um Order pode ser criado sem um Cart original (menos comum)
+    @JsonIgnore // O carrinho de origem não faz parte da resposta do pedido
     private Cart cart;    
 
     @Enumerated(EnumType.STRING) // Armazena o nome do enum como String no DB
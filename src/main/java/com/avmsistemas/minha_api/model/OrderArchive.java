@@ -0,0 +1,57 @@
+package com.avmsistemas.minha_api.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Pedido arquivado (DELIVERED ou CANCELED antigo), fora das tabelas orders e order_items.
+ *
+ * As colunas guardam só o necessário para listar e paginar o histórico; o pedido completo, com itens e endereço
+ * de entrega, fica em {@code payload} como JSON compactado com GZIP.
+ */
+@Entity
+@Table(name = "order_archive", indexes = @Index(name = "idx_order_archive_user_date", columnList = "user_id, order_date, id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderArchive {
+
+    @Id
+    private Long id; // O mesmo ID do pedido original
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private LocalDateTime orderDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OrderStatus status;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal totalAmount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PaymentMethod paymentMethod;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PaymentStatus paymentStatus;
+
+    @Column(nullable = false)
+    private Integer itemCount;
+
+    @Column(nullable = false)
+    private LocalDateTime archivedAt;
+
+    @Lob
+    @Column(nullable = false)
+    private byte[] payload; // JSON do pedido (sem o usuário) compactado com GZIP
+}
@@ -1,5 +1,6 @@
 package com.avmsistemas.minha_api.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -20,6 +21,7 @@ public class OrderItem {
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "order_id", nullable = false)
+    @JsonIgnore // Evita o ciclo pedido -> item -> pedido na serialização
     private Order order;
 
     // Informações do produto (copiadas) - para manter o histórico
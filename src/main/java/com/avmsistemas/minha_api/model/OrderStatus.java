@@ -1,10 +1,29 @@
 package com.avmsistemas.minha_api.model;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 public enum OrderStatus {
     PENDING,        // Pedido criado, aguardando pagamento/processamento
     PROCESSING,     // Em processamento (pagamento confirmado, separação)
     SHIPPED,        // Enviado para transporte
     DELIVERED,      // Entregue ao cliente
     CANCELED,       // Cancelado (pelo cliente ou sistema)
-    RETURNED        // Devolvido
-}
\ No newline at end of file
+    RETURNED;       // Devolvido
+
+    // Transições permitidas: PENDING -> PROCESSING -> SHIPPED -> DELIVERED, cancelamento antes do envio e
+    // devolução depois dele. CANCELED e RETURNED são finais.
+    public Set<OrderStatus> allowedTransitions() {
+        return switch (this) {
+            case PENDING -> EnumSet.of(PROCESSING, CANCELED);
+            case PROCESSING -> EnumSet.of(SHIPPED, CANCELED);
+            case SHIPPED -> EnumSet.of(DELIVERED, RETURNED);
+            case DELIVERED -> EnumSet.of(RETURNED);
+            case CANCELED, RETURNED -> EnumSet.noneOf(OrderStatus.class);
+        };
+    }
+
+    public boolean canTransitionTo(OrderStatus target) {
+        return allowedTransitions().contains(target);
+    }
+}
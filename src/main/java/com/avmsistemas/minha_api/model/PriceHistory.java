@@ -13,6 +13,7 @@ import java.time.LocalDateTime;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@Table(indexes = @Index(name = "idx_price_history_product_date", columnList = "product_id, change_date")) // Consultas por produto e data (ex.: preço vigente em um instante)
 public class PriceHistory {
 
     @Id
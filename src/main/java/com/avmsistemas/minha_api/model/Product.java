@@ -7,6 +7,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import io.swagger.v3.oas.annotations.media.Schema;
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
@@ -18,6 +19,7 @@ import java.util.List;
 @AllArgsConstructor
 @Builder
 @Schema(description = "Detalhes de um produto no sistema")
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"}) // Campos internos do proxy LAZY (ex.: CartItem.product)
 public class Product {
 
     @Id
@@ -38,6 +40,10 @@ public class Product {
     @Column(length = 2048) // URL pode ser longa, ajuste o tamanho se necessário
     private String imageUrl; // URL para a imagem do produto
 
+    @Version // Incrementada a cada alteração; usada no controle otimista e no ETag de GET /api/products/{id}
+    @Schema(description = "Versão do produto (incrementada a cada alteração)", example = "0", accessMode = Schema.AccessMode.READ_ONLY)
+    private Long version;
+
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     @Schema(description = "Histórico de preços do produto")
     private List<PriceHistory> priceHistory = new ArrayList<>(); // Inicializa a lista
@@ -1,5 +1,6 @@
 package com.avmsistemas.minha_api.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -16,6 +17,7 @@ import java.util.List;
 @AllArgsConstructor
 @Table(name = "app_user") // Renomeia a tabela para evitar conflito com 'USER' que é uma palavra reservada em alguns DBs
 @Schema(description = "Representa um usuário do sistema")
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"}) // Campos internos do proxy LAZY (ex.: Cart.user)
 public class User {
 
     @Id
@@ -56,6 +58,7 @@ public class User {
 
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     @Schema(description = "Lista de carrinhos associados a este usuário")
+    @JsonIgnoreProperties("user") // Cada carrinho sai sem o próprio dono: sem o ciclo usuário -> carrinho -> usuário
     private List<Cart> carts = new ArrayList<>(); // Lista de carrinhos do usuário
 
     @Schema(description = "Data de criação do usuário")
@@ -1,12 +1,36 @@
 package com.avmsistemas.minha_api.repository;
 
 import com.avmsistemas.minha_api.model.CartItem;
+import com.avmsistemas.minha_api.model.CartStatus;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     List<CartItem> findByCartId(Long cartId);
+
+    // Exclui em uma instrução os itens dos carrinhos do lote que estão no status informado
+    @Modifying
+    @Query("DELETE FROM CartItem i WHERE i.cart.id IN "
+            + "(SELECT c.id FROM Cart c WHERE c.id IN :cartIds AND c.status = :status)")
+    int deleteByCartIdInAndCartStatus(@Param("cartIds") Collection<Long> cartIds, @Param("status") CartStatus status);
+
+    // Itens (de carrinhos no status informado) com preço diferente do atual do produto, em ordem de ID;
+    // usa o índice por product_id em vez de percorrer os carrinhos
+    @Query("SELECT i.id FROM CartItem i WHERE i.product.id = :productId AND i.price <> :price "
+            + "AND i.cart.status = :status AND i.id > :afterId ORDER BY i.id")
+    List<Long> findIdsToReprice(@Param("productId") Long productId, @Param("price") BigDecimal price,
+                                @Param("status") CartStatus status, @Param("afterId") Long afterId, Limit limit);
+
+    @Modifying
+    @Query("UPDATE CartItem i SET i.price = :price WHERE i.id IN :ids")
+    int updatePrice(@Param("ids") Collection<Long> ids, @Param("price") BigDecimal price);
 }
\ No newline at end of file
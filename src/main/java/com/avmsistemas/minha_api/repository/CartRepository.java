@@ -3,9 +3,18 @@ package com.avmsistemas.minha_api.repository;
 import com.avmsistemas.minha_api.model.Cart;
 import com.avmsistemas.minha_api.model.CartStatus;
 
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
 
@@ -21,4 +30,55 @@ public interface CartRepository extends JpaRepository<Cart, Long> {
 
     // Opcional: Listar carrinhos de um usuário
     Optional<Cart> findByUserId(Long userId);    
-}
\ No newline at end of file
+
+    // Carrinho para alteração: a versão é incrementada no commit mesmo que só os itens mudem,
+    // e o commit falha se outra transação gravou o carrinho depois desta leitura
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    @Query("SELECT c FROM Cart c WHERE c.user.id = :userId")
+    Optional<Cart> findByUserIdForUpdate(@Param("userId") Long userId);
+
+    // Carrinhos com os itens já carregados (uma consulta para o lote todo), usado pelo flush do modo em memória
+    @Query("SELECT DISTINCT c FROM Cart c LEFT JOIN FETCH c.items WHERE c.id IN :ids")
+    List<Cart> findAllWithItemsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Leva a versão do carrinho ao menos até 'version' (flush do modo em memória, que entrega versões antes de gravar);
+    // nunca a diminui, então um incremento feito por outra instrução não é desfeito
+    @Modifying
+    @Query("UPDATE Cart c SET c.version = :version WHERE c.id = :id AND c.version < :version")
+    int raiseVersion(@Param("id") Long id, @Param("version") Long version);
+
+    // --- Varredura de carrinhos abandonados (keyset por updatedAt, id; usa o índice status, updated_at, id) ---
+
+    @Query("SELECT new com.avmsistemas.minha_api.repository.CartSweepKey(c.id, c.updatedAt) FROM Cart c "
+            + "WHERE c.status = :status AND c.updatedAt < :cutoff ORDER BY c.updatedAt, c.id")
+    List<CartSweepKey> findStaleKeys(@Param("status") CartStatus status, @Param("cutoff") LocalDateTime cutoff, Limit limit);
+
+    @Query("SELECT new com.avmsistemas.minha_api.repository.CartSweepKey(c.id, c.updatedAt) FROM Cart c "
+            + "WHERE c.status = :status AND c.updatedAt < :cutoff "
+            + "AND (c.updatedAt > :afterUpdatedAt OR (c.updatedAt = :afterUpdatedAt AND c.id > :afterId)) "
+            + "ORDER BY c.updatedAt, c.id")
+    List<CartSweepKey> findStaleKeysAfter(@Param("status") CartStatus status, @Param("cutoff") LocalDateTime cutoff,
+                                          @Param("afterUpdatedAt") LocalDateTime afterUpdatedAt,
+                                          @Param("afterId") Long afterId, Limit limit);
+
+    // Marca o lote em uma instrução. As condições são repetidas: um carrinho alterado depois da leitura do lote
+    // (updatedAt mais novo) fica de fora, e o incremento de versão faz falhar quem o tinha lido antes
+    @Modifying
+    @Query("UPDATE Cart c SET c.status = :newStatus, c.version = c.version + 1 "
+            + "WHERE c.id IN :ids AND c.status = :expected AND c.updatedAt < :cutoff")
+    int markStale(@Param("ids") Collection<Long> ids, @Param("expected") CartStatus expected,
+                  @Param("newStatus") CartStatus newStatus, @Param("cutoff") LocalDateTime cutoff);
+
+    @Modifying
+    @Query("UPDATE Cart c SET c.totalAmount = 0 WHERE c.id IN :ids AND c.status = :status")
+    int zeroTotals(@Param("ids") Collection<Long> ids, @Param("status") CartStatus status);
+
+    // Soma ao total de cada carrinho a diferença de preço dos itens informados (antes de atualizar o preço deles)
+    // e incrementa a versão, para que quem leu o carrinho antes não grave um total calculado com o preço antigo
+    @Modifying
+    @Query("UPDATE Cart c SET c.totalAmount = c.totalAmount + "
+            + "(SELECT SUM((:price - i.price) * i.quantity) FROM CartItem i WHERE i.cart = c AND i.id IN :itemIds), "
+            + "c.version = c.version + 1 "
+            + "WHERE c.id IN (SELECT i.cart.id FROM CartItem i WHERE i.id IN :itemIds)")
+    int addRepriceDeltas(@Param("itemIds") Collection<Long> itemIds, @Param("price") BigDecimal price);
+}
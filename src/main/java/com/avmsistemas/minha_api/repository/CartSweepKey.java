@@ -0,0 +1,7 @@
+package com.avmsistemas.minha_api.repository;
+
+import java.time.LocalDateTime;
+
+/** Chave de varredura de carrinhos (ordem por updatedAt e, no empate, por id). */
+public record CartSweepKey(Long id, LocalDateTime updatedAt) {
+}
@@ -0,0 +1,10 @@
+package com.avmsistemas.minha_api.repository;
+
+import java.math.BigDecimal;
+
+// Projeção (produto, categoria, preço) usada para montar os agregados por categoria
+public interface CategoryPriceView {
+    Long getProductId();
+    Long getCategoryId();
+    BigDecimal getPrice();
+}
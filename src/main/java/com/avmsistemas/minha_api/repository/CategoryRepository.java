@@ -2,10 +2,18 @@ package com.avmsistemas.minha_api.repository;
 
 import com.avmsistemas.minha_api.model.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, Long> {
     // Você pode adicionar métodos personalizados aqui se precisar, por exemplo:
     // Optional<Category> findByName(String name);
+
+    @Query("SELECT c.id FROM Category c WHERE c.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
 }
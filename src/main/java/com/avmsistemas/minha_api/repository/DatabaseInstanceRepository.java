@@ -0,0 +1,13 @@
+package com.avmsistemas.minha_api.repository;
+
+import com.avmsistemas.minha_api.model.DatabaseInstance;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface DatabaseInstanceRepository extends JpaRepository<DatabaseInstance, Long> {
+
+    Optional<DatabaseInstance> findFirstByOrderByIdAsc();
+}
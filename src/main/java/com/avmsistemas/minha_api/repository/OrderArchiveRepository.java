@@ -0,0 +1,57 @@
+package com.avmsistemas.minha_api.repository;
+
+import com.avmsistemas.minha_api.model.OrderArchive;
+import com.avmsistemas.minha_api.model.OrderStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Repository
+public interface OrderArchiveRepository extends JpaRepository<OrderArchive, Long> {
+
+    // Listagem a partir das colunas, sem descompactar o pedido
+    @Query("SELECT new com.avmsistemas.minha_api.repository.OrderListView(a.id, a.orderDate, a.status, a.totalAmount, "
+            + "a.paymentMethod, a.paymentStatus, a.itemCount) "
+            + "FROM OrderArchive a WHERE a.userId = :userId ORDER BY a.orderDate DESC, a.id DESC")
+    List<OrderListView> findListViewsByUserId(@Param("userId") Long userId);
+
+    // --- Histórico paginado por cursor, pelo índice idx_order_archive_user_date (mesma ordem de orders) ---
+
+    @Query("SELECT new com.avmsistemas.minha_api.repository.OrderHistoryKey(a.id, a.orderDate) FROM OrderArchive a "
+            + "WHERE a.userId = :userId ORDER BY a.orderDate DESC, a.id DESC")
+    List<OrderHistoryKey> findHistoryKeys(@Param("userId") Long userId, Limit limit);
+
+    @Query("SELECT new com.avmsistemas.minha_api.repository.OrderHistoryKey(a.id, a.orderDate) FROM OrderArchive a "
+            + "WHERE a.userId = :userId AND (a.orderDate < :beforeDate OR (a.orderDate = :beforeDate AND a.id < :beforeId)) "
+            + "ORDER BY a.orderDate DESC, a.id DESC")
+    List<OrderHistoryKey> findHistoryKeysBefore(@Param("userId") Long userId, @Param("beforeDate") LocalDateTime beforeDate,
+                                                @Param("beforeId") Long beforeId, Limit limit);
+
+    // Exportação em stream, em ordem de ID como a de orders (ver OrderRepository.streamRowsForExport); userId nulo
+    // exporta todos. Exige transação aberta; quem consome desanexa cada pedido depois de descompactá-lo
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + ProductRepository.EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT a FROM OrderArchive a WHERE :userId IS NULL OR a.userId = :userId ORDER BY a.id")
+    Stream<OrderArchive> streamForExport(@Param("userId") Long userId);
+
+    // --- Reconstrução dos agregados de vendas por faixa de IDs ---
+
+    List<OrderArchive> findByIdBetweenAndStatusNot(Long fromId, Long toId, OrderStatus status);
+
+    @Query("SELECT MIN(a.id) FROM OrderArchive a")
+    Long findMinId();
+
+    @Query("SELECT MAX(a.id) FROM OrderArchive a")
+    Long findMaxId();
+}
@@ -0,0 +1,24 @@
+package com.avmsistemas.minha_api.repository;
+
+import com.avmsistemas.minha_api.model.OrderStatus;
+import com.avmsistemas.minha_api.model.PaymentMethod;
+import com.avmsistemas.minha_api.model.PaymentStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Projeção plana pedido x item (LEFT JOIN) para a exportação; os campos de item são nulos em pedidos sem itens
+public interface OrderExportRowView {
+    Long getOrderId();
+    Long getUserId();
+    LocalDateTime getOrderDate();
+    OrderStatus getStatus();
+    BigDecimal getTotalAmount();
+    PaymentMethod getPaymentMethod();
+    PaymentStatus getPaymentStatus();
+    Long getProductId();
+    String getProductName();
+    BigDecimal getPurchasedPrice();
+    Integer getQuantity();
+    BigDecimal getSubtotal();
+}
@@ -0,0 +1,7 @@
+package com.avmsistemas.minha_api.repository;
+
+import java.time.LocalDateTime;
+
+/** Chave do histórico de pedidos (ordem por orderDate e, no empate, por id). */
+public record OrderHistoryKey(Long id, LocalDateTime orderDate) {
+}
@@ -0,0 +1,13 @@
+package com.avmsistemas.minha_api.repository;
+
+import com.avmsistemas.minha_api.model.OrderStatus;
+import com.avmsistemas.minha_api.model.PaymentMethod;
+import com.avmsistemas.minha_api.model.PaymentStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Projeção de leitura da listagem de pedidos de um usuário: cabeçalho do pedido e quantidade de itens, sem os itens
+public record OrderListView(Long id, LocalDateTime orderDate, OrderStatus status, BigDecimal totalAmount,
+                            PaymentMethod paymentMethod, PaymentStatus paymentStatus, Integer itemCount) {
+}
@@ -1,12 +1,99 @@
 package com.avmsistemas.minha_api.repository;
 
 import com.avmsistemas.minha_api.model.Order;
+import com.avmsistemas.minha_api.model.OrderStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findByUserId(Long userId);
+
+    // Listagem: cabeçalho do pedido + quantidade de itens (subconsulta), sem carregar entidades nem itens
+    @Query("SELECT new com.avmsistemas.minha_api.repository.OrderListView(o.id, o.orderDate, o.status, o.totalAmount, "
+            + "o.paymentMethod, o.paymentStatus, SIZE(o.items)) "
+            + "FROM Order o WHERE o.user.id = :userId ORDER BY o.orderDate DESC, o.id DESC")
+    List<OrderListView> findListViewsByUserId(@Param("userId") Long userId);
+
+    // --- Histórico paginado por cursor (keyset) em (orderDate, id), do mais recente para o mais antigo ---
+    // Só os IDs da página, percorrendo o índice idx_orders_user_date a partir do cursor (sem OFFSET nem contagem);
+    // os pedidos e seus itens vêm depois em uma única consulta
+
+    @Query("SELECT o.id FROM Order o WHERE o.user.id = :userId ORDER BY o.orderDate DESC, o.id DESC")
+    List<Long> findHistoryIds(@Param("userId") Long userId, Limit limit);
+
+    @Query("SELECT o.id FROM Order o WHERE o.user.id = :userId "
+            + "AND (o.orderDate < :beforeDate OR (o.orderDate = :beforeDate AND o.id < :beforeId)) "
+            + "ORDER BY o.orderDate DESC, o.id DESC")
+    List<Long> findHistoryIdsBefore(@Param("userId") Long userId, @Param("beforeDate") LocalDateTime beforeDate,
+                                    @Param("beforeId") Long beforeId, Limit limit);
+
+    // Pedidos com os itens (fetch join) de uma página já delimitada pelos IDs: sem paginação em memória
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.items WHERE o.id IN :ids")
+    List<Order> findAllWithItemsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // --- Transições de status em lote (sem carregar entidades) ---
+
+    @Query("SELECT new com.avmsistemas.minha_api.repository.OrderStatusView(o.id, o.user.id, o.status, o.paymentStatus, o.totalAmount) FROM Order o WHERE o.id IN :ids")
+    List<OrderStatusView> findStatusesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // O filtro pelo status de origem protege contra uma alteração concorrente entre a leitura e a atualização
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :target WHERE o.id IN :ids AND o.status IN :sources")
+    int updateStatus(@Param("ids") Collection<Long> ids, @Param("sources") Collection<OrderStatus> sources,
+                     @Param("target") OrderStatus target);
+
+    // --- Agregados de vendas: itens vendidos com a categoria atual do produto ---
+
+    @Query("SELECT new com.avmsistemas.minha_api.repository.OrderSaleLineView(o.id, o.orderDate, i.productId, c.id, i.quantity, i.subtotal) "
+            + "FROM OrderItem i JOIN i.order o LEFT JOIN Product p ON p.id = i.productId LEFT JOIN p.category c WHERE o.id IN :ids")
+    List<OrderSaleLineView> findSaleLinesByOrderIdIn(@Param("ids") Collection<Long> ids);
+
+    // Reconstrução por faixa de IDs (pela chave primária); pedidos cancelados não contam como venda
+    @Query("SELECT new com.avmsistemas.minha_api.repository.OrderSaleLineView(o.id, o.orderDate, i.productId, c.id, i.quantity, i.subtotal) "
+            + "FROM OrderItem i JOIN i.order o LEFT JOIN Product p ON p.id = i.productId LEFT JOIN p.category c "
+            + "WHERE o.id BETWEEN :fromId AND :toId AND o.status <> com.avmsistemas.minha_api.model.OrderStatus.CANCELED")
+    List<OrderSaleLineView> findSaleLinesByOrderIdBetween(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    @Query("SELECT MIN(o.id) FROM Order o")
+    Long findMinId();
+
+    @Query("SELECT MAX(o.id) FROM Order o")
+    Long findMaxId();
+
+    // --- Arquivamento: pedidos antigos em status final saem de orders/order_items em lotes ---
+
+    @Query("SELECT o.id FROM Order o WHERE o.status IN :statuses AND o.orderDate < :cutoff ORDER BY o.orderDate, o.id")
+    List<Long> findArchivableIds(@Param("statuses") Collection<OrderStatus> statuses, @Param("cutoff") LocalDateTime cutoff, Limit limit);
+
+    @Modifying
+    @Query("DELETE FROM OrderItem i WHERE i.order.id IN :ids")
+    int deleteItemsByOrderIdIn(@Param("ids") Collection<Long> ids);
+
+    // Exportação em stream: uma linha por item (ordenadas por pedido) para agrupar sem carregar entidades.
+    // userId nulo exporta todos os pedidos. Exige transação aberta.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + ProductRepository.EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o.id AS orderId, o.user.id AS userId, o.orderDate AS orderDate, o.status AS status, "
+            + "o.totalAmount AS totalAmount, o.paymentMethod AS paymentMethod, o.paymentStatus AS paymentStatus, "
+            + "i.productId AS productId, i.productName AS productName, i.purchasedPrice AS purchasedPrice, "
+            + "i.quantity AS quantity, i.subtotal AS subtotal "
+            + "FROM Order o LEFT JOIN o.items i "
+            + "WHERE :userId IS NULL OR o.user.id = :userId "
+            + "ORDER BY o.id, i.id")
+    Stream<OrderExportRowView> streamRowsForExport(@Param("userId") Long userId);
 }
\ No newline at end of file
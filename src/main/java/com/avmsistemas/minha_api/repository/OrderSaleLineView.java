@@ -0,0 +1,9 @@
+package com.avmsistemas.minha_api.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Um item vendido, com o necessário para os agregados de vendas (categoria atual do produto; nula sem categoria)
+public record OrderSaleLineView(Long orderId, LocalDateTime orderDate, Long productId, Long categoryId,
+                                Integer quantity, BigDecimal subtotal) {
+}
@@ -0,0 +1,10 @@
+package com.avmsistemas.minha_api.repository;
+
+import com.avmsistemas.minha_api.model.OrderStatus;
+import com.avmsistemas.minha_api.model.PaymentStatus;
+
+import java.math.BigDecimal;
+
+// Projeção para as transições de status em lote: o status atual e o necessário para o OrderEvent, sem carregar o pedido
+public record OrderStatusView(Long id, Long userId, OrderStatus status, PaymentStatus paymentStatus, BigDecimal totalAmount) {
+}
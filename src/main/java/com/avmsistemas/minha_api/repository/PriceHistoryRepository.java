@@ -2,10 +2,37 @@ package com.avmsistemas.minha_api.repository;
 
 import com.avmsistemas.minha_api.model.PriceHistory;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface PriceHistoryRepository extends JpaRepository<PriceHistory, Long> {
     // Você pode adicionar métodos de consulta personalizados aqui, se precisar
     // Ex: List<PriceHistory> findByProductIdOrderByChangeDateDesc(Long productId);
-}
\ No newline at end of file
+
+    // Carrega o histórico de uma página inteira de produtos em uma única consulta (evita N+1)
+    List<PriceHistory> findByProductIdInOrderByChangeDateAsc(Collection<Long> productIds);
+
+    @Query("SELECT ph.changeDate AS changeDate, ph.price AS price FROM PriceHistory ph "
+            + "WHERE ph.product.id = :productId ORDER BY ph.changeDate ASC, ph.id ASC")
+    List<PricePointView> findPricePoints(@Param("productId") Long productId);
+
+    // Só o intervalo pedido, pelo índice (product_id, change_date): para consultas de período sem a série em cache
+    @Query("SELECT ph.changeDate AS changeDate, ph.price AS price FROM PriceHistory ph "
+            + "WHERE ph.product.id = :productId AND ph.changeDate BETWEEN :from AND :to ORDER BY ph.changeDate ASC, ph.id ASC")
+    List<PricePointView> findPricePointsBetween(@Param("productId") Long productId, @Param("from") LocalDateTime from,
+                                                @Param("to") LocalDateTime to);
+
+    @Query("SELECT ph.product.id AS productId, ph.changeDate AS changeDate, ph.price AS price FROM PriceHistory ph "
+            + "WHERE ph.product.id IN :productIds ORDER BY ph.product.id ASC, ph.changeDate ASC, ph.id ASC")
+    List<ProductPricePointView> findPricePointsByProductIdIn(@Param("productIds") Collection<Long> productIds);
+
+    // Preço vigente em um instante: o último registro até a data informada (usa o índice product_id, change_date)
+    Optional<PricePointView> findFirstByProductIdAndChangeDateLessThanEqualOrderByChangeDateDescIdDesc(Long productId, LocalDateTime at);
+}
@@ -0,0 +1,10 @@
+package com.avmsistemas.minha_api.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Projeção com apenas as duas colunas necessárias para montar a série de preços
+public interface PricePointView {
+    LocalDateTime getChangeDate();
+    BigDecimal getPrice();
+}
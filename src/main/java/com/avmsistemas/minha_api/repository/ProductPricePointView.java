@@ -0,0 +1,6 @@
+package com.avmsistemas.minha_api.repository;
+
+// Ponto do histórico com o produto, para montar as séries de vários produtos em uma única consulta
+public interface ProductPricePointView extends PricePointView {
+    Long getProductId();
+}
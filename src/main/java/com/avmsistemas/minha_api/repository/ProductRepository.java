@@ -1,8 +1,20 @@
 package com.avmsistemas.minha_api.repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import com.avmsistemas.minha_api.dto.ProductSummaryDTO;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import com.avmsistemas.minha_api.model.Product;
 
@@ -10,5 +22,75 @@ import com.avmsistemas.minha_api.model.Product;
 public interface ProductRepository extends JpaRepository<Product, Long> {
     // JpaRepository já fornece métodos CRUD prontos para a entidade Product e tipo de ID Long
 
+    // Linhas buscadas por ida ao banco nas consultas de exportação em stream
+    int EXPORT_FETCH_SIZE = 500;
+
     List<Product> findByCategoryId(Long categoryId);
-}
\ No newline at end of file
+
+    // --- Projeções de leitura para as listagens ---
+    // Selecionam apenas as colunas do resumo (sem entidades gerenciadas nem coleções lazy).
+    // LEFT JOIN para não descartar produtos sem categoria.
+
+    @Query("SELECT new com.avmsistemas.minha_api.dto.ProductSummaryDTO(p.id, p.name, p.description, p.price, p.imageUrl, c.id) "
+            + "FROM Product p LEFT JOIN p.category c ORDER BY p.id")
+    List<ProductSummaryDTO> findAllSummaries();
+
+    @Query("SELECT new com.avmsistemas.minha_api.dto.ProductSummaryDTO(p.id, p.name, p.description, p.price, p.imageUrl, c.id) "
+            + "FROM Product p JOIN p.category c WHERE c.id = :categoryId ORDER BY p.id")
+    List<ProductSummaryDTO> findSummariesByCategoryId(@Param("categoryId") Long categoryId);
+
+    // --- Paginação por cursor (keyset) ---
+    // Em vez de OFFSET, cada página começa logo após a chave (ordenação, id) do último item da página anterior.
+    // O id entra sempre como desempate para que a ordem seja total e estável. Nome e preço nulos vão para o fim
+    // (NULLS LAST): depois de uma chave não nula vêm as maiores e todas as nulas; depois de uma nula, só as nulas.
+
+    String SUMMARY_SELECT = "SELECT new com.avmsistemas.minha_api.dto.ProductSummaryDTO(p.id, p.name, p.description, p.price, p.imageUrl, c.id) "
+            + "FROM Product p LEFT JOIN p.category c ";
+
+    @Query(SUMMARY_SELECT + "WHERE p.id > :afterId ORDER BY p.id ASC")
+    List<ProductSummaryDTO> findPageOrderById(@Param("afterId") Long afterId, Limit limit);
+
+    @Query(SUMMARY_SELECT + "ORDER BY p.name ASC NULLS LAST, p.id ASC")
+    List<ProductSummaryDTO> findFirstPageOrderByName(Limit limit);
+
+    @Query(SUMMARY_SELECT
+            + "WHERE p.name > :afterName OR (p.name = :afterName AND p.id > :afterId) OR p.name IS NULL "
+            + "ORDER BY p.name ASC NULLS LAST, p.id ASC")
+    List<ProductSummaryDTO> findPageOrderByName(@Param("afterName") String afterName, @Param("afterId") Long afterId, Limit limit);
+
+    @Query(SUMMARY_SELECT + "WHERE p.name IS NULL AND p.id > :afterId ORDER BY p.id ASC")
+    List<ProductSummaryDTO> findPageOrderByNameAfterNull(@Param("afterId") Long afterId, Limit limit);
+
+    @Query(SUMMARY_SELECT + "ORDER BY p.price ASC NULLS LAST, p.id ASC")
+    List<ProductSummaryDTO> findFirstPageOrderByPrice(Limit limit);
+
+    @Query(SUMMARY_SELECT
+            + "WHERE p.price > :afterPrice OR (p.price = :afterPrice AND p.id > :afterId) OR p.price IS NULL "
+            + "ORDER BY p.price ASC NULLS LAST, p.id ASC")
+    List<ProductSummaryDTO> findPageOrderByPrice(@Param("afterPrice") BigDecimal afterPrice, @Param("afterId") Long afterId, Limit limit);
+
+    @Query(SUMMARY_SELECT + "WHERE p.price IS NULL AND p.id > :afterId ORDER BY p.id ASC")
+    List<ProductSummaryDTO> findPageOrderByPriceAfterNull(@Param("afterId") Long afterId, Limit limit);
+
+    // Apenas a versão, para responder a GET condicional (If-None-Match) sem carregar o produto
+    @Query("SELECT p.version FROM Product p WHERE p.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    @Query("SELECT p.id FROM Product p WHERE p.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT p.id AS productId, p.category.id AS categoryId, p.price AS price FROM Product p")
+    List<CategoryPriceView> findAllCategoryPrices();
+
+    @Query("SELECT p.id AS productId, p.category.id AS categoryId, p.price AS price FROM Product p WHERE p.id IN :ids")
+    List<CategoryPriceView> findCategoryPricesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Exportação: DTOs montados direto na consulta (nada fica no contexto de persistência); exige transação aberta
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.avmsistemas.minha_api.dto.ProductSummaryDTO(p.id, p.name, p.description, p.price, p.imageUrl, c.id) "
+            + "FROM Product p LEFT JOIN p.category c ORDER BY p.id")
+    Stream<ProductSummaryDTO> streamAllForExport();
+}
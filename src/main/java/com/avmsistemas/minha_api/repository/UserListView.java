@@ -0,0 +1,8 @@
+package com.avmsistemas.minha_api.repository;
+
+import java.time.LocalDateTime;
+
+// Projeção de leitura de usuários para listagens e exportação: sem senha e sem as coleções de contatos e carrinhos
+public record UserListView(Long id, String primaryEmail, String username, String fullName,
+                           LocalDateTime createdAt, LocalDateTime updatedAt) {
+}
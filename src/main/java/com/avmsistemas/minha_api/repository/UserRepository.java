@@ -1,13 +1,32 @@
 package com.avmsistemas.minha_api.repository;
 
 import com.avmsistemas.minha_api.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByPrimaryEmail(String primaryEmail);     
     Optional<User> findByUsername(String username);    
+
+    @Query("SELECT new com.avmsistemas.minha_api.repository.UserListView(u.id, u.primaryEmail, u.username, u.fullName, u.createdAt, u.updatedAt) "
+            + "FROM User u ORDER BY u.id")
+    List<UserListView> findAllListViews();
+
+    // Exportação em stream: a mesma projeção da listagem; exige transação aberta
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + ProductRepository.EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.avmsistemas.minha_api.repository.UserListView(u.id, u.primaryEmail, u.username, u.fullName, u.createdAt, u.updatedAt) "
+            + "FROM User u ORDER BY u.id")
+    Stream<UserListView> streamAllForExport();
 }
\ No newline at end of file
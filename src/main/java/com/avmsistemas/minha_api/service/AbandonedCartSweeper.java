@@ -0,0 +1,159 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.model.CartStatus;
+import com.avmsistemas.minha_api.repository.CartItemRepository;
+import com.avmsistemas.minha_api.repository.CartRepository;
+import com.avmsistemas.minha_api.repository.CartSweepKey;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Varredura periódica dos carrinhos PENDING sem alteração há mais de {@code app.cart.sweeper.stale-after-hours}.
+ *
+ * Os carrinhos são percorridos em lotes pela chave (updatedAt, id), sem OFFSET, e cada lote é tratado em uma
+ * transação curta com instruções em massa (nenhuma entidade é carregada). A ação ABANDON só marca o carrinho
+ * como ABANDONED; PURGE também exclui seus itens e zera o total. A vazão é limitada a
+ * {@code app.cart.sweeper.max-carts-per-second} para não disputar o banco com o tráfego normal.
+ * Um carrinho abandonado volta a PENDING na próxima alteração feita pelo usuário.
+ *
+ * A varredura agendada roda na thread própria "cart-sweeper": as pausas do limite de vazão não ocupam a thread
+ * do agendador, que também dispara o flush do write-behind, a expiração de carrinhos de visitante e o arquivamento.
+ */
+@Component
+public class AbandonedCartSweeper {
+
+    public enum Action { ABANDON, PURGE }
+
+    /** Resultado de uma varredura. */
+    public record SweepResult(int scanned, int swept, int chunks, long elapsedMillis) {
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(AbandonedCartSweeper.class);
+
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final TransactionTemplate transaction;
+    private final boolean enabled;
+    private final Duration staleAfter;
+    private final Action action;
+    private final int chunkSize;
+    private final int maxCartsPerSecond;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cart-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    public AbandonedCartSweeper(CartRepository cartRepository, CartItemRepository cartItemRepository,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${app.cart.sweeper.enabled:true}") boolean enabled,
+                                @Value("${app.cart.sweeper.stale-after-hours:72}") long staleAfterHours,
+                                @Value("${app.cart.sweeper.action:ABANDON}") Action action,
+                                @Value("${app.cart.sweeper.chunk-size:200}") int chunkSize,
+                                @Value("${app.cart.sweeper.max-carts-per-second:1000}") int maxCartsPerSecond) {
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.staleAfter = Duration.ofHours(staleAfterHours);
+        this.action = action;
+        this.chunkSize = chunkSize;
+        this.maxCartsPerSecond = maxCartsPerSecond;
+    }
+
+    @Scheduled(initialDelayString = "${app.cart.sweeper.initial-delay-ms:60000}",
+            fixedDelayString = "${app.cart.sweeper.interval-ms:600000}")
+    public void scheduledSweep() {
+        // Só entrega a varredura à thread própria; se a anterior ainda não terminou, esta é pulada
+        if (enabled && sweeping.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                try {
+                    sweep(LocalDateTime.now().minus(staleAfter));
+                } catch (RuntimeException e) {
+                    log.error("Falha na varredura de carrinhos abandonados", e);
+                } finally {
+                    sweeping.set(false);
+                }
+            });
+        }
+    }
+
+    /** Trata todos os carrinhos PENDING com updatedAt anterior a {@code cutoff}. */
+    public SweepResult sweep(LocalDateTime cutoff) {
+        long start = System.nanoTime();
+        int scanned = 0;
+        int swept = 0;
+        int chunks = 0;
+        CartSweepKey last = null;
+        while (true) {
+            List<CartSweepKey> keys = last == null
+                    ? cartRepository.findStaleKeys(CartStatus.PENDING, cutoff, Limit.of(chunkSize))
+                    : cartRepository.findStaleKeysAfter(CartStatus.PENDING, cutoff, last.updatedAt(), last.id(), Limit.of(chunkSize));
+            if (keys.isEmpty()) {
+                break;
+            }
+            List<Long> ids = keys.stream().map(CartSweepKey::id).toList();
+            Integer affected = transaction.execute(status -> sweepChunk(ids, cutoff));
+            swept += affected != null ? affected : 0;
+            scanned += keys.size();
+            chunks++;
+            last = keys.get(keys.size() - 1);
+            if (keys.size() < chunkSize || !throttle(start, scanned)) {
+                break;
+            }
+        }
+        SweepResult result = new SweepResult(scanned, swept, chunks, (System.nanoTime() - start) / 1_000_000);
+        if (scanned > 0) {
+            log.info("Varredura de carrinhos ({}): {} lidos, {} marcados como abandonados em {} lotes, {} ms",
+                    action, result.scanned(), result.swept(), result.chunks(), result.elapsedMillis());
+        }
+        return result;
+    }
+
+    private int sweepChunk(List<Long> ids, LocalDateTime cutoff) {
+        int marked = cartRepository.markStale(ids, CartStatus.PENDING, CartStatus.ABANDONED, cutoff);
+        if (action == Action.PURGE && marked > 0) {
+            cartItemRepository.deleteByCartIdInAndCartStatus(ids, CartStatus.ABANDONED);
+            cartRepository.zeroTotals(ids, CartStatus.ABANDONED);
+        }
+        return marked;
+    }
+
+    // Dorme o necessário para que a média desde o início não passe de maxCartsPerSecond; false se interrompido
+    private boolean throttle(long startNanos, int processed) {
+        if (maxCartsPerSecond <= 0) {
+            return true;
+        }
+        long expectedNanos = processed * 1_000_000_000L / maxCartsPerSecond;
+        long aheadNanos = expectedNanos - (System.nanoTime() - startNanos);
+        if (aheadNanos > 0) {
+            try {
+                Thread.sleep(aheadNanos / 1_000_000, (int) (aheadNanos % 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // Desligamento: os carrinhos já marcados não voltam na próxima varredura
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow(); // Interrompe a pausa do limite de vazão; a varredura para no fim do lote atual
+    }
+}
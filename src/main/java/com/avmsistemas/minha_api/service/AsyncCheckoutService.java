@@ -0,0 +1,163 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.dto.CheckoutStatusDTO;
+import com.avmsistemas.minha_api.model.Address;
+import com.avmsistemas.minha_api.model.Cart;
+import com.avmsistemas.minha_api.model.Order;
+import com.avmsistemas.minha_api.repository.AddressRepository;
+import com.avmsistemas.minha_api.repository.CartRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finalização de carrinho fora da thread da requisição HTTP.
+ *
+ * A requisição faz só as validações baratas (carrinho e endereço do usuário), enfileira a finalização e devolve um
+ * identificador de acompanhamento. Um pool fixo de {@code app.checkout.async.workers} threads executa
+ * {@link OrderService#createOrderFromCart} com a mesma regra de conflito do checkout síncrono. A fila é limitada a
+ * {@code app.checkout.async.queue-capacity}: cheia, a requisição recebe 503 em vez de acumular trabalho. Uma segunda
+ * finalização do mesmo carrinho enquanto a primeira ainda está na fila devolve o mesmo acompanhamento.
+ *
+ * A situação de cada finalização fica em memória por {@code app.checkout.async.status-ttl-minutes}.
+ */
+@Service
+public class AsyncCheckoutService {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncCheckoutService.class);
+
+    private final OrderService orderService;
+    private final CartRepository cartRepository;
+    private final AddressRepository addressRepository;
+    private final CartConflictRetrier retrier;
+    private final ThreadPoolExecutor executor;
+    private final BoundedTtlCache<String, Ticket> tickets;
+    private final Map<Long, Ticket> activeByCart = new ConcurrentHashMap<>();
+
+    public AsyncCheckoutService(OrderService orderService, CartRepository cartRepository,
+                                AddressRepository addressRepository, CartConflictRetrier retrier,
+                                @Value("${app.checkout.async.workers:8}") int workers,
+                                @Value("${app.checkout.async.queue-capacity:1000}") int queueCapacity,
+                                @Value("${app.checkout.async.max-tracked:50000}") int maxTracked,
+                                @Value("${app.checkout.async.status-ttl-minutes:60}") long statusTtlMinutes) {
+        this.orderService = orderService;
+        this.cartRepository = cartRepository;
+        this.addressRepository = addressRepository;
+        this.retrier = retrier;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "checkout-worker-" + threadCount.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.tickets = new BoundedTtlCache<>(maxTracked, Duration.ofMinutes(statusTtlMinutes));
+    }
+
+    /** Valida e enfileira a finalização; devolve a situação inicial (QUEUED, ou a de uma finalização já na fila). */
+    @Transactional(readOnly = true)
+    public CheckoutStatusDTO submit(Long userId, Long cartId, Long deliveryAddressId) {
+        Cart cart = cartRepository.findByUserId(userId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Carrinho não encontrado para este usuário."));
+        if (!cart.getId().equals(cartId)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ID do carrinho não corresponde ao carrinho do usuário.");
+        }
+        Address address = addressRepository.findById(deliveryAddressId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Endereço de entrega selecionado não encontrado."));
+        if (!address.getUser().getId().equals(userId)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Endereço de entrega não pertence ao usuário especificado.");
+        }
+
+        Ticket ticket = new Ticket(UUID.randomUUID().toString(), userId, cartId);
+        Ticket active = activeByCart.putIfAbsent(cartId, ticket);
+        if (active != null) {
+            return active.toDto();
+        }
+        tickets.put(ticket.trackingId, ticket);
+        try {
+            executor.execute(() -> process(ticket, deliveryAddressId));
+        } catch (RejectedExecutionException e) {
+            activeByCart.remove(cartId, ticket);
+            tickets.invalidate(ticket.trackingId);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Muitas finalizações em andamento. Tente novamente em instantes.");
+        }
+        return ticket.toDto();
+    }
+
+    public Optional<CheckoutStatusDTO> getStatus(String trackingId) {
+        return Optional.ofNullable(tickets.get(trackingId)).map(Ticket::toDto);
+    }
+
+    private void process(Ticket ticket, Long deliveryAddressId) {
+        ticket.status = CheckoutStatusDTO.Status.PROCESSING;
+        try {
+            Order order = retrier.execute("checkout", ticket.userId, false,
+                    () -> orderService.createOrderFromCart(ticket.userId, ticket.cartId, deliveryAddressId));
+            ticket.orderId = order.getId();
+            ticket.finish(CheckoutStatusDTO.Status.COMPLETED);
+        } catch (ResponseStatusException e) {
+            ticket.errorStatus = e.getStatusCode().value();
+            ticket.errorMessage = e.getReason();
+            ticket.finish(CheckoutStatusDTO.Status.FAILED);
+        } catch (RuntimeException e) {
+            log.error("Falha na finalização assíncrona {} do carrinho {}", ticket.trackingId, ticket.cartId, e);
+            ticket.errorStatus = HttpStatus.INTERNAL_SERVER_ERROR.value();
+            ticket.errorMessage = "Erro interno ao finalizar o carrinho.";
+            ticket.finish(CheckoutStatusDTO.Status.FAILED);
+        } finally {
+            activeByCart.remove(ticket.cartId, ticket);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        executor.shutdown(); // As finalizações já aceitas terminam antes do desligamento
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("{} finalizações assíncronas não foram processadas antes do desligamento", executor.shutdownNow().size());
+        }
+    }
+
+    // Situação mutável de uma finalização; escrita só pela thread que a processa
+    private static final class Ticket {
+        final String trackingId;
+        final Long userId;
+        final Long cartId;
+        final LocalDateTime submittedAt = LocalDateTime.now();
+        volatile CheckoutStatusDTO.Status status = CheckoutStatusDTO.Status.QUEUED;
+        volatile Long orderId;
+        volatile Integer errorStatus;
+        volatile String errorMessage;
+        volatile LocalDateTime completedAt;
+
+        Ticket(String trackingId, Long userId, Long cartId) {
+            this.trackingId = trackingId;
+            this.userId = userId;
+            this.cartId = cartId;
+        }
+
+        void finish(CheckoutStatusDTO.Status finalStatus) {
+            completedAt = LocalDateTime.now();
+            status = finalStatus; // Por último: quem lê COMPLETED/FAILED vê os demais campos preenchidos
+        }
+
+        CheckoutStatusDTO toDto() {
+            CheckoutStatusDTO.Status current = status;
+            return new CheckoutStatusDTO(trackingId, current, userId, cartId, orderId, errorStatus, errorMessage, submittedAt, completedAt);
+        }
+    }
+}
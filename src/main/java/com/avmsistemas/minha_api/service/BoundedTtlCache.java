@@ -0,0 +1,107 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.dto.CacheStatsDTO;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache em memória limitado por tamanho (LRU) e por tempo de vida (TTL), com contadores de acertos/falhas.
+ *
+ * Para evitar que um leitor recoloque no cache um valor lido antes de uma escrita concorrente,
+ * o leitor captura {@link #invalidationStamp()} antes de ir ao banco e usa {@link #putIfNotInvalidatedSince}.
+ */
+public class BoundedTtlCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, CacheEntry<V>> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private long invalidationStamp; // Incrementado a cada invalidação (protegido pelo lock do objeto)
+
+    public BoundedTtlCache(int maxSize, Duration ttl) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize deve ser maior que zero");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true); // Ordem de acesso = LRU
+    }
+
+    public synchronized V get(K key) {
+        CacheEntry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.isExpired(System.nanoTime())) {
+            entries.remove(key);
+            evictions.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, new CacheEntry<>(value, System.nanoTime() + ttlNanos));
+        evictOverflow();
+    }
+
+    public synchronized long invalidationStamp() {
+        return invalidationStamp;
+    }
+
+    /** Só armazena o valor se nenhuma invalidação ocorreu desde {@code stamp}; retorna se armazenou. */
+    public synchronized boolean putIfNotInvalidatedSince(K key, V value, long stamp) {
+        if (invalidationStamp != stamp) {
+            return false;
+        }
+        put(key, value);
+        return true;
+    }
+
+    public synchronized void invalidate(K key) {
+        invalidationStamp++;
+        entries.remove(key);
+    }
+
+    public synchronized void invalidateAll() {
+        invalidationStamp++;
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public CacheStatsDTO stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+        return new CacheStatsDTO(size(), maxSize, hitCount, missCount, evictions.sum(),
+                total == 0 ? 0.0 : (double) hitCount / total);
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<K, CacheEntry<V>>> it = entries.entrySet().iterator();
+        while (entries.size() > maxSize && it.hasNext()) {
+            it.next();
+            it.remove(); // O primeiro da iteração é o menos usado recentemente
+            evictions.increment();
+        }
+    }
+
+    private record CacheEntry<V>(V value, long expiresAtNanos) {
+        boolean isExpired(long now) {
+            return now - expiresAtNanos > 0;
+        }
+    }
+}
@@ -0,0 +1,403 @@
+package com.avmsistemas.minha_api.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Log local, somente de acréscimo, das alterações de carrinho ainda não gravadas no banco.
+ *
+ * Cada registro traz o estado absoluto das linhas alteradas (não um incremento), então reaplicar um registro já
+ * persistido não muda o resultado. No arquivo, cada registro vai com o tamanho e o CRC32 do conteúdo; na leitura,
+ * o primeiro registro incompleto ou com CRC diferente (uma gravação interrompida) encerra a leitura do segmento.
+ *
+ * {@link #append} só enfileira o registro e devolve o seu número de sequência. Uma única thread grava: ela junta em
+ * um lote os registros que chegaram enquanto o lote anterior era forçado para o disco e faz um único force por lote
+ * (group commit). Quem precisa da garantia espera com {@link #awaitDurable}, de preferência sem segurar locks.
+ * O log é dividido em segmentos numerados: {@link #rotate()} fecha o segmento atual e abre o próximo, e os
+ * segmentos anteriores podem ser apagados depois que o flush que os cobre foi confirmado.
+ *
+ * Depois de uma falha de gravação o log recusa novos registros até {@link #reopen()}, chamado quando tudo o que
+ * estava em memória já foi gravado no banco.
+ */
+final class CartAppendLog implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(CartAppendLog.class);
+
+    private static final String PREFIX = "cart-";
+    private static final String SUFFIX = ".log";
+    private static final int HEADER_BYTES = Integer.BYTES * 2; // Tamanho e CRC32 do conteúdo
+    private static final int MAX_RECORD_BYTES = 64 * 1024 * 1024;
+    private static final int MAX_BATCH = 1024;
+
+    private final Path directory;
+    private final SegmentOpener opener;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Object durableMonitor = new Object();
+    private volatile Thread writer;
+    private FileChannel channel; // Usado só pela thread de gravação (e pelo construtor e reopen, sem ela rodando)
+    private volatile long activeSegment;
+    private volatile long activeBytes;
+    private volatile boolean running = true;
+    private volatile RuntimeException failure;
+    private long appended; // Último número de sequência entregue; protegido por this
+    private volatile long durable; // Todos os registros até este número estão no disco
+
+    CartAppendLog(Path directory) {
+        this(directory, path -> FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+    }
+
+    CartAppendLog(Path directory, SegmentOpener opener) {
+        this.directory = directory;
+        this.opener = opener;
+        try {
+            Files.createDirectories(directory);
+            this.activeSegment = nextSegment();
+            this.channel = open(activeSegment);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível abrir o log de carrinhos em " + directory, e);
+        }
+        this.writer = startWriter();
+    }
+
+    /**
+     * Enfileira o registro (uma ou mais linhas, gravadas juntas ou não gravadas).
+     *
+     * @return número de sequência do registro, para {@link #awaitDurable}
+     */
+    synchronized long append(String record) {
+        checkOpen();
+        long sequence = ++appended;
+        queue.add(new Pending(sequence, record.getBytes(StandardCharsets.UTF_8), null));
+        return sequence;
+    }
+
+    /** Espera até que o registro {@code sequence} (e todos os anteriores) esteja no disco. */
+    void awaitDurable(long sequence) {
+        if (durable >= sequence) {
+            return;
+        }
+        synchronized (durableMonitor) {
+            while (durable < sequence) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Falha ao gravar no log de carrinhos", new IOException(failure));
+                }
+                try {
+                    durableMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrompido enquanto aguardava o log de carrinhos", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fecha o segmento atual e passa a escrever em um novo, depois de gravar tudo o que já estava na fila.
+     *
+     * @return número do novo segmento; todos os registros dos segmentos anteriores já estavam gravados
+     */
+    long rotate() {
+        CompletableFuture<Long> rotated = new CompletableFuture<>();
+        synchronized (this) {
+            checkOpen();
+            queue.add(new Pending(appended, null, rotated));
+        }
+        try {
+            return rotated.join();
+        } catch (CompletionException e) {
+            throw new UncheckedIOException("Falha ao rotacionar o log de carrinhos", new IOException(e.getCause()));
+        }
+    }
+
+    /** {@code true} se uma gravação falhou e o log está recusando registros até {@link #reopen()}. */
+    boolean isFailed() {
+        return failure != null;
+    }
+
+    /**
+     * Volta a aceitar registros depois de uma falha, em um segmento novo. Só pode ser chamado quando todas as
+     * alterações já registradas estão gravadas no banco: elas passam a contar como duráveis, e os segmentos
+     * anteriores (o último talvez gravado pela metade) podem ser apagados com {@link #deleteBefore}.
+     *
+     * @return número do novo segmento
+     */
+    long reopen() {
+        Thread failed = writer;
+        try {
+            failed.join(TimeUnit.SECONDS.toMillis(10)); // A thread termina logo depois de registrar a falha
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido enquanto reabria o log de carrinhos", e);
+        }
+        synchronized (this) {
+            if (failure == null || !running) {
+                throw new IllegalStateException("O log de carrinhos não está em falha.");
+            }
+            if (failed.isAlive()) {
+                throw new IllegalStateException("A thread de gravação do log de carrinhos ainda não terminou.");
+            }
+            try {
+                long segment = nextSegment();
+                channel = open(segment);
+                activeSegment = segment;
+                activeBytes = 0;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Não foi possível reabrir o log de carrinhos em " + directory, e);
+            }
+            synchronized (durableMonitor) {
+                durable = appended; // Já gravados no banco; quem ainda espera por eles é liberado
+                durableMonitor.notifyAll();
+            }
+            failure = null;
+            writer = startWriter();
+            log.info("Log de carrinhos reaberto no segmento {} após a falha de gravação", activeSegment);
+            return activeSegment;
+        }
+    }
+
+    /** {@code true} se não há registros pendentes nem segmentos antigos, e o segmento ativo está vazio. */
+    boolean isClean() {
+        synchronized (this) {
+            if (durable < appended) {
+                return false;
+            }
+        }
+        try {
+            return activeBytes == 0 && segments().size() == 1;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Apaga os segmentos anteriores a {@code segment}. */
+    void deleteBefore(long segment) {
+        try {
+            for (Long existing : segments()) {
+                if (existing < segment) {
+                    Files.deleteIfExists(path(existing));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao apagar segmentos do log de carrinhos", e);
+        }
+    }
+
+    /** Lê, em ordem, as linhas dos registros válidos de todos os segmentos anteriores ao segmento ativo. */
+    void replay(Consumer<String> consumer) {
+        try {
+            for (Long segment : segments()) {
+                if (segment < activeSegment) {
+                    replaySegment(segment, consumer);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao ler o log de carrinhos", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            running = false; // A thread de gravação esvazia a fila antes de terminar
+        }
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            log.warn("Log de carrinhos fechado com {} registros ainda na fila", queue.size());
+        }
+    }
+
+    private void checkOpen() {
+        if (failure != null) {
+            throw new UncheckedIOException("O log de carrinhos foi desativado após uma falha de gravação", new IOException(failure));
+        }
+        if (!running) {
+            throw new IllegalStateException("Log de carrinhos fechado.");
+        }
+    }
+
+    private Thread startWriter() {
+        Thread thread = new Thread(this::writeLoop, "cart-log-writer");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(MAX_BATCH);
+        try {
+            while (running || !queue.isEmpty()) {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1); // O que chegou durante o force anterior vai neste lote
+                writeBatch(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(new IllegalStateException("Thread de gravação do log de carrinhos interrompida", e), batch);
+        } catch (IOException | RuntimeException e) {
+            // O lote pode ter sido gravado pela metade: o log para de aceitar registros e quem espera recebe o erro
+            log.error("Falha ao gravar no log de carrinhos; o log foi desativado", e);
+            fail(e instanceof RuntimeException runtime ? runtime : new UncheckedIOException((IOException) e), batch);
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Falha ao fechar o log de carrinhos", e);
+            }
+        }
+    }
+
+    private void fail(RuntimeException error, List<Pending> batch) {
+        synchronized (this) { // Depois disto, append e rotate recusam novos registros: nada fica esquecido na fila
+            failure = error;
+            queue.drainTo(batch);
+        }
+        batch.stream().filter(pending -> pending.rotated() != null)
+                .forEach(pending -> pending.rotated().completeExceptionally(error));
+        synchronized (durableMonitor) {
+            durableMonitor.notifyAll();
+        }
+    }
+
+    private void writeBatch(List<Pending> batch) throws IOException {
+        long last = durable;
+        for (Pending pending : batch) {
+            if (pending.rotated() != null) {
+                force(last);
+                channel.close();
+                activeSegment++;
+                channel = open(activeSegment);
+                activeBytes = 0;
+                pending.rotated().complete(activeSegment);
+                continue;
+            }
+            ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + pending.payload().length);
+            frame.putInt(pending.payload().length).putInt(crc(pending.payload())).put(pending.payload()).flip();
+            while (frame.hasRemaining()) {
+                channel.write(frame);
+            }
+            activeBytes += frame.limit();
+            last = pending.sequence();
+        }
+        force(last); // Um único force para o lote inteiro
+    }
+
+    // Força o segmento ativo e libera quem espera pelos registros até 'sequence'
+    private void force(long sequence) throws IOException {
+        if (sequence <= durable) {
+            return;
+        }
+        channel.force(false);
+        synchronized (durableMonitor) {
+            durable = sequence;
+            durableMonitor.notifyAll();
+        }
+    }
+
+    private void replaySegment(long segment, Consumer<String> consumer) throws IOException {
+        try (InputStream file = Files.newInputStream(path(segment));
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+            long position = 0;
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return; // Fim do segmento (ou cabeçalho incompleto, tratado como fim)
+                }
+                byte[] payload = length > 0 && length <= MAX_RECORD_BYTES ? new byte[length] : null;
+                try {
+                    int expectedCrc = in.readInt();
+                    if (payload == null) {
+                        throw new IOException("tamanho inválido: " + length);
+                    }
+                    in.readFully(payload);
+                    if (crc(payload) != expectedCrc) {
+                        throw new IOException("CRC diferente");
+                    }
+                } catch (IOException e) {
+                    // Gravação interrompida: os registros seguintes deste segmento não chegaram a ser confirmados
+                    log.warn("Registro inválido na posição {} do segmento {} do log de carrinhos ({}); o restante do segmento foi descartado",
+                            position, segment, e instanceof EOFException ? "incompleto" : e.getMessage());
+                    return;
+                }
+                for (String line : new String(payload, StandardCharsets.UTF_8).split("\n")) {
+                    if (!line.isBlank()) {
+                        consumer.accept(line);
+                    }
+                }
+                position += HEADER_BYTES + length;
+            }
+        }
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private FileChannel open(long segment) throws IOException {
+        return opener.open(path(segment));
+    }
+
+    private long nextSegment() throws IOException {
+        List<Long> existing = segments();
+        return existing.isEmpty() ? 1 : existing.get(existing.size() - 1) + 1;
+    }
+
+    private Path path(long segment) {
+        return directory.resolve(String.format("%s%020d%s", PREFIX, segment, SUFFIX));
+    }
+
+    private List<Long> segments() throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .forEach(name -> segments.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()))));
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    /** Abre o arquivo de um segmento para acréscimo (substituído nos testes para simular falhas de disco). */
+    interface SegmentOpener {
+        FileChannel open(Path path) throws IOException;
+    }
+
+    // Registro a gravar ou, com 'rotated', pedido de rotação (na ordem da fila)
+    private record Pending(long sequence, byte[] payload, CompletableFuture<Long> rotated) {
+    }
+}
@@ -0,0 +1,126 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.dto.CartContentionStatsDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Executa operações de carrinho tratando conflitos de versão (duas requisições alterando o mesmo carrinho).
+ *
+ * Cada chamada deve abrir e fechar a própria transação (ou seja, ser feita fora de uma transação), pois o conflito
+ * só aparece no commit. Operações idempotentes (definir quantidade, remover, limpar) são repetidas até
+ * {@code app.cart.retry.max-attempts} vezes, com espera aleatória crescente; as demais, e as que esgotam as
+ * tentativas, terminam em 409. Os contadores mostram onde há disputa: por operação e pelos carrinhos com mais conflitos.
+ */
+@Component
+public class CartConflictRetrier {
+
+    // Limite de usuários acompanhados no ranking de conflitos, para não crescer sem limite
+    private static final int MAX_TRACKED_CARTS = 10_000;
+    private static final int HOT_CARTS_REPORTED = 10;
+
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final Map<String, Counters> byOperation = new ConcurrentHashMap<>();
+    private final Map<Long, LongAdder> conflictsByUser = new ConcurrentHashMap<>();
+
+    public CartConflictRetrier(@Value("${app.cart.retry.max-attempts:3}") int maxAttempts,
+                               @Value("${app.cart.retry.backoff-ms:10}") long backoffMillis) {
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoffMillis;
+    }
+
+    public <T> T execute(String operation, Long userId, boolean idempotent, Supplier<T> action) {
+        Counters counters = byOperation.computeIfAbsent(operation, name -> new Counters());
+        counters.calls.increment();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (OptimisticLockingFailureException e) {
+                counters.conflicts.increment();
+                recordConflict(userId);
+                if (!idempotent || attempt >= maxAttempts) {
+                    counters.rejected.increment();
+                    throw new ResponseStatusException(HttpStatus.CONFLICT,
+                            "O carrinho foi alterado por outra requisição. Recarregue o carrinho e tente novamente.", e);
+                }
+                counters.retries.increment();
+                backoff(attempt);
+            }
+        }
+    }
+
+    public void run(String operation, Long userId, boolean idempotent, Runnable action) {
+        execute(operation, userId, idempotent, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public CartContentionStatsDTO stats() {
+        Map<String, CartContentionStatsDTO.OperationStats> operations = new TreeMap<>();
+        long conflicts = 0, retries = 0, rejected = 0;
+        for (Map.Entry<String, Counters> entry : byOperation.entrySet()) {
+            Counters c = entry.getValue();
+            CartContentionStatsDTO.OperationStats stats = new CartContentionStatsDTO.OperationStats(
+                    c.calls.sum(), c.conflicts.sum(), c.retries.sum(), c.rejected.sum());
+            operations.put(entry.getKey(), stats);
+            conflicts += stats.getConflicts();
+            retries += stats.getRetries();
+            rejected += stats.getRejected();
+        }
+        List<CartContentionStatsDTO.HotCart> hotCarts = conflictsByUser.entrySet().stream()
+                .map(entry -> new CartContentionStatsDTO.HotCart(entry.getKey(), entry.getValue().sum()))
+                .sorted(Comparator.comparingLong(CartContentionStatsDTO.HotCart::getConflicts).reversed())
+                .limit(HOT_CARTS_REPORTED)
+                .toList();
+        return new CartContentionStatsDTO(conflicts, retries, rejected, operations, hotCarts);
+    }
+
+    private void recordConflict(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        LongAdder counter = conflictsByUser.get(userId);
+        if (counter == null) {
+            if (conflictsByUser.size() >= MAX_TRACKED_CARTS) {
+                return; // Ranking cheio: só os carrinhos já acompanhados continuam contando
+            }
+            counter = conflictsByUser.computeIfAbsent(userId, id -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    // Espera aleatória entre 0 e backoff * 2^(tentativa-1), para que as requisições em disputa não colidam de novo
+    private void backoff(int attempt) {
+        long bound = backoffMillis << (attempt - 1);
+        if (bound <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Operação interrompida.", e);
+        }
+    }
+
+    private static final class Counters {
+        final LongAdder calls = new LongAdder();
+        final LongAdder conflicts = new LongAdder();
+        final LongAdder retries = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+    }
+}
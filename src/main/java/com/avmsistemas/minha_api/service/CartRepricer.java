@@ -0,0 +1,120 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.model.CartStatus;
+import com.avmsistemas.minha_api.repository.CartItemRepository;
+import com.avmsistemas.minha_api.repository.CartRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Leva as mudanças de preço de produto aos carrinhos abertos (PENDING).
+ *
+ * Depois do commit da alteração de preço, a reprecificação é feita em uma thread própria, para não atrasar a
+ * requisição que alterou o produto. Os itens afetados são encontrados pelo índice de itens por produto e tratados
+ * em lotes de {@code app.cart.reprice.chunk-size}, cada um em uma transação com duas instruções em massa: uma soma
+ * ao total de cada carrinho a diferença das suas linhas e a outra atualiza o preço dos itens. Nenhum carrinho é carregado.
+ * Várias mudanças do mesmo produto ainda na fila viram uma só, com o preço mais recente.
+ */
+@Component
+public class CartRepricer {
+
+    private static final Logger log = LoggerFactory.getLogger(CartRepricer.class);
+
+    private final CartItemRepository cartItemRepository;
+    private final CartRepository cartRepository;
+    private final TransactionTemplate transaction;
+    private final int chunkSize;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cart-repricer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // productId -> preço mais recente ainda não aplicado
+    private final Map<Long, BigDecimal> pending = new ConcurrentHashMap<>();
+
+    @Autowired(required = false)
+    private WriteBehindCartStore writeBehindStore; // Presente apenas com app.cart.store=memory
+
+    public CartRepricer(CartItemRepository cartItemRepository, CartRepository cartRepository,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${app.cart.reprice.chunk-size:500}") int chunkSize) {
+        this.cartItemRepository = cartItemRepository;
+        this.cartRepository = cartRepository;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.type() != ProductChangedEvent.ChangeType.UPDATED || event.before() == null || event.after() == null) {
+            return;
+        }
+        BigDecimal oldPrice = event.before().getPrice();
+        BigDecimal newPrice = event.after().getPrice();
+        if (newPrice == null || (oldPrice != null && oldPrice.compareTo(newPrice) == 0)) {
+            return;
+        }
+        if (pending.put(event.productId(), newPrice) == null) {
+            executor.execute(() -> {
+                BigDecimal price = pending.remove(event.productId());
+                if (price != null) {
+                    reprice(event.productId(), price);
+                }
+            });
+        }
+    }
+
+    /** Aplica {@code price} aos itens do produto nos carrinhos abertos; devolve quantos itens foram alterados. */
+    public int reprice(Long productId, BigDecimal price) {
+        long start = System.currentTimeMillis();
+        int repriced = 0;
+        try {
+            if (writeBehindStore != null) {
+                writeBehindStore.repriceProduct(productId, price); // Carrinhos em memória ainda não gravados
+            }
+            long afterId = 0;
+            while (true) {
+                List<Long> ids = cartItemRepository.findIdsToReprice(productId, price, CartStatus.PENDING, afterId, Limit.of(chunkSize));
+                if (ids.isEmpty()) {
+                    break;
+                }
+                transaction.executeWithoutResult(status -> {
+                    cartRepository.addRepriceDeltas(ids, price); // Antes de atualizar os itens: usa o preço antigo
+                    cartItemRepository.updatePrice(ids, price);
+                });
+                repriced += ids.size();
+                afterId = ids.get(ids.size() - 1);
+                if (ids.size() < chunkSize) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Falha ao reprecificar carrinhos do produto {}", productId, e);
+        }
+        if (repriced > 0) {
+            log.info("Produto {}: {} itens de carrinho reprecificados para {} em {} ms",
+                    productId, repriced, price, System.currentTimeMillis() - start);
+        }
+        return repriced;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -1,7 +1,9 @@
 package com.avmsistemas.minha_api.service;
 
+import com.avmsistemas.minha_api.dto.CartOperationDTO;
 import com.avmsistemas.minha_api.model.Cart;
 import com.avmsistemas.minha_api.model.CartItem;
+import com.avmsistemas.minha_api.model.CartStatus;
 import com.avmsistemas.minha_api.model.Product;
 import com.avmsistemas.minha_api.model.User;
 import com.avmsistemas.minha_api.repository.CartItemRepository;
@@ -14,12 +16,19 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class CartService {
 
+    public static final int MAX_OPERATIONS_PER_BATCH = 500;
+
     @Autowired
     private CartRepository cartRepository;
     @Autowired
@@ -28,10 +37,15 @@ public class CartService {
     private ProductRepository productRepository;
     @Autowired
     private CartItemRepository cartItemRepository;
+    @Autowired(required = false)
+    private WriteBehindCartStore writeBehindStore; // Presente apenas com app.cart.store=memory
 
     // Métodos existentes de CartService (adicionar, remover, etc.)
     @Transactional
     public Cart getOrCreateCart(Long userId) {
+        if (writeBehindStore != null) {
+            return writeBehindStore.getOrCreateCart(userId);
+        }
         return cartRepository.findByUserId(userId)
                 .orElseGet(() -> {
                     User user = userRepository.findById(userId)
@@ -41,34 +55,132 @@ public class CartService {
                 });
     }
 
+    // Carrinho a ser alterado, com a versão incrementada no commit (ver CartRepository.findByUserIdForUpdate);
+    // um carrinho recém-criado não precisa disso, pois nenhuma outra transação pode tê-lo lido
+    private Cart getOrCreateCartForUpdate(Long userId) {
+        return findCartForUpdate(userId)
+                .orElseGet(() -> getOrCreateCart(userId));
+    }
+
+    // Um carrinho marcado como abandonado pelo AbandonedCartSweeper volta a PENDING quando o usuário o altera
+    private Optional<Cart> findCartForUpdate(Long userId) {
+        Optional<Cart> cart = cartRepository.findByUserIdForUpdate(userId);
+        cart.filter(c -> c.getStatus() == CartStatus.ABANDONED).ifPresent(c -> c.setStatus(CartStatus.PENDING));
+        return cart;
+    }
+
+    // Os métodos abaixo localizam o item pelo índice do carrinho (sem percorrer a lista) e ajustam o total
+    // apenas pela diferença da linha alterada. O carrinho é gerenciado: as alterações vão ao banco no commit.
+
     @Transactional
     public Cart addItemToCart(Long userId, Long productId, Integer quantity) {
         if (quantity <= 0) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A quantidade deve ser maior que zero.");
         }
+        if (writeBehindStore != null) {
+            return writeBehindStore.addItem(userId, productId, quantity);
+        }
 
-        Cart cart = getOrCreateCart(userId);
+        Cart cart = getOrCreateCartForUpdate(userId);
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Produto não encontrado."));
 
         // Se o produto já existe no carrinho, atualiza a quantidade
-        Optional<CartItem> existingItem = cart.getItems().stream()
-                .filter(item -> item.getProduct().getId().equals(productId))
-                .findFirst();
-
-        if (existingItem.isPresent()) {
-            CartItem item = existingItem.get();
-            item.setQuantity(item.getQuantity() + quantity);
-            cartItemRepository.save(item); // Salva o item atualizado
+        CartItem existingItem = cart.findItem(productId);
+        if (existingItem != null) {
+            cart.updateCartItem(existingItem, existingItem.getQuantity() + quantity, existingItem.getPrice());
         } else {
             // Adiciona um novo item ao carrinho
             CartItem newItem = new CartItem(cart, product, quantity);
             cart.addCartItem(newItem); // Garante a relação bidirecional
             cartItemRepository.save(newItem); // Salva o novo item
         }
+        return cart;
+    }
+
+    /**
+     * Aplica uma lista de operações ao carrinho em uma única transação e devolve o carrinho final.
+     * Os produtos citados são carregados com uma única consulta IN. As operações são validadas antes de qualquer
+     * alteração; se alguma for inválida, nada é aplicado. SET com quantidade 0 e REMOVE de uma linha que não
+     * existe não são erro, para que o mesmo lote possa ser reenviado.
+     */
+    @Transactional
+    public Cart applyOperations(Long userId, List<CartOperationDTO> operations) {
+        Set<Long> productIds = validateOperations(operations);
+        if (writeBehindStore != null) {
+            return writeBehindStore.applyOperations(userId, operations);
+        }
+
+        Cart cart = getOrCreateCartForUpdate(userId);
+        Map<Long, Product> products = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        for (Long productId : productIds) {
+            if (!products.containsKey(productId)) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Produto não encontrado: " + productId);
+            }
+        }
+
+        for (CartOperationDTO operation : operations) {
+            CartItem item = cart.findItem(operation.getProductId());
+            switch (operation.getOp()) {
+                case ADD -> {
+                    if (item != null) {
+                        cart.updateCartItem(item, item.getQuantity() + operation.getQuantity(), item.getPrice());
+                    } else {
+                        // Novo item persistido em cascata pelo carrinho no commit
+                        cart.addCartItem(new CartItem(cart, products.get(operation.getProductId()), operation.getQuantity()));
+                    }
+                }
+                case SET -> {
+                    Product product = products.get(operation.getProductId());
+                    if (operation.getQuantity() == 0) {
+                        if (item != null) {
+                            cart.removeCartItem(item);
+                        }
+                    } else if (item != null) {
+                        cart.updateCartItem(item, operation.getQuantity(), product.getPrice());
+                    } else {
+                        cart.addCartItem(new CartItem(cart, product, operation.getQuantity()));
+                    }
+                }
+                case REMOVE -> {
+                    if (item != null) {
+                        cart.removeCartItem(item); // orphanRemoval exclui o item no commit
+                    }
+                }
+            }
+        }
+        return cart;
+    }
 
-        cart.calculateTotal();
-        return cartRepository.save(cart);
+    // Valida o lote inteiro antes de aplicar qualquer operação; devolve os produtos a carregar (de ADD e SET)
+    private static Set<Long> validateOperations(List<CartOperationDTO> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Informe ao menos uma operação.");
+        }
+        if (operations.size() > MAX_OPERATIONS_PER_BATCH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No máximo " + MAX_OPERATIONS_PER_BATCH + " operações por lote.");
+        }
+        Set<Long> productIds = new HashSet<>();
+        for (CartOperationDTO operation : operations) {
+            if (operation == null || operation.getOp() == null || operation.getProductId() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cada operação deve informar op e productId.");
+            }
+            if (operation.getOp() == CartOperationDTO.Type.REMOVE) {
+                continue;
+            }
+            if (operation.getQuantity() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Operações ADD e SET exigem quantity.");
+            }
+            if (operation.getOp() == CartOperationDTO.Type.ADD && operation.getQuantity() <= 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A quantidade deve ser maior que zero.");
+            }
+            if (operation.getQuantity() < 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A quantidade não pode ser negativa.");
+            }
+            productIds.add(operation.getProductId());
+        }
+        return productIds;
     }
 
     @Transactional
@@ -76,63 +188,63 @@ public class CartService {
         if (newQuantity < 0) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A quantidade não pode ser negativa.");
         }
+        if (writeBehindStore != null) {
+            return writeBehindStore.updateItemQuantity(userId, productId, newQuantity);
+        }
 
-        Cart cart = cartRepository.findByUserId(userId)
+        Cart cart = findCartForUpdate(userId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Carrinho não encontrado para este usuário."));
 
-        CartItem itemToUpdate = cart.getItems().stream()
-                .filter(item -> item.getProduct().getId().equals(productId))
-                .findFirst()
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Item não encontrado no carrinho."));
+        CartItem itemToUpdate = cart.findItem(productId);
+        if (itemToUpdate == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Item não encontrado no carrinho.");
+        }
 
         if (newQuantity == 0) {
             cart.removeCartItem(itemToUpdate); // Remove da lista do carrinho
             cartItemRepository.delete(itemToUpdate); // Deleta do banco
         } else {
-            itemToUpdate.setQuantity(newQuantity);
-            itemToUpdate.setPrice(itemToUpdate.getProduct().getPrice()); // Atualiza o preço, caso o produto tenha mudado de preço
-            cartItemRepository.save(itemToUpdate); // Salva o item atualizado
+            // Atualiza também o preço, caso o produto tenha mudado de preço
+            cart.updateCartItem(itemToUpdate, newQuantity, itemToUpdate.getProduct().getPrice());
         }
-
-        cart.calculateTotal();
-        return cartRepository.save(cart);
+        return cart;
     }
 
     @Transactional
     public void removeCartItem(Long userId, Long productId) {
-        Cart cart = cartRepository.findByUserId(userId)
+        if (writeBehindStore != null) {
+            writeBehindStore.removeItem(userId, productId);
+            return;
+        }
+        Cart cart = findCartForUpdate(userId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Carrinho não encontrado para este usuário."));
 
-        CartItem itemToRemove = cart.getItems().stream()
-                .filter(item -> item.getProduct().getId().equals(productId))
-                .findFirst()
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Item não encontrado no carrinho."));
+        CartItem itemToRemove = cart.findItem(productId);
+        if (itemToRemove == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Item não encontrado no carrinho.");
+        }
 
         cart.removeCartItem(itemToRemove);
         cartItemRepository.delete(itemToRemove);
-
-        cart.calculateTotal();
-        cartRepository.save(cart);
     }
 
     @Transactional
     public void clearCart(Long userId) {
-        Cart cart = cartRepository.findByUserId(userId)
+        if (writeBehindStore != null) {
+            writeBehindStore.clear(userId);
+            return;
+        }
+        Cart cart = findCartForUpdate(userId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Carrinho não encontrado para este usuário."));
 
-        cartItemRepository.deleteAll(cart.getItems()); // Deleta todos os itens
-        cart.getItems().clear(); // Limpa a lista em memória
-        cart.setTotalAmount(BigDecimal.ZERO);
-        cartRepository.save(cart);
+        cart.clearItems(); // orphanRemoval exclui os itens no commit e o total volta a zero
     }
 
     @Transactional(readOnly = true)
     public Optional<Cart> getCartByUserId(Long userId) {
+        if (writeBehindStore != null) {
+            return writeBehindStore.findCart(userId);
+        }
         return cartRepository.findByUserId(userId);
     }
-
-    public Cart createEmptyCart() {        
-        Cart cart = new Cart();
-        return cartRepository.save(cart);
-    }
 }
\ No newline at end of file
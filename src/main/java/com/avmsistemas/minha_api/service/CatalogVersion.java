@@ -0,0 +1,41 @@
+package com.avmsistemas.minha_api.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versão do catálogo inteiro (produtos e categorias), usada como ETag das listagens.
+ *
+ * É incrementada após o commit de qualquer alteração de produto ou categoria. O prefixo é gerado na
+ * inicialização para que um ETag emitido antes de um reinício nunca coincida com um emitido depois.
+ * Os controladores devem ler a versão antes de consultar os dados: se uma alteração ocorrer no meio,
+ * o cliente recebe dados novos com o ETag antigo e apenas baixa a lista mais uma vez.
+ */
+@Component
+public class CatalogVersion {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong counter = new AtomicLong();
+
+    /** ETag forte (sem aspas) da versão atual do catálogo. */
+    public String etag() {
+        return "c" + epoch + "-" + counter.get();
+    }
+
+    /** ETag forte (sem aspas) de um produto, a partir da coluna de versão. */
+    public static String productEtag(Long productId, Long version) {
+        return "p" + productId + "-" + version;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        counter.incrementAndGet();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        counter.incrementAndGet();
+    }
+}
@@ -0,0 +1,15 @@
+package com.avmsistemas.minha_api.service;
+
+/**
+ * Publicado pelo CategoryService sempre que uma categoria é criada, alterada ou excluída.
+ * {@code name} é o nome após a alteração (nulo na exclusão).
+ * A exclusão também publica um {@link ProductChangedEvent} para cada produto removido em cascata.
+ */
+public record CategoryChangedEvent(Long categoryId, ChangeType type, String name) {
+
+    public enum ChangeType {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+}
@@ -1,9 +1,13 @@
 package com.avmsistemas.minha_api.service;
 
+import com.avmsistemas.minha_api.dto.ProductSummaryDTO;
 import com.avmsistemas.minha_api.model.Category;
+import com.avmsistemas.minha_api.model.Product;
 import com.avmsistemas.minha_api.repository.CategoryRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -12,10 +16,12 @@ import java.util.Optional;
 public class CategoryService {
 
     private final CategoryRepository categoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public CategoryService(CategoryRepository categoryRepository) {
+    public CategoryService(CategoryRepository categoryRepository, ApplicationEventPublisher eventPublisher) {
         this.categoryRepository = categoryRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     public List<Category> getAllCategories() {
@@ -26,20 +32,35 @@ public class CategoryService {
         return categoryRepository.findById(id);
     }
 
+    @Transactional
     public Category createCategory(Category category) {
-        return categoryRepository.save(category);
+        Category saved = categoryRepository.save(category);
+        eventPublisher.publishEvent(new CategoryChangedEvent(saved.getId(), CategoryChangedEvent.ChangeType.CREATED, saved.getName()));
+        return saved;
     }
 
+    @Transactional
     public Category updateCategory(Long id, Category categoryDetails) {
         Category category = categoryRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Category not found for this id :: " + id)); // Exemplo de tratamento de erro
         category.setName(categoryDetails.getName());
-        return categoryRepository.save(category);
+        Category saved = categoryRepository.save(category);
+        eventPublisher.publishEvent(new CategoryChangedEvent(id, CategoryChangedEvent.ChangeType.UPDATED, saved.getName()));
+        return saved;
     }
 
+    @Transactional
     public void deleteCategory(Long id) {
         Category category = categoryRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Category not found for this id :: " + id));
+        // Os produtos da categoria são removidos em cascata: avisa caches e índices de cada um
+        if (category.getProducts() != null) {
+            for (Product product : category.getProducts()) {
+                eventPublisher.publishEvent(new ProductChangedEvent(product.getId(), ProductChangedEvent.ChangeType.DELETED,
+                        ProductSummaryDTO.fromEntity(product), null));
+            }
+        }
         categoryRepository.delete(category);
+        eventPublisher.publishEvent(new CategoryChangedEvent(id, CategoryChangedEvent.ChangeType.DELETED, null));
     }
 }
\ No newline at end of file
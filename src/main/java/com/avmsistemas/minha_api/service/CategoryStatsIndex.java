@@ -0,0 +1,172 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.dto.CategoryStatsDTO;
+import com.avmsistemas.minha_api.dto.ProductSummaryDTO;
+import com.avmsistemas.minha_api.model.Category;
+import com.avmsistemas.minha_api.repository.CategoryPriceView;
+import com.avmsistemas.minha_api.repository.CategoryRepository;
+import com.avmsistemas.minha_api.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Agregados por categoria (quantidade de produtos, preço mínimo, máximo e médio) mantidos em memória.
+ *
+ * Montados uma vez na inicialização e depois atualizados de forma incremental pelos eventos de produto e
+ * de categoria, após o commit. Cada categoria guarda um multiconjunto ordenado de preços (para que a exclusão
+ * do produto mais barato ou mais caro não exija reler o banco) e um resumo pronto, lido em O(1).
+ * O índice lembra a última (categoria, preço) aplicada de cada produto, então reaplicar um evento não conta duas vezes.
+ */
+@Component
+public class CategoryStatsIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(CategoryStatsIndex.class);
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+
+    // Estado mutável, protegido pelo monitor do próprio índice
+    private final Map<Long, Aggregate> aggregates = new HashMap<>();
+    private final Map<Long, Placement> placements = new HashMap<>();
+    // Resumos prontos para leitura sem bloqueio
+    private final Map<Long, CategoryStatsDTO> snapshots = new ConcurrentHashMap<>();
+
+    public CategoryStatsIndex(ProductRepository productRepository, CategoryRepository categoryRepository) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        aggregates.clear();
+        placements.clear();
+        snapshots.clear();
+        for (Category category : categoryRepository.findAll()) {
+            aggregates.put(category.getId(), new Aggregate(category.getName()));
+        }
+        for (CategoryPriceView row : productRepository.findAllCategoryPrices()) {
+            place(row.getProductId(), row.getCategoryId(), row.getPrice());
+        }
+        aggregates.forEach((categoryId, aggregate) -> snapshots.put(categoryId, aggregate.snapshot(categoryId)));
+        log.info("Agregados por categoria montados: {} categorias, {} produtos em {} ms",
+                aggregates.size(), placements.size(), System.currentTimeMillis() - start);
+    }
+
+    /** Agregados da categoria, ou {@code null} se ela não existe. */
+    public CategoryStatsDTO get(Long categoryId) {
+        return snapshots.get(categoryId);
+    }
+
+    /** Agregados de todas as categorias, em ordem de ID. */
+    public List<CategoryStatsDTO> getAll() {
+        List<CategoryStatsDTO> all = new ArrayList<>(snapshots.values());
+        all.sort(Comparator.comparing(CategoryStatsDTO::getCategoryId));
+        return all;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+        Placement previous = placements.get(event.productId());
+        if (event.type() == ProductChangedEvent.ChangeType.DELETED) {
+            unplace(event.productId());
+        } else {
+            ProductSummaryDTO after = event.after();
+            place(event.productId(), after.getCategoryId(), after.getPrice());
+        }
+        Placement current = placements.get(event.productId());
+        refresh(previous != null ? previous.categoryId() : null);
+        refresh(current != null ? current.categoryId() : null);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onCategoryChanged(CategoryChangedEvent event) {
+        if (event.type() == CategoryChangedEvent.ChangeType.DELETED) {
+            aggregates.remove(event.categoryId()); // Os produtos já saíram pelos seus próprios eventos
+            snapshots.remove(event.categoryId());
+            return;
+        }
+        aggregates.computeIfAbsent(event.categoryId(), id -> new Aggregate(event.name())).name = event.name();
+        refresh(event.categoryId());
+    }
+
+    // Coloca o produto na categoria informada, retirando-o antes da categoria/preço anteriores
+    private void place(Long productId, Long categoryId, BigDecimal price) {
+        unplace(productId);
+        if (categoryId == null || price == null) {
+            return; // Produtos sem categoria ou sem preço não entram em nenhum agregado
+        }
+        Aggregate aggregate = aggregates.computeIfAbsent(categoryId, id -> new Aggregate(null));
+        aggregate.add(price);
+        placements.put(productId, new Placement(categoryId, price));
+    }
+
+    private void unplace(Long productId) {
+        Placement previous = placements.remove(productId);
+        if (previous != null) {
+            Aggregate aggregate = aggregates.get(previous.categoryId());
+            if (aggregate != null) {
+                aggregate.remove(previous.price());
+            }
+        }
+    }
+
+    private void refresh(Long categoryId) {
+        if (categoryId == null) {
+            return;
+        }
+        Aggregate aggregate = aggregates.get(categoryId);
+        if (aggregate != null) {
+            snapshots.put(categoryId, aggregate.snapshot(categoryId));
+        }
+    }
+
+    private record Placement(Long categoryId, BigDecimal price) {
+    }
+
+    private static final class Aggregate {
+        String name;
+        long count;
+        BigDecimal sum = BigDecimal.ZERO;
+        // preço -> quantidade de produtos com esse preço (compareTo ignora a escala: 10.0 e 10.00 são a mesma chave)
+        final TreeMap<BigDecimal, Integer> prices = new TreeMap<>();
+
+        Aggregate(String name) {
+            this.name = name;
+        }
+
+        void add(BigDecimal price) {
+            count++;
+            sum = sum.add(price);
+            prices.merge(price, 1, Integer::sum);
+        }
+
+        void remove(BigDecimal price) {
+            count--;
+            sum = sum.subtract(price);
+            prices.computeIfPresent(price, (key, n) -> n == 1 ? null : n - 1);
+        }
+
+        CategoryStatsDTO snapshot(Long categoryId) {
+            if (count == 0) {
+                return new CategoryStatsDTO(categoryId, name, 0, null, null, null);
+            }
+            return new CategoryStatsDTO(categoryId, name, count, prices.firstKey(), prices.lastKey(),
+                    sum.divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP));
+        }
+    }
+}
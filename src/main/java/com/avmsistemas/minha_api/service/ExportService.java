@@ -0,0 +1,204 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.dto.OrderExportDTO;
+import com.avmsistemas.minha_api.model.Order;
+import com.avmsistemas.minha_api.model.OrderArchive;
+import com.avmsistemas.minha_api.repository.OrderArchiveRepository;
+import com.avmsistemas.minha_api.repository.OrderExportRowView;
+import com.avmsistemas.minha_api.repository.OrderRepository;
+import com.avmsistemas.minha_api.repository.ProductRepository;
+import com.avmsistemas.minha_api.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Exportação NDJSON (um objeto JSON por linha) de produtos, usuários e pedidos.
+ *
+ * As linhas vêm de consultas em {@link Stream} com fetch size limitado e são escritas na saída à medida
+ * que chegam, sem montar listas nem entidades gerenciadas: o consumo de memória não depende do tamanho da tabela.
+ * Cada exportação roda em uma transação somente leitura própria, aberta na thread que escreve a resposta.
+ * Os pedidos arquivados (order_archive) entram na exportação de pedidos, intercalados por ID com os de orders.
+ */
+@Service
+public class ExportService {
+
+    // A cada quantas linhas a saída é descarregada para o cliente
+    private static final int FLUSH_EVERY = 1000;
+
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private OrderArchiveRepository orderArchiveRepository;
+    @Autowired
+    private OrderArchiver orderArchiver;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ObjectWriter writer;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public ExportService(ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.writer = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("\n"); // Escrito entre um objeto e o seguinte
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public void exportProducts(OutputStream out) {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<?> rows = productRepository.streamAllForExport()) {
+                writeNdjson(rows.iterator(), out);
+            }
+        });
+    }
+
+    public void exportUsers(OutputStream out) {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<?> rows = userRepository.streamAllForExport()) {
+                writeNdjson(rows.iterator(), out);
+            }
+        });
+    }
+
+    /**
+     * Exporta os pedidos com seus itens, de todos os usuários ou apenas de {@code userId}, em ordem de ID.
+     * Com {@code includeArchived}, os pedidos arquivados entram também, descompactados um a um.
+     */
+    public void exportOrders(Long userId, boolean includeArchived, OutputStream out) {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<OrderExportRowView> rows = orderRepository.streamRowsForExport(userId);
+                 Stream<OrderArchive> archived = includeArchived ? orderArchiveRepository.streamForExport(userId) : Stream.empty()) {
+                Iterator<OrderExportDTO> live = new OrderGroupingIterator(rows.iterator());
+                writeNdjson(new MergingIterator(live, archived.map(this::toExportDto).iterator()), out);
+            }
+        });
+    }
+
+    private OrderExportDTO toExportDto(OrderArchive archive) {
+        Order restored = orderArchiver.restore(archive);
+        entityManager.detach(archive); // O payload compactado não fica no contexto de persistência até o fim
+        OrderExportDTO order = new OrderExportDTO();
+        order.setId(archive.getId());
+        order.setUserId(archive.getUserId());
+        order.setOrderDate(archive.getOrderDate());
+        order.setStatus(archive.getStatus());
+        order.setTotalAmount(archive.getTotalAmount());
+        order.setPaymentMethod(archive.getPaymentMethod());
+        order.setPaymentStatus(archive.getPaymentStatus());
+        order.setArchived(true);
+        restored.getItems().forEach(item -> order.getItems().add(new OrderExportDTO.Item(item.getProductId(),
+                item.getProductName(), item.getPurchasedPrice(), item.getQuantity(), item.getSubtotal())));
+        return order;
+    }
+
+    private void writeNdjson(Iterator<?> rows, OutputStream out) {
+        try (JsonGenerator generator = writer.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET); // O contêiner fecha a resposta
+            int written = 0;
+            while (rows.hasNext()) {
+                writer.writeValue(generator, rows.next());
+                if (++written % FLUSH_EVERY == 0) {
+                    generator.flush();
+                }
+            }
+            if (written > 0) {
+                generator.writeRaw('\n');
+            }
+            generator.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Normalmente o cliente fechou a conexão; a transação é desfeita
+        }
+    }
+
+    // Intercala por ID duas sequências já ordenadas por ID (um pedido está em orders ou em order_archive, não em ambas)
+    private static final class MergingIterator implements Iterator<OrderExportDTO> {
+        private final Iterator<OrderExportDTO> first;
+        private final Iterator<OrderExportDTO> second;
+        private OrderExportDTO nextFirst;
+        private OrderExportDTO nextSecond;
+
+        MergingIterator(Iterator<OrderExportDTO> first, Iterator<OrderExportDTO> second) {
+            this.first = first;
+            this.second = second;
+            this.nextFirst = first.hasNext() ? first.next() : null;
+            this.nextSecond = second.hasNext() ? second.next() : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextFirst != null || nextSecond != null;
+        }
+
+        @Override
+        public OrderExportDTO next() {
+            OrderExportDTO result;
+            if (nextSecond == null || (nextFirst != null && nextFirst.getId() < nextSecond.getId())) {
+                result = nextFirst;
+                nextFirst = first.hasNext() ? first.next() : null;
+            } else {
+                result = nextSecond;
+                nextSecond = second.hasNext() ? second.next() : null;
+            }
+            return result;
+        }
+    }
+
+    // Junta as linhas consecutivas (pedido x item) de um mesmo pedido em um único OrderExportDTO
+    private static final class OrderGroupingIterator implements Iterator<OrderExportDTO> {
+        private final Iterator<OrderExportRowView> rows;
+        private OrderExportRowView pending;
+
+        OrderGroupingIterator(Iterator<OrderExportRowView> rows) {
+            this.rows = rows;
+            this.pending = rows.hasNext() ? rows.next() : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return pending != null;
+        }
+
+        @Override
+        public OrderExportDTO next() {
+            OrderExportRowView first = pending;
+            OrderExportDTO order = new OrderExportDTO();
+            order.setId(first.getOrderId());
+            order.setUserId(first.getUserId());
+            order.setOrderDate(first.getOrderDate());
+            order.setStatus(first.getStatus());
+            order.setTotalAmount(first.getTotalAmount());
+            order.setPaymentMethod(first.getPaymentMethod());
+            order.setPaymentStatus(first.getPaymentStatus());
+
+            OrderExportRowView row = first;
+            while (row != null && row.getOrderId().equals(first.getOrderId())) {
+                if (row.getProductId() != null) { // LEFT JOIN: pedido sem itens vem com os campos de item nulos
+                    order.getItems().add(new OrderExportDTO.Item(row.getProductId(), row.getProductName(),
+                            row.getPurchasedPrice(), row.getQuantity(), row.getSubtotal()));
+                }
+                row = rows.hasNext() ? rows.next() : null;
+            }
+            pending = row;
+            return order;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.dto.CartOperationDTO;
+import com.avmsistemas.minha_api.dto.GuestCartDTO;
+import com.avmsistemas.minha_api.model.Cart;
+import com.avmsistemas.minha_api.model.Order;
+import com.avmsistemas.minha_api.model.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+/**
+ * Regras dos carrinhos de visitante. Os carrinhos ficam no {@link GuestCartStore} e não tocam o banco; só viram um
+ * {@link Cart} persistido quando associados a um usuário (os itens são somados ao carrinho dele) ou finalizados.
+ */
+@Service
+public class GuestCartService {
+
+    @Autowired
+    private GuestCartStore guestCartStore;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private CartService cartService;
+    @Autowired
+    private OrderService orderService;
+
+    public GuestCartDTO createCart() {
+        return guestCartStore.get(guestCartStore.create());
+    }
+
+    public GuestCartDTO getCart(String token) {
+        return guestCartStore.get(token);
+    }
+
+    public GuestCartDTO addItem(String token, Long productId, Integer quantity) {
+        if (quantity == null || quantity <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A quantidade deve ser maior que zero.");
+        }
+        Product product = productService.getProductById(productId) // Cache de produtos: normalmente sem ir ao banco
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Produto não encontrado."));
+        return guestCartStore.addItem(token, productId, quantity, product.getPrice());
+    }
+
+    public GuestCartDTO updateItemQuantity(String token, Long productId, Integer newQuantity) {
+        if (newQuantity == null || newQuantity < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A quantidade não pode ser negativa.");
+        }
+        return guestCartStore.updateItemQuantity(token, productId, newQuantity);
+    }
+
+    public GuestCartDTO removeItem(String token, Long productId) {
+        return guestCartStore.removeItem(token, productId);
+    }
+
+    public void deleteCart(String token) {
+        guestCartStore.delete(token);
+    }
+
+    /**
+     * Soma os itens do carrinho de visitante ao carrinho do usuário (criado se preciso), com os preços atuais dos
+     * produtos. O carrinho de visitante fica reservado durante a transação e só é liberado depois do commit.
+     */
+    @Transactional
+    public Cart promote(String token, Long userId) {
+        List<GuestCartDTO.Item> items = guestCartStore.claim(token);
+        try {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    guestCartStore.release(token, status == STATUS_COMMITTED);
+                }
+            });
+        } catch (RuntimeException e) {
+            guestCartStore.release(token, false); // Sem a liberação registrada, a reserva só sairia ao expirar
+            throw e;
+        }
+        if (items.isEmpty()) {
+            return cartService.getOrCreateCart(userId);
+        }
+        List<CartOperationDTO> operations = items.stream()
+                .map(item -> new CartOperationDTO(CartOperationDTO.Type.ADD, item.getProductId(), item.getQuantity()))
+                .toList();
+        return cartService.applyOperations(userId, operations);
+    }
+
+    /**
+     * Associa o carrinho de visitante ao usuário e finaliza o carrinho resultante na mesma transação. Só são
+     * finalizados os itens do visitante: se o carrinho do usuário já tem itens, responde 409 (o cliente pode
+     * associar com {@link #promote} e revisar o carrinho antes de finalizar).
+     */
+    @Transactional
+    public Order checkout(String token, Long userId, Long deliveryAddressId) {
+        // Um carrinho alterado depois desta leitura falha no commit por conflito de versão (ver CartService)
+        cartService.getCartByUserId(userId)
+                .filter(existing -> !existing.getItems().isEmpty())
+                .ifPresent(existing -> {
+                    throw new ResponseStatusException(HttpStatus.CONFLICT,
+                            "O carrinho do usuário já tem itens; associe o carrinho de visitante e finalize o carrinho do usuário.");
+                });
+        Cart cart = promote(token, userId);
+        return orderService.createOrderFromCart(userId, cart.getId(), deliveryAddressId);
+    }
+}
@@ -0,0 +1,381 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.dto.GuestCartDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Carrinhos de visitante guardados fora do heap, em um bloco de memória direta dividido em posições de tamanho fixo.
+ *
+ * Cada posição tem um cabeçalho (segredo do token, expiração, estado e quantidade de itens) seguido de até
+ * {@code app.guest-cart.max-items} linhas (produto, quantidade e preço em centavos), ou seja, um carrinho ocupa
+ * algumas centenas de bytes e não gera objetos para o coletor de lixo. O token devolvido ao cliente combina a posição
+ * com um segredo aleatório, então não é possível adivinhar o carrinho de outro visitante.
+ *
+ * Todo acesso renova a validade por {@code app.guest-cart.ttl-minutes}; as posições expiradas são liberadas no acesso
+ * e por uma varredura periódica. Quando todas estão ocupadas, a criação responde 503. Um carrinho é "reservado" durante
+ * a promoção para carrinho de usuário (ver {@link GuestCartService}) e só é liberado se a transação confirmar; uma
+ * reserva que nunca é desfeita (ex.: falha antes de a transação registrar a liberação) expira como um carrinho
+ * aberto, {@code ttl-minutes} após a reserva, e não prende a posição para sempre.
+ */
+@Component
+public class GuestCartStore {
+
+    private static final Logger log = LoggerFactory.getLogger(GuestCartStore.class);
+
+    // Layout de uma posição
+    private static final int SECRET = 0;       // long; 0 = posição livre
+    private static final int EXPIRES_AT = 8;   // long, epoch em milissegundos
+    private static final int STATE = 16;       // int
+    private static final int ITEM_COUNT = 20;  // int
+    private static final int HEADER_SIZE = 24;
+    private static final int LINE_PRODUCT = 0; // long
+    private static final int LINE_QUANTITY = 8; // int
+    private static final int LINE_PRICE = 12;  // long, centavos
+    private static final int LINE_SIZE = 20;
+
+    private static final int OPEN = 0;
+    private static final int CLAIMED = 1;
+    private static final int LOCK_STRIPES = 64;
+
+    private final ByteBuffer slab;
+    private final int capacity;
+    private final int maxItems;
+    private final int slotSize;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final SecureRandom random = new SecureRandom();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final int[] freeSlots; // Pilha de posições livres (protegida por freeLock)
+    private int freeCount;
+    private final Object freeLock = new Object();
+    private final LongAdder evicted = new LongAdder();
+
+    @Autowired
+    public GuestCartStore(@Value("${app.guest-cart.capacity:20000}") int capacity,
+                          @Value("${app.guest-cart.max-items:32}") int maxItems,
+                          @Value("${app.guest-cart.ttl-minutes:120}") long ttlMinutes) {
+        this(capacity, maxItems, Duration.ofMinutes(ttlMinutes), System::currentTimeMillis);
+    }
+
+    GuestCartStore(int capacity, int maxItems, Duration ttl, LongSupplier clock) {
+        if (capacity <= 0 || maxItems <= 0) {
+            throw new IllegalArgumentException("capacity e maxItems devem ser maiores que zero");
+        }
+        this.slotSize = HEADER_SIZE + maxItems * LINE_SIZE;
+        if ((long) capacity * slotSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("capacity x max-items excede o tamanho máximo do bloco de memória");
+        }
+        this.slab = ByteBuffer.allocateDirect(capacity * slotSize); // Zerado: todas as posições começam livres
+        this.capacity = capacity;
+        this.maxItems = maxItems;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        this.freeSlots = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            freeSlots[i] = capacity - 1 - i; // A posição 0 sai primeiro
+        }
+        this.freeCount = capacity;
+    }
+
+    /** Cria um carrinho vazio e devolve seu token. */
+    public String create() {
+        int slot = allocate();
+        if (slot < 0 && evictExpired() > 0) {
+            slot = allocate();
+        }
+        if (slot < 0) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Limite de carrinhos de visitante atingido. Tente mais tarde.");
+        }
+        long secret;
+        do {
+            secret = random.nextLong();
+        } while (secret == 0);
+        synchronized (lockFor(slot)) {
+            int base = slot * slotSize;
+            slab.putLong(base + EXPIRES_AT, clock.getAsLong() + ttlMillis);
+            slab.putInt(base + STATE, OPEN);
+            slab.putInt(base + ITEM_COUNT, 0);
+            slab.putLong(base + SECRET, secret); // Por último: a posição só passa a existir com o cabeçalho completo
+        }
+        return String.format("%08x%016x", slot, secret);
+    }
+
+    public GuestCartDTO get(String token) {
+        return access(token, OPEN, base -> toDto(token, base));
+    }
+
+    public GuestCartDTO addItem(String token, Long productId, int quantity, BigDecimal price) {
+        return access(token, OPEN, base -> {
+            int line = findLine(base, productId);
+            if (line >= 0) {
+                int position = lineOffset(base, line);
+                slab.putInt(position + LINE_QUANTITY, Math.addExact(slab.getInt(position + LINE_QUANTITY), quantity));
+            } else {
+                int count = slab.getInt(base + ITEM_COUNT);
+                if (count == maxItems) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "O carrinho de visitante aceita no máximo " + maxItems + " produtos diferentes.");
+                }
+                int position = lineOffset(base, count);
+                slab.putLong(position + LINE_PRODUCT, productId);
+                slab.putInt(position + LINE_QUANTITY, quantity);
+                slab.putLong(position + LINE_PRICE, price.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+                slab.putInt(base + ITEM_COUNT, count + 1);
+            }
+            return toDto(token, base);
+        });
+    }
+
+    /** Define a quantidade de um item existente; 0 remove o item. */
+    public GuestCartDTO updateItemQuantity(String token, Long productId, int quantity) {
+        return access(token, OPEN, base -> {
+            int line = findLine(base, productId);
+            if (line < 0) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Item não encontrado no carrinho.");
+            }
+            if (quantity == 0) {
+                removeLine(base, line);
+            } else {
+                slab.putInt(lineOffset(base, line) + LINE_QUANTITY, quantity);
+            }
+            return toDto(token, base);
+        });
+    }
+
+    public GuestCartDTO removeItem(String token, Long productId) {
+        return access(token, OPEN, base -> {
+            int line = findLine(base, productId);
+            if (line < 0) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Item não encontrado no carrinho.");
+            }
+            removeLine(base, line);
+            return toDto(token, base);
+        });
+    }
+
+    public void delete(String token) {
+        int slot = access(token, OPEN, base -> base / slotSize);
+        free(slot, parseSecret(token));
+    }
+
+    /**
+     * Reserva o carrinho para promoção e devolve seus itens. Enquanto reservado, qualquer outro acesso responde 409;
+     * {@link #release} o libera (promovido) ou o devolve ao estado normal (promoção desfeita).
+     */
+    public List<GuestCartDTO.Item> claim(String token) {
+        return access(token, OPEN, base -> {
+            slab.putInt(base + STATE, CLAIMED);
+            return toDto(token, base).getItems();
+        });
+    }
+
+    public void release(String token, boolean promoted) {
+        int slot = parseSlot(token);
+        long secret = parseSecret(token);
+        synchronized (lockFor(slot)) {
+            int base = slot * slotSize;
+            if (slab.getLong(base + SECRET) != secret || slab.getInt(base + STATE) != CLAIMED) {
+                return; // A reserva expirou e a posição já foi liberada (ou reutilizada)
+            }
+            slab.putInt(base + STATE, OPEN);
+            slab.putLong(base + EXPIRES_AT, clock.getAsLong() + ttlMillis);
+        }
+        if (promoted) {
+            free(slot, secret);
+        }
+    }
+
+    /** Libera as posições expiradas; devolve quantas foram liberadas. */
+    @Scheduled(fixedDelayString = "${app.guest-cart.eviction-interval-ms:60000}")
+    public int evictExpired() {
+        long now = clock.getAsLong();
+        int count = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            int base = slot * slotSize;
+            // Leitura sem lock só para descartar rapidamente as posições livres ou válidas; confirmada em free()
+            long secret = slab.getLong(base + SECRET);
+            if (secret != 0 && slab.getLong(base + EXPIRES_AT) <= now) {
+                if (freeIfExpired(slot, secret, now)) {
+                    count++;
+                }
+            }
+        }
+        if (count > 0) {
+            evicted.add(count);
+            log.debug("{} carrinhos de visitante expirados liberados ({} em uso)", count, size());
+        }
+        return count;
+    }
+
+    /** Quantidade de carrinhos de visitante em uso. */
+    public int size() {
+        synchronized (freeLock) {
+            return capacity - freeCount;
+        }
+    }
+
+    public long evictedCount() {
+        return evicted.sum();
+    }
+
+    // --- Internos ---
+
+    // Localiza a posição do token, confere segredo, validade e estado, renova a validade e executa a ação sob o lock
+    private <T> T access(String token, int expectedState, IntFunction<T> action) {
+        int slot = parseSlot(token);
+        long secret = parseSecret(token);
+        boolean expired;
+        synchronized (lockFor(slot)) {
+            int base = slot * slotSize;
+            if (slab.getLong(base + SECRET) != secret) {
+                throw notFound();
+            }
+            long now = clock.getAsLong();
+            expired = slab.getLong(base + EXPIRES_AT) <= now; // Vale também para uma reserva abandonada
+            if (!expired) {
+                if (slab.getInt(base + STATE) != expectedState) {
+                    throw new ResponseStatusException(HttpStatus.CONFLICT, "O carrinho de visitante está sendo associado a um usuário.");
+                }
+                slab.putLong(base + EXPIRES_AT, now + ttlMillis);
+                return action.apply(base);
+            }
+        }
+        if (freeIfExpired(slot, secret, clock.getAsLong())) {
+            evicted.increment();
+        }
+        throw notFound();
+    }
+
+    private int findLine(int base, Long productId) {
+        int count = slab.getInt(base + ITEM_COUNT);
+        for (int line = 0; line < count; line++) {
+            if (slab.getLong(lineOffset(base, line) + LINE_PRODUCT) == productId) {
+                return line;
+            }
+        }
+        return -1;
+    }
+
+    // Move a última linha para o lugar da removida
+    private void removeLine(int base, int line) {
+        int last = slab.getInt(base + ITEM_COUNT) - 1;
+        if (line != last) {
+            int from = lineOffset(base, last);
+            int to = lineOffset(base, line);
+            slab.putLong(to + LINE_PRODUCT, slab.getLong(from + LINE_PRODUCT));
+            slab.putInt(to + LINE_QUANTITY, slab.getInt(from + LINE_QUANTITY));
+            slab.putLong(to + LINE_PRICE, slab.getLong(from + LINE_PRICE));
+        }
+        slab.putInt(base + ITEM_COUNT, last);
+    }
+
+    private GuestCartDTO toDto(String token, int base) {
+        int count = slab.getInt(base + ITEM_COUNT);
+        List<GuestCartDTO.Item> items = new ArrayList<>(count);
+        BigDecimal total = BigDecimal.ZERO.setScale(2);
+        for (int line = 0; line < count; line++) {
+            int position = lineOffset(base, line);
+            int quantity = slab.getInt(position + LINE_QUANTITY);
+            BigDecimal price = BigDecimal.valueOf(slab.getLong(position + LINE_PRICE), 2);
+            BigDecimal subtotal = price.multiply(BigDecimal.valueOf(quantity));
+            items.add(new GuestCartDTO.Item(slab.getLong(position + LINE_PRODUCT), quantity, price, subtotal));
+            total = total.add(subtotal);
+        }
+        LocalDateTime expiresAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(slab.getLong(base + EXPIRES_AT)), ZoneId.systemDefault());
+        return new GuestCartDTO(token, items, total, expiresAt);
+    }
+
+    private int lineOffset(int base, int line) {
+        return base + HEADER_SIZE + line * LINE_SIZE;
+    }
+
+    private int allocate() {
+        synchronized (freeLock) {
+            return freeCount == 0 ? -1 : freeSlots[--freeCount];
+        }
+    }
+
+    private boolean freeIfExpired(int slot, long secret, long now) {
+        synchronized (lockFor(slot)) {
+            int base = slot * slotSize;
+            if (slab.getLong(base + SECRET) != secret || slab.getLong(base + EXPIRES_AT) > now) {
+                return false; // Renovado (ou reservado) ou liberado nesse meio-tempo
+            }
+            slab.putLong(base + SECRET, 0);
+        }
+        pushFree(slot);
+        return true;
+    }
+
+    private void free(int slot, long secret) {
+        synchronized (lockFor(slot)) {
+            int base = slot * slotSize;
+            if (slab.getLong(base + SECRET) != secret) {
+                return;
+            }
+            slab.putLong(base + SECRET, 0);
+        }
+        pushFree(slot);
+    }
+
+    private void pushFree(int slot) {
+        synchronized (freeLock) {
+            freeSlots[freeCount++] = slot;
+        }
+    }
+
+    private Object lockFor(int slot) {
+        return locks[slot % LOCK_STRIPES];
+    }
+
+    private int parseSlot(String token) {
+        try {
+            int slot = token != null && token.length() == 24 ? Integer.parseUnsignedInt(token.substring(0, 8), 16) : -1;
+            if (slot < 0 || slot >= capacity) {
+                throw notFound();
+            }
+            return slot;
+        } catch (NumberFormatException e) {
+            throw notFound();
+        }
+    }
+
+    private long parseSecret(String token) {
+        try {
+            long secret = Long.parseUnsignedLong(token.substring(8), 16);
+            if (secret == 0) {
+                throw notFound();
+            }
+            return secret;
+        } catch (NumberFormatException e) {
+            throw notFound();
+        }
+    }
+
+    private static ResponseStatusException notFound() {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Carrinho de visitante não encontrado ou expirado.");
+    }
+}
@@ -0,0 +1,181 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.dto.CacheStatsDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Suporte ao cabeçalho {@code Idempotency-Key}: a primeira requisição com uma chave executa a operação e a resposta
+ * de sucesso fica guardada (já serializada) em um cache limitado por tamanho e por tempo; as repetições com a mesma
+ * chave recebem essa resposta, com {@code Idempotent-Replayed: true}, sem executar nada nem consultar o banco.
+ * Junto com o corpo ficam guardados os cabeçalhos que descrevem o resultado ({@link #REPLAYED_HEADERS}: Location,
+ * Preference-Applied, ETag, tipo do conteúdo...), então a repetição é idêntica à resposta original.
+ *
+ * Uma repetição que chega enquanto a primeira ainda executa espera o resultado dela. A chave vale dentro de um
+ * escopo (ex.: o usuário) e fica associada à requisição original: reutilizá-la em outra operação ou com outros
+ * parâmetros é rejeitado com 422. Respostas de erro não são guardadas, então a mesma chave pode ser tentada de novo.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+    // Cabeçalhos da resposta original devolvidos nas repetições; os de transporte (tamanho, data...) são recalculados
+    static final List<String> REPLAYED_HEADERS = List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.LOCATION,
+            HttpHeaders.CONTENT_LOCATION, HttpHeaders.ETAG, HttpHeaders.LAST_MODIFIED, HttpHeaders.CACHE_CONTROL,
+            HttpHeaders.VARY, "Preference-Applied");
+
+    private final ObjectMapper objectMapper;
+    private final BoundedTtlCache<String, StoredResponse> completed;
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final long waitMillis;
+
+    public IdempotencyService(ObjectMapper objectMapper,
+                              @Value("${app.idempotency.max-entries:10000}") int maxEntries,
+                              @Value("${app.idempotency.ttl-minutes:1440}") long ttlMinutes,
+                              @Value("${app.idempotency.wait-ms:30000}") long waitMillis) {
+        this.objectMapper = objectMapper;
+        this.completed = new BoundedTtlCache<>(maxEntries, Duration.ofMinutes(ttlMinutes));
+        this.waitMillis = waitMillis;
+    }
+
+    /**
+     * Executa {@code action} uma única vez por ({@code scope}, {@code key}). Sem chave, apenas executa.
+     *
+     * @param fingerprint descrição da operação e dos seus parâmetros, comparada nas repetições
+     */
+    public ResponseEntity<?> execute(String key, String scope, String fingerprint, Supplier<ResponseEntity<?>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, HEADER + " deve ter no máximo " + MAX_KEY_LENGTH + " caracteres.");
+        }
+        String cacheKey = scope + "|" + key;
+
+        StoredResponse stored = completed.get(cacheKey);
+        if (stored != null) {
+            return replay(stored, fingerprint);
+        }
+        InFlight mine = new InFlight(fingerprint);
+        InFlight running = inFlight.putIfAbsent(cacheKey, mine);
+        if (running != null) {
+            checkFingerprint(running.fingerprint, fingerprint);
+            return replay(await(running), fingerprint);
+        }
+        try {
+            stored = completed.get(cacheKey); // A anterior pode ter terminado entre a consulta e o registro acima
+            if (stored == null) {
+                ResponseEntity<?> response = action.get();
+                if (response.getStatusCode().is2xxSuccessful()) {
+                    stored = new StoredResponse(fingerprint, response.getStatusCode(), replayedHeaders(response.getHeaders()),
+                            serialize(response.getBody()));
+                    completed.put(cacheKey, stored);
+                }
+                mine.result.complete(stored);
+                return response;
+            }
+            mine.result.complete(stored);
+            return replay(stored, fingerprint);
+        } catch (RuntimeException e) {
+            mine.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(cacheKey, mine);
+        }
+    }
+
+    public CacheStatsDTO stats() {
+        return completed.stats();
+    }
+
+    private StoredResponse await(InFlight running) {
+        try {
+            StoredResponse stored = running.result.get(waitMillis, TimeUnit.MILLISECONDS);
+            if (stored == null) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "A requisição original com esta " + HEADER + " não foi concluída com sucesso; tente novamente.");
+            }
+            return stored;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause; // A repetição recebe o mesmo erro da requisição original
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Uma requisição com esta " + HEADER + " ainda está em andamento.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Operação interrompida.", e);
+        }
+    }
+
+    private ResponseEntity<byte[]> replay(StoredResponse stored, String fingerprint) {
+        checkFingerprint(stored.fingerprint(), fingerprint);
+        HttpHeaders headers = new HttpHeaders();
+        headers.addAll(stored.headers());
+        if (headers.getContentType() == null) {
+            headers.setContentType(MediaType.APPLICATION_JSON); // O corpo guardado é sempre o JSON serializado
+        }
+        headers.set(REPLAYED_HEADER, "true");
+        return ResponseEntity.status(stored.status()).headers(headers).body(stored.body());
+    }
+
+    private static HttpHeaders replayedHeaders(HttpHeaders original) {
+        HttpHeaders headers = new HttpHeaders();
+        for (String name : REPLAYED_HEADERS) {
+            List<String> values = original.get(name);
+            if (values != null) {
+                headers.addAll(name, values);
+            }
+        }
+        return HttpHeaders.readOnlyHttpHeaders(headers);
+    }
+
+    private static void checkFingerprint(String original, String fingerprint) {
+        if (!original.equals(fingerprint)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    HEADER + " já usada em outra requisição; gere uma nova chave para cada operação.");
+        }
+    }
+
+    // Serializada na requisição original, enquanto as associações lazy ainda podem ser carregadas
+    private byte[] serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Falha ao serializar a resposta para a " + HEADER, e);
+        }
+    }
+
+    private record StoredResponse(String fingerprint, HttpStatusCode status, HttpHeaders headers, byte[] body) {
+    }
+
+    private static final class InFlight {
+        final String fingerprint;
+        final CompletableFuture<StoredResponse> result = new CompletableFuture<>();
+
+        InFlight(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.model.Order;
+import com.avmsistemas.minha_api.model.OrderArchive;
+import com.avmsistemas.minha_api.model.OrderStatus;
+import com.avmsistemas.minha_api.repository.OrderRepository;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Arquivamento periódico dos pedidos DELIVERED ou CANCELED com mais de {@code app.order.archive.after-days} dias.
+ *
+ * Cada lote de {@code app.order.archive.chunk-size} pedidos é tratado em uma transação: os pedidos são lidos com os
+ * itens em uma consulta, gravados em order_archive (cabeçalho em colunas e o pedido completo em JSON com GZIP) e
+ * excluídos de order_items e orders com duas instruções em massa. Assim as tabelas quentes guardam só os pedidos
+ * recentes ou em andamento. Os pedidos arquivados continuam disponíveis, somente para leitura, pelo OrderService.
+ */
+@Component
+public class OrderArchiver {
+
+    /** Resultado de um arquivamento. */
+    public record ArchiveResult(int archived, int chunks, long elapsedMillis) {
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(OrderArchiver.class);
+    private static final Set<OrderStatus> ARCHIVABLE = EnumSet.of(OrderStatus.DELIVERED, OrderStatus.CANCELED);
+
+    private final OrderRepository orderRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper payloadMapper;
+    private final TransactionTemplate transaction;
+    private final boolean enabled;
+    private final Duration archiveAfter;
+    private final int chunkSize;
+
+    public OrderArchiver(OrderRepository orderRepository, EntityManager entityManager, ObjectMapper objectMapper,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${app.order.archive.enabled:true}") boolean enabled,
+                         @Value("${app.order.archive.after-days:180}") long afterDays,
+                         @Value("${app.order.archive.chunk-size:200}") int chunkSize) {
+        this.orderRepository = orderRepository;
+        this.entityManager = entityManager;
+        // O dono fica na coluna user_id: o JSON guarda só o pedido, os itens e o endereço de entrega
+        this.payloadMapper = objectMapper.copy().addMixIn(Order.class, WithoutUser.class);
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.archiveAfter = Duration.ofDays(afterDays);
+        this.chunkSize = chunkSize;
+    }
+
+    @Scheduled(initialDelayString = "${app.order.archive.initial-delay-ms:120000}",
+            fixedDelayString = "${app.order.archive.interval-ms:3600000}")
+    public void scheduledArchive() {
+        if (enabled) {
+            archive(LocalDateTime.now().minus(archiveAfter));
+        }
+    }
+
+    /** Arquiva todos os pedidos DELIVERED ou CANCELED feitos antes de {@code cutoff}. */
+    public ArchiveResult archive(LocalDateTime cutoff) {
+        long start = System.nanoTime();
+        int archived = 0;
+        int chunks = 0;
+        while (true) {
+            Integer moved = transaction.execute(status -> archiveChunk(cutoff));
+            if (moved == null || moved == 0) {
+                break;
+            }
+            archived += moved;
+            chunks++;
+            if (moved < chunkSize) {
+                break;
+            }
+        }
+        ArchiveResult result = new ArchiveResult(archived, chunks, (System.nanoTime() - start) / 1_000_000);
+        if (archived > 0) {
+            log.info("Arquivamento de pedidos anteriores a {}: {} pedidos em {} lotes, {} ms",
+                    cutoff, result.archived(), result.chunks(), result.elapsedMillis());
+        }
+        return result;
+    }
+
+    /** Pedido completo a partir do arquivo (sem o usuário, que fica em {@link OrderArchive#getUserId()}). */
+    public Order restore(OrderArchive archive) {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(archive.getPayload()))) {
+            Order order = payloadMapper.readValue(in, Order.class);
+            order.getItems().forEach(item -> item.setOrder(order));
+            return order;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao ler o pedido arquivado " + archive.getId(), e);
+        }
+    }
+
+    private int archiveChunk(LocalDateTime cutoff) {
+        // Pedidos arquivados saem da tabela: o próximo lote é sempre o início da consulta
+        List<Long> ids = orderRepository.findArchivableIds(ARCHIVABLE, cutoff, Limit.of(chunkSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (Order order : orderRepository.findAllWithItemsByIdIn(ids)) {
+            // persist, e não save: com o ID já definido, save faria um SELECT por pedido antes de inserir
+            entityManager.persist(new OrderArchive(order.getId(), order.getUser().getId(), order.getOrderDate(), order.getStatus(),
+                    order.getTotalAmount(), order.getPaymentMethod(), order.getPaymentStatus(), order.getItems().size(), now, compress(order)));
+        }
+        entityManager.flush();
+        orderRepository.deleteItemsByOrderIdIn(ids);
+        orderRepository.deleteAllByIdInBatch(ids);
+        entityManager.clear(); // Os pedidos carregados já não existem no banco
+        return ids.size();
+    }
+
+    private byte[] compress(Order order) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            payloadMapper.writeValue(out, order);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao compactar o pedido " + order.getId(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @JsonIgnoreProperties({"user"})
+    private abstract static class WithoutUser {
+    }
+}
@@ -0,0 +1,24 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.model.OrderStatus;
+import com.avmsistemas.minha_api.model.PaymentStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Publicado pelo OrderService e pelo OrderStatusTransitioner quando um pedido é criado, muda de status ou é excluído.
+ * O {@link OrderEventJournal} grava cada evento depois do commit.
+ *
+ * {@code previousStatus} só é preenchido em STATUS_CHANGED; {@code status} é o status após o evento (na exclusão, o último).
+ */
+public record OrderEvent(Type type, Long orderId, Long userId, OrderStatus previousStatus, OrderStatus status,
+                         PaymentStatus paymentStatus, BigDecimal totalAmount, LocalDateTime occurredAt) {
+
+    // Gravado no diário pela posição: novos tipos só no fim
+    public enum Type {
+        CREATED,
+        STATUS_CHANGED,
+        DELETED
+    }
+}
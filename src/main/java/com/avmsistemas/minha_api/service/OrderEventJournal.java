@@ -0,0 +1,518 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.dto.OrderEventDTO;
+import com.avmsistemas.minha_api.model.DatabaseInstance;
+import com.avmsistemas.minha_api.model.OrderStatus;
+import com.avmsistemas.minha_api.model.PaymentStatus;
+import com.avmsistemas.minha_api.repository.DatabaseInstanceRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Diário somente de acréscimo dos eventos de pedidos: criação no checkout, cada mudança de status e exclusão.
+ *
+ * Os eventos ficam em segmentos de tamanho fixo mapeados em memória ({@code orders-<primeiro offset>.journal} em
+ * {@code app.order.journal.dir}), em registros de {@value #RECORD_SIZE} bytes com CRC. O offset de um evento é a sua
+ * posição no diário (0, 1, 2...), então localizar um offset é uma conta, sem busca. Uma única thread grava: ela junta
+ * em um lote os eventos que chegaram enquanto o lote anterior era forçado para o disco e faz um único force por lote
+ * (group commit). Só os eventos já forçados ficam visíveis para leitura.
+ *
+ * É uma projeção para auditoria e reprocessamento, não a fonte da verdade: o evento entra na fila depois do commit
+ * do pedido e a requisição não espera o disco. Se o processo cair nesse intervalo, o evento se perde; o pedido, não.
+ * Na abertura, os segmentos são lidos para achar o fim do diário (o primeiro registro inválido, como uma gravação
+ * interrompida) e montar o índice em memória dos offsets de cada pedido.
+ *
+ * O diário vale para um banco específico: o arquivo {@code journal.run} guarda o {@code runId} do
+ * {@link DatabaseInstance} com que os eventos foram gravados. Se o banco na abertura é outro (recriado, com os IDs de
+ * pedido começando de novo em 1), os segmentos existentes são movidos para um subdiretório {@code previous-<runId>-...}
+ * e o diário recomeça no offset 0, sem misturar eventos de pedidos diferentes com o mesmo ID.
+ */
+@Component
+public class OrderEventJournal {
+
+    static final int RECORD_SIZE = 64;
+
+    private static final Logger log = LoggerFactory.getLogger(OrderEventJournal.class);
+
+    // Layout do registro; os bytes 44 a 59 ficam reservados (zerados)
+    private static final int OFFSET = 0;
+    private static final int OCCURRED_AT = 8;
+    private static final int ORDER_ID = 16;
+    private static final int USER_ID = 24;
+    private static final int AMOUNT_CENTS = 32;
+    private static final int TYPE = 40;
+    private static final int PREVIOUS_STATUS = 41;
+    private static final int STATUS = 42;
+    private static final int PAYMENT_STATUS = 43;
+    private static final int CRC = RECORD_SIZE - Integer.BYTES;
+
+    private static final long NONE = Long.MIN_VALUE; // Valor ausente nos campos long
+    private static final String PREFIX = "orders-";
+    private static final String SUFFIX = ".journal";
+    private static final String RUN_FILE = "journal.run";
+    private static final OrderEvent.Type[] TYPES = OrderEvent.Type.values();
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+    private static final PaymentStatus[] PAYMENT_STATUSES = PaymentStatus.values();
+
+    private final Path directory;
+    private final String runId;
+    private final int segmentRecords;
+    private final int maxBatch;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final NavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final Map<Long, OffsetList> offsetsByOrder = new ConcurrentHashMap<>();
+    private final BlockingQueue<Pending> queue;
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile long committedOffset; // Próximo offset a gravar; os anteriores estão no disco
+
+    @Autowired
+    public OrderEventJournal(DatabaseInstanceRepository databaseInstanceRepository,
+                             @Value("${app.order.journal.dir:data/order-journal}") String directory,
+                             @Value("${app.order.journal.segment-records:262144}") int segmentRecords,
+                             @Value("${app.order.journal.max-batch:1024}") int maxBatch,
+                             @Value("${app.order.journal.queue-capacity:65536}") int queueCapacity) {
+        this(directory, segmentRecords, maxBatch, queueCapacity, databaseRunId(databaseInstanceRepository));
+    }
+
+    OrderEventJournal(String directory, int segmentRecords, int maxBatch, int queueCapacity, String runId) {
+        if (segmentRecords <= 0 || segmentRecords > Integer.MAX_VALUE / RECORD_SIZE) {
+            throw new IllegalArgumentException("app.order.journal.segment-records deve estar entre 1 e " + Integer.MAX_VALUE / RECORD_SIZE);
+        }
+        this.directory = Path.of(directory);
+        this.runId = runId;
+        this.segmentRecords = segmentRecords;
+        this.maxBatch = maxBatch;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        long start = System.currentTimeMillis();
+        try {
+            Files.createDirectories(this.directory);
+            this.lockChannel = FileChannel.open(this.directory.resolve("journal.lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            this.lock = tryLock(lockChannel);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível abrir o diário de pedidos em " + directory, e);
+        }
+        log.info("Diário de pedidos aberto em {}: {} eventos de {} pedidos em {} segmentos ({} ms)",
+                this.directory, committedOffset, offsetsByOrder.size(), segments.size(), System.currentTimeMillis() - start);
+
+        this.writer = new Thread(this::writeLoop, "order-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderEvent(OrderEvent event) {
+        append(event).whenComplete((offset, error) -> {
+            if (error != null) {
+                log.warn("Evento {} do pedido {} não foi gravado no diário: {}", event.type(), event.orderId(), error.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Enfileira o evento para gravação.
+     *
+     * @return concluído com o offset do evento depois que ele foi forçado para o disco
+     */
+    public CompletableFuture<Long> append(OrderEvent event) {
+        Pending pending = new Pending(event, new CompletableFuture<>());
+        if (!running) {
+            pending.result.completeExceptionally(new IllegalStateException("Diário de pedidos fechado."));
+        } else if (!queue.offer(pending)) {
+            pending.result.completeExceptionally(new IllegalStateException("Fila do diário de pedidos cheia."));
+        }
+        return pending.result;
+    }
+
+    /** Offset do próximo evento; todos os anteriores podem ser lidos. */
+    public long nextOffset() {
+        return committedOffset;
+    }
+
+    /** Até {@code limit} eventos a partir de {@code fromOffset}, em ordem de gravação. */
+    public List<OrderEventDTO> read(long fromOffset, int limit) {
+        List<OrderEventDTO> events = new ArrayList<>(Math.min(limit, 1024));
+        replay(fromOffset, limit, events::add);
+        return events;
+    }
+
+    /**
+     * Entrega ao consumidor, em ordem, os eventos a partir de {@code fromOffset} gravados até o momento da chamada
+     * (no máximo {@code maxEvents}). Serve para reconstruir projeções sem consultar a tabela de pedidos.
+     *
+     * @return offset para continuar a leitura
+     */
+    public long replay(long fromOffset, long maxEvents, Consumer<OrderEventDTO> consumer) {
+        long end = committedOffset;
+        long offset = Math.max(fromOffset, 0);
+        long delivered = 0;
+        Long first = segments.floorKey(offset);
+        NavigableMap<Long, Segment> candidates = first == null ? segments : segments.tailMap(first, true);
+        for (Segment segment : candidates.values()) {
+            long to = Math.min(end, segment.base + segment.written);
+            for (long current = Math.max(offset, segment.base); current < to; current++) {
+                if (delivered == maxEvents) {
+                    return current;
+                }
+                consumer.accept(segment.read((int) (current - segment.base)));
+                delivered++;
+                offset = current + 1;
+            }
+            if (segment.base >= end) {
+                break;
+            }
+        }
+        return offset;
+    }
+
+    /** Todos os eventos de um pedido, em ordem, pelo índice em memória (sem varrer o diário). */
+    public List<OrderEventDTO> eventsForOrder(Long orderId) {
+        OffsetList offsets = offsetsByOrder.get(orderId);
+        if (offsets == null) {
+            return List.of();
+        }
+        long end = committedOffset;
+        List<OrderEventDTO> events = new ArrayList<>();
+        for (long offset : offsets.snapshot()) {
+            if (offset < end) {
+                Map.Entry<Long, Segment> segment = segments.floorEntry(offset);
+                events.add(segment.getValue().read((int) (offset - segment.getKey())));
+            }
+        }
+        return events;
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false; // A thread de gravação esvazia a fila antes de terminar
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        if (writer.isAlive()) {
+            log.warn("Diário de pedidos fechado com {} eventos ainda na fila", queue.size());
+        }
+        try {
+            lock.release();
+            lockChannel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1); // O que chegou durante o force anterior vai neste lote
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Erro de disco: o lote pode ter sido gravado pela metade, então o diário para de aceitar eventos
+                log.error("Falha ao gravar {} eventos no diário de pedidos; o diário foi desativado", batch.size(), e);
+                running = false;
+                queue.drainTo(batch);
+                batch.forEach(pending -> pending.result.completeExceptionally(e));
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<Pending> batch) {
+        long offset = committedOffset;
+        Segment segment = segments.isEmpty() ? null : segments.lastEntry().getValue();
+        int firstSlot = segment == null ? 0 : segment.written;
+        for (Pending pending : batch) {
+            if (segment == null || segment.written == segment.capacity) {
+                if (segment != null) {
+                    segment.force(firstSlot);
+                }
+                segment = createSegment(offset);
+                firstSlot = 0;
+            }
+            segment.write(segment.written, offset, pending.event);
+            segment.written++;
+            offset++;
+        }
+        segment.force(firstSlot); // Um único force para o lote inteiro
+
+        long eventOffset = committedOffset;
+        for (Pending pending : batch) {
+            offsetsByOrder.computeIfAbsent(pending.event.orderId(), id -> new OffsetList()).add(eventOffset++);
+        }
+        committedOffset = offset; // Publica o lote para leitura
+        eventOffset = offset - batch.size();
+        for (Pending pending : batch) {
+            pending.result.complete(eventOffset++);
+        }
+    }
+
+    private Segment createSegment(long base) {
+        try {
+            Segment segment = Segment.open(path(base), base, segmentRecords);
+            segments.put(base, segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível criar o segmento " + base + " do diário de pedidos", e);
+        }
+    }
+
+    private void recover() throws IOException {
+        rotateIfDatabaseChanged();
+        List<Long> bases = segmentBases();
+
+        long next = 0;
+        for (int i = 0; i < bases.size(); i++) {
+            long base = bases.get(i);
+            if (base != next) {
+                log.warn("Diário de pedidos sem os offsets {} a {}", next, base - 1);
+            }
+            Segment segment = Segment.open(path(base), base, segmentRecords);
+            int count = 0;
+            while (count < segment.capacity && segment.isValid(count)) {
+                offsetsByOrder.computeIfAbsent(segment.orderIdAt(count), id -> new OffsetList()).add(base + count);
+                count++;
+            }
+            segment.written = count;
+            if (count < segment.capacity && !segment.isEmpty(count)) {
+                log.warn("Registro inválido no offset {} do diário de pedidos; o restante do segmento foi descartado", base + count);
+                if (i == bases.size() - 1) {
+                    segment.clearFrom(count); // Restos de um lote interrompido não podem reaparecer depois dos novos eventos
+                }
+            }
+            segments.put(base, segment);
+            next = base + count;
+        }
+        committedOffset = next;
+    }
+
+    // Os offsets indexados por ID de pedido só fazem sentido para o banco em que esses IDs foram gerados
+    private void rotateIfDatabaseChanged() throws IOException {
+        Path runFile = directory.resolve(RUN_FILE);
+        String recorded = Files.exists(runFile) ? Files.readString(runFile, StandardCharsets.UTF_8).trim() : null;
+        if (runId.equals(recorded)) {
+            return;
+        }
+        List<Long> bases = segmentBases();
+        if (!bases.isEmpty()) {
+            // Diário sem journal.run (anterior a ele) também é de um banco desconhecido
+            Path previous = directory.resolve("previous-" + (recorded != null ? recorded : "unknown") + "-" + System.currentTimeMillis());
+            Files.createDirectories(previous);
+            for (Long base : bases) {
+                Files.move(path(base), previous.resolve(path(base).getFileName()));
+            }
+            log.warn("Diário de pedidos gravado com outro banco de dados ({} -> {}): {} segmentos movidos para {}",
+                    recorded, runId, bases.size(), previous);
+        }
+        // Só depois de mover os segmentos: uma queda no meio repete a rotação na próxima abertura
+        Path temporary = directory.resolve(RUN_FILE + ".tmp");
+        Files.writeString(temporary, runId, StandardCharsets.UTF_8);
+        Files.move(temporary, runFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private List<Long> segmentBases() throws IOException {
+        List<Long> bases = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .forEach(name -> bases.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()))));
+        }
+        bases.sort(null);
+        return bases;
+    }
+
+    // runId do banco atual; criado na primeira inicialização sobre um esquema novo
+    private static String databaseRunId(DatabaseInstanceRepository repository) {
+        return repository.findFirstByOrderByIdAsc()
+                .orElseGet(() -> {
+                    repository.save(new DatabaseInstance(null, UUID.randomUUID().toString(), LocalDateTime.now()));
+                    return repository.findFirstByOrderByIdAsc().orElseThrow(); // Outra instância pode ter criado antes
+                })
+                .getRunId();
+    }
+
+    private Path path(long base) {
+        return directory.resolve(String.format("%s%020d%s", PREFIX, base, SUFFIX));
+    }
+
+    private FileLock tryLock(FileChannel channel) throws IOException {
+        FileLock acquired;
+        try {
+            acquired = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            acquired = null;
+        }
+        if (acquired == null) {
+            channel.close();
+            throw new IllegalStateException("O diário de pedidos em " + directory + " já está aberto por outra instância.");
+        }
+        return acquired;
+    }
+
+    private record Pending(OrderEvent event, CompletableFuture<Long> result) {
+    }
+
+    // Offsets de um pedido, em ordem; escritos só pela thread de gravação (ou pela recuperação)
+    private static final class OffsetList {
+        private long[] offsets = new long[4];
+        private int size;
+
+        synchronized void add(long offset) {
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            offsets[size++] = offset;
+        }
+
+        synchronized long[] snapshot() {
+            return Arrays.copyOf(offsets, size);
+        }
+    }
+
+    private static final class Segment {
+        final long base;
+        final int capacity;
+        final MappedByteBuffer buffer;
+        volatile int written;
+
+        private Segment(long base, int capacity, MappedByteBuffer buffer) {
+            this.base = base;
+            this.capacity = capacity;
+            this.buffer = buffer;
+        }
+
+        // Segmentos existentes mantêm o tamanho com que foram criados, mesmo que segment-records tenha mudado
+        static Segment open(Path path, long base, int newCapacity) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long existing = channel.size() - channel.size() % RECORD_SIZE;
+                long size = existing > 0 ? existing : (long) newCapacity * RECORD_SIZE;
+                return new Segment(base, (int) (size / RECORD_SIZE), channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            }
+        }
+
+        void write(int slot, long offset, OrderEvent event) {
+            int position = slot * RECORD_SIZE;
+            buffer.putLong(position + OFFSET, offset);
+            buffer.putLong(position + OCCURRED_AT, event.occurredAt().toInstant(ZoneOffset.UTC).toEpochMilli());
+            buffer.putLong(position + ORDER_ID, event.orderId());
+            buffer.putLong(position + USER_ID, event.userId() == null ? NONE : event.userId());
+            buffer.putLong(position + AMOUNT_CENTS, event.totalAmount() == null ? NONE
+                    : event.totalAmount().setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+            buffer.put(position + TYPE, (byte) event.type().ordinal());
+            buffer.put(position + PREVIOUS_STATUS, code(event.previousStatus()));
+            buffer.put(position + STATUS, code(event.status()));
+            buffer.put(position + PAYMENT_STATUS, code(event.paymentStatus()));
+            buffer.putLong(position + PAYMENT_STATUS + 1, 0);
+            buffer.putLong(position + PAYMENT_STATUS + 1 + Long.BYTES, 0);
+            buffer.putInt(position + CRC, crc(position));
+        }
+
+        OrderEventDTO read(int slot) {
+            int position = slot * RECORD_SIZE;
+            long userId = buffer.getLong(position + USER_ID);
+            long cents = buffer.getLong(position + AMOUNT_CENTS);
+            byte previous = buffer.get(position + PREVIOUS_STATUS);
+            byte status = buffer.get(position + STATUS);
+            byte payment = buffer.get(position + PAYMENT_STATUS);
+            return new OrderEventDTO(
+                    buffer.getLong(position + OFFSET),
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(buffer.getLong(position + OCCURRED_AT)), ZoneOffset.UTC),
+                    TYPES[buffer.get(position + TYPE)],
+                    buffer.getLong(position + ORDER_ID),
+                    userId == NONE ? null : userId,
+                    previous == 0 ? null : STATUSES[previous - 1],
+                    status == 0 ? null : STATUSES[status - 1],
+                    payment == 0 ? null : PAYMENT_STATUSES[payment - 1],
+                    cents == NONE ? null : BigDecimal.valueOf(cents, 2));
+        }
+
+        long orderIdAt(int slot) {
+            return buffer.getLong(slot * RECORD_SIZE + ORDER_ID);
+        }
+
+        boolean isValid(int slot) {
+            int position = slot * RECORD_SIZE;
+            return buffer.getLong(position + OFFSET) == base + slot && buffer.getInt(position + CRC) == crc(position);
+        }
+
+        boolean isEmpty(int slot) {
+            int position = slot * RECORD_SIZE;
+            for (int i = 0; i < RECORD_SIZE; i += Long.BYTES) {
+                if (buffer.getLong(position + i) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void clearFrom(int slot) {
+            for (int position = slot * RECORD_SIZE; position < capacity * RECORD_SIZE; position += Long.BYTES) {
+                buffer.putLong(position, 0);
+            }
+            buffer.force(slot * RECORD_SIZE, (capacity - slot) * RECORD_SIZE);
+        }
+
+        void force(int fromSlot) {
+            int count = written - fromSlot;
+            if (count > 0) {
+                buffer.force(fromSlot * RECORD_SIZE, count * RECORD_SIZE);
+            }
+        }
+
+        private int crc(int position) {
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(position, CRC));
+            return (int) crc.getValue();
+        }
+
+        // Status gravados como posição no enum + 1 (0 = ausente): novos valores só no fim dos enums
+        private static byte code(Enum<?> value) {
+            return value == null ? 0 : (byte) (value.ordinal() + 1);
+        }
+    }
+}
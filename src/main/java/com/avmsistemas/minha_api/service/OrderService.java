@@ -1,27 +1,54 @@
 package com.avmsistemas.minha_api.service;
 
+import com.avmsistemas.minha_api.dto.OrderHistoryDTO;
+import com.avmsistemas.minha_api.dto.OrderPageDTO;
 import com.avmsistemas.minha_api.model.*; // Importe todos os modelos necessários
+import com.avmsistemas.minha_api.repository.OrderArchiveRepository;
+import com.avmsistemas.minha_api.repository.OrderHistoryKey;
+import com.avmsistemas.minha_api.repository.OrderListView;
+import com.avmsistemas.minha_api.repository.OrderSaleLineView;
 import com.avmsistemas.minha_api.repository.OrderRepository;
 import com.avmsistemas.minha_api.repository.UserRepository;
 import com.avmsistemas.minha_api.repository.AddressRepository;
 import com.avmsistemas.minha_api.repository.CartRepository; // Para deletar o carrinho após finalização
 import com.avmsistemas.minha_api.repository.CartItemRepository; // Para deletar itens do carrinho
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.ArrayList;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class OrderService {
 
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    // Ordem do histórico: mais recente primeiro e, no mesmo instante, maior ID primeiro
+    private static final Comparator<OrderHistoryKey> HISTORY_ORDER =
+            Comparator.comparing(OrderHistoryKey::orderDate).thenComparing(OrderHistoryKey::id).reversed();
+
     @Autowired
     private OrderRepository orderRepository;
     @Autowired
@@ -32,13 +59,28 @@ public class OrderService {
     private CartRepository cartRepository;
     @Autowired
     private CartItemRepository cartItemRepository;
+    @Autowired(required = false)
+    private WriteBehindCartStore writeBehindStore; // Presente apenas com app.cart.store=memory
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private OrderArchiveRepository orderArchiveRepository;
+    @Autowired
+    private OrderArchiver orderArchiver;
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Transactional
     public Order createOrderFromCart(Long userId, Long cartId, Long deliveryAddressId) {
+        // No modo em memória o carrinho pode estar à frente do banco: grava antes de ler
+        long memoryVersion = writeBehindStore != null ? writeBehindStore.flushUser(userId) : -1;
+
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Usuário não encontrado."));
 
-        Cart cart = cartRepository.findByUserId(userId)
+        // Versão incrementada no commit: um item adicionado em paralelo faz o checkout falhar em vez de ser perdido.
+        // No modo em memória as alterações não chegam ao banco; a mesma regra vale para a versão em memória (abaixo)
+        Cart cart = cartRepository.findByUserIdForUpdate(userId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Carrinho não encontrado para este usuário."));
 
         if (!cart.getId().equals(cartId)) {
@@ -73,7 +115,10 @@ public class OrderService {
         );
 
         // 2. Copiar Itens do Carrinho para Itens do Pedido
+        Map<Long, Long> categoryIds = new HashMap<>(); // Produto -> categoria, para os agregados de vendas
         for (CartItem cartItem : cart.getItems()) {
+            Category category = cartItem.getProduct().getCategory();
+            categoryIds.put(cartItem.getProduct().getId(), category != null ? category.getId() : null);
             // Cria um novo OrderItem a partir do CartItem e do Product (que já deve estar no CartItem)
             OrderItem orderItem = new OrderItem(newOrder, cartItem.getProduct(), cartItem.getQuantity());
             newOrder.addOrderItem(orderItem); // Adiciona e seta a referência bidirecional
@@ -81,48 +126,204 @@ public class OrderService {
 
         // Salva o novo pedido (que irá cascatar os OrderItems)
         Order savedOrder = orderRepository.save(newOrder);
+        eventPublisher.publishEvent(event(OrderEvent.Type.CREATED, savedOrder, null));
+        List<OrderSaleLineView> soldLines = savedOrder.getItems().stream()
+                .map(item -> new OrderSaleLineView(savedOrder.getId(), savedOrder.getOrderDate(), item.getProductId(),
+                        categoryIds.get(item.getProductId()), item.getQuantity(), item.getSubtotal()))
+                .toList();
+        eventPublisher.publishEvent(new SalesChangedEvent(SalesChangedEvent.Change.ADDED, soldLines));
 
         // Opcional: Associe o Order ao Cart para indicar que foi finalizado
-        cart.setOrder(savedOrder);
-        cartRepository.save(cart); // Persiste a associação no carrinho
+        cart.setOrder(savedOrder); // Carrinho gerenciado: a associação vai ao banco no commit, sem save explícito
 
         // 3. Limpar o Carrinho após a finalização
         // Delete os itens do carrinho primeiro para evitar problemas de foreign key
-        cartItemRepository.deleteAll(cart.getItems()); // Ou cart.getItems().clear() e salvar o cart
-        cart.setItems(new ArrayList<>()); // Limpa a lista em memória
-        cart.setTotalAmount(BigDecimal.ZERO); // Zera o total
-        cartRepository.save(cart); // Salva o carrinho agora vazio
+        // Esvazia a coleção existente (substituí-la quebraria o orphanRemoval); os itens são excluídos no commit
+        cart.clearItems();
+        if (writeBehindStore != null) {
+            // No commit, o carrinho em memória ainda precisa estar na versão gravada pelo flush (senão, conflito) e
+            // deixa de aceitar alterações; depois do commit ele é descartado, e depois de um rollback, liberado
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                private boolean held;
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    writeBehindStore.holdForCheckout(userId, memoryVersion);
+                    held = true;
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (held) {
+                        writeBehindStore.finishCheckout(userId, status == STATUS_COMMITTED);
+                    }
+                }
+            });
+        }
 
         return savedOrder;
     }
 
     @Transactional(readOnly = true)
-    public List<Order> getOrdersByUserId(Long userId) {
-        List<Order> orders = orderRepository.findByUserId(userId);
-        orders.forEach(order -> order.getItems().size()); // Força carregamento dos itens
-        return orders;
+    public List<OrderListView> getOrdersByUserId(Long userId) {
+        List<OrderListView> orders = orderRepository.findListViewsByUserId(userId); // Itens completos ficam no detalhe do pedido
+        List<OrderListView> archived = orderArchiveRepository.findListViewsByUserId(userId); // Das colunas, sem descompactar
+        if (archived.isEmpty()) {
+            return orders;
+        }
+        List<OrderListView> all = new ArrayList<>(orders);
+        all.addAll(archived);
+        all.sort(Comparator.comparing(OrderListView::orderDate).thenComparing(OrderListView::id).reversed());
+        return all;
+    }
+
+    /**
+     * Histórico de pedidos por cursor (keyset) em (orderDate, id), do mais recente para o mais antigo.
+     * Uma consulta traz só os IDs da página (pelo índice por usuário e data, então o custo não depende do tamanho
+     * do histórico) e outra traz esses pedidos já com os itens, em vez de uma consulta de itens por pedido.
+     * Se a faixa também tem pedidos arquivados, as duas tabelas são intercaladas pela mesma chave e só os arquivados
+     * que entram na página são descompactados.
+     */
+    @Transactional(readOnly = true)
+    public OrderPageDTO getOrderHistoryPage(Long userId, String after, int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "O limite deve estar entre 1 e " + MAX_PAGE_SIZE + ".");
+        }
+
+        // Busca um pedido a mais só para saber se existe próxima página
+        Limit fetchLimit = Limit.of(limit + 1);
+        List<Long> ids;
+        List<OrderHistoryKey> archivedKeys;
+        if (after != null) {
+            String[] cursor = decodeCursor(after);
+            LocalDateTime beforeDate = LocalDateTime.parse(cursor[0]);
+            Long beforeId = Long.valueOf(cursor[1]);
+            ids = orderRepository.findHistoryIdsBefore(userId, beforeDate, beforeId, fetchLimit);
+            archivedKeys = orderArchiveRepository.findHistoryKeysBefore(userId, beforeDate, beforeId, fetchLimit);
+        } else {
+            ids = orderRepository.findHistoryIds(userId, fetchLimit);
+            archivedKeys = orderArchiveRepository.findHistoryKeys(userId, fetchLimit);
+        }
+
+        boolean hasMore;
+        List<OrderHistoryDTO> items;
+        if (archivedKeys.isEmpty()) {
+            hasMore = ids.size() > limit;
+            List<Long> pageIds = hasMore ? ids.subList(0, limit) : ids;
+            Map<Long, Order> orders = loadWithItems(pageIds);
+            items = pageIds.stream().map(orders::get).map(OrderHistoryDTO::fromEntity).toList();
+        } else {
+            Map<Long, Order> orders = loadWithItems(ids);
+            List<OrderHistoryKey> keys = new ArrayList<>(archivedKeys);
+            orders.values().forEach(order -> keys.add(new OrderHistoryKey(order.getId(), order.getOrderDate())));
+            keys.sort(HISTORY_ORDER);
+            hasMore = keys.size() > limit;
+            List<OrderHistoryKey> page = hasMore ? keys.subList(0, limit) : keys;
+            List<Long> archivedIds = page.stream().map(OrderHistoryKey::id).filter(id -> !orders.containsKey(id)).toList();
+            orderArchiveRepository.findAllById(archivedIds).forEach(archive -> orders.put(archive.getId(), orderArchiver.restore(archive)));
+            items = page.stream().map(key -> orders.get(key.id())).map(OrderHistoryDTO::fromEntity).toList();
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            OrderHistoryDTO last = items.get(items.size() - 1);
+            nextCursor = encodeCursor(last.getOrderDate(), last.getId());
+        }
+        return new OrderPageDTO(items, nextCursor, hasMore);
+    }
+
+    private Map<Long, Order> loadWithItems(List<Long> ids) {
+        return ids.isEmpty() ? new HashMap<>() : orderRepository.findAllWithItemsByIdIn(ids).stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity(), (a, b) -> a, HashMap::new));
+    }
+
+    // O cursor é a chave (orderDate, id) do último pedido da página, em Base64 para que o cliente o trate como opaco
+    private static String encodeCursor(LocalDateTime orderDate, Long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((orderDate + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (parts.length == 2) {
+                LocalDateTime.parse(parts[0]);
+                Long.parseLong(parts[1]);
+                return parts;
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            // Tratado abaixo
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cursor 'after' inválido.");
     }
 
     @Transactional(readOnly = true)
     public Optional<Order> getOrderById(Long orderId) {
         Optional<Order> order = orderRepository.findById(orderId);
-        order.ifPresent(o -> o.getItems().size()); // Força carregamento dos itens
-        return order;
+        if (order.isPresent()) {
+            order.get().getItems().size(); // Força carregamento dos itens
+            return order;
+        }
+        // Pedido arquivado: descompactado de order_archive (mais lento, e somente leitura)
+        return orderArchiveRepository.findById(orderId).map(archive -> {
+            Order restored = orderArchiver.restore(archive);
+            restored.setUser(userRepository.getReferenceById(archive.getUserId()));
+            return restored;
+        });
     }
 
+    // Uma única leitura do pedido para a verificação de dono e a validação da transição; a alteração é um UPDATE
+    // condicionado ao status lido (como no OrderStatusTransitioner), então uma alteração concorrente entre a leitura
+    // e a gravação não é sobrescrita: a segunda requisição recebe 409
     @Transactional
-    public Order updateOrderStatus(Long orderId, OrderStatus newStatus) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Pedido não encontrado."));
-        order.setStatus(newStatus);
-        return orderRepository.save(order);
+    public Order updateOrderStatus(Long orderId, Long userId, OrderStatus newStatus) {
+        Order order = orderRepository.findById(orderId).orElseThrow(() -> notFoundOrArchived(orderId));
+        if (!order.getUser().getId().equals(userId)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Acesso negado: Pedido não pertence a este usuário.");
+        }
+        OrderStatus previous = order.getStatus();
+        if (previous == newStatus) {
+            return order;
+        }
+        if (!previous.canTransitionTo(newStatus)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Transição de status inválida: " + previous + " -> " + newStatus + ".");
+        }
+        // Só o status lido (uma das origens válidas de newStatus): o evento publica a origem de fato
+        if (orderRepository.updateStatus(List.of(orderId), Set.of(previous), newStatus) == 0) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "O status do pedido foi alterado por outra requisição; consulte o pedido e tente novamente.");
+        }
+        entityManager.refresh(order); // O UPDATE em massa não passa pela entidade gerenciada
+        eventPublisher.publishEvent(event(OrderEvent.Type.STATUS_CHANGED, order, previous));
+        if (newStatus == OrderStatus.CANCELED) {
+            eventPublisher.publishEvent(new SalesChangedEvent(SalesChangedEvent.Change.REVERSED,
+                    orderRepository.findSaleLinesByOrderIdIn(List.of(orderId))));
+        }
+        return order;
     }
 
     @Transactional
     public void deleteOrder(Long orderId) {
-        if (!orderRepository.existsById(orderId)) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Pedido não encontrado.");
+        Order order = orderRepository.findById(orderId).orElseThrow(() -> notFoundOrArchived(orderId));
+        // Itens lidos antes da exclusão; um pedido cancelado já saiu dos agregados de vendas
+        List<OrderSaleLineView> soldLines = order.getStatus() != OrderStatus.CANCELED
+                ? orderRepository.findSaleLinesByOrderIdIn(List.of(orderId)) : List.of();
+        orderRepository.delete(order);
+        eventPublisher.publishEvent(event(OrderEvent.Type.DELETED, order, null));
+        if (!soldLines.isEmpty()) {
+            eventPublisher.publishEvent(new SalesChangedEvent(SalesChangedEvent.Change.REVERSED, soldLines));
         }
-        orderRepository.deleteById(orderId);
+    }
+
+    private ResponseStatusException notFoundOrArchived(Long orderId) {
+        if (orderArchiveRepository.existsById(orderId)) {
+            return new ResponseStatusException(HttpStatus.CONFLICT, "Pedido arquivado: não pode mais ser alterado.");
+        }
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Pedido não encontrado.");
+    }
+
+    private static OrderEvent event(OrderEvent.Type type, Order order, OrderStatus previousStatus) {
+        return new OrderEvent(type, order.getId(), order.getUser().getId(), previousStatus, order.getStatus(),
+                order.getPaymentStatus(), order.getTotalAmount(), LocalDateTime.now());
     }
 }
\ No newline at end of file
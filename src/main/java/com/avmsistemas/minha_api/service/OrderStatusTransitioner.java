@@ -0,0 +1,164 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.dto.OrderStatusTransitionResultDTO;
+import com.avmsistemas.minha_api.dto.OrderStatusTransitionResultDTO.Outcome;
+import com.avmsistemas.minha_api.dto.OrderStatusTransitionResultDTO.Result;
+import com.avmsistemas.minha_api.model.OrderStatus;
+import com.avmsistemas.minha_api.repository.OrderRepository;
+import com.avmsistemas.minha_api.repository.OrderStatusView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Transições de status de muitos pedidos de uma vez, validadas por {@link OrderStatus#canTransitionTo}.
+ *
+ * Os pedidos são tratados em lotes de {@code app.order.status.chunk-size}, cada um em uma transação com uma
+ * consulta dos status atuais (projeção, sem carregar pedidos) e uma instrução UPDATE por status lido, condicionada a
+ * esse status. Se algum pedido mudou entre a leitura e a atualização, a contagem do UPDATE não diz qual: o lote é
+ * desfeito e refeito pedido a pedido, ainda condicionado ao status lido, e os pedidos que não casaram são informados
+ * como CONFLICT, sem eventos. Cada pedido alterado publica um {@link OrderEvent} STATUS_CHANGED com o status de
+ * origem de fato, e um lote de cancelamentos publica um {@link SalesChangedEvent}.
+ */
+@Component
+public class OrderStatusTransitioner {
+
+    public static final int MAX_ORDERS_PER_REQUEST = 10_000;
+
+    private static final Logger log = LoggerFactory.getLogger(OrderStatusTransitioner.class);
+
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate transaction;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+
+    public OrderStatusTransitioner(OrderRepository orderRepository, PlatformTransactionManager transactionManager,
+                                   ApplicationEventPublisher eventPublisher,
+                                   @Value("${app.order.status.chunk-size:500}") int chunkSize) {
+        this.orderRepository = orderRepository;
+        this.eventPublisher = eventPublisher;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    /** Leva os pedidos a {@code target}; IDs repetidos são tratados (e informados) uma vez. */
+    public OrderStatusTransitionResultDTO transition(List<Long> orderIds, OrderStatus target) {
+        if (target == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Informe o status de destino.");
+        }
+        if (orderIds == null || orderIds.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Informe ao menos um pedido.");
+        }
+        if (orderIds.size() > MAX_ORDERS_PER_REQUEST) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No máximo " + MAX_ORDERS_PER_REQUEST + " pedidos por requisição.");
+        }
+        if (orderIds.stream().anyMatch(Objects::isNull)) { // contains(null) falha em listas imutáveis
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "IDs de pedido não podem ser nulos.");
+        }
+
+        long start = System.currentTimeMillis();
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(orderIds));
+        Map<Long, Outcome> outcomes = new HashMap<>(ids.size() * 2);
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            applyChunk(chunk, target, outcomes);
+        }
+
+        List<Outcome> ordered = ids.stream().map(outcomes::get).toList();
+        int updated = count(ordered, Result.UPDATED);
+        int unchanged = count(ordered, Result.UNCHANGED);
+        log.info("Transição em lote para {}: {} pedidos, {} alterados, {} já no status, {} rejeitados em {} ms",
+                target, ids.size(), updated, unchanged, ids.size() - updated - unchanged, System.currentTimeMillis() - start);
+        return new OrderStatusTransitionResultDTO(target, updated, unchanged, ids.size() - updated - unchanged, ordered);
+    }
+
+    private void applyChunk(List<Long> ids, OrderStatus target, Map<Long, Outcome> outcomes) {
+        Map<Long, OrderStatusView> current = new HashMap<>();
+        try {
+            transaction.executeWithoutResult(status -> {
+                orderRepository.findStatusesByIdIn(ids).forEach(view -> current.put(view.id(), view));
+                update(ids, current, target, outcomes, false);
+            });
+        } catch (ConcurrentStatusChange e) {
+            transaction.executeWithoutResult(status -> update(ids, current, target, outcomes, true));
+        }
+    }
+
+    private void update(List<Long> ids, Map<Long, OrderStatusView> current, OrderStatus target,
+                        Map<Long, Outcome> outcomes, boolean rowByRow) {
+        Map<OrderStatus, List<Long>> bySource = new EnumMap<>(OrderStatus.class);
+        for (Long id : ids) {
+            OrderStatus status = current.containsKey(id) ? current.get(id).status() : null;
+            Result result;
+            if (status == null) {
+                result = Result.NOT_FOUND;
+            } else if (status == target) {
+                result = Result.UNCHANGED;
+            } else if (status.canTransitionTo(target)) {
+                result = Result.UPDATED;
+                bySource.computeIfAbsent(status, source -> new ArrayList<>()).add(id);
+            } else {
+                result = Result.INVALID_TRANSITION;
+            }
+            outcomes.put(id, new Outcome(id, status, result));
+        }
+        if (bySource.isEmpty()) {
+            return;
+        }
+
+        for (Map.Entry<OrderStatus, List<Long>> group : bySource.entrySet()) {
+            Set<OrderStatus> read = Set.of(group.getKey());
+            if (!rowByRow) {
+                if (orderRepository.updateStatus(group.getValue(), read, target) < group.getValue().size()) {
+                    throw new ConcurrentStatusChange(); // Desfaz o lote (ver applyChunk)
+                }
+                continue;
+            }
+            for (Long id : group.getValue()) {
+                if (orderRepository.updateStatus(List.of(id), read, target) == 0) {
+                    outcomes.get(id).setResult(Result.CONFLICT);
+                }
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> changed = ids.stream().filter(id -> outcomes.get(id).getResult() == Result.UPDATED).toList();
+        for (Long id : changed) {
+            OrderStatusView order = current.get(id);
+            eventPublisher.publishEvent(new OrderEvent(OrderEvent.Type.STATUS_CHANGED, id, order.userId(), order.status(),
+                    target, order.paymentStatus(), order.totalAmount(), now));
+        }
+        if (target == OrderStatus.CANCELED && !changed.isEmpty()) {
+            // Uma consulta de itens por lote para retirar os pedidos cancelados dos agregados de vendas
+            eventPublisher.publishEvent(new SalesChangedEvent(SalesChangedEvent.Change.REVERSED,
+                    orderRepository.findSaleLinesByOrderIdIn(changed)));
+        }
+    }
+
+    private static int count(List<Outcome> outcomes, Result result) {
+        return (int) outcomes.stream().filter(outcome -> outcome.getResult() == result).count();
+    }
+
+    // Algum pedido de um grupo mudou de status entre a leitura e o UPDATE
+    private static final class ConcurrentStatusChange extends RuntimeException {
+        ConcurrentStatusChange() {
+            super(null, null, false, false);
+        }
+    }
+}
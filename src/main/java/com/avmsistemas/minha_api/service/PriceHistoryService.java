@@ -0,0 +1,314 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.dto.PriceAsOfDTO;
+import com.avmsistemas.minha_api.dto.PriceAsOfRequestDTO;
+import com.avmsistemas.minha_api.dto.PriceBucketDTO;
+import com.avmsistemas.minha_api.dto.PricePointDTO;
+import com.avmsistemas.minha_api.dto.PriceSeriesDTO;
+import com.avmsistemas.minha_api.repository.PriceHistoryRepository;
+import com.avmsistemas.minha_api.repository.PricePointView;
+import com.avmsistemas.minha_api.repository.ProductPricePointView;
+import com.avmsistemas.minha_api.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Consultas de histórico de preços sobre séries compactas ({@link PriceSeries}) mantidas em cache.
+ * A série de um produto é montada a partir de uma projeção de duas colunas (data, preço) e
+ * invalidada sempre que o preço do produto muda ou o produto é excluído. Uma consulta de período sobre um produto
+ * sem série em cache lê só o intervalo pedido, sem montar (nem guardar) a série inteira.
+ *
+ * A série guarda datas em microssegundos (a precisão da coluna) e preços em centavos (a escala da coluna), e as
+ * respostas lidas direto do banco passam pela mesma conversão: com ou sem cache, o resultado é o mesmo.
+ */
+@Service
+public class PriceHistoryService {
+
+    public static final int MAX_AS_OF_BATCH = 1000;
+
+    // Limites usados no lado aberto de uma consulta de período lida direto do banco
+    private static final LocalDateTime RANGE_START = LocalDateTime.of(1, 1, 1, 0, 0);
+    private static final LocalDateTime RANGE_END = LocalDateTime.of(9999, 12, 31, 23, 59, 59, 999_999_000);
+
+    @Autowired
+    private PriceHistoryRepository priceHistoryRepository;
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final BoundedTtlCache<Long, PriceSeries> seriesCache;
+
+    public PriceHistoryService(@Value("${app.price-history.cache-max-products:5000}") int maxProducts,
+                               @Value("${app.price-history.cache-ttl-seconds:600}") long ttlSeconds) {
+        this.seriesCache = new BoundedTtlCache<>(maxProducts, Duration.ofSeconds(ttlSeconds));
+    }
+
+    /**
+     * Retorna os pontos do intervalo [from, to] (ambos opcionais) ou, se {@code bucket} for informado
+     * (ex.: "1h", "1d", "PT30M"), um agregado mínimo/máximo/último por período.
+     */
+    @Transactional(readOnly = true)
+    public PriceSeriesDTO getPriceSeries(Long productId, LocalDateTime from, LocalDateTime to, String bucket) {
+        long fromMicros = from != null ? toMicros(from) : Long.MIN_VALUE;
+        long toMicros = to != null ? toMicros(to) : Long.MAX_VALUE;
+        if (fromMicros > toMicros) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'from' deve ser anterior a 'to'.");
+        }
+
+        PriceSeries series = from == null && to == null ? getSeries(productId) : getSeries(productId, fromMicros, toMicros);
+
+        if (bucket == null || bucket.isBlank()) {
+            List<PricePointDTO> points = new ArrayList<>();
+            series.forEachInRange(fromMicros, toMicros,
+                    (timestamp, price) -> points.add(new PricePointDTO(toDateTime(timestamp), fromCents(price))));
+            return new PriceSeriesDTO(productId, from, to, null, points, null);
+        }
+
+        long bucketMicros = parseBucket(bucket);
+        long origin = from != null ? fromMicros : 0L; // Períodos alinhados ao início da consulta (ou à época)
+        List<PriceBucketDTO> buckets = new ArrayList<>();
+        BucketAccumulator acc = new BucketAccumulator();
+        series.forEachInRange(fromMicros, toMicros, (timestamp, price) -> {
+            long index = Math.floorDiv(timestamp - origin, bucketMicros);
+            if (acc.count > 0 && index != acc.index) {
+                buckets.add(acc.toDto(origin, bucketMicros));
+                acc.count = 0;
+            }
+            acc.add(index, price);
+        });
+        if (acc.count > 0) {
+            buckets.add(acc.toDto(origin, bucketMicros));
+        }
+        return new PriceSeriesDTO(productId, from, to, bucket, null, buckets);
+    }
+
+    /** Série compacta do produto, lida do cache ou montada a partir do banco. */
+    @Transactional(readOnly = true)
+    public PriceSeries getSeries(Long productId) {
+        PriceSeries series = seriesCache.get(productId);
+        if (series != null) {
+            return series;
+        }
+        if (!productRepository.existsById(productId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Produto não encontrado.");
+        }
+        return loadSeries(productId);
+    }
+
+    // Série com ao menos os pontos de [fromMicros, toMicros]: a do cache ou, sem ela, só o intervalo, lido pelo índice
+    private PriceSeries getSeries(Long productId, long fromMicros, long toMicros) {
+        PriceSeries cached = seriesCache.get(productId);
+        if (cached != null) {
+            return cached;
+        }
+        if (!productRepository.existsById(productId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Produto não encontrado.");
+        }
+        // Os mesmos limites, em microssegundos, que a série usaria
+        LocalDateTime from = fromMicros == Long.MIN_VALUE ? RANGE_START : toDateTime(fromMicros);
+        LocalDateTime to = toMicros == Long.MAX_VALUE ? RANGE_END : toDateTime(toMicros);
+        PriceSeries range = new PriceSeries();
+        for (PricePointView point : priceHistoryRepository.findPricePointsBetween(productId, from, to)) {
+            append(range, point);
+        }
+        return range;
+    }
+
+    /**
+     * Preço vigente de um produto no instante {@code at}. Usa a série em cache (busca binária) quando existe;
+     * caso contrário lê uma única linha pelo índice (product_id, change_date), sem montar a série inteira.
+     */
+    @Transactional(readOnly = true)
+    public PriceAsOfDTO getPriceAt(Long productId, LocalDateTime at) {
+        PriceSeries cached = seriesCache.get(productId);
+        if (cached != null) {
+            return toAsOf(productId, at, cached.pointAt(toMicros(at)));
+        }
+        if (!productRepository.existsById(productId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Produto não encontrado.");
+        }
+        return priceHistoryRepository.findFirstByProductIdAndChangeDateLessThanEqualOrderByChangeDateDescIdDesc(productId, at)
+                .map(point -> toAsOf(productId, at, new long[]{toMicros(point.getChangeDate()), toCents(point.getPrice())}))
+                .orElseGet(() -> new PriceAsOfDTO(productId, at, null, null, PriceAsOfDTO.Status.NO_PRICE));
+    }
+
+    /**
+     * Resolve vários pares (produto, instante) de uma vez, na ordem recebida.
+     * Cada produto tem sua série carregada uma única vez, independentemente de quantos instantes forem pedidos, e as
+     * séries que não estão em cache vêm todas de uma única consulta IN.
+     */
+    @Transactional(readOnly = true)
+    public List<PriceAsOfDTO> getPricesAt(List<PriceAsOfRequestDTO> requests) {
+        if (requests == null || requests.isEmpty()) {
+            return List.of();
+        }
+        if (requests.size() > MAX_AS_OF_BATCH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No máximo " + MAX_AS_OF_BATCH + " consultas por lote.");
+        }
+        Set<Long> productIds = new HashSet<>();
+        for (PriceAsOfRequestDTO request : requests) {
+            if (request.getProductId() == null || request.getAt() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cada consulta deve informar productId e at.");
+            }
+            productIds.add(request.getProductId());
+        }
+
+        Set<Long> existing = new HashSet<>(productRepository.findExistingIds(productIds));
+        Map<Long, PriceSeries> seriesByProduct = loadSeries(existing);
+        List<PriceAsOfDTO> results = new ArrayList<>(requests.size());
+        for (PriceAsOfRequestDTO request : requests) {
+            Long productId = request.getProductId();
+            if (!existing.contains(productId)) {
+                results.add(new PriceAsOfDTO(productId, request.getAt(), null, null, PriceAsOfDTO.Status.PRODUCT_NOT_FOUND));
+                continue;
+            }
+            PriceSeries series = seriesByProduct.get(productId);
+            results.add(toAsOf(productId, request.getAt(), series.pointAt(toMicros(request.getAt()))));
+        }
+        return results;
+    }
+
+    // Série do cache ou montada a partir do banco (sem verificar se o produto existe)
+    private PriceSeries loadSeries(Long productId) {
+        PriceSeries series = seriesCache.get(productId);
+        if (series != null) {
+            return series;
+        }
+        long stamp = seriesCache.invalidationStamp();
+        series = new PriceSeries();
+        for (PricePointView point : priceHistoryRepository.findPricePoints(productId)) {
+            append(series, point);
+        }
+        seriesCache.putIfNotInvalidatedSince(productId, series, stamp);
+        return series;
+    }
+
+    // Séries de vários produtos: as que faltam no cache são montadas a partir de uma única consulta
+    private Map<Long, PriceSeries> loadSeries(Set<Long> productIds) {
+        Map<Long, PriceSeries> seriesByProduct = new HashMap<>(productIds.size() * 2);
+        Set<Long> missing = new HashSet<>();
+        for (Long productId : productIds) {
+            PriceSeries cached = seriesCache.get(productId);
+            if (cached != null) {
+                seriesByProduct.put(productId, cached);
+            } else {
+                missing.add(productId);
+                seriesByProduct.put(productId, new PriceSeries());
+            }
+        }
+        if (missing.isEmpty()) {
+            return seriesByProduct;
+        }
+        long stamp = seriesCache.invalidationStamp();
+        for (ProductPricePointView point : priceHistoryRepository.findPricePointsByProductIdIn(missing)) {
+            append(seriesByProduct.get(point.getProductId()), point); // Em ordem de produto e data
+        }
+        for (Long productId : missing) {
+            seriesCache.putIfNotInvalidatedSince(productId, seriesByProduct.get(productId), stamp);
+        }
+        return seriesByProduct;
+    }
+
+    private static void append(PriceSeries series, PricePointView point) {
+        if (point.getChangeDate() != null && point.getPrice() != null) {
+            series.append(toMicros(point.getChangeDate()), toCents(point.getPrice()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        boolean priceChanged = event.before() == null || event.after() == null
+                || event.before().getPrice() == null || event.after().getPrice() == null
+                || event.before().getPrice().compareTo(event.after().getPrice()) != 0;
+        if (priceChanged) {
+            seriesCache.invalidate(event.productId());
+        }
+    }
+
+    private static PriceAsOfDTO toAsOf(Long productId, LocalDateTime at, long[] point) {
+        if (point == null) {
+            return new PriceAsOfDTO(productId, at, null, null, PriceAsOfDTO.Status.NO_PRICE);
+        }
+        return new PriceAsOfDTO(productId, at, fromCents(point[1]), toDateTime(point[0]), PriceAsOfDTO.Status.OK);
+    }
+
+    // Microssegundos desde a época (UTC); frações abaixo de um microssegundo são truncadas
+    static long toMicros(LocalDateTime dateTime) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, dateTime.toInstant(ZoneOffset.UTC));
+    }
+
+    static LocalDateTime toDateTime(long micros) {
+        return LocalDateTime.ofInstant(Instant.EPOCH.plus(micros, ChronoUnit.MICROS), ZoneOffset.UTC);
+    }
+
+    static long toCents(BigDecimal price) {
+        return price.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private static long parseBucket(String bucket) {
+        Duration duration;
+        try {
+            duration = DurationStyle.detectAndParse(bucket);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Período de agregação inválido: " + bucket);
+        }
+        if (duration.compareTo(ChronoUnit.MICROS.getDuration()) < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "O período de agregação deve ser de ao menos 1 microssegundo.");
+        }
+        try {
+            return Math.addExact(Math.multiplyExact(duration.getSeconds(), 1_000_000L), duration.getNano() / 1_000);
+        } catch (ArithmeticException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Período de agregação muito longo: " + bucket);
+        }
+    }
+
+    // Estado do período em andamento durante a agregação
+    private static final class BucketAccumulator {
+        long index;
+        long min;
+        long max;
+        long last;
+        int count;
+
+        void add(long bucketIndex, long price) {
+            if (count == 0) {
+                index = bucketIndex;
+                min = price;
+                max = price;
+            } else {
+                min = Math.min(min, price);
+                max = Math.max(max, price);
+            }
+            last = price;
+            count++;
+        }
+
+        PriceBucketDTO toDto(long origin, long bucketMicros) {
+            return new PriceBucketDTO(toDateTime(origin + index * bucketMicros),
+                    fromCents(min), fromCents(max), fromCents(last), count);
+        }
+    }
+}
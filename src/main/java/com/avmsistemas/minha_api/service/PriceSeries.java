@@ -0,0 +1,181 @@
+package com.avmsistemas.minha_api.service;
+
+import java.util.Arrays;
+
+/**
+ * Série temporal compacta de preços de um produto (somente inclusão, em ordem cronológica).
+ *
+ * Os pontos são agrupados em blocos de {@value #BLOCK_SIZE}. O primeiro ponto de cada bloco fica em valores
+ * absolutos no índice de blocos; os demais são gravados como deltas em varint (timestamp) e varint zigzag (preço).
+ * Uma consulta por intervalo faz busca binária no índice de blocos e decodifica apenas os blocos necessários.
+ *
+ * Timestamps em microssegundos e preços em centavos. Não é thread-safe para escrita: a série é montada
+ * uma única vez pelo PriceHistoryService e depois apenas lida.
+ */
+public class PriceSeries {
+
+    public static final int BLOCK_SIZE = 128;
+
+    @FunctionalInterface
+    public interface PointConsumer {
+        void accept(long timestamp, long price);
+    }
+
+    private byte[] data = new byte[64];
+    private int length;
+
+    private long[] blockTimestamps = new long[4];
+    private long[] blockPrices = new long[4];
+    private int[] blockOffsets = new int[4];
+    private int blockCount;
+
+    private int size;
+    private long lastTimestamp;
+    private long lastPrice;
+
+    public void append(long timestamp, long price) {
+        if (size > 0 && timestamp < lastTimestamp) {
+            throw new IllegalArgumentException("Os pontos devem ser incluídos em ordem cronológica");
+        }
+        if (size % BLOCK_SIZE == 0) {
+            if (blockCount == blockTimestamps.length) {
+                int capacity = blockCount * 2;
+                blockTimestamps = Arrays.copyOf(blockTimestamps, capacity);
+                blockPrices = Arrays.copyOf(blockPrices, capacity);
+                blockOffsets = Arrays.copyOf(blockOffsets, capacity);
+            }
+            blockTimestamps[blockCount] = timestamp;
+            blockPrices[blockCount] = price;
+            blockOffsets[blockCount] = length;
+            blockCount++;
+        } else {
+            writeVarLong(timestamp - lastTimestamp);
+            writeVarLong(zigZag(price - lastPrice));
+        }
+        lastTimestamp = timestamp;
+        lastPrice = price;
+        size++;
+    }
+
+    /** Percorre, em ordem, os pontos com {@code from <= timestamp <= to}. */
+    public void forEachInRange(long from, long to, PointConsumer consumer) {
+        if (size == 0 || from > to) {
+            return;
+        }
+        // Começa no último bloco iniciado antes de "from": o fim dele pode cair dentro do intervalo
+        int block = Math.max(0, lastBlockStartingBefore(from));
+        long[] decoded = new long[1];
+        for (; block < blockCount && blockTimestamps[block] <= to; block++) {
+            int pos = blockOffsets[block];
+            long timestamp = blockTimestamps[block];
+            long price = blockPrices[block];
+            int count = Math.min(BLOCK_SIZE, size - block * BLOCK_SIZE);
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    pos = readVarLong(pos, decoded);
+                    timestamp += decoded[0];
+                    pos = readVarLong(pos, decoded);
+                    price += unZigZag(decoded[0]);
+                }
+                if (timestamp > to) {
+                    return;
+                }
+                if (timestamp >= from) {
+                    consumer.accept(timestamp, price);
+                }
+            }
+        }
+    }
+
+    /**
+     * Ponto vigente no instante {@code at}: o último com {@code timestamp <= at}, como {timestamp, preço},
+     * ou {@code null} se a série ainda não tinha preço nesse instante.
+     */
+    public long[] pointAt(long at) {
+        int block = lastBlockStartingAtOrBefore(at);
+        if (block < 0) {
+            return null;
+        }
+        int pos = blockOffsets[block];
+        long timestamp = blockTimestamps[block];
+        long price = blockPrices[block];
+        long[] found = {timestamp, price};
+        long[] decoded = new long[1];
+        int count = Math.min(BLOCK_SIZE, size - block * BLOCK_SIZE);
+        for (int i = 1; i < count; i++) {
+            pos = readVarLong(pos, decoded);
+            timestamp += decoded[0];
+            pos = readVarLong(pos, decoded);
+            price += unZigZag(decoded[0]);
+            if (timestamp > at) {
+                break;
+            }
+            found[0] = timestamp;
+            found[1] = price;
+        }
+        return found;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Bytes ocupados pela série (índice de blocos + deltas codificados). */
+    public int encodedBytes() {
+        return length + blockCount * (Long.BYTES * 2 + Integer.BYTES);
+    }
+
+    // Busca binária: índice do último bloco cujo primeiro timestamp é < ts, ou -1
+    private int lastBlockStartingBefore(long ts) {
+        return ts == Long.MIN_VALUE ? -1 : lastBlockStartingAtOrBefore(ts - 1);
+    }
+
+    // Busca binária: índice do último bloco cujo primeiro timestamp é <= ts, ou -1
+    private int lastBlockStartingAtOrBefore(long ts) {
+        int low = 0;
+        int high = blockCount - 1;
+        int result = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (blockTimestamps[mid] <= ts) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return result;
+    }
+
+    private void writeVarLong(long value) {
+        if (length + 10 > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + 10));
+        }
+        while ((value & ~0x7FL) != 0) {
+            data[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+
+    private int readVarLong(int pos, long[] out) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[pos++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        out[0] = value;
+        return pos;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
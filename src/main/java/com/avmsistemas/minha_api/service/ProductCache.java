@@ -0,0 +1,55 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.dto.CacheStatsDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+
+/**
+ * Cache de leitura de produtos por ID, como {@link ProductSnapshot} imutáveis (com o histórico de preços copiado),
+ * e não as entidades: nenhum leitor compartilha objetos gerenciados ou proxies lazy com outras threads.
+ * O ProductService invalida a entrada no momento da escrita e novamente após o commit,
+ * para que nenhum leitor recoloque um preço antigo enquanto a transação ainda não terminou.
+ */
+@Component
+public class ProductCache {
+
+    private final BoundedTtlCache<Long, ProductSnapshot> cache;
+
+    public ProductCache(@Value("${app.product-cache.max-size:10000}") int maxSize,
+                        @Value("${app.product-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.cache = new BoundedTtlCache<>(maxSize, Duration.ofSeconds(ttlSeconds));
+    }
+
+    public ProductSnapshot get(Long id) {
+        return cache.get(id);
+    }
+
+    public long invalidationStamp() {
+        return cache.invalidationStamp();
+    }
+
+    public void putIfNotInvalidatedSince(Long id, ProductSnapshot product, long stamp) {
+        cache.putIfNotInvalidatedSince(id, product, stamp);
+    }
+
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheStatsDTO stats() {
+        return cache.stats();
+    }
+
+    // fallbackExecution: também invalida quando o evento é publicado fora de uma transação
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        cache.invalidate(event.productId());
+    }
+}
@@ -0,0 +1,18 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.dto.ProductSummaryDTO;
+
+/**
+ * Publicado pelo ProductService sempre que um produto é criado, alterado ou excluído.
+ * Os ouvintes usam @TransactionalEventListener para reagir somente após o commit.
+ *
+ * {@code before} é nulo na criação e {@code after} é nulo na exclusão.
+ */
+public record ProductChangedEvent(Long productId, ChangeType type, ProductSummaryDTO before, ProductSummaryDTO after) {
+
+    public enum ChangeType {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+}
@@ -0,0 +1,440 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.dto.ImportRejectionDTO;
+import com.avmsistemas.minha_api.dto.ProductImportLineDTO;
+import com.avmsistemas.minha_api.dto.ProductImportReportDTO;
+import com.avmsistemas.minha_api.dto.ProductSummaryDTO;
+import com.avmsistemas.minha_api.repository.CategoryRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * Importação em massa de produtos a partir de um corpo NDJSON ou CSV lido de forma incremental.
+ *
+ * As linhas válidas são agrupadas em lotes de {@code app.import.batch-size}; cada lote é gravado em uma
+ * transação própria com batches JDBC (update, insert com chaves geradas e o histórico de preços),
+ * e o contexto de persistência é descarregado e limpo a cada lote para manter a memória estável.
+ * Se o banco recusar uma linha que passou pela validação, o lote é desfeito e gravado de novo em metades, até isolar
+ * as linhas recusadas, que entram no relatório como as demais rejeições.
+ */
+@Service
+public class ProductImportService {
+
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    private static final String UPDATE_PRODUCT_SQL =
+            "UPDATE product SET name = ?, description = ?, price = ?, image_url = ?, category_id = ?, "
+                    + "version = COALESCE(version, 0) + 1 WHERE id = ?";
+    private static final String INSERT_PRODUCT_SQL =
+            "INSERT INTO product (name, description, price, image_url, category_id, version) VALUES (?, ?, ?, ?, ?, 0)";
+    private static final String INSERT_PRICE_HISTORY_SQL =
+            "INSERT INTO price_history (price, change_date, product_id) VALUES (?, ?, ?)";
+    // Limites das colunas de product: texto com o tamanho padrão do mapeamento, image_url com 2048 e price numeric(38,2)
+    private static final int MAX_TEXT_LENGTH = 255;
+    private static final int MAX_IMAGE_URL_LENGTH = 2048;
+    private static final int MAX_PRICE_INTEGER_DIGITS = 36;
+
+    private static final String SELECT_CURRENT_SQL =
+            "SELECT id, name, description, price, image_url, category_id FROM product WHERE id IN (:ids)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private ProductCache productCache;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxReportedRejections;
+
+    public ProductImportService(PlatformTransactionManager transactionManager,
+                                @Value("${app.import.batch-size:1000}") int batchSize,
+                                @Value("${app.import.max-rejections-reported:100}") int maxReportedRejections) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxReportedRejections = maxReportedRejections;
+    }
+
+    public ProductImportReportDTO importProducts(InputStream body, Format format) throws IOException {
+        long start = System.nanoTime();
+        ProductImportReportDTO report = new ProductImportReportDTO();
+        List<ParsedLine> chunk = new ArrayList<>(batchSize);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            Map<String, Integer> csvColumns = null;
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (format == Format.CSV && csvColumns == null) {
+                    csvColumns = parseCsvHeader(line); // A primeira linha não vazia é o cabeçalho
+                    continue;
+                }
+                report.setLinesRead(report.getLinesRead() + 1);
+
+                ProductImportLineDTO parsed;
+                try {
+                    parsed = format == Format.CSV ? parseCsvLine(line, csvColumns) : objectMapper.readValue(line, ProductImportLineDTO.class);
+                } catch (JsonProcessingException e) {
+                    reject(report, lineNumber, "JSON inválido: " + e.getOriginalMessage());
+                    continue;
+                } catch (IllegalArgumentException e) {
+                    reject(report, lineNumber, "Linha mal formada: " + e.getMessage());
+                    continue;
+                }
+                String invalid = validate(parsed);
+                if (invalid != null) {
+                    reject(report, lineNumber, invalid);
+                    continue;
+                }
+
+                chunk.add(new ParsedLine(lineNumber, parsed));
+                if (chunk.size() >= batchSize) {
+                    writeChunk(chunk, report);
+                    chunk.clear();
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(chunk, report);
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        long written = report.getInserted() + report.getUpdated();
+        report.setElapsedMillis(elapsedNanos / 1_000_000);
+        report.setRowsPerSecond(elapsedNanos == 0 ? 0.0 : written * 1_000_000_000.0 / elapsedNanos);
+        return report;
+    }
+
+    // Grava o lote; se o banco recusar alguma linha, nada do lote fica gravado e as metades são tentadas separadamente
+    private void writeChunk(List<ParsedLine> chunk, ProductImportReportDTO report) {
+        ChunkResult result;
+        try {
+            result = transactionTemplate.execute(status -> writeInTransaction(chunk));
+        } catch (DataAccessException e) {
+            if (chunk.size() == 1) {
+                reject(report, chunk.get(0).lineNumber, "Recusada pelo banco: " + firstLine(e.getMostSpecificCause().getMessage()));
+                return;
+            }
+            int half = chunk.size() / 2;
+            writeChunk(chunk.subList(0, half), report);
+            writeChunk(chunk.subList(half, chunk.size()), report);
+            return;
+        }
+        // O relatório só recebe o resultado de lotes confirmados, para que uma nova tentativa não conte nada duas vezes
+        for (ImportRejectionDTO rejection : result.rejections) {
+            reject(report, rejection.getLineNumber(), rejection.getReason());
+        }
+        report.setUpdated(report.getUpdated() + result.updated);
+        report.setInserted(report.getInserted() + result.inserted);
+        report.setBatches(report.getBatches() + 1);
+    }
+
+    // Grava um lote inteiro em uma transação: 1 SELECT IN para os existentes + batches de UPDATE/INSERT
+    private ChunkResult writeInTransaction(List<ParsedLine> chunk) {
+        ChunkResult result = new ChunkResult();
+        entityManager.flush(); // Nada pendente no contexto de persistência antes do JDBC direto
+
+        Set<Long> categoryIds = new HashSet<>();
+        Set<Long> productIds = new HashSet<>();
+        for (ParsedLine line : chunk) {
+            if (line.data.getCategoryId() != null) {
+                categoryIds.add(line.data.getCategoryId());
+            }
+            if (line.data.getId() != null) {
+                productIds.add(line.data.getId());
+            }
+        }
+        Set<Long> knownCategories = categoryIds.isEmpty() ? Set.of() : new HashSet<>(categoryRepository.findExistingIds(categoryIds));
+        Map<Long, ProductSummaryDTO> current = loadCurrent(productIds);
+
+        List<ParsedLine> updates = new ArrayList<>();
+        List<ParsedLine> inserts = new ArrayList<>();
+        for (ParsedLine line : chunk) {
+            if (line.data.getCategoryId() != null && !knownCategories.contains(line.data.getCategoryId())) {
+                result.rejections.add(new ImportRejectionDTO(line.lineNumber, "Categoria não encontrada: " + line.data.getCategoryId()));
+            } else if (line.data.getId() != null && !current.containsKey(line.data.getId())) {
+                result.rejections.add(new ImportRejectionDTO(line.lineNumber, "Produto não encontrado para atualização: " + line.data.getId()));
+            } else if (line.data.getId() != null) {
+                updates.add(line);
+            } else {
+                inserts.add(line);
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, BigDecimal> priceHistory = new HashMap<>(); // productId -> novo preço a registrar
+
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_PRODUCT_SQL, new RowSetter(updates, true));
+            for (ParsedLine line : updates) {
+                ProductSummaryDTO before = current.get(line.data.getId());
+                if (before.getPrice() == null || before.getPrice().compareTo(line.data.getPrice()) != 0) {
+                    priceHistory.put(line.data.getId(), line.data.getPrice());
+                }
+                productCache.invalidate(line.data.getId());
+            }
+        }
+
+        List<Long> insertedIds = new ArrayList<>();
+        if (!inserts.isEmpty()) {
+            GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_PRODUCT_SQL, new String[]{"id"}),
+                    new RowSetter(inserts, false), keyHolder);
+            for (Map<String, Object> keys : keyHolder.getKeyList()) {
+                insertedIds.add(((Number) keys.values().iterator().next()).longValue());
+            }
+            for (int i = 0; i < inserts.size(); i++) {
+                priceHistory.put(insertedIds.get(i), inserts.get(i).data.getPrice());
+            }
+        }
+
+        if (!priceHistory.isEmpty()) {
+            List<Entry<Long, BigDecimal>> entries = new ArrayList<>(priceHistory.entrySet());
+            Timestamp changeDate = Timestamp.valueOf(now);
+            jdbcTemplate.batchUpdate(INSERT_PRICE_HISTORY_SQL, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    ps.setBigDecimal(1, entries.get(i).getValue());
+                    ps.setTimestamp(2, changeDate);
+                    ps.setLong(3, entries.get(i).getKey());
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return entries.size();
+                }
+            });
+        }
+
+        // Os ouvintes (cache, índice de busca, séries de preço) reagem após o commit deste lote
+        for (ParsedLine line : updates) {
+            ProductSummaryDTO after = toSummary(line.data.getId(), line.data);
+            eventPublisher.publishEvent(new ProductChangedEvent(line.data.getId(), ProductChangedEvent.ChangeType.UPDATED,
+                    current.get(line.data.getId()), after));
+        }
+        for (int i = 0; i < inserts.size(); i++) {
+            Long id = insertedIds.get(i);
+            eventPublisher.publishEvent(new ProductChangedEvent(id, ProductChangedEvent.ChangeType.CREATED,
+                    null, toSummary(id, inserts.get(i).data)));
+        }
+
+        entityManager.clear(); // Mantém o contexto de persistência vazio entre lotes
+
+        result.updated = updates.size();
+        result.inserted = inserts.size();
+        return result;
+    }
+
+    private Map<Long, ProductSummaryDTO> loadCurrent(Set<Long> productIds) {
+        Map<Long, ProductSummaryDTO> current = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return current;
+        }
+        namedJdbcTemplate.query(SELECT_CURRENT_SQL, Map.of("ids", productIds), rs -> {
+            long id = rs.getLong("id");
+            Long categoryId = rs.getObject("category_id", Long.class); // Nulo para produto sem categoria
+            current.put(id, new ProductSummaryDTO(id, rs.getString("name"), rs.getString("description"),
+                    rs.getBigDecimal("price"), rs.getString("image_url"), categoryId, null));
+        });
+        return current;
+    }
+
+    private static ProductSummaryDTO toSummary(Long id, ProductImportLineDTO line) {
+        return new ProductSummaryDTO(id, line.getName(), line.getDescription(), line.getPrice(),
+                line.getImageUrl(), line.getCategoryId(), null);
+    }
+
+    private static String validate(ProductImportLineDTO line) {
+        if (line.getName() == null || line.getName().isBlank()) {
+            return "Nome ausente";
+        }
+        if (line.getPrice() == null || line.getPrice().signum() < 0) {
+            return "Preço ausente ou negativo";
+        }
+        // Limites das colunas: uma linha que o banco recusaria desfaria o lote inteiro
+        if (line.getName().length() > MAX_TEXT_LENGTH) {
+            return "Nome com mais de " + MAX_TEXT_LENGTH + " caracteres";
+        }
+        if (line.getDescription() != null && line.getDescription().length() > MAX_TEXT_LENGTH) {
+            return "Descrição com mais de " + MAX_TEXT_LENGTH + " caracteres";
+        }
+        if (line.getImageUrl() != null && line.getImageUrl().length() > MAX_IMAGE_URL_LENGTH) {
+            return "URL da imagem com mais de " + MAX_IMAGE_URL_LENGTH + " caracteres";
+        }
+        if (line.getPrice().precision() - line.getPrice().scale() > MAX_PRICE_INTEGER_DIGITS) {
+            return "Preço acima do limite da coluna";
+        }
+        return null;
+    }
+
+    private static String firstLine(String message) {
+        if (message == null) {
+            return "erro desconhecido";
+        }
+        int end = message.indexOf('\n');
+        return end < 0 ? message : message.substring(0, end);
+    }
+
+    private void reject(ProductImportReportDTO report, long lineNumber, String reason) {
+        report.setRejected(report.getRejected() + 1);
+        if (report.getRejections().size() < maxReportedRejections) {
+            report.getRejections().add(new ImportRejectionDTO(lineNumber, reason));
+        }
+    }
+
+    // --- CSV: cabeçalho com os nomes dos campos (id,name,description,price,imageUrl,categoryId) ---
+
+    private static Map<String, Integer> parseCsvHeader(String header) {
+        List<String> names = splitCsv(header);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.containsKey("name") || !columns.containsKey("price")) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "O cabeçalho CSV deve conter ao menos as colunas name e price.");
+        }
+        return columns;
+    }
+
+    private static ProductImportLineDTO parseCsvLine(String line, Map<String, Integer> columns) {
+        List<String> values = splitCsv(line);
+        ProductImportLineDTO dto = new ProductImportLineDTO();
+        String id = column(values, columns, "id");
+        String price = column(values, columns, "price");
+        String categoryId = column(values, columns, "categoryid");
+        dto.setId(id != null ? Long.valueOf(id) : null);
+        dto.setName(column(values, columns, "name"));
+        dto.setDescription(column(values, columns, "description"));
+        dto.setPrice(price != null ? new BigDecimal(price) : null);
+        dto.setImageUrl(column(values, columns, "imageurl"));
+        dto.setCategoryId(categoryId != null ? Long.valueOf(categoryId) : null);
+        return dto;
+    }
+
+    private static String column(List<String> values, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // Separa uma linha CSV respeitando aspas duplas ("" dentro de aspas representa uma aspa)
+    private static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Aspas não fechadas");
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    private record ParsedLine(long lineNumber, ProductImportLineDTO data) {
+    }
+
+    // Resultado de um lote, aplicado ao relatório só depois do commit
+    private static final class ChunkResult {
+        final List<ImportRejectionDTO> rejections = new ArrayList<>();
+        int updated;
+        int inserted;
+    }
+
+    // Preenche UPDATE (com o id no fim) ou INSERT a partir das linhas do lote
+    private record RowSetter(List<ParsedLine> lines, boolean withId) implements BatchPreparedStatementSetter {
+        @Override
+        public void setValues(PreparedStatement ps, int i) throws SQLException {
+            ProductImportLineDTO line = lines.get(i).data();
+            ps.setString(1, line.getName());
+            ps.setString(2, line.getDescription());
+            ps.setBigDecimal(3, line.getPrice());
+            ps.setString(4, line.getImageUrl());
+            if (line.getCategoryId() != null) {
+                ps.setLong(5, line.getCategoryId());
+            } else {
+                ps.setNull(5, Types.BIGINT);
+            }
+            if (withId) {
+                ps.setLong(6, line.getId());
+            }
+        }
+
+        @Override
+        public int getBatchSize() {
+            return lines.size();
+        }
+    }
+}
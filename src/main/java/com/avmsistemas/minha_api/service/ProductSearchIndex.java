@@ -0,0 +1,321 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.dto.ProductSummaryDTO;
+import com.avmsistemas.minha_api.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido em memória sobre nome e descrição dos produtos.
+ *
+ * Cada termo aponta para os produtos que o contêm (com peso por campo: nome vale mais que descrição).
+ * Na consulta, cada termo buscado casa por igualdade, por prefixo (vocabulário ordenado) e por
+ * similaridade de trigramas (tolerância a erros de digitação). O resultado é ordenado por tf-idf.
+ * Os resumos dos produtos ficam no próprio índice, então a busca não consulta o banco.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+    private static final double PREFIX_MATCH_WEIGHT = 0.8;
+    private static final double FUZZY_MATCH_WEIGHT = 0.6;
+    private static final double MIN_TRIGRAM_SIMILARITY = 0.45;
+    private static final int MAX_PREFIX_EXPANSIONS = 50;
+    static final int MAX_FUZZY_EXPANSIONS = 50;
+    private static final int REBUILD_PAGE_SIZE = 500;
+
+    private final ProductRepository productRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // termo -> (productId -> peso do termo no produto); TreeMap permite busca por prefixo
+    private final TreeMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    // trigrama -> termos do vocabulário que o contêm
+    private final Map<String, Set<String>> trigrams = new HashMap<>();
+    // termo -> quantidade de trigramas distintos (calculada na indexação, usada na similaridade)
+    private final Map<String, Integer> trigramCounts = new HashMap<>();
+    // productId -> termos indexados (para remoção) e resumo exibido no resultado
+    private final Map<Long, Map<String, Float>> documentTerms = new HashMap<>();
+    private final Map<Long, ProductSummaryDTO> documents = new HashMap<>();
+
+    public ProductSearchIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    // Executa após os CommandLineRunners (DataInitializer), quando o catálogo inicial já existe
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            trigrams.clear();
+            trigramCounts.clear();
+            documentTerms.clear();
+            documents.clear();
+
+            long afterId = 0L;
+            List<ProductSummaryDTO> page;
+            do {
+                page = productRepository.findPageOrderById(afterId, Limit.of(REBUILD_PAGE_SIZE));
+                for (ProductSummaryDTO product : page) {
+                    addDocument(product);
+                    afterId = product.getId();
+                }
+            } while (page.size() == REBUILD_PAGE_SIZE);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Índice de busca de produtos construído: {} produtos, {} termos em {} ms",
+                size(), vocabularySize(), System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.type() == ProductChangedEvent.ChangeType.DELETED) {
+            remove(event.productId());
+        } else {
+            upsert(event.after());
+        }
+    }
+
+    public void upsert(ProductSummaryDTO product) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(product.getId());
+            addDocument(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Retorna até {@code limit} produtos ordenados por relevância para a consulta {@code query}. */
+    public List<ProductSummaryDTO> search(String query, int limit) {
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            int totalDocs = documents.size();
+            Map<Long, Double> scores = new HashMap<>();
+            for (String queryTerm : queryTerms) {
+                // Melhor contribuição por produto para este termo (igualdade, prefixo e trigramas não se somam)
+                Map<Long, Double> best = new HashMap<>();
+                for (Map.Entry<String, Double> match : expand(queryTerm).entrySet()) {
+                    Map<Long, Float> docs = postings.get(match.getKey());
+                    double idf = Math.log(1.0 + (double) totalDocs / docs.size());
+                    for (Map.Entry<Long, Float> doc : docs.entrySet()) {
+                        double score = match.getValue() * doc.getValue() * idf;
+                        best.merge(doc.getKey(), score, Math::max);
+                    }
+                }
+                best.forEach((docId, score) -> scores.merge(docId, score, Double::sum));
+            }
+
+            // Top-k com heap mínimo de tamanho limitado
+            PriorityQueue<Map.Entry<Long, Double>> top = new PriorityQueue<>(Map.Entry.comparingByValue());
+            for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                top.offer(entry);
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+            List<Map.Entry<Long, Double>> ranked = new ArrayList<>(top);
+            ranked.sort(Map.Entry.<Long, Double>comparingByValue(Comparator.reverseOrder())
+                    .thenComparing(Map.Entry.comparingByKey()));
+            return ranked.stream().map(entry -> documents.get(entry.getKey())).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int vocabularySize() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Termos do vocabulário que casam com o termo buscado, com o peso de cada tipo de casamento
+    private Map<String, Double> expand(String queryTerm) {
+        Map<String, Double> matches = new HashMap<>();
+        if (postings.containsKey(queryTerm)) {
+            matches.put(queryTerm, 1.0);
+        }
+
+        NavigableMap<String, Map<Long, Float>> prefixed = postings.subMap(queryTerm, false, queryTerm + Character.MAX_VALUE, false);
+        int expansions = 0;
+        for (String term : prefixed.keySet()) {
+            if (expansions++ >= MAX_PREFIX_EXPANSIONS) {
+                break;
+            }
+            matches.putIfAbsent(term, PREFIX_MATCH_WEIGHT);
+        }
+
+        if (queryTerm.length() >= 3) {
+            expandByTrigrams(queryTerm, matches);
+        }
+        return matches;
+    }
+
+    /**
+     * Casamento por trigramas (similaridade de Jaccard), sem percorrer todos os termos que compartilham algum trigrama.
+     * Para chegar à similaridade mínima t, um termo precisa ter ao menos ceil(t * q) dos q trigramas da consulta; então
+     * ele aparece em pelo menos um dos q - ceil(t * q) + 1 trigramas mais raros, e só esses geram candidatos. Os demais
+     * trigramas apenas completam a contagem dos candidatos. Ficam os {@link #MAX_FUZZY_EXPANSIONS} mais similares.
+     */
+    private void expandByTrigrams(String queryTerm, Map<String, Double> matches) {
+        List<Set<String>> gramTerms = new ArrayList<>();
+        for (String gram : trigramsOf(queryTerm)) {
+            gramTerms.add(trigrams.getOrDefault(gram, Set.of()));
+        }
+        gramTerms.sort(Comparator.comparingInt(Set::size));
+        int queryGrams = gramTerms.size();
+        int minShared = (int) Math.ceil(MIN_TRIGRAM_SIMILARITY * queryGrams - 1e-9);
+        int seedGrams = queryGrams - minShared + 1;
+
+        Map<String, Integer> shared = new HashMap<>();
+        for (Set<String> terms : gramTerms.subList(0, seedGrams)) {
+            for (String term : terms) {
+                shared.merge(term, 1, Integer::sum);
+            }
+        }
+        List<Set<String>> remaining = gramTerms.subList(seedGrams, queryGrams);
+
+        // Heap mínimo com os candidatos mais similares
+        PriorityQueue<Map.Entry<String, Double>> best = new PriorityQueue<>(Map.Entry.comparingByValue());
+        for (Map.Entry<String, Integer> candidate : shared.entrySet()) {
+            int common = candidate.getValue();
+            for (Set<String> terms : remaining) {
+                if (terms.contains(candidate.getKey())) {
+                    common++;
+                }
+            }
+            int termGrams = trigramCounts.get(candidate.getKey());
+            double similarity = (double) common / (queryGrams + termGrams - common);
+            if (similarity >= MIN_TRIGRAM_SIMILARITY) {
+                best.offer(Map.entry(candidate.getKey(), similarity));
+                if (best.size() > MAX_FUZZY_EXPANSIONS) {
+                    best.poll();
+                }
+            }
+        }
+        for (Map.Entry<String, Double> match : best) {
+            matches.merge(match.getKey(), FUZZY_MATCH_WEIGHT * match.getValue(), Math::max);
+        }
+    }
+
+    private void addDocument(ProductSummaryDTO product) {
+        Map<String, Float> terms = new HashMap<>();
+        tokenize(product.getName()).forEach(term -> terms.merge(term, NAME_WEIGHT, Float::sum));
+        tokenize(product.getDescription()).forEach(term -> terms.merge(term, DESCRIPTION_WEIGHT, Float::sum));
+
+        for (Map.Entry<String, Float> term : terms.entrySet()) {
+            Map<Long, Float> docs = postings.get(term.getKey());
+            if (docs == null) {
+                docs = new HashMap<>();
+                postings.put(term.getKey(), docs);
+                Set<String> grams = trigramsOf(term.getKey());
+                for (String gram : grams) {
+                    trigrams.computeIfAbsent(gram, g -> new HashSet<>()).add(term.getKey());
+                }
+                trigramCounts.put(term.getKey(), grams.size());
+            }
+            docs.put(product.getId(), term.getValue());
+        }
+        documentTerms.put(product.getId(), terms);
+        documents.put(product.getId(), product);
+    }
+
+    private void removeDocument(Long productId) {
+        Map<String, Float> terms = documentTerms.remove(productId);
+        documents.remove(productId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms.keySet()) {
+            Map<Long, Float> docs = postings.get(term);
+            docs.remove(productId);
+            if (docs.isEmpty()) {
+                postings.remove(term);
+                trigramCounts.remove(term);
+                for (String gram : trigramsOf(term)) {
+                    Set<String> gramTerms = trigrams.get(gram);
+                    gramTerms.remove(term);
+                    if (gramTerms.isEmpty()) {
+                        trigrams.remove(gram);
+                    }
+                }
+            }
+        }
+    }
+
+    // Normaliza (minúsculas, sem acentos) e separa em termos alfanuméricos
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        for (String token : normalized.split("[^a-z0-9]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static Set<String> trigramsOf(String term) {
+        String padded = "$" + term + "$";
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+}
@@ -1,34 +1,176 @@
 package com.avmsistemas.minha_api.service;
 
+import com.avmsistemas.minha_api.dto.ProductPageDTO;
+import com.avmsistemas.minha_api.dto.ProductSummaryDTO;
 import com.avmsistemas.minha_api.model.Product;
 import com.avmsistemas.minha_api.model.PriceHistory;
+import com.avmsistemas.minha_api.repository.PriceHistoryRepository;
 import com.avmsistemas.minha_api.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 public class ProductService {
 
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 200;
+
     @Autowired
     private ProductRepository productRepository;
+    @Autowired
+    private PriceHistoryRepository priceHistoryRepository;
+    @Autowired
+    private ProductCache productCache;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
+    /**
+     * Listagem completa como resumos (projeção só com as colunas da resposta), opcionalmente filtrada por categoria.
+     * O histórico de preços só é carregado quando solicitado, em uma única consulta para a lista toda.
+     */
     @Transactional(readOnly = true)
-    public List<Product> getAllProducts() {
-        return productRepository.findAll();
+    public List<ProductSummaryDTO> getProductSummaries(Long categoryId, boolean includePriceHistory) {
+        List<ProductSummaryDTO> items = categoryId != null
+                ? productRepository.findSummariesByCategoryId(categoryId)
+                : productRepository.findAllSummaries();
+        if (includePriceHistory) {
+            attachPriceHistory(items);
+        }
+        return items;
     }
 
+    /**
+     * Lista o catálogo por cursor (keyset): busca apenas {@code limit} linhas a partir do cursor {@code after},
+     * ordenando por "id", "name" ou "price" (sempre com o id como desempate; nome e preço nulos no fim).
+     * O cursor carrega a própria chave do último item, então a página seguinte não depende de o produto ainda
+     * existir nem de ele não ter mudado de nome ou preço.
+     * O histórico de preços só é carregado quando solicitado, e nesse caso em uma única consulta para a página toda.
+     */
+    @Transactional(readOnly = true)
+    public ProductPageDTO getProductsPage(String after, int limit, String sort, boolean includePriceHistory) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "O limite deve estar entre 1 e " + MAX_PAGE_SIZE + ".");
+        }
+        String sortKey = sort == null ? "id" : sort;
+        if (!List.of("id", "name", "price").contains(sortKey)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Ordenação inválida. Use 'id', 'name' ou 'price'.");
+        }
+        PageCursor cursor = after != null ? decodeCursor(after, sortKey) : null;
+
+        // Busca um item a mais só para saber se existe próxima página
+        Limit fetchLimit = Limit.of(limit + 1);
+        List<ProductSummaryDTO> rows;
+        if (sortKey.equals("id")) {
+            rows = productRepository.findPageOrderById(cursor != null ? cursor.id() : 0L, fetchLimit);
+        } else if (sortKey.equals("name")) {
+            rows = cursor == null ? productRepository.findFirstPageOrderByName(fetchLimit)
+                    : cursor.key() == null ? productRepository.findPageOrderByNameAfterNull(cursor.id(), fetchLimit)
+                    : productRepository.findPageOrderByName(cursor.key(), cursor.id(), fetchLimit);
+        } else {
+            rows = cursor == null ? productRepository.findFirstPageOrderByPrice(fetchLimit)
+                    : cursor.key() == null ? productRepository.findPageOrderByPriceAfterNull(cursor.id(), fetchLimit)
+                    : productRepository.findPageOrderByPrice(new BigDecimal(cursor.key()), cursor.id(), fetchLimit);
+        }
+
+        boolean hasMore = rows.size() > limit;
+        List<ProductSummaryDTO> items = hasMore ? new ArrayList<>(rows.subList(0, limit)) : rows;
+        if (includePriceHistory) {
+            attachPriceHistory(items);
+        }
+
+        String nextCursor = hasMore ? encodeCursor(sortKey, items.get(items.size() - 1)) : null;
+        return new ProductPageDTO(items, nextCursor, hasMore);
+    }
+
+    // Chave (ordenação, id) do último item; key nula quando o nome/preço do item é nulo
+    private record PageCursor(Long id, String key) {
+    }
+
+    // "ordenação|id|-" para chave nula ou "ordenação|id|=valor", em Base64 para que o cliente o trate como opaco.
+    // O valor vai por último para que um nome com '|' não atrapalhe a leitura.
+    private static String encodeCursor(String sort, ProductSummaryDTO last) {
+        String key = switch (sort) {
+            case "name" -> last.getName();
+            case "price" -> last.getPrice() != null ? last.getPrice().toPlainString() : null;
+            default -> null;
+        };
+        String raw = sort + "|" + last.getId() + "|" + (key == null ? "-" : "=" + key);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static PageCursor decodeCursor(String cursor, String sort) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 3);
+            if (parts.length == 3 && parts[0].equals(sort) && (parts[2].equals("-") || parts[2].startsWith("="))) {
+                Long id = Long.valueOf(parts[1]);
+                String key = parts[2].equals("-") ? null : parts[2].substring(1);
+                if (key != null && sort.equals("price")) {
+                    new BigDecimal(key); // Valida já, para responder 400 e não 500
+                }
+                return new PageCursor(id, key);
+            }
+        } catch (IllegalArgumentException e) { // Inclui NumberFormatException
+            // Tratado abaixo
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cursor 'after' inválido para a ordenação '" + sort + "'.");
+    }
+
+    // Preenche o histórico de preços de todos os itens com uma única consulta IN
+    private void attachPriceHistory(List<ProductSummaryDTO> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        Map<Long, List<PriceHistory>> historyByProduct = priceHistoryRepository
+                .findByProductIdInOrderByChangeDateAsc(items.stream().map(ProductSummaryDTO::getId).toList())
+                .stream()
+                .collect(Collectors.groupingBy(ph -> ph.getProduct().getId()));
+        items.forEach(item -> item.setPriceHistory(historyByProduct.getOrDefault(item.getId(), List.of())));
+    }
+
+    /**
+     * Produto com o histórico de preços, do cache quando possível. Sempre devolve uma cópia desanexada, montada a
+     * partir do {@link ProductSnapshot}: quem chama pode alterá-la ou serializá-la fora da transação.
+     */
     @Transactional(readOnly = true)
     public Optional<Product> getProductById(Long id) {
-        Optional<Product> product = productRepository.findById(id);
-        // Opcional: Forçar carregamento do histórico para um DTO, se necessário
-        product.ifPresent(p -> p.getPriceHistory().size());
-        return product;
+        ProductSnapshot cached = productCache.get(id);
+        if (cached != null) {
+            return Optional.of(cached.toProduct());
+        }
+
+        long stamp = productCache.invalidationStamp(); // Capturado antes da leitura no banco
+        return productRepository.findById(id).map(p -> {
+            ProductSnapshot snapshot = ProductSnapshot.of(p); // Lê o histórico ainda dentro da transação
+            productCache.putIfNotInvalidatedSince(id, snapshot, stamp);
+            return snapshot.toProduct();
+        });
+    }
+
+    /**
+     * Versão atual do produto (do cache, se presente, ou de uma consulta só à coluna de versão),
+     * ou vazio se o produto não existe. Usada para montar o ETag sem carregar o produto.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Long> getProductVersion(Long id) {
+        ProductSnapshot cached = productCache.get(id);
+        if (cached != null) {
+            return Optional.ofNullable(cached.version());
+        }
+        return productRepository.findVersionById(id);
     }
 
     @Transactional
@@ -36,7 +178,10 @@ public class ProductService {
         Product savedProduct = productRepository.save(product);
         PriceHistory initialPrice = new PriceHistory(savedProduct.getPrice(), savedProduct);
         savedProduct.addPriceHistory(initialPrice);
-        return productRepository.save(savedProduct);
+        Product result = productRepository.save(savedProduct);
+        eventPublisher.publishEvent(new ProductChangedEvent(result.getId(), ProductChangedEvent.ChangeType.CREATED,
+                null, ProductSummaryDTO.fromEntity(result)));
+        return result;
     }
 
     @Transactional
@@ -45,6 +190,7 @@ public class ProductService {
 
         if (productOptional.isPresent()) {
             Product existingProduct = productOptional.get();
+            ProductSummaryDTO before = ProductSummaryDTO.fromEntity(existingProduct);
 
             if (!existingProduct.getPrice().equals(productDetails.getPrice())) {
                 PriceHistory newPriceEntry = new PriceHistory(productDetails.getPrice(), existingProduct);
@@ -57,7 +203,11 @@ public class ProductService {
             existingProduct.setImageUrl(productDetails.getImageUrl());
             existingProduct.setCategory(productDetails.getCategory());
 
-            return productRepository.save(existingProduct);
+            productCache.invalidate(id); // Invalida já; o evento invalida de novo após o commit
+            Product result = productRepository.save(existingProduct);
+            eventPublisher.publishEvent(new ProductChangedEvent(id, ProductChangedEvent.ChangeType.UPDATED,
+                    before, ProductSummaryDTO.fromEntity(result)));
+            return result;
         } else {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Produto não encontrado.");
         }
@@ -65,13 +215,11 @@ public class ProductService {
 
     @Transactional
     public void deleteProduct(Long id) {
-        if (!productRepository.existsById(id)) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Produto não encontrado para exclusão.");
-        }
-        productRepository.deleteById(id);
+        Product product = productRepository.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Produto não encontrado para exclusão."));
+        ProductSummaryDTO before = ProductSummaryDTO.fromEntity(product);
+        productCache.invalidate(id);
+        productRepository.delete(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(id, ProductChangedEvent.ChangeType.DELETED, before, null));
     }
-
-    public List<Product> getProductsByCategoryId(Long categoryId) {
-        return productRepository.findByCategoryId(categoryId);
-    }    
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.model.Category;
+import com.avmsistemas.minha_api.model.PriceHistory;
+import com.avmsistemas.minha_api.model.Product;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cópia imutável de um produto (com o histórico de preços) guardada no {@link ProductCache}.
+ * Nada aqui é entidade gerenciada nem proxy lazy, então pode ser compartilhada entre threads; cada leitor recebe
+ * um {@link Product} novo por {@link #toProduct()} e pode alterá-lo sem afetar o cache.
+ */
+public record ProductSnapshot(Long id, String name, String description, BigDecimal price, String imageUrl, Long version,
+                              Long categoryId, List<PricePoint> priceHistory) {
+
+    public record PricePoint(Long id, BigDecimal price, LocalDateTime changeDate) {
+    }
+
+    public ProductSnapshot {
+        priceHistory = List.copyOf(priceHistory);
+    }
+
+    /** Deve ser chamado com a sessão aberta: lê o histórico e o ID da categoria (getId() no proxy não o inicializa). */
+    public static ProductSnapshot of(Product product) {
+        return new ProductSnapshot(product.getId(), product.getName(), product.getDescription(), product.getPrice(),
+                product.getImageUrl(), product.getVersion(),
+                product.getCategory() != null ? product.getCategory().getId() : null,
+                product.getPriceHistory().stream().map(ph -> new PricePoint(ph.getId(), ph.getPrice(), ph.getChangeDate())).toList());
+    }
+
+    /** Produto desanexado (categoria só com o ID), montado a cada chamada. */
+    public Product toProduct() {
+        Category category = null;
+        if (categoryId != null) {
+            category = new Category();
+            category.setId(categoryId);
+        }
+        Product product = new Product(name, description, price, imageUrl, category);
+        product.setId(id);
+        product.setVersion(version);
+        List<PriceHistory> history = new ArrayList<>(priceHistory.size());
+        for (PricePoint point : priceHistory) {
+            history.add(new PriceHistory(point.id(), point.price(), point.changeDate(), product));
+        }
+        product.setPriceHistory(history);
+        return product;
+    }
+}
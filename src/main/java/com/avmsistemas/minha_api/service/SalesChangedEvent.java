@@ -0,0 +1,18 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.repository.OrderSaleLineView;
+
+import java.util.List;
+
+/**
+ * Publicado quando pedidos passam a contar como venda (criação no checkout) ou deixam de contar (cancelamento ou
+ * exclusão de um pedido não cancelado). Traz os itens dos pedidos, que podem ser vários: a transição em lote publica
+ * um evento por lote. O {@link SalesRollups} aplica o evento depois do commit.
+ */
+public record SalesChangedEvent(Change change, List<OrderSaleLineView> lines) {
+
+    public enum Change {
+        ADDED,
+        REVERSED
+    }
+}
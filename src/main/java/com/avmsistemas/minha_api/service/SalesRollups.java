@@ -0,0 +1,314 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.dto.SalesRollupDTO;
+import com.avmsistemas.minha_api.dto.SalesRollupDTO.Dimension;
+import com.avmsistemas.minha_api.dto.SalesRollupRebuildDTO;
+import com.avmsistemas.minha_api.model.Order;
+import com.avmsistemas.minha_api.model.OrderArchive;
+import com.avmsistemas.minha_api.model.OrderItem;
+import com.avmsistemas.minha_api.model.OrderStatus;
+import com.avmsistemas.minha_api.repository.OrderArchiveRepository;
+import com.avmsistemas.minha_api.repository.OrderRepository;
+import com.avmsistemas.minha_api.repository.OrderSaleLineView;
+import com.avmsistemas.minha_api.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Agregados de vendas (pedidos, unidades e receita) por dia do pedido, por produto, por categoria e no total,
+ * mantidos em memória e lidos em O(1), sem consultar pedidos.
+ *
+ * Atualizados de forma incremental pelos {@link SalesChangedEvent} após o commit: o checkout soma o pedido, e o
+ * cancelamento ou a exclusão o retiram. Um conjunto de bits por ID de pedido guarda quais pedidos estão contados,
+ * então aplicar de novo um evento (ou um evento já coberto por uma reconstrução) não conta duas vezes.
+ *
+ * A reconstrução relê os itens dos pedidos não cancelados em faixas de {@code app.analytics.rebuild.range-size} IDs,
+ * em paralelo em {@code app.analytics.rebuild.threads} threads, monta agregados novos e os troca pelos atuais. Os
+ * eventos que chegam durante a reconstrução são guardados e aplicados aos agregados novos antes da troca. Pedidos
+ * arquivados continuam contando: a reconstrução também lê order_archive. Produtos entram na categoria que tinham
+ * quando o evento foi aplicado (ou a atual, na reconstrução).
+ */
+@Component
+public class SalesRollups {
+
+    private static final Logger log = LoggerFactory.getLogger(SalesRollups.class);
+
+    private final OrderRepository orderRepository;
+    private final OrderArchiveRepository orderArchiveRepository;
+    private final ProductRepository productRepository;
+    private final OrderArchiver orderArchiver;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int rangeSize;
+    private final ExecutorService rebuildExecutor;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    // Lido sem bloqueio; alterado sob o monitor do próprio componente
+    private volatile Rollup rollup = new Rollup();
+    // Eventos recebidos durante uma reconstrução, protegidos pelo monitor
+    private boolean rebuilding;
+    private final List<SalesChangedEvent> pending = new ArrayList<>();
+
+    public SalesRollups(OrderRepository orderRepository, OrderArchiveRepository orderArchiveRepository,
+                        ProductRepository productRepository, OrderArchiver orderArchiver,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${app.analytics.rebuild.threads:4}") int threads,
+                        @Value("${app.analytics.rebuild.range-size:10000}") int rangeSize) {
+        this.orderRepository = orderRepository;
+        this.orderArchiveRepository = orderArchiveRepository;
+        this.productRepository = productRepository;
+        this.orderArchiver = orderArchiver;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.rangeSize = rangeSize;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.rebuildExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "sales-rebuild-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onSalesChanged(SalesChangedEvent event) {
+        if (rebuilding) {
+            pending.add(event);
+        } else {
+            rollup.apply(event);
+        }
+    }
+
+    public SalesRollupDTO total() {
+        return rollup.total.toDto(Dimension.TOTAL, null);
+    }
+
+    public SalesRollupDTO byDay(LocalDate day) {
+        return rollup.byDay.getOrDefault(day, Totals.ZERO).toDto(Dimension.DAY, day.toString());
+    }
+
+    public SalesRollupDTO byProduct(Long productId) {
+        return rollup.byProduct.getOrDefault(productId, Totals.ZERO).toDto(Dimension.PRODUCT, productId.toString());
+    }
+
+    public SalesRollupDTO byCategory(Long categoryId) {
+        return rollup.byCategory.getOrDefault(categoryId, Totals.ZERO).toDto(Dimension.CATEGORY, categoryId.toString());
+    }
+
+    /** Recalcula os agregados a partir dos pedidos; uma reconstrução por vez (outra em andamento = 409). */
+    public SalesRollupRebuildDTO rebuild() {
+        if (!rebuildLock.tryLock()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Reconstrução dos agregados de vendas já em andamento.");
+        }
+        try {
+            long start = System.currentTimeMillis();
+            synchronized (this) {
+                rebuilding = true;
+            }
+            Rollup fresh = new Rollup();
+            int ranges = 0;
+            boolean completed = false;
+            long orders;
+            try {
+                Long minId = min(orderRepository.findMinId(), orderArchiveRepository.findMinId());
+                Long maxId = max(orderRepository.findMaxId(), orderArchiveRepository.findMaxId());
+                List<Future<Rollup>> parts = new ArrayList<>();
+                if (minId != null) {
+                    for (long from = minId; from <= maxId; from += rangeSize) {
+                        long rangeStart = from;
+                        long rangeEnd = Math.min(maxId, from + rangeSize - 1);
+                        parts.add(rebuildExecutor.submit(() -> scan(rangeStart, rangeEnd)));
+                    }
+                }
+                ranges = parts.size();
+                for (Future<Rollup> part : parts) {
+                    fresh.merge(part.get());
+                }
+                completed = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Reconstrução dos agregados de vendas interrompida", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Falha na reconstrução dos agregados de vendas", e.getCause());
+            } finally {
+                synchronized (this) {
+                    // Em caso de falha, os eventos guardados vão para os agregados anteriores
+                    Rollup target = completed ? fresh : rollup;
+                    pending.forEach(target::apply);
+                    pending.clear();
+                    rollup = target;
+                    rebuilding = false;
+                    orders = target.counted.cardinality();
+                }
+            }
+            long duration = System.currentTimeMillis() - start;
+            log.info("Agregados de vendas reconstruídos: {} pedidos em {} faixas ({} ms)", orders, ranges, duration);
+            return new SalesRollupRebuildDTO(orders, ranges, duration);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private Rollup scan(long fromId, long toId) {
+        return readOnlyTransaction.execute(status -> {
+            Rollup part = new Rollup();
+            part.apply(new SalesChangedEvent(SalesChangedEvent.Change.ADDED,
+                    orderRepository.findSaleLinesByOrderIdBetween(fromId, toId)));
+            List<OrderArchive> archived = orderArchiveRepository.findByIdBetweenAndStatusNot(fromId, toId, OrderStatus.CANCELED);
+            if (!archived.isEmpty()) {
+                part.apply(new SalesChangedEvent(SalesChangedEvent.Change.ADDED, archivedLines(archived)));
+            }
+            return part;
+        });
+    }
+
+    // Itens dos pedidos arquivados (descompactados), com a categoria atual dos produtos
+    private List<OrderSaleLineView> archivedLines(List<OrderArchive> archived) {
+        List<Order> orders = archived.stream().map(orderArchiver::restore).toList();
+        List<Long> productIds = orders.stream().flatMap(order -> order.getItems().stream()).map(OrderItem::getProductId).distinct().toList();
+        Map<Long, Long> categoryIds = new HashMap<>(); // Valores nulos: produtos sem categoria
+        productRepository.findCategoryPricesByIdIn(productIds).forEach(row -> categoryIds.put(row.getProductId(), row.getCategoryId()));
+        List<OrderSaleLineView> lines = new ArrayList<>();
+        for (Order order : orders) {
+            for (OrderItem item : order.getItems()) {
+                lines.add(new OrderSaleLineView(order.getId(), order.getOrderDate(), item.getProductId(),
+                        categoryIds.get(item.getProductId()), item.getQuantity(), item.getSubtotal()));
+            }
+        }
+        return lines;
+    }
+
+    // Menor/maior ID entre orders e order_archive; nulo se as duas tabelas estão vazias
+    private static Long min(Long a, Long b) {
+        if (a == null || b == null) {
+            return a != null ? a : b;
+        }
+        return Math.min(a, b);
+    }
+
+    private static Long max(Long a, Long b) {
+        if (a == null || b == null) {
+            return a != null ? a : b;
+        }
+        return Math.max(a, b);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    // Contadores imutáveis de uma chave; trocados inteiros a cada alteração
+    private record Totals(long orders, long units, long revenueCents) {
+        static final Totals ZERO = new Totals(0, 0, 0);
+
+        Totals plus(Totals other) {
+            return new Totals(orders + other.orders, units + other.units, revenueCents + other.revenueCents);
+        }
+
+        SalesRollupDTO toDto(Dimension dimension, String key) {
+            return new SalesRollupDTO(dimension, key, orders, units, BigDecimal.valueOf(revenueCents, 2));
+        }
+    }
+
+    private static final class Rollup {
+        final Map<LocalDate, Totals> byDay = new ConcurrentHashMap<>();
+        final Map<Long, Totals> byProduct = new ConcurrentHashMap<>();
+        final Map<Long, Totals> byCategory = new ConcurrentHashMap<>();
+        final BitSet counted = new BitSet(); // IDs dos pedidos somados
+        volatile Totals total = Totals.ZERO;
+
+        void apply(SalesChangedEvent event) {
+            boolean add = event.change() == SalesChangedEvent.Change.ADDED;
+            Map<Long, List<OrderSaleLineView>> byOrder = event.lines().stream()
+                    .collect(Collectors.groupingBy(OrderSaleLineView::orderId, LinkedHashMap::new, Collectors.toList()));
+            byOrder.forEach((orderId, lines) -> {
+                int bit = Math.toIntExact(orderId);
+                if (counted.get(bit) == add) {
+                    return; // Já somado (ou já retirado)
+                }
+                counted.set(bit, add);
+                addOrder(lines, add ? 1 : -1);
+            });
+        }
+
+        // Um pedido conta uma vez em cada chave, mesmo com vários itens do mesmo produto ou categoria
+        private void addOrder(List<OrderSaleLineView> lines, int sign) {
+            long units = 0;
+            long revenue = 0;
+            Map<Long, long[]> products = new HashMap<>();
+            Map<Long, long[]> categories = new HashMap<>();
+            for (OrderSaleLineView line : lines) {
+                long lineCents = cents(line.subtotal());
+                units += line.quantity();
+                revenue += lineCents;
+                accumulate(products, line.productId(), line.quantity(), lineCents);
+                if (line.categoryId() != null) {
+                    accumulate(categories, line.categoryId(), line.quantity(), lineCents);
+                }
+            }
+            Totals order = new Totals(sign, sign * units, sign * revenue);
+            add(byDay, lines.get(0).orderDate().toLocalDate(), order);
+            products.forEach((id, sums) -> add(byProduct, id, new Totals(sign, sign * sums[0], sign * sums[1])));
+            categories.forEach((id, sums) -> add(byCategory, id, new Totals(sign, sign * sums[0], sign * sums[1])));
+            total = total.plus(order);
+        }
+
+        void merge(Rollup other) {
+            other.byDay.forEach((day, totals) -> add(byDay, day, totals));
+            other.byProduct.forEach((id, totals) -> add(byProduct, id, totals));
+            other.byCategory.forEach((id, totals) -> add(byCategory, id, totals));
+            counted.or(other.counted);
+            total = total.plus(other.total);
+        }
+
+        private static void accumulate(Map<Long, long[]> sums, Long key, long units, long revenueCents) {
+            long[] current = sums.computeIfAbsent(key, k -> new long[2]);
+            current[0] += units;
+            current[1] += revenueCents;
+        }
+
+        // Chaves sem pedidos são removidas, para que o mapa não cresça com dias e produtos zerados
+        private static <K> void add(Map<K, Totals> map, K key, Totals delta) {
+            map.compute(key, (k, current) -> {
+                Totals updated = current == null ? delta : current.plus(delta);
+                return updated.orders() == 0 ? null : updated;
+            });
+        }
+    }
+}
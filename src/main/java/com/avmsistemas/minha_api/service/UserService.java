@@ -4,6 +4,7 @@ import com.avmsistemas.minha_api.model.User;
 import com.avmsistemas.minha_api.model.Phone; // Importe
 import com.avmsistemas.minha_api.model.Email; // Importe
 import com.avmsistemas.minha_api.model.Address; // Importe
+import com.avmsistemas.minha_api.repository.UserListView;
 import com.avmsistemas.minha_api.repository.UserRepository;
 
 
@@ -43,8 +44,8 @@ public class UserService {
     }
 
     @Transactional(readOnly = true)
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    public List<UserListView> getAllUsers() {
+        return userRepository.findAllListViews(); // Projeção: sem senha nem coleções de contatos
     }
 
     @Transactional
@@ -0,0 +1,789 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.dto.CartOperationDTO;
+import com.avmsistemas.minha_api.model.Cart;
+import com.avmsistemas.minha_api.model.CartItem;
+import com.avmsistemas.minha_api.model.CartStatus;
+import com.avmsistemas.minha_api.model.Product;
+import com.avmsistemas.minha_api.model.User;
+import com.avmsistemas.minha_api.repository.CartRepository;
+import com.avmsistemas.minha_api.repository.ProductRepository;
+import com.avmsistemas.minha_api.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Armazenamento de carrinhos em memória com gravação posterior no banco (write-behind), ativado com
+ * {@code app.cart.store=memory}.
+ *
+ * Os carrinhos ativos ficam em shards, cada um com seu próprio monitor, e as alterações não tocam o banco:
+ * cada uma entra no {@link CartAppendLog} e é aplicada em memória com o monitor do shard; depois, já sem o monitor,
+ * a requisição espera o log forçar o registro em disco (um force por lote, para todos os shards) e só então responde.
+ * Uma leitura também espera o último registro do carrinho, então nenhum cliente vê uma alteração que uma queda
+ * poderia desfazer. Se a gravação do log falhar, a requisição recebe o erro, e a alteração já aplicada em memória
+ * ainda vai ao banco no flush seguinte. Enquanto o log está em falha, as alterações são recusadas; o flush seguinte
+ * grava no banco todos os carrinhos pendentes e, com tudo gravado, reabre o log em um segmento novo e apaga os antigos.
+ * Um flush periódico grava os carrinhos alterados nas tabelas {@code carts}/{@code cart_item} em lotes e, depois do
+ * commit, apaga os segmentos do log que ele cobre. Na inicialização, os segmentos que sobraram (queda antes do flush)
+ * são reaplicados sobre o estado do banco.
+ *
+ * A versão entregue nas respostas só cresce: o flush grava no banco a maior versão já entregue (um carrinho só sai da
+ * memória depois de gravado), e a reaplicação do log conta cada registro como uma alteração.
+ *
+ * O registro do carrinho no banco continua sendo criado na hora, para que o ID do carrinho exista desde o início
+ * (o checkout é feito pelo ID). Itens de carrinho em memória ainda não gravados aparecem sem ID.
+ */
+@Component
+@ConditionalOnProperty(name = "app.cart.store", havingValue = "memory")
+public class WriteBehindCartStore {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindCartStore.class);
+
+    private final CartRepository cartRepository;
+    private final UserRepository userRepository;
+    private final ProductRepository productRepository;
+    private final ProductService productService;
+    private final TransactionTemplate newTransaction;
+    private final CartAppendLog appendLog;
+    private final Shard[] shards;
+    private final int flushBatchSize;
+    private final long idleEvictionMillis;
+    // Serializa os flushes (periódico, por usuário e no desligamento): dois flushes do mesmo carrinho em paralelo
+    // poderiam inserir o mesmo item duas vezes
+    private final Object flushLock = new Object();
+
+    @Autowired
+    public WriteBehindCartStore(CartRepository cartRepository, UserRepository userRepository,
+                                ProductRepository productRepository, ProductService productService,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${app.cart.store.log-dir:data/cart-log}") String logDir,
+                                @Value("${app.cart.store.shards:16}") int shardCount,
+                                @Value("${app.cart.store.flush-batch-size:500}") int flushBatchSize,
+                                @Value("${app.cart.store.idle-eviction-minutes:30}") long idleEvictionMinutes) {
+        this(cartRepository, userRepository, productRepository, productService, transactionManager,
+                new CartAppendLog(Path.of(logDir)), shardCount, flushBatchSize, idleEvictionMinutes);
+    }
+
+    WriteBehindCartStore(CartRepository cartRepository, UserRepository userRepository,
+                         ProductRepository productRepository, ProductService productService,
+                         PlatformTransactionManager transactionManager, CartAppendLog appendLog,
+                         int shardCount, int flushBatchSize, long idleEvictionMinutes) {
+        this.cartRepository = cartRepository;
+        this.userRepository = userRepository;
+        this.productRepository = productRepository;
+        this.productService = productService;
+        // Transação própria: o flush feito no checkout não pode entrar na transação do pedido
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.appendLog = appendLog;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard();
+        }
+        this.flushBatchSize = flushBatchSize;
+        this.idleEvictionMillis = idleEvictionMinutes * 60_000;
+    }
+
+    // --- Operações do carrinho (mesmas regras do CartService) ---
+
+    public Cart getOrCreateCart(Long userId) {
+        return mutate(userId, true, (shard, state) -> toCart(state));
+    }
+
+    public Optional<Cart> findCart(Long userId) {
+        try {
+            return Optional.of(mutate(userId, false, (shard, state) -> toCart(state)));
+        } catch (ResponseStatusException e) {
+            return Optional.empty();
+        }
+    }
+
+    public Cart addItem(Long userId, Long productId, int quantity) {
+        Product product = productService.getProductById(productId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Produto não encontrado."));
+        return mutate(userId, true, (shard, state) -> {
+            Line existing = state.lines.get(productId);
+            if (existing != null) {
+                setLine(shard, state, productId, existing.quantity() + quantity, existing.price(), product);
+            } else {
+                setLine(shard, state, productId, quantity, product.getPrice(), product);
+            }
+            return toCart(state);
+        });
+    }
+
+    public Cart updateItemQuantity(Long userId, Long productId, int newQuantity) {
+        Optional<Product> product = productService.getProductById(productId); // Lido fora do monitor do shard
+        return mutate(userId, false, (shard, state) -> {
+            Line existing = state.lines.get(productId);
+            if (existing == null) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Item não encontrado no carrinho.");
+            }
+            if (newQuantity == 0) {
+                removeLine(shard, state, productId);
+            } else {
+                // Atualiza também o preço, caso o produto tenha mudado de preço
+                Product current = product.orElse(existing.product());
+                setLine(shard, state, productId, newQuantity, current.getPrice(), current);
+            }
+            return toCart(state);
+        });
+    }
+
+    /**
+     * Aplica um lote de operações já validado (ver {@link CartService#applyOperations}). O resultado é calculado
+     * sobre uma cópia das linhas e gravado no log com uma única escrita forçada; só então é aplicado ao carrinho.
+     */
+    public Cart applyOperations(Long userId, List<CartOperationDTO> operations) {
+        Map<Long, Product> products = new HashMap<>(); // Do cache de produtos, fora do monitor do shard
+        for (CartOperationDTO operation : operations) {
+            if (operation.getOp() != CartOperationDTO.Type.REMOVE && !products.containsKey(operation.getProductId())) {
+                products.put(operation.getProductId(), productService.getProductById(operation.getProductId())
+                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                                "Produto não encontrado: " + operation.getProductId())));
+            }
+        }
+        return mutate(userId, true, (shard, state) -> {
+            Map<Long, Line> after = new LinkedHashMap<>(state.lines);
+            for (CartOperationDTO operation : operations) {
+                Long productId = operation.getProductId();
+                Product product = products.get(productId);
+                Line existing = after.get(productId);
+                switch (operation.getOp()) {
+                    case ADD -> after.put(productId, existing != null
+                            ? new Line(productId, existing.quantity() + operation.getQuantity(), existing.price(), product)
+                            : new Line(productId, operation.getQuantity(), product.getPrice(), product));
+                    case SET -> {
+                        if (operation.getQuantity() == 0) {
+                            after.remove(productId);
+                        } else {
+                            after.put(productId, new Line(productId, operation.getQuantity(), product.getPrice(), product));
+                        }
+                    }
+                    case REMOVE -> after.remove(productId);
+                }
+            }
+
+            List<String> records = new ArrayList<>();
+            for (Long productId : state.lines.keySet()) {
+                if (!after.containsKey(productId)) {
+                    records.add("R " + userId + " " + productId);
+                }
+            }
+            for (Line line : after.values()) {
+                Line before = state.lines.get(line.productId());
+                if (before == null || !before.quantity().equals(line.quantity()) || before.price().compareTo(line.price()) != 0) {
+                    records.add("S " + userId + " " + line.productId() + " " + line.quantity() + " " + line.price().toPlainString());
+                }
+            }
+            if (!records.isEmpty()) {
+                checkNotCheckingOut(state);
+                state.logSequence = appendLog.append(String.join("\n", records));
+                for (Long productId : new ArrayList<>(state.lines.keySet())) {
+                    if (!after.containsKey(productId)) {
+                        state.removeLine(productId);
+                    }
+                }
+                for (Line line : after.values()) {
+                    state.setLine(line.productId(), line.quantity(), line.price(), line.product());
+                }
+                markDirty(shard, state);
+            }
+            return toCart(state);
+        });
+    }
+
+    public void removeItem(Long userId, Long productId) {
+        mutate(userId, false, (shard, state) -> {
+            if (!state.lines.containsKey(productId)) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Item não encontrado no carrinho.");
+            }
+            removeLine(shard, state, productId);
+            return null;
+        });
+    }
+
+    public void clear(Long userId) {
+        mutate(userId, false, (shard, state) -> {
+            checkNotCheckingOut(state);
+            state.logSequence = appendLog.append("C " + userId);
+            state.clear();
+            markDirty(shard, state);
+            return null;
+        });
+    }
+
+    /**
+     * Chamado antes do commit do checkout: confirma que o carrinho em memória ainda está na versão gravada por
+     * {@link #flushUser} e passa a recusar alterações nele até {@link #finishCheckout}. Uma alteração confirmada ao
+     * cliente depois do flush não está no pedido: o checkout falha por conflito em vez de descartá-la com o carrinho.
+     */
+    public void holdForCheckout(Long userId, long version) {
+        Shard shard = shard(userId);
+        synchronized (shard) {
+            CartState state = shard.carts.get(userId);
+            if (state == null || state.version != version || state.checkingOut) {
+                throw new OptimisticLockingFailureException("O carrinho foi alterado durante a finalização do pedido.");
+            }
+            state.checkingOut = true;
+        }
+    }
+
+    /**
+     * Depois do commit do checkout, descarta o carrinho em memória (o checkout esvaziou o carrinho no banco); depois
+     * de um rollback, volta a aceitar alterações. O registro de limpeza vai ao log para que uma reaplicação não traga
+     * de volta itens de segmentos antigos.
+     */
+    public void finishCheckout(Long userId, boolean committed) {
+        Shard shard = shard(userId);
+        long logged;
+        synchronized (shard) {
+            CartState state = shard.carts.get(userId);
+            if (state == null || !state.checkingOut) {
+                return;
+            }
+            if (!committed) {
+                state.checkingOut = false;
+                return;
+            }
+            // Sai da memória mesmo que o log falhe: o banco já tem o carrinho vazio
+            shard.carts.remove(userId);
+            shard.dirty.remove(userId);
+            logged = appendLog.append("C " + userId);
+        }
+        appendLog.awaitDurable(logged);
+    }
+
+    /**
+     * Aplica o novo preço do produto às linhas dos carrinhos em memória (chamado pelo {@link CartRepricer}).
+     * Percorre os carrinhos ativos, que a remoção por inatividade mantém limitados; um registro por shard vai ao log.
+     */
+    public void repriceProduct(Long productId, BigDecimal price) {
+        Product product = productService.getProductById(productId).orElse(null);
+        long logged = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                List<CartState> affected = new ArrayList<>();
+                List<String> records = new ArrayList<>();
+                for (CartState state : shard.carts.values()) {
+                    Line line = state.lines.get(productId);
+                    if (line != null && line.price().compareTo(price) != 0) {
+                        affected.add(state);
+                        records.add("S " + state.userId + " " + productId + " " + line.quantity() + " " + price.toPlainString());
+                    }
+                }
+                if (records.isEmpty()) {
+                    continue;
+                }
+                logged = appendLog.append(String.join("\n", records));
+                for (CartState state : affected) {
+                    Line line = state.lines.get(productId);
+                    state.setLine(productId, line.quantity(), price, product != null ? product : line.product());
+                    state.logSequence = logged;
+                    markDirty(shard, state);
+                }
+            }
+        }
+        appendLog.awaitDurable(logged); // Uma espera para todos os shards
+    }
+
+    // --- Gravação no banco ---
+
+    /**
+     * Grava agora o carrinho do usuário, se ele tiver alterações pendentes (antes do checkout). O carrinho fica em
+     * memória (carregado do banco, se preciso), e a versão devolvida identifica o conteúdo que o checkout lê do banco.
+     *
+     * @return versão em memória do carrinho gravado, para {@link #holdForCheckout}; -1 se o usuário não tem carrinho
+     */
+    public long flushUser(Long userId) {
+        synchronized (flushLock) {
+            try {
+                state(userId, false);
+            } catch (ResponseStatusException e) {
+                return -1;
+            }
+            Shard shard = shard(userId);
+            Snapshot snapshot;
+            synchronized (shard) {
+                CartState state = shard.carts.get(userId);
+                if (state == null) {
+                    return -1; // Descartado por outro checkout nesse meio-tempo
+                }
+                state.lastAccess = System.currentTimeMillis(); // Não é removido por inatividade durante o checkout
+                if (!shard.dirty.remove(userId)) {
+                    return state.version;
+                }
+                snapshot = snapshot(state);
+            }
+            try {
+                persistSnapshots(List.of(snapshot));
+            } catch (RuntimeException e) {
+                markDirty(List.of(userId));
+                throw e;
+            }
+            return snapshot.version();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.cart.store.flush-interval-ms:1000}")
+    public void flush() {
+        synchronized (flushLock) {
+            if (!hasDirty() && appendLog.isClean()) {
+                return;
+            }
+            // Tudo o que está nos segmentos anteriores a 'active' já foi aplicado em memória e marcado como pendente.
+            // Com o log em falha não há rotação: os carrinhos vão ao banco mesmo assim, e só então o log é reaberto
+            long active = appendLog.isFailed() ? 0 : rotateLog();
+            boolean logFailed = active == 0;
+            List<Long> dirty = drainDirty();
+            long start = System.currentTimeMillis();
+            for (int from = 0; from < dirty.size(); from += flushBatchSize) {
+                List<Long> chunk = dirty.subList(from, Math.min(from + flushBatchSize, dirty.size()));
+                try {
+                    persist(chunk);
+                } catch (RuntimeException e) {
+                    // Os segmentos do log ficam até um flush completo dar certo
+                    log.error("Falha ao gravar {} carrinhos no banco; nova tentativa no próximo flush", dirty.size() - from, e);
+                    markDirty(dirty.subList(from, dirty.size()));
+                    return;
+                }
+            }
+            if (logFailed) {
+                // Nenhuma alteração entra em memória com o log em falha: o banco já tem tudo o que os segmentos têm
+                active = appendLog.reopen();
+            }
+            appendLog.deleteBefore(active);
+            if (!dirty.isEmpty()) {
+                log.debug("Flush de carrinhos: {} gravados em {} ms", dirty.size(), System.currentTimeMillis() - start);
+            }
+            evictIdle();
+        }
+    }
+
+    @PostConstruct
+    void recover() {
+        long[] replayed = {0};
+        appendLog.replay(record -> {
+            replay(record);
+            replayed[0]++;
+        });
+        if (replayed[0] > 0) {
+            log.info("Log de carrinhos: {} alterações reaplicadas após reinício", replayed[0]);
+        }
+        flush();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        try {
+            flush();
+        } finally {
+            appendLog.close();
+        }
+    }
+
+    // Novo segmento ativo, ou 0 se o log falhou (antes ou durante a rotação)
+    private long rotateLog() {
+        try {
+            return appendLog.rotate();
+        } catch (UncheckedIOException e) {
+            log.error("Falha ao rotacionar o log de carrinhos; os carrinhos pendentes são gravados mesmo assim", e);
+            return 0;
+        }
+    }
+
+    // Grava o estado atual dos carrinhos em uma transação: uma consulta com os itens, e o contexto de persistência
+    // calcula as diferenças (inserções, atualizações e exclusões de itens)
+    private void persist(Collection<Long> userIds) {
+        List<Snapshot> snapshots = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            Shard shard = shard(userId);
+            synchronized (shard) {
+                CartState state = shard.carts.get(userId);
+                if (state != null) {
+                    snapshots.add(snapshot(state));
+                }
+            }
+        }
+        persistSnapshots(snapshots);
+    }
+
+    private void persistSnapshots(List<Snapshot> snapshots) {
+        if (snapshots.isEmpty()) {
+            return;
+        }
+        newTransaction.executeWithoutResult(status -> {
+            Map<Long, Cart> carts = cartRepository.findAllWithItemsByIdIn(
+                            snapshots.stream().map(Snapshot::cartId).toList())
+                    .stream().collect(Collectors.toMap(Cart::getId, Function.identity()));
+            Set<Long> productIds = snapshots.stream().flatMap(s -> s.lines().keySet().stream()).collect(Collectors.toSet());
+            Set<Long> existingProducts = new HashSet<>(productRepository.findExistingIds(productIds));
+            for (Snapshot snapshot : snapshots) {
+                Cart cart = carts.get(snapshot.cartId());
+                if (cart != null) { // Carrinho excluído no banco (ex.: com o usuário): nada a gravar
+                    reconcile(cart, snapshot, existingProducts);
+                }
+            }
+            // Primeiro as alterações (que incrementam a versão uma vez por carrinho), depois a versão entregue
+            cartRepository.flush();
+            for (Snapshot snapshot : snapshots) {
+                if (carts.containsKey(snapshot.cartId())) {
+                    cartRepository.raiseVersion(snapshot.cartId(), snapshot.version());
+                }
+            }
+        });
+    }
+
+    // Chamado com o monitor do shard
+    private static Snapshot snapshot(CartState state) {
+        return new Snapshot(state.cartId, new LinkedHashMap<>(state.lines), state.total, state.version);
+    }
+
+    private void reconcile(Cart cart, Snapshot snapshot, Set<Long> existingProducts) {
+        for (CartItem item : new ArrayList<>(cart.getItems())) {
+            Line line = snapshot.lines().get(item.getProduct().getId());
+            if (line == null) {
+                cart.removeCartItem(item); // orphanRemoval exclui o item no commit
+            } else if (!line.quantity().equals(item.getQuantity()) || line.price().compareTo(item.getPrice()) != 0) {
+                cart.updateCartItem(item, line.quantity(), line.price());
+            }
+        }
+        for (Line line : snapshot.lines().values()) {
+            if (cart.findItem(line.productId()) == null && existingProducts.contains(line.productId())) {
+                CartItem item = new CartItem();
+                item.setProduct(productRepository.getReferenceById(line.productId())); // Sem SELECT do produto
+                item.setQuantity(line.quantity());
+                item.setPrice(line.price());
+                cart.addCartItem(item);
+            }
+        }
+        cart.setTotalAmount(snapshot.total());
+        if (cart.getStatus() == CartStatus.ABANDONED) {
+            cart.setStatus(CartStatus.PENDING); // Alterado depois de marcado pela varredura de abandonados
+        }
+    }
+
+    // --- Estado em memória ---
+
+    private interface Mutation<T> {
+        T apply(Shard shard, CartState state);
+    }
+
+    // Executa a ação no monitor do shard, sobre o estado que está de fato no mapa (ele pode ter sido
+    // descartado entre a carga e a obtenção do monitor; nesse caso, carrega de novo). A espera pelo disco fica fora
+    // do monitor: enquanto o log força o lote, as outras requisições do shard continuam
+    private <T> T mutate(Long userId, boolean create, Mutation<T> action) {
+        Shard shard = shard(userId);
+        while (true) {
+            CartState state = state(userId, create);
+            T result;
+            long logged;
+            synchronized (shard) {
+                if (shard.carts.get(userId) != state) {
+                    continue;
+                }
+                state.lastAccess = System.currentTimeMillis();
+                result = action.apply(shard, state);
+                logged = state.logSequence;
+            }
+            appendLog.awaitDurable(logged);
+            return result;
+        }
+    }
+
+    private CartState state(Long userId, boolean create) {
+        Shard shard = shard(userId);
+        synchronized (shard) {
+            CartState state = shard.carts.get(userId);
+            if (state != null) {
+                return state;
+            }
+        }
+        CartState loaded = load(userId, create); // Leitura do banco fora do monitor
+        if (loaded == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Carrinho não encontrado para este usuário.");
+        }
+        synchronized (shard) {
+            return shard.carts.computeIfAbsent(userId, id -> loaded);
+        }
+    }
+
+    private CartState load(Long userId, boolean create) {
+        try {
+            return newTransaction.execute(status -> loadInTransaction(userId, create));
+        } catch (DataIntegrityViolationException e) {
+            // Outra requisição criou o carrinho deste usuário ao mesmo tempo (user_id é único)
+            return newTransaction.execute(status -> loadInTransaction(userId, false));
+        }
+    }
+
+    private CartState loadInTransaction(Long userId, boolean create) {
+        Cart cart = cartRepository.findByUserId(userId).orElse(null);
+        if (cart == null) {
+            if (!create) {
+                return null;
+            }
+            User user = userRepository.findById(userId)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Usuário não encontrado."));
+            cart = cartRepository.saveAndFlush(new Cart(user));
+        }
+        CartState state = new CartState(userId, cart.getId(), userSummary(cart.getUser()), cart.getCreatedAt());
+        for (CartItem item : cart.getItems()) {
+            Long productId = item.getProduct().getId();
+            state.lines.put(productId, new Line(productId, item.getQuantity(), item.getPrice(), productSnapshot(productId)));
+        }
+        state.total = cart.getTotalAmount() != null ? cart.getTotalAmount() : BigDecimal.ZERO;
+        state.updatedAt = cart.getUpdatedAt();
+        state.version = cart.getVersion() != null ? cart.getVersion() : 0;
+        return state;
+    }
+
+    private void setLine(Shard shard, CartState state, Long productId, int quantity, BigDecimal price, Product product) {
+        checkNotCheckingOut(state);
+        state.logSequence = appendLog.append("S " + state.userId + " " + productId + " " + quantity + " " + price.toPlainString());
+        state.setLine(productId, quantity, price, product);
+        markDirty(shard, state);
+    }
+
+    private void removeLine(Shard shard, CartState state, Long productId) {
+        checkNotCheckingOut(state);
+        state.logSequence = appendLog.append("R " + state.userId + " " + productId);
+        state.removeLine(productId);
+        markDirty(shard, state);
+    }
+
+    // Entre a verificação de versão e o commit do checkout, uma alteração ficaria fora do pedido e seria descartada
+    // com o carrinho: falha como um conflito de versão (repetida pelo CartConflictRetrier quando idempotente)
+    private static void checkNotCheckingOut(CartState state) {
+        if (state.checkingOut) {
+            throw new OptimisticLockingFailureException("O carrinho está sendo finalizado em um pedido.");
+        }
+    }
+
+    private void markDirty(Shard shard, CartState state) {
+        state.updatedAt = LocalDateTime.now();
+        state.version++;
+        shard.dirty.add(state.userId);
+    }
+
+    private void markDirty(Collection<Long> userIds) {
+        for (Long userId : userIds) {
+            Shard shard = shard(userId);
+            synchronized (shard) {
+                if (shard.carts.containsKey(userId)) {
+                    shard.dirty.add(userId);
+                }
+            }
+        }
+    }
+
+    // Reaplica um registro do log sobre o estado carregado do banco (os registros são absolutos)
+    private void replay(String record) {
+        String[] parts = record.split(" ");
+        Long userId;
+        try {
+            userId = Long.valueOf(parts[1]);
+        } catch (RuntimeException e) {
+            // O CRC já descartou gravações interrompidas: aqui só chega um registro em formato desconhecido
+            log.warn("Registro inválido no log de carrinhos ignorado: {}", record);
+            return;
+        }
+        try {
+            mutate(userId, true, (shard, state) -> {
+                switch (parts[0]) {
+                    case "S" -> {
+                        Long productId = Long.valueOf(parts[2]);
+                        Line existing = state.lines.get(productId);
+                        Product product = existing != null ? existing.product() : productSnapshot(productId);
+                        state.setLine(productId, Integer.parseInt(parts[3]), new BigDecimal(parts[4]), product);
+                    }
+                    case "R" -> state.removeLine(Long.valueOf(parts[2]));
+                    case "C" -> state.clear();
+                    default -> log.warn("Registro desconhecido no log de carrinhos ignorado: {}", record);
+                }
+                // Cada alteração entregue antes da queda gerou ao menos uma linha no log: a versão não fica abaixo dela
+                state.version++;
+                shard.dirty.add(userId);
+                return null;
+            });
+        } catch (ResponseStatusException e) {
+            log.warn("Registro do log de carrinhos ignorado (usuário {} não existe mais)", userId);
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            log.warn("Registro inválido no log de carrinhos ignorado: {}", record);
+        }
+    }
+
+    private boolean hasDirty() {
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                if (!shard.dirty.isEmpty()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private List<Long> drainDirty() {
+        List<Long> dirty = new ArrayList<>();
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                dirty.addAll(shard.dirty);
+                shard.dirty.clear();
+            }
+        }
+        return dirty;
+    }
+
+    // Tira da memória os carrinhos já gravados e sem uso há mais de idle-eviction-minutes
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleEvictionMillis;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                Iterator<Map.Entry<Long, CartState>> it = shard.carts.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<Long, CartState> entry = it.next();
+                    if (entry.getValue().lastAccess < cutoff && !shard.dirty.contains(entry.getKey())) {
+                        it.remove();
+                    }
+                }
+            }
+        }
+    }
+
+    private Shard shard(Long userId) {
+        return shards[Math.floorMod(userId.hashCode(), shards.length)];
+    }
+
+    // Produto usado na resposta (do cache de produtos quando possível); se o produto não existe mais, só o ID
+    private Product productSnapshot(Long productId) {
+        return productService.getProductById(productId).orElseGet(() -> {
+            Product missing = new Product();
+            missing.setId(productId);
+            return missing;
+        });
+    }
+
+    // Cópia só com os dados básicos do usuário, para não manter a entidade (e suas coleções lazy) na memória
+    private static User userSummary(User user) {
+        User summary = new User();
+        summary.setId(user.getId());
+        summary.setPrimaryEmail(user.getPrimaryEmail());
+        summary.setUsername(user.getUsername());
+        summary.setFullName(user.getFullName());
+        summary.setCreatedAt(user.getCreatedAt());
+        summary.setUpdatedAt(user.getUpdatedAt());
+        return summary;
+    }
+
+    // Monta um carrinho desanexado para a resposta; chamado com o monitor do shard
+    private static Cart toCart(CartState state) {
+        Cart cart = new Cart(state.user);
+        cart.setId(state.cartId);
+        cart.setCreatedAt(state.createdAt);
+        cart.setUpdatedAt(state.updatedAt);
+        List<CartItem> items = new ArrayList<>(state.lines.size());
+        for (Line line : state.lines.values()) {
+            CartItem item = new CartItem();
+            item.setProduct(line.product());
+            item.setQuantity(line.quantity());
+            item.setPrice(line.price());
+            item.setCart(cart);
+            items.add(item);
+        }
+        cart.setItems(items);
+        cart.setTotalAmount(state.total);
+        cart.setVersion(state.version);
+        return cart;
+    }
+
+    private static final class Shard {
+        final Map<Long, CartState> carts = new HashMap<>();
+        final Set<Long> dirty = new HashSet<>();
+    }
+
+    private record Line(Long productId, Integer quantity, BigDecimal price, Product product) {
+        BigDecimal lineTotal() {
+            return price.multiply(BigDecimal.valueOf(quantity));
+        }
+    }
+
+    private record Snapshot(Long cartId, Map<Long, Line> lines, BigDecimal total, long version) {
+    }
+
+    // Carrinho de um usuário em memória; acessado apenas com o monitor do seu shard
+    private static final class CartState {
+        final Long userId;
+        final Long cartId;
+        final User user;
+        final LocalDateTime createdAt;
+        final Map<Long, Line> lines = new LinkedHashMap<>();
+        BigDecimal total = BigDecimal.ZERO;
+        LocalDateTime updatedAt;
+        // Conta as alterações em memória a partir da versão lida do banco; o flush grava esta versão no banco, então
+        // um carrinho descarregado e relido continua dela
+        long version;
+        long logSequence; // Último registro do carrinho no log; as respostas esperam que ele esteja no disco
+        boolean checkingOut; // Do holdForCheckout ao finishCheckout: alterações recusadas
+        long lastAccess = System.currentTimeMillis();
+
+        CartState(Long userId, Long cartId, User user, LocalDateTime createdAt) {
+            this.userId = userId;
+            this.cartId = cartId;
+            this.user = user;
+            this.createdAt = createdAt;
+        }
+
+        // O total é ajustado pela diferença da linha, como no Cart
+        void setLine(Long productId, int quantity, BigDecimal price, Product product) {
+            Line previous = lines.put(productId, new Line(productId, quantity, price, product));
+            total = total.add(price.multiply(BigDecimal.valueOf(quantity)));
+            if (previous != null) {
+                total = total.subtract(previous.lineTotal());
+            }
+        }
+
+        void removeLine(Long productId) {
+            Line previous = lines.remove(productId);
+            if (previous != null) {
+                total = total.subtract(previous.lineTotal());
+            }
+        }
+
+        void clear() {
+            lines.clear();
+            total = BigDecimal.ZERO;
+        }
+    }
+}
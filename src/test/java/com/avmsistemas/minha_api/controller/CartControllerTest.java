@@ -0,0 +1,178 @@
+package com.avmsistemas.minha_api.controller;
+
+import com.avmsistemas.minha_api.model.Product;
+import com.avmsistemas.minha_api.model.User;
+import com.avmsistemas.minha_api.repository.ProductRepository;
+import com.avmsistemas.minha_api.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class CartControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private User user;
+    private Product teclado;
+    private Product mouse;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("carrinho@example.com", "carrinho", "senha", "Carrinho"));
+        teclado = productRepository.save(new Product("Teclado", "Teclado mecânico", new BigDecimal("200.00"), null, null));
+        mouse = productRepository.save(new Product("Mouse", "Mouse sem fio", new BigDecimal("50.00"), null, null));
+    }
+
+    @Test
+    void shouldApplyBatchOfOperations() throws Exception {
+        String operations = """
+                [{"op":"ADD","productId":%d,"quantity":1},
+                 {"op":"ADD","productId":%d,"quantity":2},
+                 {"op":"ADD","productId":%d,"quantity":1},
+                 {"op":"SET","productId":%d,"quantity":4},
+                 {"op":"REMOVE","productId":%d}]
+                """.formatted(teclado.getId(), mouse.getId(), teclado.getId(), mouse.getId(), mouse.getId());
+
+        mockMvc.perform(patch("/api/users/{userId}/cart", user.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(operations))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].product.id", is(teclado.getId().intValue())))
+                .andExpect(jsonPath("$.items[0].quantity", is(2)))
+                .andExpect(jsonPath("$.totalAmount", is(400.00)));
+    }
+
+    @Test
+    void shouldSerializeUserWithCartsAndCartWithoutUserCarts() throws Exception {
+        mockMvc.perform(post("/api/users/{userId}/cart/items", user.getId())
+                        .param("productId", teclado.getId().toString())
+                        .param("quantity", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.user.id", is(user.getId().intValue())))
+                .andExpect(jsonPath("$.user.carts").doesNotExist());
+        entityManager.flush();
+        entityManager.clear(); // O usuário é relido com o carrinho criado acima
+
+        mockMvc.perform(get("/api/users/{id}", user.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.carts", hasSize(1)))
+                .andExpect(jsonPath("$.carts[0].items[0].quantity", is(2)))
+                .andExpect(jsonPath("$.carts[0].user").doesNotExist());
+    }
+
+    @Test
+    void shouldRejectWholeBatchWhenAnOperationIsInvalid() throws Exception {
+        String operations = """
+                [{"op":"ADD","productId":%d,"quantity":1},
+                 {"op":"ADD","productId":%d,"quantity":0}]
+                """.formatted(teclado.getId(), mouse.getId());
+
+        mockMvc.perform(patch("/api/users/{userId}/cart", user.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(operations))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/api/users/{userId}/cart", user.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(0)));
+    }
+
+    @Test
+    void shouldReplayItemPostWithSameIdempotencyKey() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/api/users/{userId}/cart/items", user.getId())
+                            .header("Idempotency-Key", "add-teclado-1")
+                            .param("productId", teclado.getId().toString())
+                            .param("quantity", "1"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.items[0].quantity", is(1)));
+        }
+
+        mockMvc.perform(get("/api/users/{userId}/cart", user.getId()))
+                .andExpect(jsonPath("$.items[0].quantity", is(1))); // A repetição não somou de novo
+
+        mockMvc.perform(post("/api/users/{userId}/cart/items", user.getId())
+                        .header("Idempotency-Key", "add-teclado-1")
+                        .param("productId", mouse.getId().toString())
+                        .param("quantity", "1"))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    void shouldReplayOriginalHeadersWithSameIdempotencyKey() throws Exception {
+        mockMvc.perform(post("/api/users/{userId}/cart/items", user.getId())
+                        .header("Idempotency-Key", "add-mouse-delta")
+                        .header("Prefer", "return=minimal")
+                        .param("productId", mouse.getId().toString())
+                        .param("quantity", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Preference-Applied", "return=minimal"))
+                .andExpect(header().doesNotExist("Idempotent-Replayed"));
+
+        mockMvc.perform(post("/api/users/{userId}/cart/items", user.getId())
+                        .header("Idempotency-Key", "add-mouse-delta")
+                        .header("Prefer", "return=minimal")
+                        .param("productId", mouse.getId().toString())
+                        .param("quantity", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(header().string("Preference-Applied", "return=minimal"))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.changes[0].quantity", is(1)));
+    }
+
+    @Test
+    void shouldReturnOnlyTheChangedLineInDeltaMode() throws Exception {
+        mockMvc.perform(post("/api/users/{userId}/cart/items", user.getId())
+                        .param("productId", mouse.getId().toString())
+                        .param("quantity", "1"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/users/{userId}/cart/items", user.getId())
+                        .param("productId", teclado.getId().toString())
+                        .param("quantity", "2")
+                        .param("view", "delta"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items").doesNotExist())
+                .andExpect(jsonPath("$.changes", hasSize(1)))
+                .andExpect(jsonPath("$.changes[0].quantity", is(2)))
+                .andExpect(jsonPath("$.changes[0].subtotal", is(400.0)))
+                .andExpect(jsonPath("$.totalAmount", is(450.0)))
+                .andExpect(jsonPath("$.itemCount", is(2)))
+                .andExpect(jsonPath("$.version").isNumber());
+
+        mockMvc.perform(put("/api/users/{userId}/cart/items/{productId}", user.getId(), teclado.getId())
+                        .param("newQuantity", "0")
+                        .header("Prefer", "return=minimal"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Preference-Applied", "return=minimal"))
+                .andExpect(jsonPath("$.changes[0].quantity", is(0)))
+                .andExpect(jsonPath("$.totalAmount", is(50.0)))
+                .andExpect(jsonPath("$.itemCount", is(1)));
+    }
+}
@@ -0,0 +1,146 @@
+package com.avmsistemas.minha_api.controller;
+
+import com.avmsistemas.minha_api.model.Cart;
+import com.avmsistemas.minha_api.model.Product;
+import com.avmsistemas.minha_api.model.User;
+import com.avmsistemas.minha_api.repository.CartRepository;
+import com.avmsistemas.minha_api.repository.ProductRepository;
+import com.avmsistemas.minha_api.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Sem @Transactional: cada requisição confirma de fato, para exercitar o incremento da versão e os conflitos no commit
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:cart-version-test") // Grava de fato: banco separado
+@AutoConfigureMockMvc
+class CartVersionControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @MockitoSpyBean
+    private CartRepository cartRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private User user;
+    private Product teclado;
+    private Product mouse;
+
+    @BeforeEach
+    void setUp() {
+        long suffix = System.nanoTime(); // O banco não é limpo entre os testes
+        user = userRepository.save(new User("versao" + suffix + "@example.com", "versao" + suffix, "senha", "Versão"));
+        teclado = productRepository.save(new Product("Teclado", "Teclado mecânico", new BigDecimal("200.00"), null, null));
+        mouse = productRepository.save(new Product("Mouse", "Mouse sem fio", new BigDecimal("50.00"), null, null));
+    }
+
+    @Test
+    void shouldIncreaseDeltaVersionOnEveryCommittedChange() throws Exception {
+        long added = deltaVersion(mockMvc.perform(post("/api/users/{userId}/cart/items", user.getId())
+                .param("productId", teclado.getId().toString())
+                .param("quantity", "1")
+                .param("view", "delta")));
+        long addedAgain = deltaVersion(mockMvc.perform(post("/api/users/{userId}/cart/items", user.getId())
+                .param("productId", mouse.getId().toString())
+                .param("quantity", "2")
+                .param("view", "delta")));
+        long updated = deltaVersion(mockMvc.perform(put("/api/users/{userId}/cart/items/{productId}", user.getId(), mouse.getId())
+                .param("newQuantity", "3")
+                .header("Prefer", "return=minimal")));
+
+        assertThat(addedAgain).isGreaterThan(added);
+        assertThat(updated).isGreaterThan(addedAgain);
+        // A versão entregue no delta é a que ficou gravada
+        assertThat(jdbcTemplate.queryForObject("SELECT version FROM carts WHERE user_id = ?", Long.class, user.getId()))
+                .isEqualTo(updated);
+    }
+
+    @Test
+    void shouldRetryIdempotentChangeAfterConcurrentCommit() throws Exception {
+        mockMvc.perform(post("/api/users/{userId}/cart/items", user.getId())
+                        .param("productId", teclado.getId().toString())
+                        .param("quantity", "1"))
+                .andExpect(status().isOk());
+        long before = jdbcTemplate.queryForObject("SELECT version FROM carts WHERE user_id = ?", Long.class, user.getId());
+
+        // Na primeira leitura para alteração, outra transação altera o mesmo carrinho e confirma antes
+        TransactionTemplate concurrent = new TransactionTemplate(transactionManager);
+        concurrent.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        AtomicBoolean interfered = new AtomicBoolean();
+        doAnswer(invocation -> {
+            // O repositório espionado é uma interface: a consulta original é refeita aqui, com o mesmo lock
+            Optional<Cart> cart = entityManager.createQuery("SELECT c FROM Cart c WHERE c.user.id = :userId", Cart.class)
+                    .setParameter("userId", user.getId())
+                    .setLockMode(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+                    .getResultStream().findFirst();
+            if (interfered.compareAndSet(false, true)) {
+                concurrent.executeWithoutResult(status -> jdbcTemplate.update(
+                        "UPDATE carts SET version = version + 1 WHERE user_id = ?", user.getId()));
+            }
+            return cart;
+        }).when(cartRepository).findByUserIdForUpdate(eq(user.getId()));
+
+        String statsBefore = mockMvc.perform(get("/api/carts/contention/stats")).andReturn().getResponse().getContentAsString();
+        long retriesBefore = objectMapper.readTree(statsBefore).path("operations").path("set").path("retries").asLong();
+        clearInvocations(cartRepository);
+
+        long updated = deltaVersion(mockMvc.perform(put("/api/users/{userId}/cart/items/{productId}", user.getId(), teclado.getId())
+                .param("newQuantity", "4")
+                .header("Prefer", "return=minimal")));
+
+        assertThat(interfered).isTrue();
+        verify(cartRepository, times(2)).findByUserIdForUpdate(user.getId()); // Conflito e nova tentativa
+        assertThat(updated).isGreaterThan(before + 1); // Acima também da versão gravada pela outra transação
+        mockMvc.perform(get("/api/carts/contention/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.operations.set.retries").value((int) retriesBefore + 1));
+        mockMvc.perform(get("/api/users/{userId}/cart", user.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].quantity").value(4));
+    }
+
+    private long deltaVersion(ResultActions result) throws Exception {
+        String body = result.andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").isNumber())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode delta = objectMapper.readTree(body);
+        return delta.get("version").asLong();
+    }
+}
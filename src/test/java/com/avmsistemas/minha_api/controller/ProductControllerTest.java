@@ -6,6 +6,7 @@ import com.avmsistemas.minha_api.model.PriceHistory; // Importar PriceHistory
 import com.avmsistemas.minha_api.repository.ProductRepository;
 import com.avmsistemas.minha_api.repository.CategoryRepository;
 import com.avmsistemas.minha_api.repository.PriceHistoryRepository; // Importar PriceHistoryRepository
+import com.avmsistemas.minha_api.service.ProductChangedEvent;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,6 +14,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.Optional;
@@ -23,14 +26,19 @@ import static org.hamcrest.Matchers.is;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 import org.springframework.transaction.annotation.Transactional;
 
 @SpringBootTest
 @AutoConfigureMockMvc
 @Transactional
+@RecordApplicationEvents
 class ProductControllerTest {
 
+    @Autowired
+    private ApplicationEvents events;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -67,6 +75,7 @@ class ProductControllerTest {
         productRepository.save(p2);
 
         mockMvc.perform(get("/api/products")
+                        .param("includePriceHistory", "true") // A listagem só traz o histórico quando solicitado
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", hasSize(2)))
@@ -76,6 +85,140 @@ class ProductControllerTest {
                 .andExpect(jsonPath("$[1].priceHistory", hasSize(1)));
     }
 
+    @Test
+    void shouldPageProductsByCursor() throws Exception {
+        Category electronics = categoryRepository.save(new Category("Eletrônicos"));
+
+        Product p1 = productRepository.save(new Product("Cabo", "Cabo USB", new BigDecimal("15.00"), "", electronics));
+        p1.addPriceHistory(new PriceHistory(new BigDecimal("15.00"), p1));
+        productRepository.save(p1);
+        Product p2 = productRepository.save(new Product("Adaptador", "Adaptador HDMI", new BigDecimal("40.00"), "", electronics));
+        Product p3 = productRepository.save(new Product("Bateria", "Bateria externa", new BigDecimal("90.00"), "", electronics));
+
+        String response = mockMvc.perform(get("/api/products").param("limit", "2").param("sort", "name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(2)))
+                .andExpect(jsonPath("$.items[0].name", is("Adaptador")))
+                .andExpect(jsonPath("$.items[1].name", is("Bateria")))
+                .andExpect(jsonPath("$.items[0].priceHistory").doesNotExist())
+                .andExpect(jsonPath("$.hasMore", is(true)))
+                .andReturn().getResponse().getContentAsString();
+        String cursor = objectMapper.readTree(response).get("nextCursor").asText();
+
+        mockMvc.perform(get("/api/products").param("limit", "2").param("sort", "name")
+                        .param("after", cursor).param("includePriceHistory", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].id", is(p1.getId().intValue())))
+                .andExpect(jsonPath("$.items[0].priceHistory", hasSize(1)))
+                .andExpect(jsonPath("$.hasMore", is(false)));
+
+        mockMvc.perform(get("/api/products").param("limit", "2").param("sort", "price").param("after", cursor))
+                .andExpect(status().isBadRequest()); // Cursor de outra ordenação
+    }
+
+    @Test
+    void shouldKeepCursorValidAfterProductChangesAndSortNullsLast() throws Exception {
+        Product a = productRepository.save(new Product("Adaptador", "", new BigDecimal("40.00"), "", null));
+        Product b = productRepository.save(new Product("Bateria", "", new BigDecimal("90.00"), "", null));
+        Product c = productRepository.save(new Product("Cabo", "", new BigDecimal("15.00"), "", null));
+        Product unnamed = productRepository.save(new Product(null, "", null, "", null));
+
+        String response = mockMvc.perform(get("/api/products").param("limit", "2").param("sort", "name"))
+                .andExpect(jsonPath("$.items[1].id", is(b.getId().intValue())))
+                .andReturn().getResponse().getContentAsString();
+        String cursor = objectMapper.readTree(response).get("nextCursor").asText();
+
+        // O produto do cursor some e outro muda de nome: a página seguinte continua a partir da chave "Bateria"
+        productRepository.delete(b);
+        a.setName("Zíper");
+        productRepository.saveAndFlush(a);
+
+        mockMvc.perform(get("/api/products").param("limit", "5").param("sort", "name").param("after", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(3)))
+                .andExpect(jsonPath("$.items[0].id", is(c.getId().intValue())))
+                .andExpect(jsonPath("$.items[1].id", is(a.getId().intValue())))
+                .andExpect(jsonPath("$.items[2].id", is(unnamed.getId().intValue()))); // Nome nulo no fim
+
+        response = mockMvc.perform(get("/api/products").param("limit", "2").param("sort", "price"))
+                .andExpect(jsonPath("$.items[0].id", is(c.getId().intValue())))
+                .andExpect(jsonPath("$.items[1].id", is(a.getId().intValue())))
+                .andReturn().getResponse().getContentAsString();
+        mockMvc.perform(get("/api/products").param("limit", "2").param("sort", "price")
+                        .param("after", objectMapper.readTree(response).get("nextCursor").asText()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].id", is(unnamed.getId().intValue()))) // Preço nulo no fim
+                .andExpect(jsonPath("$.hasMore", is(false)));
+    }
+
+    @Test
+    void shouldImportProductsFromNdjson() throws Exception {
+        Product existing = productRepository.save(new Product("Teclado", "Teclado simples", new BigDecimal("100.00"), null, null));
+
+        String body = "{\"name\":\"Monitor\",\"price\":899.90}\n"
+                + "{\"id\":" + existing.getId() + ",\"name\":\"Teclado\",\"description\":\"Teclado mecânico\",\"price\":150.00}\n"
+                + "\n"
+                + "{\"name\":\"\",\"price\":10}\n"
+                + "{\"name\":\"Cabo\",\"price\":5,\"categoryId\":999999}\n";
+
+        mockMvc.perform(post("/api/products/import")
+                        .contentType("application/x-ndjson")
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.linesRead", is(4)))
+                .andExpect(jsonPath("$.inserted", is(1)))
+                .andExpect(jsonPath("$.updated", is(1)))
+                .andExpect(jsonPath("$.rejected", is(2)))
+                .andExpect(jsonPath("$.rejections[0].lineNumber", is(4)))
+                .andExpect(jsonPath("$.rejections[1].lineNumber", is(5)));
+
+        Product updated = productRepository.findById(existing.getId()).orElseThrow();
+        assertThat(updated.getDescription()).isEqualTo("Teclado mecânico");
+        assertThat(updated.getPrice()).isEqualByComparingTo("150.00");
+        assertThat(productRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldReportCategoryOfUpdatedProductsInImportEvents() throws Exception {
+        Category electronics = categoryRepository.save(new Category("Eletrônicos"));
+        Product withoutImage = productRepository.save(new Product("Hub", "Hub USB", new BigDecimal("60.00"), null, electronics));
+        Product withoutCategory = productRepository.save(new Product("Pilha", "Pilha AA", new BigDecimal("8.00"), "http://example.com/pilha.jpg", null));
+
+        String body = "{\"id\":" + withoutImage.getId() + ",\"name\":\"Hub\",\"price\":55.00,\"categoryId\":" + electronics.getId() + "}\n"
+                + "{\"id\":" + withoutCategory.getId() + ",\"name\":\"Pilha\",\"price\":7.50}\n";
+        mockMvc.perform(post("/api/products/import").contentType("application/x-ndjson").content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated", is(2)));
+
+        // O "antes" de cada evento traz a categoria que o produto tinha, independentemente da imagem
+        assertThat(events.stream(ProductChangedEvent.class))
+                .filteredOn(event -> event.type() == ProductChangedEvent.ChangeType.UPDATED)
+                .extracting(ProductChangedEvent::productId, event -> event.before().getCategoryId())
+                .containsExactlyInAnyOrder(
+                        tuple(withoutImage.getId(), electronics.getId()),
+                        tuple(withoutCategory.getId(), null));
+    }
+
+    @Test
+    void shouldImportProductsFromCsv() throws Exception {
+        String body = "name,description,price\n"
+                + "\"Cadeira, gamer\",\"Com \"\"apoio\"\" lombar\",1299.00\n"
+                + "Mesa,,abc\n";
+
+        mockMvc.perform(post("/api/products/import")
+                        .contentType("text/csv")
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserted", is(1)))
+                .andExpect(jsonPath("$.rejected", is(1)));
+
+        assertThat(productRepository.findAll())
+                .singleElement()
+                .satisfies(p -> assertThat(p.getDescription()).isEqualTo("Com \"apoio\" lombar"));
+    }
+
     @Test
     void shouldGetProductById() throws Exception {
         Category electronics = new Category("Eletrônicos"); // Crie ou recupere sua categoria
@@ -146,6 +289,51 @@ class ProductControllerTest {
         assertThat(foundProduct.get().getPriceHistory().get(1).getPrice()).isEqualTo(20.00);
     }
     
+    @Test
+    void shouldNotServeStalePriceFromCacheAfterUpdate() throws Exception {
+        Category electronics = categoryRepository.save(new Category("Eletrônicos"));
+        Product product = productRepository.save(new Product("Fone", "Fone bluetooth", new BigDecimal("80.00"), "", electronics));
+
+        mockMvc.perform(get("/api/products/{id}", product.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.price", is(80.00)));
+
+        Product details = new Product("Fone", "Fone bluetooth", new BigDecimal("65.00"), "", electronics);
+        mockMvc.perform(put("/api/products/{id}", product.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(details)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/products/{id}", product.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.price", is(65.00)));
+    }
+
+    @Test
+    void shouldAnswerNotModifiedUntilProductChanges() throws Exception {
+        Category electronics = categoryRepository.save(new Category("Eletrônicos"));
+        Product product = productRepository.save(new Product("Webcam", "Webcam HD", new BigDecimal("150.00"), "", electronics));
+
+        String etag = mockMvc.perform(get("/api/products/{id}", product.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/products/{id}", product.getId()).header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        Product details = new Product("Webcam", "Webcam Full HD", new BigDecimal("150.00"), "", electronics);
+        mockMvc.perform(put("/api/products/{id}", product.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(details)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/products/{id}", product.getId()).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.description", is("Webcam Full HD")));
+    }
+
     @Test
     void shouldUpdateProductWithoutPriceChange() throws Exception {
         Category electronics = new Category("Eletrônicos"); // Crie ou recupere sua categoria
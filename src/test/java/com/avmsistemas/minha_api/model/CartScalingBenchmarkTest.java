@@ -0,0 +1,99 @@
+package com.avmsistemas.minha_api.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Micro-benchmark (sem JMH) de como o custo de alterar uma linha do carrinho cresce com o tamanho do carrinho:
+ * busca pelo índice + ajuste do total pela diferença da linha, comparado à busca linear + recálculo completo.
+ * Os tempos são impressos para acompanhamento; a asserção de desempenho usa uma margem ampla.
+ */
+class CartScalingBenchmarkTest {
+
+    private static final int[] CART_SIZES = {10, 100, 1000};
+    private static final int OPERATIONS = 2000;
+
+    @Test
+    void incrementalCartUpdatesShouldNotScaleWithCartSize() {
+        warmUp();
+        System.out.printf("%-8s %18s %18s%n", "itens", "indexado (ns/op)", "linear (ns/op)");
+        long indexedLargest = 0;
+        long linearLargest = 0;
+        for (int size : CART_SIZES) {
+            long indexed = measure(newCart(size), size, true);
+            long linear = measure(newCart(size), size, false);
+            System.out.printf("%-8d %18d %18d%n", size, indexed, linear);
+            indexedLargest = indexed;
+            linearLargest = linear;
+        }
+        assertThat(indexedLargest).isLessThan(linearLargest);
+    }
+
+    @Test
+    void incrementalTotalShouldMatchFullRecalculation() {
+        Cart cart = newCart(50);
+        for (int i = 0; i < 500; i++) {
+            long productId = i % 60; // Inclui produtos que ainda não estão no carrinho
+            CartItem item = cart.findItem(productId);
+            if (item == null) {
+                cart.addCartItem(new CartItem(null, product(productId), 1));
+            } else if (i % 7 == 0) {
+                cart.removeCartItem(item);
+            } else {
+                cart.updateCartItem(item, item.getQuantity() + 1, item.getPrice().add(new BigDecimal("0.10")));
+            }
+        }
+        BigDecimal incremental = cart.getTotalAmount();
+
+        cart.calculateTotal();
+        assertThat(incremental).isEqualByComparingTo(cart.getTotalAmount());
+    }
+
+    private static long measure(Cart cart, int size, boolean indexed) {
+        long start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            long productId = (i * 31L) % size;
+            if (indexed) {
+                CartItem item = cart.findItem(productId);
+                cart.updateCartItem(item, item.getQuantity() + 1, item.getPrice());
+            } else {
+                // Comportamento anterior: busca linear pela lista e recálculo de todas as linhas
+                CartItem item = cart.getItems().stream()
+                        .filter(line -> line.getProduct().getId().equals(productId))
+                        .findFirst()
+                        .orElseThrow();
+                item.setQuantity(item.getQuantity() + 1);
+                cart.calculateTotal();
+            }
+        }
+        return (System.nanoTime() - start) / OPERATIONS;
+    }
+
+    private static void warmUp() {
+        for (int round = 0; round < 3; round++) {
+            measure(newCart(100), 100, true);
+            measure(newCart(100), 100, false);
+        }
+    }
+
+    private static Cart newCart(int size) {
+        Cart cart = new Cart(new User());
+        List<CartItem> items = new ArrayList<>(size);
+        for (long id = 0; id < size; id++) {
+            items.add(new CartItem(null, product(id), 1));
+        }
+        items.forEach(cart::addCartItem);
+        return cart;
+    }
+
+    private static Product product(long id) {
+        Product product = new Product("Produto " + id, null, BigDecimal.valueOf(1000 + id, 2), null, null);
+        product.setId(id);
+        return product;
+    }
+}
@@ -0,0 +1,74 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.model.Cart;
+import com.avmsistemas.minha_api.model.CartStatus;
+import com.avmsistemas.minha_api.model.Product;
+import com.avmsistemas.minha_api.model.User;
+import com.avmsistemas.minha_api.repository.CartItemRepository;
+import com.avmsistemas.minha_api.repository.CartRepository;
+import com.avmsistemas.minha_api.repository.ProductRepository;
+import com.avmsistemas.minha_api.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class AbandonedCartSweeperTest {
+
+    @Autowired
+    private CartService cartService;
+    @Autowired
+    private CartRepository cartRepository;
+    @Autowired
+    private CartItemRepository cartItemRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void shouldPurgeStaleCartsInKeysetChunksAndReactivateOnChange() {
+        Product product = productRepository.save(new Product("Caneca", "Caneca de café", new BigDecimal("30.00"), null, null));
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            User user = userRepository.save(new User("abandonado" + i + "@example.com", "abandonado" + i, "senha", "Abandonado " + i));
+            cartService.addItemToCart(user.getId(), product.getId(), 1);
+            userIds.add(user.getId());
+        }
+        entityManager.flush();
+
+        AbandonedCartSweeper sweeper = new AbandonedCartSweeper(cartRepository, cartItemRepository, transactionManager,
+                true, 72, AbandonedCartSweeper.Action.PURGE, 2, 0);
+        // Limite no futuro: todos os carrinhos acima contam como parados
+        AbandonedCartSweeper.SweepResult result = sweeper.sweep(LocalDateTime.now().plusMinutes(1));
+        entityManager.clear(); // As instruções em massa não passam pelo contexto de persistência
+
+        assertThat(result.swept()).isEqualTo(5);
+        assertThat(result.chunks()).isEqualTo(3);
+        for (Long userId : userIds) {
+            Cart cart = cartRepository.findByUserId(userId).orElseThrow();
+            assertThat(cart.getStatus()).isEqualTo(CartStatus.ABANDONED);
+            assertThat(cart.getTotalAmount()).isEqualByComparingTo("0");
+            assertThat(cartItemRepository.findByCartId(cart.getId())).isEmpty();
+        }
+
+        Cart reactivated = cartService.addItemToCart(userIds.get(0), product.getId(), 2);
+        assertThat(reactivated.getStatus()).isEqualTo(CartStatus.PENDING);
+        assertThat(reactivated.getTotalAmount()).isEqualByComparingTo("60.00");
+    }
+}
@@ -0,0 +1,66 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.dto.CheckoutStatusDTO;
+import com.avmsistemas.minha_api.model.Address;
+import com.avmsistemas.minha_api.model.Cart;
+import com.avmsistemas.minha_api.model.Product;
+import com.avmsistemas.minha_api.model.User;
+import com.avmsistemas.minha_api.repository.AddressRepository;
+import com.avmsistemas.minha_api.repository.OrderRepository;
+import com.avmsistemas.minha_api.repository.ProductRepository;
+import com.avmsistemas.minha_api.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:async-checkout-test") // Grava de fato: banco separado
+class AsyncCheckoutServiceTest {
+
+    @Autowired
+    private AsyncCheckoutService asyncCheckoutService;
+    @Autowired
+    private CartService cartService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private AddressRepository addressRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Test
+    void shouldProcessQueuedCheckoutAndReportTheResult() throws InterruptedException {
+        User user = userRepository.save(new User("fila@example.com", "fila", "senha", "Fila"));
+        Address address = addressRepository.save(new Address("Rua A", "10", null, "Centro", "Recife", "PE", "50000-000", "Brasil", true, user));
+        Product product = productRepository.save(new Product("Monitor", "Monitor 27", new BigDecimal("1500.00"), null, null));
+        Cart cart = cartService.addItemToCart(user.getId(), product.getId(), 2);
+
+        CheckoutStatusDTO submitted = asyncCheckoutService.submit(user.getId(), cart.getId(), address.getId());
+        CheckoutStatusDTO done = awaitCompletion(submitted.getTrackingId());
+
+        assertThat(done.getStatus()).isEqualTo(CheckoutStatusDTO.Status.COMPLETED);
+        assertThat(orderRepository.findById(done.getOrderId())).hasValueSatisfying(
+                order -> assertThat(order.getTotalAmount()).isEqualByComparingTo("3000.00"));
+
+        // O carrinho ficou vazio: a nova finalização falha com o mesmo motivo do checkout síncrono
+        CheckoutStatusDTO failed = awaitCompletion(asyncCheckoutService.submit(user.getId(), cart.getId(), address.getId()).getTrackingId());
+        assertThat(failed.getStatus()).isEqualTo(CheckoutStatusDTO.Status.FAILED);
+        assertThat(failed.getErrorStatus()).isEqualTo(400);
+    }
+
+    private CheckoutStatusDTO awaitCompletion(String trackingId) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            CheckoutStatusDTO status = asyncCheckoutService.getStatus(trackingId).orElseThrow();
+            if (status.getStatus() == CheckoutStatusDTO.Status.COMPLETED || status.getStatus() == CheckoutStatusDTO.Status.FAILED) {
+                return status;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Finalização não concluída: " + trackingId);
+    }
+}
@@ -0,0 +1,90 @@
+package com.avmsistemas.minha_api.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CartAppendLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldMakeConcurrentAppendsDurableAndReplayThemAfterRestart() throws Exception {
+        CartAppendLog appendLog = new CartAppendLog(directory);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            int userId = thread;
+            writers.add(pool.submit(() -> {
+                for (int productId = 0; productId < 50; productId++) {
+                    appendLog.awaitDurable(appendLog.append("S " + userId + " " + productId + " 1 10.00"));
+                }
+            }));
+        }
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        pool.shutdown();
+        appendLog.close();
+
+        List<String> replayed = new ArrayList<>();
+        new CartAppendLog(directory).replay(replayed::add);
+        assertThat(replayed).hasSize(400);
+        for (int userId = 0; userId < 8; userId++) {
+            String prefix = "S " + userId + " ";
+            assertThat(replayed.stream().filter(line -> line.startsWith(prefix)).map(line -> line.split(" ")[2]))
+                    .containsExactlyElementsOf(Stream.iterate(0, i -> i + 1).limit(50).map(String::valueOf).toList());
+        }
+    }
+
+    @Test
+    void shouldStopReplayAtTornOrCorruptedRecord() throws Exception {
+        CartAppendLog appendLog = new CartAppendLog(directory);
+        appendLog.awaitDurable(appendLog.append("S 1 7 2 500.00\nS 1 8 1 20.00")); // Um registro com duas linhas
+        appendLog.awaitDurable(appendLog.append("R 1 8"));
+        appendLog.close();
+
+        // Gravação interrompida: cabeçalho de um registro inteiro, mas só parte do preço chegou ao disco
+        Path segment = segmentFiles().get(0);
+        byte[] full = "S 1 9 1 500.00".getBytes(StandardCharsets.UTF_8);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(file.length());
+            file.writeInt(full.length);
+            file.writeInt(12345);
+            file.write(full, 0, full.length - 1); // "S 1 9 1 500.0": ainda seria lido como um preço válido
+        }
+
+        List<String> replayed = new ArrayList<>();
+        new CartAppendLog(directory).replay(replayed::add);
+        assertThat(replayed).containsExactly("S 1 7 2 500.00", "S 1 8 1 20.00", "R 1 8");
+
+        // Um byte trocado no conteúdo invalida o registro (e o restante do segmento)
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(8 + "S 1 7 2 ".length());
+            file.write('9');
+        }
+        replayed.clear();
+        new CartAppendLog(directory).replay(replayed::add);
+        assertThat(replayed).isEmpty();
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.dto.CartContentionStatsDTO;
+import com.avmsistemas.minha_api.model.Cart;
+import com.avmsistemas.minha_api.model.CartItem;
+import com.avmsistemas.minha_api.model.Product;
+import com.avmsistemas.minha_api.model.User;
+import com.avmsistemas.minha_api.repository.CartRepository;
+import com.avmsistemas.minha_api.repository.ProductRepository;
+import com.avmsistemas.minha_api.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:cart-conflict-test") // Grava de fato: banco separado
+class CartConflictRetrierTest {
+
+    @Autowired
+    private CartService cartService;
+    @Autowired
+    private CartRepository cartRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void shouldDetectConcurrentChangeToTheSameCart() {
+        User user = userRepository.save(new User("conflito@example.com", "conflito", "senha", "Conflito"));
+        Product product = productRepository.save(new Product("Cadeira", "Cadeira gamer", new BigDecimal("900.00"), null, null));
+        cartService.addItemToCart(user.getId(), product.getId(), 1);
+
+        TransactionTemplate first = new TransactionTemplate(transactionManager);
+        TransactionTemplate second = new TransactionTemplate(transactionManager);
+        second.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        assertThatThrownBy(() -> first.executeWithoutResult(status -> {
+            Cart stale = cartRepository.findByUserIdForUpdate(user.getId()).orElseThrow();
+            // Outra aba altera o mesmo carrinho e confirma antes
+            second.executeWithoutResult(s -> cartService.updateCartItemQuantity(user.getId(), product.getId(), 5));
+            CartItem item = stale.findItem(product.getId());
+            stale.updateCartItem(item, 7, item.getPrice());
+        })).isInstanceOf(OptimisticLockingFailureException.class);
+
+        Cart saved = cartRepository.findByUserId(user.getId()).orElseThrow();
+        assertThat(saved.getTotalAmount()).isEqualByComparingTo("4500.00"); // Prevaleceu a alteração confirmada
+    }
+
+    @Test
+    void shouldRetryIdempotentOperationsAndRejectOthers() {
+        CartConflictRetrier retrier = new CartConflictRetrier(3, 0);
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = retrier.execute("set", 1L, true, () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException(Cart.class, 1L);
+            }
+            return "ok";
+        });
+        assertThat(result).isEqualTo("ok");
+
+        assertThatThrownBy(() -> retrier.execute("add", 1L, false, () -> {
+            throw new ObjectOptimisticLockingFailureException(Cart.class, 1L);
+        })).isInstanceOf(ResponseStatusException.class).hasMessageContaining("409");
+
+        CartContentionStatsDTO stats = retrier.stats();
+        assertThat(stats.getConflicts()).isEqualTo(3);
+        assertThat(stats.getRetries()).isEqualTo(2);
+        assertThat(stats.getRejected()).isEqualTo(1);
+        assertThat(stats.getOperations().get("add").getRejected()).isEqualTo(1);
+        assertThat(stats.getHotCarts()).singleElement().satisfies(hot -> assertThat(hot.getConflicts()).isEqualTo(3));
+    }
+}
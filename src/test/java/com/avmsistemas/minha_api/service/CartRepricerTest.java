@@ -0,0 +1,65 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.model.Cart;
+import com.avmsistemas.minha_api.model.CartStatus;
+import com.avmsistemas.minha_api.model.Product;
+import com.avmsistemas.minha_api.model.User;
+import com.avmsistemas.minha_api.repository.CartRepository;
+import com.avmsistemas.minha_api.repository.ProductRepository;
+import com.avmsistemas.minha_api.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class CartRepricerTest {
+
+    @Autowired
+    private CartRepricer cartRepricer;
+    @Autowired
+    private CartService cartService;
+    @Autowired
+    private CartRepository cartRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void shouldRepriceOpenCartsAndAdjustTotalsByDelta() {
+        Product fone = productRepository.save(new Product("Fone", "Fone bluetooth", new BigDecimal("100.00"), null, null));
+        Product capa = productRepository.save(new Product("Capa", "Capa de celular", new BigDecimal("20.00"), null, null));
+        User ana = userRepository.save(new User("ana.reprice@example.com", "ana.reprice", "senha", "Ana"));
+        User bruno = userRepository.save(new User("bruno.reprice@example.com", "bruno.reprice", "senha", "Bruno"));
+        User carla = userRepository.save(new User("carla.reprice@example.com", "carla.reprice", "senha", "Carla"));
+
+        cartService.addItemToCart(ana.getId(), fone.getId(), 2);
+        cartService.addItemToCart(ana.getId(), capa.getId(), 1);
+        cartService.addItemToCart(bruno.getId(), fone.getId(), 1);
+        Cart abandoned = cartService.addItemToCart(carla.getId(), fone.getId(), 1);
+        abandoned.setStatus(CartStatus.ABANDONED); // Fora da reprecificação
+        entityManager.flush();
+        entityManager.clear();
+
+        int repriced = cartRepricer.reprice(fone.getId(), new BigDecimal("80.00"));
+        entityManager.clear(); // As instruções em massa não passam pelo contexto de persistência
+
+        assertThat(repriced).isEqualTo(2);
+        Cart anaCart = cartRepository.findByUserId(ana.getId()).orElseThrow();
+        assertThat(anaCart.getTotalAmount()).isEqualByComparingTo("180.00"); // 2 x 80 + 20
+        assertThat(anaCart.findItem(fone.getId()).getPrice()).isEqualByComparingTo("80.00");
+        assertThat(cartRepository.findByUserId(bruno.getId()).orElseThrow().getTotalAmount()).isEqualByComparingTo("80.00");
+        assertThat(cartRepository.findByUserId(carla.getId()).orElseThrow().getTotalAmount()).isEqualByComparingTo("100.00");
+
+        assertThat(cartRepricer.reprice(fone.getId(), new BigDecimal("80.00"))).isZero(); // Nada mais a alterar
+    }
+}
@@ -0,0 +1,73 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.dto.CategoryStatsDTO;
+import com.avmsistemas.minha_api.dto.ProductSummaryDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CategoryStatsIndexTest {
+
+    private CategoryStatsIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new CategoryStatsIndex(null, null); // Os repositórios só são usados no rebuild inicial
+        index.onCategoryChanged(new CategoryChangedEvent(1L, CategoryChangedEvent.ChangeType.CREATED, "Eletrônicos"));
+        index.onCategoryChanged(new CategoryChangedEvent(2L, CategoryChangedEvent.ChangeType.CREATED, "Livros"));
+        created(10L, 1L, "100.00");
+        created(11L, 1L, "300.00");
+        created(12L, 1L, "50.00");
+        created(20L, 2L, "40.00");
+    }
+
+    @Test
+    void shouldAggregateCountAndPriceRangePerCategory() {
+        CategoryStatsDTO stats = index.get(1L);
+
+        assertThat(stats.getName()).isEqualTo("Eletrônicos");
+        assertThat(stats.getProductCount()).isEqualTo(3);
+        assertThat(stats.getMinPrice()).isEqualByComparingTo("50.00");
+        assertThat(stats.getMaxPrice()).isEqualByComparingTo("300.00");
+        assertThat(stats.getAvgPrice()).isEqualByComparingTo("150.00");
+    }
+
+    @Test
+    void shouldRecomputeMinAfterCheapestProductMovesToAnotherCategory() {
+        index.onProductChanged(new ProductChangedEvent(12L, ProductChangedEvent.ChangeType.UPDATED,
+                product(12L, 1L, "50.00"), product(12L, 2L, "55.00")));
+
+        assertThat(index.get(1L).getProductCount()).isEqualTo(2);
+        assertThat(index.get(1L).getMinPrice()).isEqualByComparingTo("100.00");
+        assertThat(index.get(2L).getProductCount()).isEqualTo(2);
+        assertThat(index.get(2L).getMaxPrice()).isEqualByComparingTo("55.00");
+    }
+
+    @Test
+    void shouldNotCountTheSameProductTwice() {
+        created(10L, 1L, "100.00"); // Evento repetido
+
+        assertThat(index.get(1L).getProductCount()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldEmptyCategoryWhenAllProductsAreDeleted() {
+        index.onProductChanged(new ProductChangedEvent(20L, ProductChangedEvent.ChangeType.DELETED, product(20L, 2L, "40.00"), null));
+
+        CategoryStatsDTO stats = index.get(2L);
+        assertThat(stats.getProductCount()).isZero();
+        assertThat(stats.getMinPrice()).isNull();
+        assertThat(stats.getAvgPrice()).isNull();
+    }
+
+    private void created(Long id, Long categoryId, String price) {
+        index.onProductChanged(new ProductChangedEvent(id, ProductChangedEvent.ChangeType.CREATED, null, product(id, categoryId, price)));
+    }
+
+    private static ProductSummaryDTO product(Long id, Long categoryId, String price) {
+        return new ProductSummaryDTO(id, "Produto " + id, null, new BigDecimal(price), null, categoryId);
+    }
+}
@@ -0,0 +1,69 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.model.Order;
+import com.avmsistemas.minha_api.model.OrderItem;
+import com.avmsistemas.minha_api.model.PaymentMethod;
+import com.avmsistemas.minha_api.model.Product;
+import com.avmsistemas.minha_api.model.User;
+import com.avmsistemas.minha_api.repository.OrderRepository;
+import com.avmsistemas.minha_api.repository.ProductRepository;
+import com.avmsistemas.minha_api.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class ExportServiceTest {
+
+    @Autowired
+    private ExportService exportService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void shouldExportOneLinePerOrderWithItsItems() throws Exception {
+        User user = userRepository.save(new User("export@example.com", "export", "senha", "Exportação"));
+        Product mouse = productRepository.save(new Product("Mouse", "Mouse sem fio", new BigDecimal("50.00"), null, null));
+        Product cabo = productRepository.save(new Product("Cabo", "Cabo USB", new BigDecimal("10.00"), null, null));
+
+        Order withItems = newOrder(user, new BigDecimal("110.00"));
+        withItems.addOrderItem(new OrderItem(withItems, mouse, 2));
+        withItems.addOrderItem(new OrderItem(withItems, cabo, 1));
+        orderRepository.save(withItems);
+        Order empty = orderRepository.save(newOrder(user, BigDecimal.ZERO));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.exportOrders(user.getId(), true, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertThat(first.get("id").asLong()).isEqualTo(withItems.getId());
+        assertThat(first.get("items")).hasSize(2);
+        assertThat(first.get("items").get(0).get("productName").asText()).isEqualTo("Mouse");
+        JsonNode second = objectMapper.readTree(lines[1]);
+        assertThat(second.get("id").asLong()).isEqualTo(empty.getId());
+        assertThat(second.get("items")).isEmpty();
+    }
+
+    private static Order newOrder(User user, BigDecimal total) {
+        return new Order(user, "Rua A", "1", null, "Centro", "São Paulo", "SP", "01000-000", "Brasil",
+                total, PaymentMethod.PIX);
+    }
+}
@@ -0,0 +1,47 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.model.Product;
+import com.avmsistemas.minha_api.model.User;
+import com.avmsistemas.minha_api.repository.ProductRepository;
+import com.avmsistemas.minha_api.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Transactional
+class GuestCartServiceTest {
+
+    @Autowired
+    private GuestCartService guestCartService;
+    @Autowired
+    private CartService cartService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void shouldRejectGuestCheckoutWhenUserCartHasItems() {
+        User user = userRepository.save(new User("visitante@example.com", "visitante", "senha", "Visitante"));
+        Product livro = productRepository.save(new Product("Livro", "Livro de receitas", new BigDecimal("80.00"), null, null));
+        Product caneta = productRepository.save(new Product("Caneta", "Caneta azul", new BigDecimal("3.00"), null, null));
+        cartService.addItemToCart(user.getId(), livro.getId(), 1);
+        String token = guestCartService.createCart().getToken();
+        guestCartService.addItem(token, caneta.getId(), 2);
+
+        // O pedido levaria também o livro, que o usuário não escolheu neste checkout
+        assertThatThrownBy(() -> guestCartService.checkout(token, user.getId(), 1L))
+                .isInstanceOf(ResponseStatusException.class).hasMessageContaining("409");
+
+        assertThat(guestCartService.getCart(token).getItems()).hasSize(1); // Nada foi reservado nem transferido
+        assertThat(cartService.getCartByUserId(user.getId()).orElseThrow().getItems()).hasSize(1);
+    }
+}
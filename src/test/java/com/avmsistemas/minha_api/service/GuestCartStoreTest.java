@@ -0,0 +1,85 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.dto.GuestCartDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GuestCartStoreTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final GuestCartStore store = new GuestCartStore(2, 3, Duration.ofMinutes(10), now::get);
+
+    @Test
+    void shouldKeepItemsAndTotals() {
+        String token = store.create();
+        store.addItem(token, 1L, 2, new BigDecimal("10.00"));
+        store.addItem(token, 2L, 1, new BigDecimal("5.50"));
+        store.addItem(token, 1L, 1, new BigDecimal("10.00"));
+        store.addItem(token, 3L, 1, new BigDecimal("1.00"));
+        GuestCartDTO cart = store.removeItem(token, 1L); // A última linha ocupa o lugar da removida
+
+        assertThat(cart.getItems()).extracting(GuestCartDTO.Item::getProductId).containsExactly(3L, 2L);
+        assertThat(cart.getTotalAmount()).isEqualByComparingTo("6.50");
+        assertThat(store.updateItemQuantity(token, 2L, 4).getTotalAmount()).isEqualByComparingTo("23.00");
+
+        store.addItem(token, 4L, 1, BigDecimal.ONE);
+        assertThatThrownBy(() -> store.addItem(token, 5L, 1, BigDecimal.ONE)) // max-items = 3
+                .isInstanceOf(ResponseStatusException.class).hasMessageContaining("400");
+        assertThatThrownBy(() -> store.get(token.substring(0, 8) + "0000000000000001"))
+                .isInstanceOf(ResponseStatusException.class).hasMessageContaining("404");
+    }
+
+    @Test
+    void shouldEvictExpiredCartsAndReuseTheirSlots() {
+        String first = store.create();
+        now.addAndGet(Duration.ofMinutes(6).toMillis());
+        String second = store.create();
+        assertThatThrownBy(store::create).isInstanceOf(ResponseStatusException.class).hasMessageContaining("503");
+
+        now.addAndGet(Duration.ofMinutes(5).toMillis()); // Só o primeiro passou de 10 minutos sem uso
+        String third = store.create();
+
+        assertThat(store.evictedCount()).isEqualTo(1);
+        assertThat(store.get(second).getItems()).isEmpty();
+        assertThatThrownBy(() -> store.get(first)).isInstanceOf(ResponseStatusException.class).hasMessageContaining("404");
+        assertThat(third).isNotEqualTo(first);
+        assertThat(store.size()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldBlockCartWhileClaimedAndFreeItOnlyWhenPromoted() {
+        String token = store.create();
+        store.addItem(token, 1L, 1, BigDecimal.TEN);
+
+        assertThat(store.claim(token)).hasSize(1);
+        assertThatThrownBy(() -> store.addItem(token, 2L, 1, BigDecimal.ONE))
+                .isInstanceOf(ResponseStatusException.class).hasMessageContaining("409");
+        store.release(token, false); // Promoção desfeita: o carrinho continua disponível
+        assertThat(store.get(token).getItems()).hasSize(1);
+
+        store.claim(token);
+        store.release(token, true);
+        assertThat(store.size()).isZero();
+        assertThatThrownBy(() -> store.get(token)).isInstanceOf(ResponseStatusException.class).hasMessageContaining("404");
+    }
+
+    @Test
+    void shouldExpireClaimThatIsNeverReleased() {
+        String token = store.create();
+        store.claim(token); // Promoção que falhou antes de registrar a liberação
+
+        now.addAndGet(Duration.ofMinutes(11).toMillis());
+        assertThat(store.evictExpired()).isEqualTo(1);
+        assertThat(store.size()).isZero();
+        store.release(token, false); // Liberação atrasada: a posição já foi devolvida, nada a fazer
+        assertThatThrownBy(() -> store.get(token)).isInstanceOf(ResponseStatusException.class).hasMessageContaining("404");
+        assertThat(store.size()).isZero();
+    }
+}
@@ -0,0 +1,135 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.dto.OrderHistoryDTO;
+import com.avmsistemas.minha_api.dto.OrderPageDTO;
+import com.avmsistemas.minha_api.model.Order;
+import com.avmsistemas.minha_api.model.OrderItem;
+import com.avmsistemas.minha_api.model.OrderStatus;
+import com.avmsistemas.minha_api.model.PaymentMethod;
+import com.avmsistemas.minha_api.model.Product;
+import com.avmsistemas.minha_api.model.User;
+import com.avmsistemas.minha_api.repository.OrderArchiveRepository;
+import com.avmsistemas.minha_api.repository.OrderListView;
+import com.avmsistemas.minha_api.repository.OrderRepository;
+import com.avmsistemas.minha_api.repository.ProductRepository;
+import com.avmsistemas.minha_api.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:order-archive-test", // Grava de fato: banco separado
+        "app.order.archive.enabled=false", // O teste dispara o arquivamento
+        "app.order.archive.chunk-size=2"
+})
+class OrderArchiverTest {
+
+    @Autowired
+    private OrderArchiver orderArchiver;
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private SalesRollups salesRollups;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private OrderArchiveRepository orderArchiveRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private ExportService exportService;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void shouldMoveOldFinishedOrdersToArchiveAndStillServeThem() throws IOException {
+        User user = userRepository.save(new User("arquivo@example.com", "arquivo", "senha", "Arquivo"));
+        Product product = productRepository.save(new Product("Cadeira", "Cadeira de escritório", new BigDecimal("450.00"), null, null));
+        LocalDateTime cutoff = LocalDateTime.of(2025, 1, 1, 0, 0);
+        Long oldDelivered = order(user, product, cutoff.minusDays(30), OrderStatus.DELIVERED);
+        Long oldCanceled = order(user, product, cutoff.minusDays(20), OrderStatus.CANCELED);
+        Long oldShipped = order(user, product, cutoff.minusDays(10), OrderStatus.SHIPPED); // Em andamento: fica
+        Long recentDelivered = order(user, product, cutoff.plusDays(1), OrderStatus.DELIVERED);
+        Long oldDelivered2 = order(user, product, cutoff.minusDays(5), OrderStatus.DELIVERED);
+        long productSalesBefore = salesRollups.byProduct(product.getId()).getOrders();
+
+        OrderArchiver.ArchiveResult result = orderArchiver.archive(cutoff);
+
+        assertThat(result.archived()).isEqualTo(3);
+        assertThat(result.chunks()).isEqualTo(2);
+        assertThat(orderRepository.findAllById(List.of(oldDelivered, oldCanceled, oldDelivered2))).isEmpty();
+        assertThat(orderArchiveRepository.count()).isEqualTo(3);
+
+        Order restored = orderService.getOrderById(oldDelivered).orElseThrow();
+        assertThat(restored.getStatus()).isEqualTo(OrderStatus.DELIVERED);
+        assertThat(restored.getUser().getId()).isEqualTo(user.getId());
+        assertThat(restored.getDeliveryCity()).isEqualTo("Natal");
+        assertThat(restored.getItems()).singleElement().satisfies(item -> {
+            assertThat(item.getProductId()).isEqualTo(product.getId());
+            assertThat(item.getSubtotal()).isEqualByComparingTo("900.00");
+        });
+
+        // Histórico: as duas tabelas intercaladas na mesma ordem, em páginas
+        List<Long> expected = List.of(recentDelivered, oldDelivered2, oldShipped, oldCanceled, oldDelivered);
+        assertThat(orderService.getOrdersByUserId(user.getId())).extracting(OrderListView::id).containsExactlyElementsOf(expected);
+        List<Long> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            OrderPageDTO page = orderService.getOrderHistoryPage(user.getId(), cursor, 2);
+            page.getItems().forEach(order -> assertThat(order.getItems()).hasSize(1));
+            page.getItems().stream().map(OrderHistoryDTO::getId).forEach(paged::add);
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertThat(paged).containsExactlyElementsOf(expected);
+
+        assertThatThrownBy(() -> orderService.updateOrderStatus(oldDelivered, user.getId(), OrderStatus.RETURNED))
+                .isInstanceOf(ResponseStatusException.class).hasMessageContaining("409");
+
+        // Exportação: as duas tabelas intercaladas por ID; os arquivados marcados e com os itens descompactados
+        List<JsonNode> exported = exportOrders(user.getId(), true);
+        assertThat(exported).extracting(order -> order.get("id").asLong())
+                .containsExactly(oldDelivered, oldCanceled, oldShipped, recentDelivered, oldDelivered2);
+        assertThat(exported.get(0).get("archived").asBoolean()).isTrue();
+        assertThat(exported.get(0).get("items").get(0).get("quantity").asInt()).isEqualTo(2);
+        assertThat(exported.get(2).get("archived").asBoolean()).isFalse();
+        assertThat(exportOrders(user.getId(), false)).extracting(order -> order.get("id").asLong())
+                .containsExactly(oldShipped, recentDelivered);
+
+        salesRollups.rebuild(); // Arquivados continuam contando como venda (o cancelado, não)
+        assertThat(salesRollups.byProduct(product.getId()).getOrders()).isEqualTo(productSalesBefore + 4);
+    }
+
+    private List<JsonNode> exportOrders(Long userId, boolean includeArchived) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.exportOrders(userId, includeArchived, out);
+        List<JsonNode> orders = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            orders.add(objectMapper.readTree(line));
+        }
+        return orders;
+    }
+
+    private Long order(User user, Product product, LocalDateTime orderDate, OrderStatus status) {
+        Order order = new Order(user, "Rua A", "1", null, "Centro", "Natal", "RN", "59000-000", "Brasil", new BigDecimal("900.00"), PaymentMethod.PIX);
+        order.setOrderDate(orderDate);
+        order.setStatus(status);
+        order.addOrderItem(new OrderItem(order, product, 2));
+        return orderRepository.save(order).getId();
+    }
+}
@@ -0,0 +1,116 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.dto.OrderEventDTO;
+import com.avmsistemas.minha_api.model.OrderStatus;
+import com.avmsistemas.minha_api.model.PaymentStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderEventJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldReplayFromOffsetAndIndexEventsByOrderAcrossSegmentsAndRestarts() throws Exception {
+        OrderEventJournal journal = open(); // 4 eventos por segmento
+        List<CompletableFuture<Long>> written = new ArrayList<>();
+        for (long orderId = 1; orderId <= 5; orderId++) {
+            written.add(journal.append(event(OrderEvent.Type.CREATED, orderId, null, OrderStatus.PENDING)));
+        }
+        written.add(journal.append(event(OrderEvent.Type.STATUS_CHANGED, 2L, OrderStatus.PENDING, OrderStatus.PROCESSING)));
+        written.add(journal.append(event(OrderEvent.Type.STATUS_CHANGED, 2L, OrderStatus.PROCESSING, OrderStatus.SHIPPED)));
+        for (int i = 0; i < written.size(); i++) {
+            assertThat(written.get(i).get()).isEqualTo(i); // Concluído só depois do force, com o próprio offset
+        }
+
+        assertThat(journal.read(3, 10)).extracting(OrderEventDTO::getOffset).containsExactly(3L, 4L, 5L, 6L);
+        assertThat(journal.read(0, 2)).extracting(OrderEventDTO::getOrderId).containsExactly(1L, 2L);
+        assertThat(journal.eventsForOrder(2L)).extracting(OrderEventDTO::getStatus)
+                .containsExactly(OrderStatus.PENDING, OrderStatus.PROCESSING, OrderStatus.SHIPPED);
+        journal.close();
+
+        // Uma gravação interrompida depois do último evento não pode ser lida nem reaparecer
+        try (RandomAccessFile segment = new RandomAccessFile(segmentFiles().get(1).toFile(), "rw")) {
+            segment.seek(3L * OrderEventJournal.RECORD_SIZE);
+            segment.writeLong(7);
+            segment.writeLong(123);
+        }
+
+        OrderEventJournal reopened = open();
+        assertThat(reopened.nextOffset()).isEqualTo(7);
+        OrderEventDTO shipped = reopened.eventsForOrder(2L).get(2);
+        assertThat(shipped.getOffset()).isEqualTo(6);
+        assertThat(shipped.getType()).isEqualTo(OrderEvent.Type.STATUS_CHANGED);
+        assertThat(shipped.getPreviousStatus()).isEqualTo(OrderStatus.PROCESSING);
+        assertThat(shipped.getPaymentStatus()).isEqualTo(PaymentStatus.PENDING);
+        assertThat(shipped.getTotalAmount()).isEqualByComparingTo("99.90");
+        assertThat(shipped.getOccurredAt()).isEqualTo(LocalDateTime.of(2025, 7, 1, 12, 0, 0, 123_000_000));
+
+        assertThat(reopened.append(event(OrderEvent.Type.DELETED, 9L, null, OrderStatus.CANCELED)).get()).isEqualTo(7);
+        assertThat(reopened.read(6, 10)).extracting(OrderEventDTO::getOrderId).containsExactly(2L, 9L);
+        reopened.close();
+        assertThat(segmentFiles()).hasSize(2);
+    }
+
+    @Test
+    void shouldStartOverWhenReopenedWithAnotherDatabase() throws Exception {
+        OrderEventJournal journal = open();
+        journal.append(event(OrderEvent.Type.CREATED, 1L, null, OrderStatus.PENDING)).get();
+        journal.append(event(OrderEvent.Type.STATUS_CHANGED, 1L, OrderStatus.PENDING, OrderStatus.CANCELED)).get();
+        journal.close();
+
+        OrderEventJournal sameDatabase = open(); // Reinício com o mesmo banco: o diário continua
+        assertThat(sameDatabase.nextOffset()).isEqualTo(2);
+        assertThat(sameDatabase.eventsForOrder(1L)).hasSize(2);
+        sameDatabase.close();
+
+        // Banco recriado: o pedido 1 agora é outro e não pode herdar os eventos do anterior
+        OrderEventJournal recreated = open("run-b");
+        assertThat(recreated.nextOffset()).isZero();
+        assertThat(recreated.eventsForOrder(1L)).isEmpty();
+        assertThat(recreated.append(event(OrderEvent.Type.CREATED, 1L, null, OrderStatus.PENDING)).get()).isZero();
+        assertThat(recreated.eventsForOrder(1L)).extracting(OrderEventDTO::getStatus).containsExactly(OrderStatus.PENDING);
+        recreated.close();
+
+        try (Stream<Path> previous = Files.list(directory)) { // Os segmentos antigos são guardados, não apagados
+            assertThat(previous.filter(Files::isDirectory).map(dir -> dir.getFileName().toString()))
+                    .singleElement().satisfies(name -> assertThat(name).startsWith("previous-run-a-"));
+        }
+        OrderEventJournal reopened = open("run-b");
+        assertThat(reopened.eventsForOrder(1L)).hasSize(1);
+        reopened.close();
+    }
+
+    private OrderEventJournal open() {
+        return open("run-a");
+    }
+
+    private OrderEventJournal open(String runId) {
+        return new OrderEventJournal(directory.toString(), 4, 16, 100, runId);
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".journal")).sorted().toList();
+        }
+    }
+
+    private static OrderEvent event(OrderEvent.Type type, Long orderId, OrderStatus previous, OrderStatus status) {
+        return new OrderEvent(type, orderId, 10L, previous, status, PaymentStatus.PENDING, new BigDecimal("99.90"),
+                LocalDateTime.of(2025, 7, 1, 12, 0, 0, 123_456_789));
+    }
+}
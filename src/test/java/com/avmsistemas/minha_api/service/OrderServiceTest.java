@@ -0,0 +1,83 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.dto.OrderHistoryDTO;
+import com.avmsistemas.minha_api.dto.OrderPageDTO;
+import com.avmsistemas.minha_api.model.Order;
+import com.avmsistemas.minha_api.model.OrderItem;
+import com.avmsistemas.minha_api.model.PaymentMethod;
+import com.avmsistemas.minha_api.model.Product;
+import com.avmsistemas.minha_api.model.User;
+import com.avmsistemas.minha_api.repository.OrderRepository;
+import com.avmsistemas.minha_api.repository.ProductRepository;
+import com.avmsistemas.minha_api.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Transactional
+class OrderServiceTest {
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void shouldPageOrderHistoryByDateAndIdWithItemsLoaded() {
+        User user = userRepository.save(new User("historico@example.com", "historico", "senha", "Histórico"));
+        Product product = productRepository.save(new Product("Livro", "Livro de Java", new BigDecimal("80.00"), null, null));
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 10, 0);
+        List<Long> expected = new ArrayList<>();
+        for (int day : new int[]{1, 3, 3, 2, 5}) { // Dois pedidos no mesmo instante: o id desempata
+            Order order = new Order(user, "Rua A", "1", null, "Centro", "Natal", "RN", "59000-000", "Brasil", new BigDecimal("80.00"), PaymentMethod.PIX);
+            order.setOrderDate(base.plusDays(day));
+            order.addOrderItem(new OrderItem(order, product, 1));
+            orderRepository.save(order);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        orderRepository.findHistoryIds(user.getId(), Limit.of(10)).forEach(expected::add);
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            OrderPageDTO page = orderService.getOrderHistoryPage(user.getId(), cursor, 2);
+            for (OrderHistoryDTO order : page.getItems()) {
+                assertThat(Hibernate.isInitialized(order.getItems())).isTrue(); // Vieram no fetch join da página
+                assertThat(order.getItems()).hasSize(1);
+                seen.add(order.getId());
+            }
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(seen).hasSize(5).containsExactlyElementsOf(expected);
+        List<LocalDateTime> dates = seen.stream().map(id -> orderRepository.findById(id).orElseThrow().getOrderDate()).toList();
+        assertThat(dates).isSortedAccordingTo((a, b) -> b.compareTo(a));
+
+        assertThatThrownBy(() -> orderService.getOrderHistoryPage(user.getId(), "nao-e-um-cursor", 2))
+                .isInstanceOf(ResponseStatusException.class).hasMessageContaining("400");
+    }
+}
@@ -0,0 +1,68 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.dto.OrderStatusTransitionResultDTO;
+import com.avmsistemas.minha_api.dto.OrderStatusTransitionResultDTO.Outcome;
+import com.avmsistemas.minha_api.dto.OrderStatusTransitionResultDTO.Result;
+import com.avmsistemas.minha_api.model.Order;
+import com.avmsistemas.minha_api.model.OrderStatus;
+import com.avmsistemas.minha_api.model.PaymentMethod;
+import com.avmsistemas.minha_api.model.User;
+import com.avmsistemas.minha_api.repository.OrderRepository;
+import com.avmsistemas.minha_api.repository.OrderStatusView;
+import com.avmsistemas.minha_api.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class OrderStatusTransitionerTest {
+
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Test
+    void shouldApplyAllowedTransitionsAndReportEachOrder() {
+        User user = userRepository.save(new User("expedicao@example.com", "expedicao", "senha", "Expedição"));
+        Long processing1 = order(user, OrderStatus.PROCESSING);
+        Long processing2 = order(user, OrderStatus.PROCESSING);
+        Long pending = order(user, OrderStatus.PENDING);
+        Long shipped = order(user, OrderStatus.SHIPPED);
+        Long canceled = order(user, OrderStatus.CANCELED);
+        OrderStatusTransitioner transitioner = new OrderStatusTransitioner(orderRepository, transactionManager, eventPublisher, 2); // Vários lotes
+
+        OrderStatusTransitionResultDTO result = transitioner.transition(
+                List.of(processing1, pending, shipped, processing2, canceled, -1L, processing1), OrderStatus.SHIPPED);
+
+        assertThat(result.getOutcomes()).extracting(Outcome::getOrderId)
+                .containsExactly(processing1, pending, shipped, processing2, canceled, -1L); // Repetidos uma vez
+        assertThat(result.getOutcomes()).extracting(Outcome::getResult).containsExactly(
+                Result.UPDATED, Result.INVALID_TRANSITION, Result.UNCHANGED, Result.UPDATED, Result.INVALID_TRANSITION, Result.NOT_FOUND);
+        assertThat(result.getUpdated()).isEqualTo(2);
+        assertThat(result.getUnchanged()).isEqualTo(1);
+        assertThat(result.getRejected()).isEqualTo(3);
+        assertThat(orderRepository.findStatusesByIdIn(List.of(processing1, processing2, pending)))
+                .extracting(OrderStatusView::status)
+                .containsExactlyInAnyOrder(OrderStatus.SHIPPED, OrderStatus.SHIPPED, OrderStatus.PENDING);
+    }
+
+    private Long order(User user, OrderStatus status) {
+        Order order = new Order(user, "Rua B", "2", null, "Centro", "Recife", "PE", "50000-000", "Brasil", new BigDecimal("10.00"), PaymentMethod.PIX);
+        order.setStatus(status);
+        return orderRepository.saveAndFlush(order).getId();
+    }
+}
@@ -0,0 +1,138 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.dto.OrderStatusTransitionResultDTO;
+import com.avmsistemas.minha_api.dto.OrderStatusTransitionResultDTO.Outcome;
+import com.avmsistemas.minha_api.dto.OrderStatusTransitionResultDTO.Result;
+import com.avmsistemas.minha_api.model.Address;
+import com.avmsistemas.minha_api.model.Cart;
+import com.avmsistemas.minha_api.model.Order;
+import com.avmsistemas.minha_api.model.OrderStatus;
+import com.avmsistemas.minha_api.model.PaymentMethod;
+import com.avmsistemas.minha_api.model.Product;
+import com.avmsistemas.minha_api.model.User;
+import com.avmsistemas.minha_api.repository.AddressRepository;
+import com.avmsistemas.minha_api.repository.OrderRepository;
+import com.avmsistemas.minha_api.repository.OrderStatusView;
+import com.avmsistemas.minha_api.repository.ProductRepository;
+import com.avmsistemas.minha_api.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:order-status-update-test") // Grava de fato: banco separado
+class OrderStatusUpdateTest {
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private CartService cartService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private AddressRepository addressRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @MockitoSpyBean
+    private OrderRepository orderRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Test
+    void shouldNotOverwriteStatusChangedAfterTheRead() {
+        User user = userRepository.save(new User("status@example.com", "status", "senha", "Status"));
+        Address address = addressRepository.save(new Address("Rua B", "20", null, "Centro", "Recife", "PE", "50000-000", "Brasil", true, user));
+        Product fone = productRepository.save(new Product("Fone", "Fone de ouvido", new BigDecimal("150.00"), null, null));
+        Cart cart = cartService.addItemToCart(user.getId(), fone.getId(), 1);
+        Order order = orderService.createOrderFromCart(user.getId(), cart.getId(), address.getId());
+
+        // Logo depois da leitura do pedido (PENDING), outra requisição o cancela e confirma
+        TransactionTemplate concurrent = new TransactionTemplate(transactionManager);
+        concurrent.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        doAnswer(invocation -> {
+            Optional<Order> read = Optional.ofNullable(entityManager.find(Order.class, order.getId()));
+            concurrent.executeWithoutResult(status -> jdbcTemplate.update(
+                    "UPDATE orders SET status = 'CANCELED' WHERE id = ?", order.getId()));
+            return read;
+        }).when(orderRepository).findById(order.getId());
+
+        assertThatThrownBy(() -> orderService.updateOrderStatus(order.getId(), user.getId(), OrderStatus.PROCESSING))
+                .isInstanceOf(ResponseStatusException.class).hasMessageContaining("409");
+
+        // O cancelamento confirmado continua valendo
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM orders WHERE id = ?", String.class, order.getId()))
+                .isEqualTo("CANCELED");
+    }
+
+    @Test
+    void shouldReportOrdersChangedBeforeTheBulkUpdateAsConflicts() {
+        User user = userRepository.save(new User("status-lote@example.com", "status-lote", "senha", "Status em lote"));
+        Long movedToOtherSource = order(user, OrderStatus.SHIPPED);
+        Long movedToTarget = order(user, OrderStatus.SHIPPED);
+        Long untouched = order(user, OrderStatus.DELIVERED);
+
+        // Depois da leitura dos status, outras requisições confirmam: SHIPPED -> DELIVERED (outra origem válida de
+        // RETURNED) e SHIPPED -> RETURNED (o próprio destino)
+        TransactionTemplate concurrent = new TransactionTemplate(transactionManager);
+        concurrent.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        AtomicBoolean interfered = new AtomicBoolean();
+        doAnswer(invocation -> {
+            Collection<?> ids = invocation.getArgument(0);
+            List<OrderStatusView> read = entityManager.createQuery("SELECT new com.avmsistemas.minha_api.repository.OrderStatusView("
+                            + "o.id, o.user.id, o.status, o.paymentStatus, o.totalAmount) FROM Order o WHERE o.id IN :ids", OrderStatusView.class)
+                    .setParameter("ids", ids).getResultList();
+            if (interfered.compareAndSet(false, true)) {
+                concurrent.executeWithoutResult(status -> {
+                    jdbcTemplate.update("UPDATE orders SET status = 'DELIVERED' WHERE id = ?", movedToOtherSource);
+                    jdbcTemplate.update("UPDATE orders SET status = 'RETURNED' WHERE id = ?", movedToTarget);
+                });
+            }
+            return read;
+        }).when(orderRepository).findStatusesByIdIn(anyCollection());
+
+        List<Object> published = new ArrayList<>();
+        OrderStatusTransitioner transitioner = new OrderStatusTransitioner(orderRepository, transactionManager, published::add, 500);
+        OrderStatusTransitionResultDTO result = transitioner.transition(List.of(movedToOtherSource, movedToTarget, untouched), OrderStatus.RETURNED);
+
+        assertThat(result.getOutcomes()).extracting(Outcome::getResult)
+                .containsExactly(Result.CONFLICT, Result.CONFLICT, Result.UPDATED);
+        // Só o pedido atualizado de fato publica evento, com a origem lida
+        assertThat(published).singleElement().isInstanceOfSatisfying(OrderEvent.class, event -> {
+            assertThat(event.orderId()).isEqualTo(untouched);
+            assertThat(event.previousStatus()).isEqualTo(OrderStatus.DELIVERED);
+        });
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM orders WHERE id = ?", String.class, movedToOtherSource))
+                .isEqualTo("DELIVERED");
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM orders WHERE id = ?", String.class, untouched))
+                .isEqualTo("RETURNED");
+    }
+
+    private Long order(User user, OrderStatus status) {
+        Order order = new Order(user, "Rua B", "2", null, "Centro", "Recife", "PE", "50000-000", "Brasil", new BigDecimal("10.00"), PaymentMethod.PIX);
+        order.setStatus(status);
+        return orderRepository.saveAndFlush(order).getId();
+    }
+}
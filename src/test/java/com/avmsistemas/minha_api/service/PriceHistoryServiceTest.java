@@ -0,0 +1,93 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.dto.PriceAsOfDTO;
+import com.avmsistemas.minha_api.dto.PriceAsOfRequestDTO;
+import com.avmsistemas.minha_api.dto.PricePointDTO;
+import com.avmsistemas.minha_api.dto.PriceSeriesDTO;
+import com.avmsistemas.minha_api.model.PriceHistory;
+import com.avmsistemas.minha_api.model.Product;
+import com.avmsistemas.minha_api.repository.PriceHistoryRepository;
+import com.avmsistemas.minha_api.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest
+@Transactional
+class PriceHistoryServiceTest {
+
+    @Autowired
+    private PriceHistoryService priceHistoryService;
+    @Autowired
+    private ProductRepository productRepository;
+    @MockitoSpyBean
+    private PriceHistoryRepository priceHistoryRepository;
+
+    @Test
+    void shouldAnswerTheSameWithAndWithoutCachedSeries() {
+        LocalDateTime changed = LocalDateTime.of(2025, 3, 10, 14, 30, 15, 123_456_000); // Fração abaixo de 1 ms
+        Product lamp = product("Luminária", changed, "89.90");
+        Product chair = product("Cadeira", changed.plusDays(1), "450.00");
+        LocalDateTime at = changed.plusHours(1);
+
+        PriceAsOfDTO fromDatabase = priceHistoryService.getPriceAt(lamp.getId(), at); // Sem série em cache
+        List<PriceAsOfDTO> batch = priceHistoryService.getPricesAt(List.of(
+                new PriceAsOfRequestDTO(lamp.getId(), at),
+                new PriceAsOfRequestDTO(chair.getId(), at),
+                new PriceAsOfRequestDTO(chair.getId(), at.plusDays(1)),
+                new PriceAsOfRequestDTO(-1L, at)));
+        PriceAsOfDTO fromCache = priceHistoryService.getPriceAt(lamp.getId(), at); // Série montada pelo lote
+
+        assertThat(fromDatabase.getEffectiveSince()).isEqualTo(changed);
+        assertThat(fromDatabase.getPrice()).isEqualTo(new BigDecimal("89.90"));
+        assertThat(fromCache).isEqualTo(fromDatabase);
+        assertThat(batch.get(0)).isEqualTo(fromDatabase);
+        assertThat(batch).extracting(PriceAsOfDTO::getStatus).containsExactly(
+                PriceAsOfDTO.Status.OK, PriceAsOfDTO.Status.NO_PRICE, PriceAsOfDTO.Status.OK, PriceAsOfDTO.Status.PRODUCT_NOT_FOUND);
+        assertThat(batch.get(2).getPrice()).isEqualTo(new BigDecimal("450.00"));
+    }
+
+    @Test
+    void shouldReadOnlyTheRequestedRangeWhenSeriesIsNotCached() {
+        LocalDateTime start = LocalDateTime.of(2025, 5, 1, 9, 0);
+        Product desk = product("Mesa", start, "300.00");
+        for (int day = 1; day <= 3; day++) {
+            PriceHistory history = new PriceHistory(new BigDecimal(300 + day * 10), desk);
+            history.setChangeDate(start.plusDays(day));
+            desk.addPriceHistory(history);
+        }
+        productRepository.saveAndFlush(desk);
+
+        PriceSeriesDTO fromRange = priceHistoryService.getPriceSeries(desk.getId(), start.plusDays(1), start.plusDays(2), null);
+
+        verify(priceHistoryRepository).findPricePointsBetween(eq(desk.getId()), any(), any());
+        verify(priceHistoryRepository, never()).findPricePoints(anyLong()); // A série inteira não é montada
+        assertThat(fromRange.getPoints()).extracting(PricePointDTO::getPrice)
+                .containsExactly(new BigDecimal("310.00"), new BigDecimal("320.00"));
+
+        priceHistoryService.getSeries(desk.getId()); // Agora com a série em cache: a mesma resposta
+        assertThat(priceHistoryService.getPriceSeries(desk.getId(), start.plusDays(1), start.plusDays(2), null)).isEqualTo(fromRange);
+        assertThat(priceHistoryService.getPriceSeries(desk.getId(), null, start.plusDays(1), "1d").getBuckets()).hasSize(2);
+    }
+
+    private Product product(String name, LocalDateTime changeDate, String price) {
+        Product product = productRepository.save(new Product(name, "", new BigDecimal(price), "", null));
+        PriceHistory history = new PriceHistory(new BigDecimal(price), product);
+        history.setChangeDate(changeDate);
+        product.addPriceHistory(history);
+        return productRepository.saveAndFlush(product);
+    }
+}
@@ -0,0 +1,66 @@
+package com.avmsistemas.minha_api.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PriceSeriesTest {
+
+    @Test
+    void shouldReturnOnlyPointsInsideRangeAcrossBlocks() {
+        PriceSeries series = new PriceSeries();
+        int points = PriceSeries.BLOCK_SIZE * 3 + 17;
+        for (int i = 0; i < points; i++) {
+            series.append(1_000L * i, 10_000L + (i % 2 == 0 ? i : -i)); // Preço sobe e desce (deltas negativos)
+        }
+
+        List<long[]> found = new ArrayList<>();
+        series.forEachInRange(150_000L, 300_000L, (ts, price) -> found.add(new long[]{ts, price}));
+
+        assertThat(series.size()).isEqualTo(points);
+        assertThat(found).hasSize(151);
+        assertThat(found.get(0)).containsExactly(150_000L, 10_150L);
+        assertThat(found.get(found.size() - 1)).containsExactly(300_000L, 10_300L);
+        assertThat(found.get(1)).containsExactly(151_000L, 9_849L);
+        assertThat(series.encodedBytes()).isLessThan(points * 16); // Menor que dois longs por ponto
+    }
+
+    @Test
+    void shouldIncludeRepeatedTimestampsAtBlockBoundary() {
+        PriceSeries series = new PriceSeries();
+        for (int i = 0; i < PriceSeries.BLOCK_SIZE + 5; i++) {
+            series.append(i < PriceSeries.BLOCK_SIZE - 2 ? i : 500L, i);
+        }
+
+        List<Long> prices = new ArrayList<>();
+        series.forEachInRange(500L, 500L, (ts, price) -> prices.add(price));
+
+        assertThat(prices).hasSize(7);
+    }
+
+    @Test
+    void shouldFindPriceInEffectAtInstant() {
+        PriceSeries series = new PriceSeries();
+        for (int i = 0; i < PriceSeries.BLOCK_SIZE * 2; i++) {
+            series.append(10L * i, 500L + i);
+        }
+
+        assertThat(series.pointAt(-1L)).isNull();
+        assertThat(series.pointAt(0L)).containsExactly(0L, 500L);
+        assertThat(series.pointAt(15L)).containsExactly(10L, 501L);
+        assertThat(series.pointAt(10L * PriceSeries.BLOCK_SIZE - 1)).containsExactly(10L * (PriceSeries.BLOCK_SIZE - 1), 500L + PriceSeries.BLOCK_SIZE - 1);
+        assertThat(series.pointAt(Long.MAX_VALUE)).containsExactly(10L * (PriceSeries.BLOCK_SIZE * 2 - 1), 500L + PriceSeries.BLOCK_SIZE * 2 - 1);
+    }
+
+    @Test
+    void shouldRejectOutOfOrderPoints() {
+        PriceSeries series = new PriceSeries();
+        series.append(10L, 1L);
+
+        assertThatThrownBy(() -> series.append(5L, 1L)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,74 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.dto.ImportRejectionDTO;
+import com.avmsistemas.minha_api.dto.ProductImportReportDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Sem @Transactional: cada lote confirma (ou desfaz) a própria transação, como na importação real
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:product-import-test", // Grava de fato: banco separado
+        "app.import.batch-size=4"
+})
+class ProductImportServiceTest {
+
+    @Autowired
+    private ProductImportService importService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void shouldRejectOversizedRowsWithoutInterruptingImport() throws Exception {
+        String feed = "{\"name\":\"Tamanho A\",\"price\":10}\n"
+                + "{\"name\":\"" + "x".repeat(256) + "\",\"price\":10}\n"
+                + "{\"name\":\"Tamanho B\",\"price\":10,\"imageUrl\":\"http://example.com/" + "y".repeat(2048) + "\"}\n"
+                + "{\"name\":\"Tamanho C\",\"price\":1" + "0".repeat(40) + "}\n"
+                + "{\"name\":\"Tamanho D\",\"price\":10}\n";
+
+        ProductImportReportDTO report = importService.importProducts(stream(feed), ProductImportService.Format.NDJSON);
+
+        assertThat(report.getInserted()).isEqualTo(2);
+        assertThat(report.getRejections()).extracting(ImportRejectionDTO::getLineNumber).containsExactly(2L, 3L, 4L);
+        assertThat(jdbcTemplate.queryForList("SELECT name FROM product WHERE name LIKE 'Tamanho %'", String.class))
+                .containsExactlyInAnyOrder("Tamanho A", "Tamanho D");
+    }
+
+    @Test
+    void shouldIsolateRowRefusedByDatabaseAndKeepTheRestOfItsBatch() throws Exception {
+        // Uma restrição que a validação não conhece: só o banco recusa a linha
+        jdbcTemplate.execute("ALTER TABLE product ADD CONSTRAINT chk_import_test CHECK (name <> 'Recusado')");
+        try {
+            String feed = "{\"name\":\"Lote 1\",\"price\":1}\n"
+                    + "{\"name\":\"Lote 2\",\"price\":2}\n"
+                    + "{\"name\":\"Recusado\",\"price\":3}\n"
+                    + "{\"name\":\"Lote 4\",\"price\":4}\n"
+                    + "{\"name\":\"Lote 5\",\"price\":5}\n"
+                    + "{\"name\":\"Lote 6\",\"price\":6}\n";
+
+            ProductImportReportDTO report = importService.importProducts(stream(feed), ProductImportService.Format.NDJSON);
+
+            assertThat(report.getInserted()).isEqualTo(5);
+            assertThat(report.getRejected()).isEqualTo(1);
+            assertThat(report.getRejections()).singleElement()
+                    .satisfies(rejection -> assertThat(rejection.getLineNumber()).isEqualTo(3L));
+            // Nada gravado duas vezes nem deixado pela tentativa desfeita
+            assertThat(jdbcTemplate.queryForList("SELECT name FROM product WHERE name LIKE 'Lote %'", String.class))
+                    .containsExactlyInAnyOrder("Lote 1", "Lote 2", "Lote 4", "Lote 5", "Lote 6");
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM price_history h JOIN product p ON p.id = h.product_id "
+                    + "WHERE p.name LIKE 'Lote %'", Long.class)).isEqualTo(5);
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE product DROP CONSTRAINT chk_import_test");
+        }
+    }
+
+    private static ByteArrayInputStream stream(String feed) {
+        return new ByteArrayInputStream(feed.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,68 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.dto.ProductSummaryDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex(null); // O repositório só é usado no rebuild inicial
+        index.upsert(product(1L, "Notebook Gamer", "Laptop poderoso para jogos."));
+        index.upsert(product(2L, "Smart TV 50", "Uma TV 4K de alta qualidade."));
+        index.upsert(product(3L, "Clean Code", "Um guia para bons programadores."));
+        index.upsert(product(4L, "Mochila executiva", "Cabe um notebook de 15 polegadas."));
+    }
+
+    @Test
+    void shouldRankNameMatchesAboveDescriptionMatches() {
+        List<ProductSummaryDTO> results = index.search("notebook", 10);
+
+        assertThat(results).extracting(ProductSummaryDTO::getId).containsExactly(1L, 4L);
+    }
+
+    @Test
+    void shouldMatchByPrefixAndIgnoreAccents() {
+        assertThat(index.search("progra", 10)).extracting(ProductSummaryDTO::getId).containsExactly(3L);
+        assertThat(index.search("QUALIDÁDE", 10)).extracting(ProductSummaryDTO::getId).containsExactly(2L);
+    }
+
+    @Test
+    void shouldTolerateTypos() {
+        assertThat(index.search("notebok", 10)).extracting(ProductSummaryDTO::getId).contains(1L, 4L);
+    }
+
+    @Test
+    void shouldCapFuzzyExpansions() {
+        for (long id = 10; id < 110; id++) {
+            index.upsert(product(id, "Caneta" + id, ""));
+        }
+
+        // "canetaa" é parecido com todos os 100 termos, mas só os mais similares são expandidos
+        assertThat(index.search("canetaa", 200)).hasSize(ProductSearchIndex.MAX_FUZZY_EXPANSIONS);
+        assertThat(index.search("caneta42", 1)).extracting(ProductSummaryDTO::getId).containsExactly(42L);
+    }
+
+    @Test
+    void shouldReflectUpdatesAndRemovals() {
+        index.upsert(product(2L, "Monitor Ultrawide", "Monitor curvo de 34 polegadas."));
+        assertThat(index.search("tv", 10)).isEmpty();
+        assertThat(index.search("monitor", 10)).extracting(ProductSummaryDTO::getId).containsExactly(2L);
+
+        index.remove(1L);
+        assertThat(index.search("gamer", 10)).isEmpty();
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    private static ProductSummaryDTO product(Long id, String name, String description) {
+        return new ProductSummaryDTO(id, name, description, BigDecimal.TEN, "", null, null);
+    }
+}
@@ -0,0 +1,89 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.dto.SalesRollupDTO;
+import com.avmsistemas.minha_api.model.Address;
+import com.avmsistemas.minha_api.model.Cart;
+import com.avmsistemas.minha_api.model.Category;
+import com.avmsistemas.minha_api.model.Order;
+import com.avmsistemas.minha_api.model.OrderStatus;
+import com.avmsistemas.minha_api.model.Product;
+import com.avmsistemas.minha_api.model.User;
+import com.avmsistemas.minha_api.repository.AddressRepository;
+import com.avmsistemas.minha_api.repository.CategoryRepository;
+import com.avmsistemas.minha_api.repository.ProductRepository;
+import com.avmsistemas.minha_api.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sales-rollups-test", // Grava de fato: banco separado
+        "app.analytics.rebuild.range-size=1" // Uma faixa por pedido
+})
+class SalesRollupsTest {
+
+    @Autowired
+    private SalesRollups salesRollups;
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private CartService cartService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private AddressRepository addressRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Test
+    void shouldAddOnCheckoutReverseOnCancelAndDeleteAndMatchAfterRebuild() {
+        User user = userRepository.save(new User("vendas@example.com", "vendas", "senha", "Vendas"));
+        Address address = addressRepository.save(new Address("Rua A", "10", null, "Centro", "Recife", "PE", "50000-000", "Brasil", true, user));
+        Category games = categoryRepository.save(new Category("Games"));
+        Product console = productRepository.save(new Product("Console", "Console de mesa", new BigDecimal("2500.00"), null, games));
+        Product controller = productRepository.save(new Product("Controle", "Controle sem fio", new BigDecimal("300.00"), null, games));
+        SalesRollupDTO totalBefore = salesRollups.total();
+        SalesRollupDTO todayBefore = salesRollups.byDay(LocalDate.now());
+
+        Order first = checkout(user, address, console, 1, controller, 2);
+        Order second = checkout(user, address, controller, 1, null, 0);
+        assertSales(salesRollups.byCategory(games.getId()), 2, 4, "3400.00");
+        assertSales(salesRollups.byProduct(controller.getId()), 2, 3, "900.00");
+        assertThat(salesRollups.byDay(LocalDate.now()).getOrders()).isEqualTo(todayBefore.getOrders() + 2);
+        assertThat(salesRollups.total().getRevenue()).isEqualByComparingTo(totalBefore.getRevenue().add(new BigDecimal("3400.00")));
+
+        orderService.updateOrderStatus(second.getId(), user.getId(), OrderStatus.CANCELED);
+        assertSales(salesRollups.byProduct(controller.getId()), 1, 2, "600.00");
+        orderService.deleteOrder(second.getId()); // Já cancelado: não retira de novo
+        assertSales(salesRollups.byCategory(games.getId()), 1, 3, "3100.00");
+
+        salesRollups.rebuild(); // Mesmo resultado relendo os pedidos, em paralelo por faixa de IDs
+        assertSales(salesRollups.byCategory(games.getId()), 1, 3, "3100.00");
+        assertSales(salesRollups.byProduct(console.getId()), 1, 1, "2500.00");
+
+        orderService.deleteOrder(first.getId());
+        assertSales(salesRollups.byCategory(games.getId()), 0, 0, "0.00");
+        assertThat(salesRollups.total().getRevenue()).isEqualByComparingTo(totalBefore.getRevenue());
+    }
+
+    private Order checkout(User user, Address address, Product product, int quantity, Product other, int otherQuantity) {
+        Cart cart = cartService.addItemToCart(user.getId(), product.getId(), quantity);
+        if (other != null) {
+            cart = cartService.addItemToCart(user.getId(), other.getId(), otherQuantity);
+        }
+        return orderService.createOrderFromCart(user.getId(), cart.getId(), address.getId());
+    }
+
+    private static void assertSales(SalesRollupDTO sales, long orders, long units, String revenue) {
+        assertThat(sales.getOrders()).isEqualTo(orders);
+        assertThat(sales.getUnits()).isEqualTo(units);
+        assertThat(sales.getRevenue()).isEqualByComparingTo(revenue);
+    }
+}
@@ -0,0 +1,204 @@
+package com.avmsistemas.minha_api.service;
+
+import com.avmsistemas.minha_api.dto.CartOperationDTO;
+import com.avmsistemas.minha_api.model.Address;
+import com.avmsistemas.minha_api.model.Cart;
+import com.avmsistemas.minha_api.model.CartItem;
+import com.avmsistemas.minha_api.model.Product;
+import com.avmsistemas.minha_api.model.Order;
+import com.avmsistemas.minha_api.model.User;
+import com.avmsistemas.minha_api.repository.AddressRepository;
+import com.avmsistemas.minha_api.repository.CartItemRepository;
+import com.avmsistemas.minha_api.repository.CartRepository;
+import com.avmsistemas.minha_api.repository.ProductRepository;
+import com.avmsistemas.minha_api.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:write-behind-test", // Grava de fato (sem rollback): banco separado
+        "app.cart.store=memory",
+        "app.cart.store.log-dir=target/cart-log-test",
+        "app.cart.store.flush-interval-ms=3600000" // O teste dispara o flush
+})
+class WriteBehindCartStoreTest {
+
+    private static final String LOG_DIR = "target/cart-log-test";
+
+    @Autowired
+    private CartService cartService;
+    @Autowired
+    private WriteBehindCartStore store;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CartRepository cartRepository;
+    @Autowired
+    private CartItemRepository cartItemRepository;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private AddressRepository addressRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void shouldKeepChangesInMemoryUntilFlush() {
+        User user = userRepository.save(new User("writebehind@example.com", "writebehind", "senha", "Write Behind"));
+        Product teclado = productRepository.save(new Product("Teclado", "Teclado mecânico", new BigDecimal("200.00"), null, null));
+        Product mouse = productRepository.save(new Product("Mouse", "Mouse sem fio", new BigDecimal("50.00"), null, null));
+
+        cartService.addItemToCart(user.getId(), teclado.getId(), 1);
+        cartService.addItemToCart(user.getId(), mouse.getId(), 2);
+        Cart cart = cartService.updateCartItemQuantity(user.getId(), teclado.getId(), 3);
+
+        assertThat(cart.getTotalAmount()).isEqualByComparingTo("700.00");
+        assertThat(cartItemRepository.findByCartId(cart.getId())).isEmpty(); // Ainda só em memória
+
+        store.flush();
+
+        List<CartItem> items = cartItemRepository.findByCartId(cart.getId());
+        assertThat(items).extracting(CartItem::getQuantity).containsExactlyInAnyOrder(3, 2);
+        assertThat(cartRepository.findById(cart.getId()).orElseThrow().getTotalAmount()).isEqualByComparingTo("700.00");
+
+        cartService.removeCartItem(user.getId(), mouse.getId());
+        store.flush();
+        assertThat(cartItemRepository.findByCartId(cart.getId())).hasSize(1);
+
+        cart = cartService.applyOperations(user.getId(), List.of(
+                new CartOperationDTO(CartOperationDTO.Type.SET, mouse.getId(), 5),
+                new CartOperationDTO(CartOperationDTO.Type.REMOVE, teclado.getId(), null)));
+        assertThat(cart.getTotalAmount()).isEqualByComparingTo("250.00");
+        store.flush();
+        assertThat(cartItemRepository.findByCartId(cart.getId()))
+                .singleElement().satisfies(item -> assertThat(item.getQuantity()).isEqualTo(5));
+    }
+
+    @Test
+    void shouldReplayLogAfterRestart() {
+        User user = userRepository.save(new User("replay@example.com", "replay", "senha", "Replay"));
+        Product monitor = productRepository.save(new Product("Monitor", "Monitor 27", new BigDecimal("1000.00"), null, null));
+
+        Cart cart = cartService.addItemToCart(user.getId(), monitor.getId(), 2); // Confirmado, mas não gravado no banco
+
+        // Outra instância sobre o mesmo diretório faz o papel do processo reiniciado
+        WriteBehindCartStore restarted = new WriteBehindCartStore(cartRepository, userRepository, productRepository,
+                productService, transactionManager, LOG_DIR, 4, 100, 30);
+        restarted.recover();
+
+        List<CartItem> items = cartItemRepository.findByCartId(cart.getId());
+        assertThat(items).singleElement().satisfies(item -> assertThat(item.getQuantity()).isEqualTo(2));
+        assertThat(cartRepository.findById(cart.getId()).orElseThrow().getTotalAmount()).isEqualByComparingTo("2000.00");
+    }
+
+    @Test
+    void shouldNeverHandOutASmallerVersionAfterReload() {
+        User user = userRepository.save(new User("versao-memoria@example.com", "versao-memoria", "senha", "Versão"));
+        Product cabo = productRepository.save(new Product("Cabo", "Cabo USB", new BigDecimal("20.00"), null, null));
+
+        cartService.addItemToCart(user.getId(), cabo.getId(), 1);
+        cartService.updateCartItemQuantity(user.getId(), cabo.getId(), 2);
+        long flushed = cartService.updateCartItemQuantity(user.getId(), cabo.getId(), 3).getVersion();
+        store.flush(); // Três alterações em memória, um único UPDATE do carrinho
+
+        // Instância nova: relê o carrinho do banco, como depois da remoção por inatividade
+        WriteBehindCartStore reloaded = new WriteBehindCartStore(cartRepository, userRepository, productRepository,
+                productService, transactionManager, LOG_DIR, 4, 100, 30);
+        assertThat(reloaded.findCart(user.getId()).orElseThrow().getVersion()).isGreaterThanOrEqualTo(flushed);
+
+        // Alteração entregue e não gravada: a reaplicação do log também não volta atrás
+        long logged = cartService.updateCartItemQuantity(user.getId(), cabo.getId(), 4).getVersion();
+        WriteBehindCartStore restarted = new WriteBehindCartStore(cartRepository, userRepository, productRepository,
+                productService, transactionManager, LOG_DIR, 4, 100, 30);
+        restarted.recover();
+        assertThat(restarted.findCart(user.getId()).orElseThrow().getVersion()).isGreaterThanOrEqualTo(logged);
+    }
+
+    @Test
+    void shouldPersistChangesAndReopenLogAfterLogWriteFailure() throws Exception {
+        Path failureDir = Path.of("target/cart-log-failure-test");
+        FileSystemUtils.deleteRecursively(failureDir);
+        AtomicBoolean diskFailing = new AtomicBoolean();
+        CartAppendLog appendLog = new CartAppendLog(failureDir, path -> {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            if (diskFailing.get()) {
+                channel.close(); // A primeira gravação neste segmento falha
+            }
+            return channel;
+        });
+        WriteBehindCartStore failing = new WriteBehindCartStore(cartRepository, userRepository, productRepository,
+                productService, transactionManager, appendLog, 4, 100, 30);
+        User user = userRepository.save(new User("falha-log@example.com", "falha-log", "senha", "Falha"));
+        Product teclado = productRepository.save(new Product("Teclado", "Teclado mecânico", new BigDecimal("200.00"), null, null));
+        Product mouse = productRepository.save(new Product("Mouse", "Mouse sem fio", new BigDecimal("50.00"), null, null));
+
+        Cart cart = failing.addItem(user.getId(), teclado.getId(), 1);
+        diskFailing.set(true);
+        failing.flush(); // Passa para um segmento que não aceita gravações
+
+        // A gravação no log falha depois de aplicada em memória; enquanto o log está em falha, nada mais é aceito
+        assertThatThrownBy(() -> failing.addItem(user.getId(), mouse.getId(), 2)).isInstanceOf(UncheckedIOException.class);
+        assertThatThrownBy(() -> failing.addItem(user.getId(), mouse.getId(), 1)).isInstanceOf(UncheckedIOException.class);
+
+        diskFailing.set(false);
+        failing.flush();
+        assertThat(cartItemRepository.findByCartId(cart.getId())).extracting(CartItem::getQuantity).containsExactlyInAnyOrder(1, 2);
+        assertThat(cartRepository.findById(cart.getId()).orElseThrow().getTotalAmount()).isEqualByComparingTo("300.00");
+
+        // Log reaberto: as alterações voltam a ser aceitas e gravadas, e só o segmento novo ficou
+        assertThat(failing.addItem(user.getId(), mouse.getId(), 1).getTotalAmount()).isEqualByComparingTo("350.00");
+        failing.flush();
+        assertThat(cartItemRepository.findByCartId(cart.getId())).extracting(CartItem::getQuantity).containsExactlyInAnyOrder(1, 3);
+        try (Stream<Path> files = Files.list(failureDir)) {
+            assertThat(files).hasSize(1);
+        }
+        failing.shutdown();
+    }
+
+    @Test
+    void shouldFailCheckoutWhenCartChangesAfterItsFlush() {
+        User user = userRepository.save(new User("checkout-memoria@example.com", "checkout-memoria", "senha", "Checkout"));
+        Address address = addressRepository.save(new Address("Rua C", "30", null, "Centro", "Recife", "PE", "50000-000", "Brasil", true, user));
+        Product teclado = productRepository.save(new Product("Teclado", "Teclado mecânico", new BigDecimal("200.00"), null, null));
+        Product mouse = productRepository.save(new Product("Mouse", "Mouse sem fio", new BigDecimal("50.00"), null, null));
+        Long cartId = cartService.addItemToCart(user.getId(), teclado.getId(), 1).getId();
+
+        // Outra requisição adiciona um item depois do flush do checkout e antes do seu commit (e recebe a confirmação)
+        TransactionTemplate checkout = new TransactionTemplate(transactionManager);
+        assertThatThrownBy(() -> checkout.executeWithoutResult(status -> {
+            orderService.createOrderFromCart(user.getId(), cartId, address.getId());
+            CompletableFuture.runAsync(() -> cartService.addItemToCart(user.getId(), mouse.getId(), 1)).join();
+        })).isInstanceOf(OptimisticLockingFailureException.class);
+
+        // Nada foi perdido: sem pedido, e o carrinho continua com os dois itens
+        assertThat(orderService.getOrdersByUserId(user.getId())).isEmpty();
+        assertThat(cartService.getCartByUserId(user.getId()).orElseThrow().getTotalAmount()).isEqualByComparingTo("250.00");
+
+        Order order = checkout.execute(status -> orderService.createOrderFromCart(user.getId(), cartId, address.getId()));
+        assertThat(order.getTotalAmount()).isEqualByComparingTo("250.00");
+        assertThat(cartService.getCartByUserId(user.getId()).orElseThrow().getItems()).isEmpty();
+    }
+}